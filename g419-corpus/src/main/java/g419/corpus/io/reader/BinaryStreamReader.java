@@ -0,0 +1,237 @@
+package g419.corpus.io.reader;
+
+import g419.corpus.io.DataFormatException;
+import g419.corpus.io.writer.BinaryStreamWriter;
+import g419.corpus.structure.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Wczytuje dokumenty zapisane w formacie binarnym przez {@link BinaryStreamWriter}. Dokumenty są
+ * odtwarzane w stanie, w jakim zostały zapisane, łącznie z wygenerowanymi cechami.
+ */
+public class BinaryStreamReader extends AbstractDocumentReader {
+
+  private final String uri;
+  private final DataInputStream in;
+  private final TokenAttributeIndex attributeIndex = new TokenAttributeIndex();
+  private final List<String> strings = new ArrayList<>();
+  private boolean hasNext;
+
+  public BinaryStreamReader(final String uri, final InputStream is) throws DataFormatException {
+    this.uri = uri;
+    in = new DataInputStream(new BufferedInputStream(is, 1 << 16));
+    try {
+      if (in.readInt() != BinaryStreamWriter.MAGIC) {
+        throw new DataFormatException("Not a binary document file: " + uri);
+      }
+      final int version = in.readInt();
+      if (version != BinaryStreamWriter.VERSION) {
+        throw new DataFormatException("Unsupported version " + version + " of binary document file: " + uri);
+      }
+      hasNext = readInt() == BinaryStreamWriter.DOCUMENT;
+    } catch (final IOException ex) {
+      throw new DataFormatException("Failed to read binary document file " + uri, ex);
+    }
+  }
+
+  @Override
+  protected TokenAttributeIndex getAttributeIndex() {
+    return attributeIndex;
+  }
+
+  @Override
+  public Document nextDocument() throws DataFormatException {
+    if (!hasNext) {
+      return null;
+    }
+    try {
+      strings.clear();
+      final Document document = readDocument();
+      hasNext = readInt() == BinaryStreamWriter.DOCUMENT;
+      return document;
+    } catch (final IOException ex) {
+      hasNext = false;
+      throw new DataFormatException("Failed to read binary document file " + uri, ex);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return hasNext;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private Document readDocument() throws IOException, DataFormatException {
+    final String name = readString();
+    final String documentUri = readString();
+    final String featureSignature = readString();
+    final Map<String, String> description = readMap();
+    final Map<String, String> metadata = readMap();
+
+    final TokenAttributeIndex index = new TokenAttributeIndex();
+    final int attributes = readInt();
+    for (int i = 0; i < attributes; i++) {
+      index.addAttribute(readString());
+    }
+
+    final List<Paragraph> paragraphs = new ArrayList<>();
+    final List<List<Annotation>> annotations = new ArrayList<>();
+    final int paragraphCount = readInt();
+    for (int p = 0; p < paragraphCount; p++) {
+      final Paragraph paragraph = new Paragraph(readString(), index);
+      final HashMap<String, String> chunkMetaData = new HashMap<>();
+      final int metaDataCount = readInt();
+      for (int i = 0; i < metaDataCount; i++) {
+        chunkMetaData.put(readString(), readString());
+      }
+      paragraph.setChunkMetaData(chunkMetaData);
+      final int sentenceCount = readInt();
+      for (int s = 0; s < sentenceCount; s++) {
+        final List<Annotation> sentenceAnnotations = new ArrayList<>();
+        final Sentence sentence = readSentence(index, sentenceAnnotations);
+        sentence.setParagraph(paragraph);
+        paragraph.addSentence(sentence);
+        annotations.add(sentenceAnnotations);
+      }
+      paragraphs.add(paragraph);
+    }
+
+    final Document document = new Document(name, paragraphs, index);
+    document.setUri(documentUri);
+    document.setFeatureSignature(featureSignature);
+    description.forEach(document.getDocumentDescriptor()::setDescription);
+    metadata.forEach(document.getDocumentDescriptor()::setMetadata);
+
+    final int relations = readInt();
+    for (int i = 0; i < relations; i++) {
+      final String id = readString();
+      final String type = readString();
+      final String set = readString();
+      final Annotation from = getAnnotation(annotations, readInt(), readInt());
+      final Annotation to = getAnnotation(annotations, readInt(), readInt());
+      document.addRelation(id == null ? new Relation(from, to, type, set, document) : new Relation(id, from, to, type, set));
+    }
+    return document;
+  }
+
+  private Sentence readSentence(final TokenAttributeIndex index, final List<Annotation> annotations)
+      throws IOException {
+    final Sentence sentence = new Sentence(index);
+    sentence.setId(readString());
+    final int tokenCount = readInt();
+    for (int t = 0; t < tokenCount; t++) {
+      final Token token = new Token(index);
+      token.setId(readString());
+      token.setNoSpaceAfter(in.readBoolean());
+      final int attributes = readInt();
+      token.packAtributes(attributes);
+      if (attributes < token.getNumAttributes()) {
+        final int[] retained = new int[attributes];
+        for (int i = 0; i < attributes; i++) {
+          retained[i] = i;
+        }
+        token.retainAttributes(retained);
+      }
+      for (int i = 0; i < attributes; i++) {
+        final String value = readString();
+        if (value != null) {
+          token.setAttributeValue(i, value);
+        }
+      }
+      /* Interpretacje dodawane bezpośrednio, bez uzupełniania atrybutów base i ctag */
+      final int tags = readInt();
+      for (int i = 0; i < tags; i++) {
+        token.getTags().add(new Tag(readString(), readString(), in.readBoolean()));
+      }
+      readMap().forEach(token::setProp);
+      sentence.addToken(token);
+    }
+
+    final int annotationCount = readInt();
+    for (int a = 0; a < annotationCount; a++) {
+      final String id = readString();
+      final String type = readString();
+      final String group = readString();
+      final TreeSet<Integer> tokens = new TreeSet<>();
+      final int tokenNumber = readInt();
+      int token = 0;
+      for (int i = 0; i < tokenNumber; i++) {
+        token += readInt();
+        tokens.add(token);
+      }
+      final Annotation annotation = new Annotation(tokens, type, sentence);
+      annotation.setId(id);
+      annotation.setGroup(group);
+      annotation.setHead(readInt());
+      annotation.setLemma(readString());
+      annotation.setChannelIdx(readInt());
+      annotation.setConfidence(in.readDouble());
+      annotation.setMetadata(readMap());
+      sentence.addChunk(annotation);
+      annotations.add(annotation);
+    }
+    return sentence;
+  }
+
+  private Annotation getAnnotation(final List<List<Annotation>> annotations, final int sentence, final int annotation)
+      throws DataFormatException {
+    if (sentence >= annotations.size() || annotation >= annotations.get(sentence).size()) {
+      throw new DataFormatException("Invalid annotation reference in binary document file " + uri);
+    }
+    return annotations.get(sentence).get(annotation);
+  }
+
+  private Map<String, String> readMap() throws IOException {
+    final int size = readInt();
+    final Map<String, String> map = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      map.put(readString(), readString());
+    }
+    return map;
+  }
+
+  private String readString() throws IOException {
+    final int code = readInt();
+    if (code == BinaryStreamWriter.STRING_NULL) {
+      return null;
+    } else if (code == BinaryStreamWriter.STRING_NEW) {
+      final byte[] bytes = new byte[readInt()];
+      in.readFully(bytes);
+      final String value = new String(bytes, StandardCharsets.UTF_8);
+      strings.add(value);
+      return value;
+    } else {
+      return strings.get(code - BinaryStreamWriter.STRING_REF);
+    }
+  }
+
+  private int readInt() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      final int b = in.read();
+      if (b == -1) {
+        throw new EOFException();
+      }
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed number");
+  }
+}
@@ -0,0 +1,105 @@
+package g419.corpus.io.reader;
+
+import g419.corpus.io.DataFormatException;
+import g419.corpus.io.reader.parser.CclStaxParser;
+import g419.corpus.structure.Document;
+import g419.corpus.structure.Paragraph;
+import g419.corpus.structure.TokenAttributeIndex;
+import org.apache.commons.io.IOUtils;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wczytuje dokument CCL w częściach. Każda część jest osobnym obiektem Document o nazwie dokumentu
+ * i zawiera kolejne akapity, dopóki liczba ich zdań nie osiągnie podanego limitu (akapit nie jest
+ * dzielony, więc część zawiera co najmniej jeden akapit). Anotacje w CCL są numerowane w obrębie
+ * zdania, więc podział na akapity ich nie zmienia. W pamięci przechowywana jest tylko bieżąca część.
+ * <p>
+ * Części należy zapisywać za pomocą {@link g419.corpus.io.writer.AbstractDocumentWriter#writeDocumentPart(Document)}.
+ * Cechy liczone dla całego dokumentu (np. tf-idf) są liczone dla części.
+ */
+public class CclStaxStreamReader extends AbstractDocumentReader {
+
+  private final String uri;
+  private final TokenAttributeIndex attributeIndex;
+  private final CclStaxParser parser;
+  private final InputStream in;
+  private final byte[] descriptor;
+  private final int sentences;
+  private Paragraph next;
+
+  /**
+   * @param uri
+   * @param cclDocument
+   * @param cclDescriptor opis dokumentu dodawany do każdej części (może być null)
+   * @param sentences     liczba zdań, po osiągnięciu której część jest zamykana
+   * @throws DataFormatException
+   * @throws IOException
+   */
+  public CclStaxStreamReader(final String uri, final InputStream cclDocument, final InputStream cclDescriptor,
+                             final int sentences) throws DataFormatException, IOException {
+    this.uri = uri;
+    this.sentences = Math.max(1, sentences);
+    in = cclDocument;
+    attributeIndex = new TokenAttributeIndex();
+    attributeIndex.addAttribute("orth");
+    attributeIndex.addAttribute("base");
+    attributeIndex.addAttribute("ctag");
+    descriptor = cclDescriptor == null ? null : IOUtils.toByteArray(cclDescriptor);
+    try {
+      parser = new CclStaxParser(uri, cclDocument, attributeIndex);
+    } catch (final XMLStreamException ex) {
+      throw new DataFormatException("Failed to read CCL document " + uri, ex);
+    }
+    next = readParagraph();
+  }
+
+  @Override
+  public TokenAttributeIndex getAttributeIndex() {
+    return attributeIndex;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  @Override
+  public Document nextDocument() throws Exception {
+    if (next == null) {
+      return null;
+    }
+    final List<Paragraph> paragraphs = new ArrayList<>();
+    int count = 0;
+    while (next != null && (paragraphs.isEmpty() || count < sentences)) {
+      paragraphs.add(next);
+      count += next.numSentences();
+      next = readParagraph();
+    }
+    final Document document = new Document(uri, paragraphs, attributeIndex);
+    document.setUri(uri);
+    if (descriptor != null) {
+      new CclDescriptorReader().enhanceDocument(document, new ByteArrayInputStream(descriptor));
+    }
+    return document;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return next != null;
+  }
+
+  private Paragraph readParagraph() throws DataFormatException {
+    try {
+      return parser.nextParagraph();
+    } catch (final XMLStreamException | SAXException ex) {
+      throw new DataFormatException("Failed to read CCL document " + uri, ex);
+    }
+  }
+}
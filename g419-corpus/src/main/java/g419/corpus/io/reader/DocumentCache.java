@@ -0,0 +1,18 @@
+package g419.corpus.io.reader;
+
+/**
+ * Bufor dokumentów obsługujący formaty wejściowe "cache:FORMAT". Bufor zwraca dokumenty wczytane
+ * z pliku w formacie FORMAT, przechowując je w postaci, której ponowne wczytanie jest tańsze
+ * (np. z wygenerowanymi cechami). Bufor jest rejestrowany w {@link ReaderFactory#setDocumentCache(DocumentCache)}.
+ */
+public interface DocumentCache {
+
+  /**
+   * @param inputFile   plik z dokumentami
+   * @param inputFormat format pliku (bez przedrostka "cache:")
+   * @return
+   * @throws Exception
+   */
+  AbstractDocumentReader getStreamReader(String inputFile, String inputFormat) throws Exception;
+
+}
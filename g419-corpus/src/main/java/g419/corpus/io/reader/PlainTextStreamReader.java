@@ -1,5 +1,6 @@
 package g419.corpus.io.reader;
 
+import g419.corpus.io.reader.analyzer.MorphAnalyzerFactory;
 import g419.corpus.structure.*;
 
 import java.io.*;
@@ -10,24 +11,20 @@ public class PlainTextStreamReader extends AbstractDocumentReader {
   private Document document;
   private String docName;
 
-  public PlainTextStreamReader(String docName, InputStream is, String analyzer) {
+  public PlainTextStreamReader(String docName, InputStream is, String analyzer) throws Exception {
     this.docName = docName;
     this.read(is, analyzer);
   }
 
-  private void read(InputStream is, String analyzer) {
+  private void read(InputStream is, String analyzer) throws Exception {
     BufferedReader input_reader = new BufferedReader(new InputStreamReader(is));
 
     StringBuilder sb = new StringBuilder();
     String line = null;
-    try {
-      while ((line = input_reader.readLine()) != null) {
-        sb.append(line + "\n");
-      }
-      input_reader.close();
-    } catch (IOException e) {
-      e.printStackTrace();
+    while ((line = input_reader.readLine()) != null) {
+      sb.append(line + "\n");
     }
+    input_reader.close();
     document = analyzer.equals("none") ? analyzePlain(sb.toString().trim()) : analyze(sb.toString().trim(), analyzer);
   }
 
@@ -82,48 +79,20 @@ public class PlainTextStreamReader extends AbstractDocumentReader {
   }
 
   /**
-   * Analyze plain text using maca analyzer or wcrft tagger.
+   * Analyze plain text using a shared analyzer session (maca analyzer, wcrft tagger or the simple
+   * Java tokenizer). The simple tokenizer is used only when it is requested (plain:simple).
    *
    * @param cSeq
    * @param analyzer
    * @return
+   * @throws Exception if the analyzer cannot be started or the analysis fails
    */
-  private Document analyze(String cSeq, String analyzer) {
-
+  private Document analyze(String cSeq, String analyzer) throws Exception {
     try {
-      // IMPORTANT uporządkować wywołanie wcrft-app, aby działało pod windows i linux.
-      File tager_input = File.createTempFile("wcrft_input", ".txt");
-      BufferedWriter tager_writer = new BufferedWriter(
-          new FileWriter(tager_input));
-      tager_writer.write(cSeq, 0, cSeq.length());
-      tager_writer.close();
-
-      String cmd = "";
-      if (analyzer.equals("wcrft")) {
-        cmd = String.format("wcrft-app nkjp_e2.ini -i text -o ccl %s -O %s.tag", tager_input.getAbsolutePath(), tager_input.getAbsolutePath());
-      } else if (analyzer.equals("maca")) {
-        cmd = String.format("maca-analyse -qs morfeusz-nkjp-official -o ccl < %s > %s.tag", tager_input.getAbsolutePath(), tager_input.getAbsolutePath());
-      } else {
-        throw new Exception("Unrecognized analyzer: " + analyzer);
-      }
-      Process tager = Runtime.getRuntime().exec(cmd);
-      tager.waitFor();
-      File tagFile = new File(tager_input.getAbsolutePath() + ".tag");
-      FileInputStream tagFileStream = new FileInputStream(tagFile);
-      byte[] data = new byte[(int) tagFile.length()];
-      tagFileStream.read(data);
-      tagFileStream.close();
-      InputStream is = new ByteArrayInputStream(data);
-      tagFile.delete();
-      AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(docName, is, "ccl");
-      Document doc = reader.nextDocument();
-      reader.close();
-      tager_input.delete();
-      return doc;
-
-    } catch (Exception ex) {
-      ex.printStackTrace();
-      return null;
+      return MorphAnalyzerFactory.get().getAnalyzer(analyzer).analyze(docName, cSeq);
+    } catch (IOException ex) {
+      throw new IOException("Analyzer `" + analyzer + "` is not available, use plain:"
+          + MorphAnalyzerFactory.ANALYZER_SIMPLE + " to segment the text with the simple tokenizer", ex);
     }
   }
 
@@ -11,11 +11,31 @@ public class ReaderFactory {
 
   private static final ReaderFactory factory = new ReaderFactory();
 
+  private volatile DocumentCache documentCache = null;
+
   public static ReaderFactory get() {
     return ReaderFactory.factory;
   }
 
+  /**
+   * Ustawia bufor dokumentów, z którego wczytywane są dokumenty w formatach "cache:FORMAT".
+   *
+   * @param documentCache bufor lub null
+   */
+  public void setDocumentCache(DocumentCache documentCache) {
+    this.documentCache = documentCache;
+  }
+
   public AbstractDocumentReader getStreamReader(String inputFile, String inputFormat) throws Exception {
+    if (inputFormat.startsWith("cache:")) {
+      if (documentCache == null) {
+        throw new Exception("Input format " + inputFormat + " requires a document cache, which is not configured.");
+      }
+      if (inputFile == null) {
+        throw new Exception("Input format " + inputFormat + " can not be read from the standard input.");
+      }
+      return documentCache.getStreamReader(inputFile, inputFormat.substring(6));
+    }
     boolean gz = false;
     String intpuFormatNoGz = inputFormat;
     if (inputFormat.endsWith(":gz")) {
@@ -54,16 +74,7 @@ public class ReaderFactory {
       in = new GZIPInputStream(in);
     }
     if (inputFormat.equals("ccl")) {
-      InputStream desc = null;
-      String cclPath = Paths.get(uri).getFileName().toString();
-      if (cclPath.endsWith(".xml")) {
-        // Sama podmiana bez sprawdzenia rozszerzenia powoduje, że dla pliku z innym rozszerzenie niż xml
-        // jako ini brany jest plik ccl.
-        desc = getInputStream(root, Paths.get(uri).getFileName().toString().replace(".xml", ".ini"), gz);
-      } else if (cclPath.endsWith(".tag")) {
-        desc = getInputStream(root, Paths.get(uri).getFileName().toString().replace(".tag", ".ini"), gz);
-      }
-      return new CclSAXStreamReader(uri, in, desc, null);
+      return new CclSAXStreamReader(uri, in, getCclDescriptor(uri, root, gz), null);
     } else if (inputFormat.equals("cclrel")) {
       InputStream rel = getInputStream(root, uri.replace(root, "").replace(".xml", ".rel.xml"), gz);
       InputStream desc = getInputStream(root, Paths.get(uri).getFileName().toString().replace(".xml", ".ini"), gz);
@@ -76,6 +87,8 @@ public class ReaderFactory {
       InputStream rel = getInputStream(root, uri.replace(".xml", ".rel_cls"), gz);
       InputStream desc = getInputStream(root, Paths.get(uri).getFileName().toString().replace(".xml", ".ini"), gz);
       return new CclSAXStreamReader(uri, in, desc, rel);
+    } else if (inputFormat.equals("bin")) {
+      return new BinaryStreamReader(uri, in);
     } else if (inputFormat.equals("iob")) {
       return new IobStreamReader(in);
     } else if (inputFormat.equals("csv")) {
@@ -86,11 +99,54 @@ public class ReaderFactory {
       return new PlainTextStreamReader(uri, in, "maca");
     } else if (inputFormat.equals("plain:wcrft")) {
       return new PlainTextStreamReader(uri, in, "wcrft");
+    } else if (inputFormat.equals("plain:simple")) {
+      return new PlainTextStreamReader(uri, in, "simple");
     } else {
       throw new Exception("Input format " + inputFormat + " not recognized.");
     }
   }
 
+  /**
+   * Creates a reader which returns the document in parts of whole paragraphs, each part
+   * having at least the given number of sentences (except the last one). Only the ccl format
+   * (optionally with :gz) can be read in parts.
+   *
+   * @param inputFile
+   * @param inputFormat
+   * @param sentences
+   * @return
+   * @throws Exception
+   */
+  public AbstractDocumentReader getStreamPartReader(String inputFile, String inputFormat, int sentences) throws Exception {
+    boolean gz = inputFormat.endsWith(":gz");
+    String inputFormatNoGz = gz ? inputFormat.substring(0, inputFormat.length() - 3) : inputFormat;
+    if (!inputFormatNoGz.equals("ccl")) {
+      throw new Exception("Input format " + inputFormat + " can not be read in parts, only ccl is supported.");
+    }
+    String uri = inputFile == null ? "System.in" : inputFile;
+    InputStream in = inputFile == null ? System.in : new FileInputStream(inputFile);
+    if (gz) {
+      in = new GZIPInputStream(in);
+    }
+    String root = inputFile == null ? null : new File(inputFile).getParent();
+    return new CclStaxStreamReader(uri, in, getCclDescriptor(uri, root, gz), sentences);
+  }
+
+  /**
+   * Returns the descriptor (ini file) of a ccl document or null.
+   */
+  private InputStream getCclDescriptor(String uri, String root, boolean gz) throws Exception {
+    String cclPath = Paths.get(uri).getFileName().toString();
+    if (cclPath.endsWith(".xml")) {
+      // Sama podmiana bez sprawdzenia rozszerzenia powoduje, że dla pliku z innym rozszerzenie niż xml
+      // jako ini brany jest plik ccl.
+      return getInputStream(root, cclPath.replace(".xml", ".ini"), gz);
+    } else if (cclPath.endsWith(".tag")) {
+      return getInputStream(root, cclPath.replace(".tag", ".ini"), gz);
+    }
+    return null;
+  }
+
   /**
    * @param inputFolder
    * @param docname
@@ -0,0 +1,24 @@
+package g419.corpus.io.reader.analyzer;
+
+import g419.corpus.structure.Document;
+
+import java.io.Closeable;
+
+/**
+ * Long-lived morphological analyzer which turns a plain text into a segmented and tagged document.
+ * A single instance is reused for many documents, so any expensive initialization (loading a model,
+ * starting an external process) is done only once.
+ */
+public interface MorphAnalyzer extends Closeable {
+
+  /**
+   * Segments and tags the text.
+   *
+   * @param docName name of the created document
+   * @param text    plain text to analyze
+   * @return document with paragraphs, sentences and tokens
+   * @throws Exception
+   */
+  Document analyze(String docName, String text) throws Exception;
+
+}
@@ -0,0 +1,90 @@
+package g419.corpus.io.reader.analyzer;
+
+import g419.corpus.HasLogger;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates and keeps morphological analyzer sessions. Each analyzer is created once per JVM and shared
+ * by all readers, so the external process and its model are loaded only once.
+ * The commands of the external analyzers can be changed with the system properties
+ * liner2.analyzer.maca and liner2.analyzer.wcrft, and the time limit of the analysis of a single text
+ * (in seconds) with liner2.analyzer.timeout.
+ */
+public class MorphAnalyzerFactory implements HasLogger {
+
+  public static final String ANALYZER_NONE = "none";
+  public static final String ANALYZER_SIMPLE = "simple";
+  public static final String ANALYZER_MACA = "maca";
+  public static final String ANALYZER_WCRFT = "wcrft";
+
+  /*
+   * The options are the same as in the previous per-document calls (maca-analyse -qs ... -o ccl,
+   * wcrft-app ... -i text -o ccl), except for two changes required by a session over stdin/stdout:
+   * - the output format is plain instead of ccl, because ccl closes its root element only at the end
+   *   of the input, while plain is line-oriented and the end-of-document marker can be found in it
+   *   as soon as it is written;
+   * - wcrft-app reads the text from stdin (-) instead of a temporary file and writes to stdout instead
+   *   of the -O file.
+   * The marker paragraph relies on the input being split into chunks on empty lines (-s of maca-analyse).
+   * Whether the tools flush their output after every chunk has not been checked against real installations;
+   * a tool which does not is handled by the time limit of ProcessMorphAnalyzer.
+   */
+  public static final String COMMAND_MACA = "maca-analyse -qs morfeusz-nkjp-official -o plain";
+  public static final String COMMAND_WCRFT = "wcrft-app nkjp_e2.ini -i text -o plain -";
+
+  private static final MorphAnalyzerFactory factory = new MorphAnalyzerFactory();
+
+  private final Map<String, MorphAnalyzer> analyzers = new HashMap<>();
+
+  private MorphAnalyzerFactory() {
+    Runtime.getRuntime().addShutdownHook(new Thread(this::closeAll));
+  }
+
+  public static MorphAnalyzerFactory get() {
+    return MorphAnalyzerFactory.factory;
+  }
+
+  /**
+   * Returns a shared analyzer session for given name.
+   *
+   * @param analyzer analyzer name: simple, maca or wcrft
+   * @return
+   * @throws Exception if the analyzer name is not recognized
+   */
+  public synchronized MorphAnalyzer getAnalyzer(final String analyzer) throws Exception {
+    MorphAnalyzer morphAnalyzer = analyzers.get(analyzer);
+    if (morphAnalyzer == null) {
+      morphAnalyzer = createAnalyzer(analyzer);
+      analyzers.put(analyzer, morphAnalyzer);
+    }
+    return morphAnalyzer;
+  }
+
+  private MorphAnalyzer createAnalyzer(final String analyzer) throws Exception {
+    final long timeout = Long.getLong("liner2.analyzer.timeout", ProcessMorphAnalyzer.DEFAULT_TIMEOUT / 1000) * 1000;
+    switch (analyzer) {
+      case ANALYZER_SIMPLE:
+        return new SimpleTokenizer();
+      case ANALYZER_MACA:
+        return new ProcessMorphAnalyzer(timeout, System.getProperty("liner2.analyzer.maca", COMMAND_MACA).split(" "));
+      case ANALYZER_WCRFT:
+        return new ProcessMorphAnalyzer(timeout, System.getProperty("liner2.analyzer.wcrft", COMMAND_WCRFT).split(" "));
+      default:
+        throw new Exception("Unrecognized analyzer: " + analyzer);
+    }
+  }
+
+  private synchronized void closeAll() {
+    for (final MorphAnalyzer analyzer : analyzers.values()) {
+      try {
+        analyzer.close();
+      } catch (final IOException ex) {
+        getLogger().warn("Error while closing analyzer", ex);
+      }
+    }
+    analyzers.clear();
+  }
+}
@@ -0,0 +1,204 @@
+package g419.corpus.io.reader.analyzer;
+
+import g419.corpus.HasLogger;
+import g419.corpus.structure.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Morphological analyzer running as a single long-lived external process (maca-analyse, wcrft-app).
+ * Texts are written to the standard input of the process and the analysis is read from its standard
+ * output in the corpus2 `plain` format:
+ * <pre>
+ * orth[TAB]whitespace-before
+ * [TAB]base[TAB]ctag[TAB]disamb
+ * </pre>
+ * with sentences separated by empty lines. Every text is followed by a paragraph containing
+ * only the {@link #END_OF_DOCUMENT} marker, which tells where the analysis of the text ends.
+ * The text is written to the process by a separate thread while the analysis is being read by
+ * another one, so the process does not block on a full output pipe when the text is large.
+ * <p>
+ * The protocol assumes that the tool writes the analysis of a paragraph once the empty line ending
+ * the paragraph has been read, and flushes its output at least at the end of the input chunk. A tool
+ * that buffers its output or waits for more input would never deliver the marker, so the analysis of
+ * every text has a time limit: when it is exceeded, the process is killed, the call fails and the
+ * next call starts a new process. The process is also restarted if it has died.
+ * Calls are serialized, i.e. a single instance analyzes one text at a time.
+ */
+public class ProcessMorphAnalyzer implements MorphAnalyzer, HasLogger {
+
+  public static final String END_OF_DOCUMENT = "LINER2ENDOFDOCUMENT";
+
+  public static final long DEFAULT_TIMEOUT = 300000;
+
+  private final String[] command;
+  private final long timeout;
+  private Process process = null;
+  private BufferedWriter processInput = null;
+  private BufferedReader processOutput = null;
+  private ExecutorService ioThreads = null;
+
+  /**
+   * @param command command starting the analyzer which reads a plain text from stdin and writes
+   *                its analysis in the corpus2 plain format to stdout
+   */
+  public ProcessMorphAnalyzer(final String... command) {
+    this(DEFAULT_TIMEOUT, command);
+  }
+
+  /**
+   * @param timeout maximal time of the analysis of a single text in milliseconds
+   * @param command command starting the analyzer which reads a plain text from stdin and writes
+   *                its analysis in the corpus2 plain format to stdout
+   */
+  public ProcessMorphAnalyzer(final long timeout, final String... command) {
+    this.timeout = timeout;
+    this.command = command;
+  }
+
+  @Override
+  public synchronized Document analyze(final String docName, final String text) throws Exception {
+    ensureStarted();
+    final BufferedWriter input = processInput;
+    final BufferedReader output = processOutput;
+    final Future<?> written = ioThreads.submit(() -> {
+      input.write(text.replace(END_OF_DOCUMENT, ""));
+      input.write("\n\n" + END_OF_DOCUMENT + "\n\n");
+      input.flush();
+      return null;
+    });
+    final Future<Document> read = ioThreads.submit(() -> readDocument(docName, output));
+    try {
+      final Document document = read.get(timeout, TimeUnit.MILLISECONDS);
+      written.get();
+      return document;
+    } catch (final TimeoutException ex) {
+      kill();
+      throw new Exception("`" + String.join(" ", command) + "` did not finish the analysis of " + docName
+          + " within " + timeout + " ms, the process has been killed", ex);
+    } catch (final ExecutionException ex) {
+      close();
+      throw new Exception("Communication with `" + String.join(" ", command) + "` failed", ex.getCause());
+    } catch (final InterruptedException ex) {
+      close();
+      Thread.currentThread().interrupt();
+      throw ex;
+    }
+  }
+
+  private void ensureStarted() throws IOException {
+    if (process != null && process.isAlive()) {
+      return;
+    }
+    close();
+    getLogger().info("Starting morphological analyzer: {}", String.join(" ", command));
+    process = new ProcessBuilder(command).start();
+    processInput = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+    processOutput = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    final BufferedReader processErrors =
+        new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8));
+    final Thread errorDrain = new Thread(() -> {
+      try {
+        String line;
+        while ((line = processErrors.readLine()) != null) {
+          getLogger().debug("[{}] {}", command[0], line);
+        }
+      } catch (final IOException ex) {
+        // The process has been closed.
+      }
+    }, command[0] + "-stderr");
+    errorDrain.setDaemon(true);
+    errorDrain.start();
+    ioThreads = Executors.newFixedThreadPool(2, r -> {
+      final Thread thread = new Thread(r, command[0] + "-io");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Reads the analysis until the end-of-document marker.
+   * Empty lines which remained after the marker of the previous text are skipped.
+   */
+  private Document readDocument(final String docName, final BufferedReader processOutput) throws IOException {
+    final TokenAttributeIndex attributeIndex = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    final Document document = new Document(docName, attributeIndex);
+    Paragraph paragraph = null;
+    Sentence sentence = null;
+    Token token = null;
+    Token previous = null;
+    int sentenceNumber = 0;
+
+    String line;
+    while ((line = processOutput.readLine()) != null) {
+      if (line.isEmpty()) {
+        sentence = null;
+        token = null;
+      } else if (line.startsWith("\t")) {
+        if (token != null) {
+          final String[] cols = line.substring(1).split("\t");
+          token.addTag(new Tag(cols[0], cols.length > 1 ? cols[1] : SimpleTokenizer.UNKNOWN_CTAG,
+              cols.length > 2 && cols[2].equals("disamb")));
+        }
+      } else {
+        final String[] cols = line.split("\t");
+        final String whitespace = cols.length > 1 ? cols[1] : "space";
+        if (cols[0].equals(END_OF_DOCUMENT)) {
+          return document;
+        }
+        if (previous != null && whitespace.equals("none")) {
+          previous.setNoSpaceAfter(true);
+        }
+        if (paragraph == null || whitespace.equals("newpar")) {
+          paragraph = new Paragraph("ch" + (document.getParagraphs().size() + 1), attributeIndex);
+          document.addParagraph(paragraph);
+          sentence = null;
+        }
+        if (sentence == null) {
+          sentence = new Sentence(attributeIndex).withId("s" + (++sentenceNumber));
+          paragraph.addSentence(sentence);
+        }
+        token = new Token(attributeIndex);
+        token.setAttributeValue(attributeIndex.getIndex("orth"), cols[0]);
+        sentence.addToken(token);
+        previous = token;
+      }
+    }
+    throw new IOException("Analyzer process terminated before the end of document");
+  }
+
+  /**
+   * Kills a process which does not respond. Unlike {@link Process#destroy()} the process cannot
+   * ignore it, so the pending read and write fail and the io threads are released.
+   */
+  private void kill() {
+    getLogger().warn("Killing morphological analyzer: {}", String.join(" ", command));
+    process.destroyForcibly();
+    close();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (process != null) {
+      // Destroying the process first interrupts a pending write, which would block closing the input.
+      process.destroy();
+      ioThreads.shutdownNow();
+      try {
+        processInput.close();
+      } catch (final IOException ex) {
+        getLogger().debug("Error while closing the analyzer input", ex);
+      }
+      process = null;
+      processInput = null;
+      processOutput = null;
+      ioThreads = null;
+    }
+  }
+}
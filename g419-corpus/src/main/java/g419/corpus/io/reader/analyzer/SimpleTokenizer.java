@@ -0,0 +1,63 @@
+package g419.corpus.io.reader.analyzer;
+
+import g419.corpus.structure.*;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pure-Java analyzer used by the plain:simple input format. Splits the text into paragraphs (on empty lines), sentences
+ * (after ., ! and ? followed by a whitespace and an upper case letter, a digit or a quote) and tokens
+ * (sequences of letters, sequences of digits and single symbols). The tokens are not lemmatized
+ * -- every token gets a single tag with base equal to orth and the `ign` ctag.
+ */
+public class SimpleTokenizer implements MorphAnalyzer {
+
+  public static final String UNKNOWN_CTAG = "ign";
+
+  private static final Pattern PARAGRAPH_SEPARATOR = Pattern.compile("\\n\\s*\\n");
+  private static final Pattern TOKEN = Pattern.compile("\\p{L}[\\p{L}\\p{M}]*|\\p{N}+|\\S");
+  private static final Pattern SENTENCE_END = Pattern.compile("[.!?…]");
+  private static final Pattern SENTENCE_START = Pattern.compile("[\\p{Lu}\\p{N}\"„«(\\[-]");
+
+  @Override
+  public Document analyze(final String docName, final String text) {
+    final TokenAttributeIndex attributeIndex = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    final Document document = new Document(docName, attributeIndex);
+    int sentenceNumber = 0;
+    for (final String paragraphText : PARAGRAPH_SEPARATOR.split(text.trim())) {
+      if (paragraphText.trim().isEmpty()) {
+        continue;
+      }
+      final Paragraph paragraph = new Paragraph("ch" + (document.getParagraphs().size() + 1), attributeIndex);
+      Sentence sentence = null;
+      Token previous = null;
+      final Matcher m = TOKEN.matcher(paragraphText);
+      while (m.find()) {
+        final String orth = m.group();
+        if (sentence == null || isSentenceBoundary(previous, orth)) {
+          sentence = new Sentence(attributeIndex).withId("s" + (++sentenceNumber));
+          paragraph.addSentence(sentence);
+        }
+        final Token token = new Token(orth, new Tag(orth, UNKNOWN_CTAG, true), attributeIndex);
+        token.setNoSpaceAfter(m.end() < paragraphText.length()
+            && !Character.isWhitespace(paragraphText.charAt(m.end())));
+        sentence.addToken(token);
+        previous = token;
+      }
+      document.addParagraph(paragraph);
+    }
+    return document;
+  }
+
+  private boolean isSentenceBoundary(final Token previous, final String orth) {
+    return previous != null
+        && !previous.getNoSpaceAfter()
+        && SENTENCE_END.matcher(previous.getOrth()).matches()
+        && SENTENCE_START.matcher(orth).lookingAt();
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -69,13 +69,23 @@ public class CclSaxParser extends DefaultHandler {
   String propKey;
 
   public CclSaxParser(final String uri, final InputStream is, final TokenAttributeIndex attributeIndex) throws DataFormatException, ParserConfigurationException, SAXException, IOException {
-    this.uri = uri;
+    this(uri, attributeIndex);
     this.is = is;
-    this.attributeIndex = attributeIndex;
     parseDocument();
     document = new Document(uri, paragraphs, this.attributeIndex);
   }
 
+  /**
+   * Tworzy parser, do którego zdarzenia są przekazywane przez klasę pochodną.
+   *
+   * @param uri
+   * @param attributeIndex
+   */
+  protected CclSaxParser(final String uri, final TokenAttributeIndex attributeIndex) {
+    this.uri = uri;
+    this.attributeIndex = attributeIndex;
+  }
+
   private void parseDocument() throws DataFormatException, ParserConfigurationException, SAXException, IOException {
     final SAXParserFactory factory = SAXParserFactory.newInstance();
     final SAXParser parser = factory.newSAXParser();
@@ -0,0 +1,93 @@
+package g419.corpus.io.reader.parser;
+
+import g419.corpus.ConsolePrinter;
+import g419.corpus.structure.Paragraph;
+import g419.corpus.structure.TokenAttributeIndex;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Parser dokumentu CCL wczytujący dokument akapit po akapicie. Zdarzenia parsera StAX są przekazywane
+ * do {@link CclSaxParser}, więc akapity, zdania, tokeny i anotacje są tworzone tak samo jak przy
+ * wczytywaniu całego dokumentu, ale w pamięci przechowywane są tylko akapity jeszcze nie pobrane.
+ */
+public class CclStaxParser extends CclSaxParser {
+
+  private final XMLStreamReader xml;
+  private final Deque<Paragraph> ready = new ArrayDeque<>();
+  private final AttributesImpl attributes = new AttributesImpl();
+  private boolean finished = false;
+
+  public CclStaxParser(final String uri, final InputStream is, final TokenAttributeIndex attributeIndex)
+      throws XMLStreamException {
+    super(uri, attributeIndex);
+    final XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    factory.setXMLResolver((publicId, systemId, baseUri, namespace) -> new ByteArrayInputStream(new byte[0]));
+    xml = factory.createXMLStreamReader(is);
+  }
+
+  /**
+   * Zwraca kolejny akapit dokumentu.
+   *
+   * @return akapit lub null, jeżeli dokument został wczytany w całości
+   * @throws XMLStreamException
+   * @throws SAXException
+   */
+  public Paragraph nextParagraph() throws XMLStreamException, SAXException {
+    while (ready.isEmpty() && xml.hasNext()) {
+      dispatch(xml.next());
+    }
+    if (ready.isEmpty() && !finished) {
+      finished = true;
+      xml.close();
+      if (!foundSentenceId) {
+        ConsolePrinter.log("Generated sentence ids for document:" + uri);
+      }
+    }
+    return ready.poll();
+  }
+
+  @Override
+  public void onParagraphRead() {
+    ready.add(paragraphs.remove(paragraphs.size() - 1));
+  }
+
+  private void dispatch(final int event) throws SAXException {
+    switch (event) {
+      case XMLStreamConstants.START_ELEMENT:
+        attributes.clear();
+        for (int i = 0; i < xml.getAttributeCount(); i++) {
+          final String name = qName(xml.getAttributePrefix(i), xml.getAttributeLocalName(i));
+          attributes.addAttribute("", name, name, "CDATA", xml.getAttributeValue(i));
+        }
+        final String start = qName(xml.getPrefix(), xml.getLocalName());
+        startElement("", start, start, attributes);
+        break;
+      case XMLStreamConstants.END_ELEMENT:
+        final String end = qName(xml.getPrefix(), xml.getLocalName());
+        endElement("", end, end);
+        break;
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.CDATA:
+      case XMLStreamConstants.SPACE:
+        characters(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static String qName(final String prefix, final String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+}
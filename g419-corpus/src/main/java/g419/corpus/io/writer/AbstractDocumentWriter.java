@@ -9,6 +9,22 @@ public abstract class AbstractDocumentWriter implements Closeable, HasLogger {
 
   public abstract void writeDocument(Document document);
 
+  /**
+   * Zapisuje kolejną część dokumentu wczytywanego w częściach. Domyślnie część jest zapisywana
+   * jak osobny dokument; formaty z nagłówkiem i zakończeniem dokumentu zapisują części jako jeden dokument.
+   *
+   * @param part
+   */
+  public void writeDocumentPart(final Document part) {
+    writeDocument(part);
+  }
+
+  /**
+   * Kończy zapis dokumentu zapisywanego w częściach.
+   */
+  public void endDocument() {
+  }
+
   public abstract void flush();
 
 }
@@ -0,0 +1,240 @@
+package g419.corpus.io.writer;
+
+import g419.corpus.structure.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zapisuje dokumenty w zwartym formacie binarnym (format "bin"), który odtwarza stan dokumentu po
+ * wygenerowaniu cech: atrybuty tokenów, interpretacje, anotacje, relacje i opis dokumentu.
+ * Format służy do przechowywania dokumentów z wygenerowanymi cechami, dlatego nie jest
+ * przeznaczony do wymiany danych -- zmiana wersji formatu unieważnia zapisane pliki.
+ * <p>
+ * Liczby całkowite zapisywane są jako varint, a napisy przez słownik lokalny dla dokumentu:
+ * napis zapisywany jest przy pierwszym wystąpieniu, a kolejne wystąpienia zapisywane są jako jego numer.
+ * <p>
+ * Wczytywanie: {@link g419.corpus.io.reader.BinaryStreamReader}.
+ */
+public class BinaryStreamWriter extends AbstractDocumentWriter {
+
+  public static final int MAGIC = 0x4C324244;
+  public static final int VERSION = 1;
+
+  /* Znaczniki poprzedzające dokument i kończące strumień */
+  public static final int DOCUMENT = 1;
+  public static final int END = 0;
+
+  /* Kody napisów: null, nowy napis, numer napisu w słowniku + STRING_REF */
+  public static final int STRING_NULL = 0;
+  public static final int STRING_NEW = 1;
+  public static final int STRING_REF = 2;
+
+  private final DataOutputStream out;
+  private final Map<String, Integer> strings = new HashMap<>();
+  private boolean headerWritten = false;
+
+  public BinaryStreamWriter(final OutputStream os) {
+    out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+  }
+
+  @Override
+  public void writeDocument(final Document document) {
+    try {
+      write(document);
+    } catch (final IOException ex) {
+      getLogger().error("An error occured while writing the document {}", document.getName(), ex);
+    }
+  }
+
+  /**
+   * Zapisuje dokument, przekazując błędy zapisu.
+   *
+   * @param document
+   * @throws IOException
+   */
+  public void write(final Document document) throws IOException {
+    writeHeader();
+    strings.clear();
+    writeInt(DOCUMENT);
+    writeBody(document);
+  }
+
+  /**
+   * Zapisuje znacznik końca strumienia i zamyka strumień, przekazując błędy zapisu.
+   *
+   * @throws IOException
+   */
+  public void finish() throws IOException {
+    writeHeader();
+    writeInt(END);
+    out.close();
+  }
+
+  @Override
+  public void flush() {
+    try {
+      out.flush();
+    } catch (final IOException ex) {
+      getLogger().error("An error occured while flushing the writer.", ex);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      finish();
+    } catch (final IOException ex) {
+      getLogger().error("An error occured while closing the writer.", ex);
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    if (!headerWritten) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      headerWritten = true;
+    }
+  }
+
+  private void writeBody(final Document document) throws IOException {
+    writeString(document.getName());
+    writeString(document.getUri());
+    writeString(document.getFeatureSignature());
+    writeMap(document.getDocumentDescriptor().getDescription());
+    writeMap(document.getDocumentDescriptor().getMetadata());
+
+    final TokenAttributeIndex index = document.getAttributeIndex();
+    writeInt(index.getLength());
+    for (final String name : index.getAttributes()) {
+      writeString(name);
+    }
+
+    final Map<Annotation, int[]> positions = new IdentityHashMap<>();
+    int sentenceNo = 0;
+    writeInt(document.getParagraphs().size());
+    for (final Paragraph paragraph : document.getParagraphs()) {
+      writeString(paragraph.getId());
+      writeInt(paragraph.getKeysChunkMetaData().size());
+      for (final String key : paragraph.getKeysChunkMetaData()) {
+        writeString(key);
+        writeString(paragraph.getChunkMetaData(key));
+      }
+      writeInt(paragraph.getSentences().size());
+      for (final Sentence sentence : paragraph.getSentences()) {
+        writeSentence(sentence, sentenceNo++, positions);
+      }
+    }
+
+    int relations = 0;
+    for (final Relation relation : document.getRelationsSet()) {
+      if (positions.containsKey(relation.getAnnotationFrom()) && positions.containsKey(relation.getAnnotationTo())) {
+        relations++;
+      } else {
+        getLogger().warn("Relation {} refers to an annotation outside of the document {}", relation, document.getName());
+      }
+    }
+    writeInt(relations);
+    for (final Relation relation : document.getRelationsSet()) {
+      final int[] from = positions.get(relation.getAnnotationFrom());
+      final int[] to = positions.get(relation.getAnnotationTo());
+      if (from != null && to != null) {
+        writeString(relation.getId());
+        writeString(relation.getType());
+        writeString(relation.getSet());
+        writeInt(from[0]);
+        writeInt(from[1]);
+        writeInt(to[0]);
+        writeInt(to[1]);
+      }
+    }
+  }
+
+  private void writeSentence(final Sentence sentence, final int sentenceNo, final Map<Annotation, int[]> positions)
+      throws IOException {
+    writeString(sentence.getId());
+    final List<Token> tokens = sentence.getTokens();
+    writeInt(tokens.size());
+    for (final Token token : tokens) {
+      writeString(token.getId());
+      out.writeBoolean(token.getNoSpaceAfter());
+      writeInt(token.getNumAttributes());
+      for (int i = 0; i < token.getNumAttributes(); i++) {
+        writeString(token.getAttributeValue(i));
+      }
+      writeInt(token.getTags().size());
+      for (final Tag tag : token.getTags()) {
+        writeString(tag.getBase());
+        writeString(tag.getCtag());
+        out.writeBoolean(tag.getDisamb());
+      }
+      writeMap(token.getProps());
+    }
+
+    writeInt(sentence.getChunks().size());
+    int annotationNo = 0;
+    for (final Annotation annotation : sentence.getChunks()) {
+      positions.put(annotation, new int[]{sentenceNo, annotationNo++});
+      writeString(annotation.getId());
+      writeString(annotation.getType());
+      writeString(annotation.getGroup());
+      writeInt(annotation.getTokens().size());
+      int previous = 0;
+      for (final int token : annotation.getTokens()) {
+        writeInt(token - previous);
+        previous = token;
+      }
+      writeInt(annotation.getHead());
+      /* Lemat zapisany w metadanych jest odtwarzany razem z nimi */
+      final String lemma = annotation.getLemma();
+      writeString(lemma != null && lemma.equals(annotation.getMetadata("lemma")) ? null : lemma);
+      writeInt(annotation.getChannelIdx());
+      out.writeDouble(annotation.getConfidence());
+      writeMap(annotation.getMetadata());
+    }
+  }
+
+  private void writeMap(final Map<String, String> map) throws IOException {
+    writeInt(map.size());
+    for (final Map.Entry<String, String> entry : map.entrySet()) {
+      writeString(entry.getKey());
+      writeString(entry.getValue());
+    }
+  }
+
+  private void writeString(final String value) throws IOException {
+    if (value == null) {
+      writeInt(STRING_NULL);
+      return;
+    }
+    final Integer code = strings.get(value);
+    if (code != null) {
+      writeInt(code + STRING_REF);
+    } else {
+      strings.put(value, strings.size());
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeInt(STRING_NEW);
+      writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Zapisuje nieujemną liczbę w kodowaniu o zmiennej długości (7 bitów na bajt).
+   */
+  private void writeInt(final int value) throws IOException {
+    int v = value;
+    while ((v & ~0x7F) != 0) {
+      out.writeByte((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    out.writeByte(v);
+  }
+}
@@ -49,6 +49,8 @@ public class CclStreamWriter extends AbstractDocumentWriter {
   private final boolean indent = true;
   private final String[] requiredAttributes = new String[] {"orth", "base", "ctag"};
   private boolean disambOnly = false;
+  /* Czy dokument jest zapisywany w częściach i nagłówek został już zapisany */
+  private boolean partsOpen = false;
 
   public CclStreamWriter(final OutputStream os) {
     this.os = os;
@@ -142,6 +144,7 @@ public class CclStreamWriter extends AbstractDocumentWriter {
 
   @Override
   public void close() {
+    endDocument();
     try {
       if (!(os instanceof PrintStream)) {
         os.close();
@@ -231,6 +234,38 @@ public class CclStreamWriter extends AbstractDocumentWriter {
     }
   }
 
+  /**
+   * Zapisuje akapity części dokumentu. Nagłówek jest zapisywany przed pierwszą częścią,
+   * a zakończenie dokumentu w {@link #endDocument()}. Relacje nie są zapisywane.
+   *
+   * @param part
+   */
+  @Override
+  public void writeDocumentPart(final Document part) {
+    if (!partsOpen) {
+      if (!hasRequiredAttributes(part.getAttributeIndex())) {
+        throw new IllegalArgumentException("Document attribute index does not contain features required by ccl format: "
+            + Arrays.toString(requiredAttributes));
+      }
+      openXml();
+      partsOpen = true;
+    }
+    for (final Paragraph paragraph : part.getParagraphs()) {
+      writeParagraph(paragraph);
+    }
+    /* Numery anotacji są potrzebne tylko do zapisu relacji */
+    annotationSentChannelIdx.clear();
+    flush();
+  }
+
+  @Override
+  public void endDocument() {
+    if (partsOpen) {
+      partsOpen = false;
+      closeXml();
+    }
+  }
+
   private boolean hasRequiredAttributes(final TokenAttributeIndex attrs) {
     return attrs.allAtributes().containsAll(Arrays.asList(requiredAttributes));
   }
@@ -1,19 +1,20 @@
 package g419.corpus.io.writer;
 
 import g419.corpus.structure.*;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 
 /*
- * Drukowanie wyników w postaci obiektu JSON.
+ * Drukowanie wyników w postaci obiektu JSON. Anotacje są zapisywane strumieniowo, w takiej samej
+ * postaci jak wcześniej przez org.json (kolejność pól i kodowanie znaków).
  * @author Jan Kocoń
  */
 public class JsonAnnotationsStreamWriter extends AbstractDocumentWriter {
@@ -24,10 +25,9 @@ public class JsonAnnotationsStreamWriter extends AbstractDocumentWriter {
     ow = new BufferedWriter(new OutputStreamWriter(os));
   }
 
-  private JSONObject getChunk(final Annotation c, final Sentence s) throws IOException {
+  private void writeChunk(final Writer w, final Annotation c, final Sentence s) throws IOException {
     int begin = sentenceOffset;
     int end = sentenceOffset;
-    final JSONObject o = new JSONObject();
 
     final List<Token> tokens = s.getTokens();
     for (int i = 0; i < c.getBegin(); i++) {
@@ -37,46 +37,113 @@ public class JsonAnnotationsStreamWriter extends AbstractDocumentWriter {
     for (int i = c.getBegin(); i <= c.getEnd(); i++) {
       end += tokens.get(i).getOrth().length();
     }
-    o.put("from", begin);
-    o.put("to", (end - 1));
-    o.put("type", c.getType());
-    o.put("text", c.getText());
 
-    //this.ow.write("(" + begin + "," + (end-1) + "," + c.getType() + ",\"" + c.getText() + "\")");
+    /* Kolejność pól jak w JSONObject (HashMap) */
+    w.write('{');
     if (!c.getMetadata().isEmpty()) {
-      final JSONObject o1 = new JSONObject();
+      /* JSONObject pomija wartości null i przechowuje pola w HashMap o domyślnej pojemności */
+      final Map<String, String> metadata = new HashMap<>();
       for (final Map.Entry<String, String> entry : c.getMetadata().entrySet()) {
-        o1.put(entry.getKey(), entry.getValue());
+        if (entry.getValue() != null) {
+          metadata.put(entry.getKey(), entry.getValue());
+        }
+      }
+      w.write("\"metadata\":{");
+      boolean first = true;
+      for (final Map.Entry<String, String> entry : metadata.entrySet()) {
+        if (!first) {
+          w.write(',');
+        }
+        quote(w, entry.getKey());
+        w.write(':');
+        quote(w, entry.getValue());
+        first = false;
       }
-      o.put("metadata", o1);
+      w.write("},");
+    }
+    w.write("\"from\":" + begin);
+    w.write(",\"to\":" + (end - 1));
+    if (c.getText() != null) {
+      w.write(",\"text\":");
+      quote(w, c.getText());
     }
-    //this.ow.write(o.toString());
-    return o;
+    if (c.getType() != null) {
+      w.write(",\"type\":");
+      quote(w, c.getType());
+    }
+    w.write('}');
+  }
+
+  /**
+   * Zapisuje napis w cudzysłowie, kodując znaki tak jak org.json (JSONObject.quote).
+   */
+  static void quote(final Writer w, final String string) throws IOException {
+    w.write('"');
+    char c = 0;
+    for (int i = 0; i < string.length(); i++) {
+      final char b = c;
+      c = string.charAt(i);
+      switch (c) {
+        case '\\':
+        case '"':
+          w.write('\\');
+          w.write(c);
+          break;
+        case '/':
+          if (b == '<') {
+            w.write('\\');
+          }
+          w.write(c);
+          break;
+        case '\b':
+          w.write("\\b");
+          break;
+        case '\t':
+          w.write("\\t");
+          break;
+        case '\n':
+          w.write("\\n");
+          break;
+        case '\f':
+          w.write("\\f");
+          break;
+        case '\r':
+          w.write("\\r");
+          break;
+        default:
+          if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+            w.write(String.format("\\u%04x", (int) c));
+          } else {
+            w.write(c);
+          }
+      }
+    }
+    w.write('"');
   }
 
   @Override
   public void writeDocument(final Document document) {
-    final JSONArray a = new JSONArray();
     sentenceOffset = 0;
-    for (final Paragraph paragraph : document.getParagraphs()) {
-      for (final Sentence s : paragraph.getSentences()) {
-        try {
+    try {
+      ow.write('[');
+      boolean first = true;
+      for (final Paragraph paragraph : document.getParagraphs()) {
+        for (final Sentence s : paragraph.getSentences()) {
           final Annotation[] chunks = Annotation.sortChunks(s.getChunks());
           for (final Annotation c : chunks) {
-            a.put(getChunk(c, s));
+            if (!first) {
+              ow.write(',');
+            }
+            writeChunk(ow, c, s);
+            first = false;
           }
 
           for (final Token t : s.getTokens()) {
             sentenceOffset += t.getOrth().length();
           }
-
-        } catch (final IOException ex) {
-          ex.printStackTrace();
         }
       }
-    }
-    try {
-      ow.write(a.toString());
+      ow.write(']');
       ow.flush();
     } catch (final IOException e) {
       e.printStackTrace();
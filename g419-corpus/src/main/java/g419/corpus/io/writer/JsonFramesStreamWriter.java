@@ -1,6 +1,6 @@
 package g419.corpus.io.writer;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import g419.corpus.structure.*;
 
 import java.io.BufferedWriter;
@@ -11,6 +11,9 @@ import java.util.*;
 
 
 /**
+ * Zapisuje tokeny, anotacje i ramki dokumentu do formatu json. Dokument jest zapisywany strumieniowo,
+ * bez budowania drzewa obiektów.
+ *
  * @author
  */
 public class JsonFramesStreamWriter extends AbstractDocumentWriter {
@@ -24,111 +27,93 @@ public class JsonFramesStreamWriter extends AbstractDocumentWriter {
 
   @Override
   public void writeDocument(final Document document) {
-
-    final Map<Token, String> tokenIds = generateTokenIds(document);
-    final Map<Annotation, String> annotationIds = generateAnnotationIds(document);
-
-    final Map<String, Collection<?>> doc = new HashMap<>();
-    doc.put("tokens", getTokens(document, tokenIds));
-    doc.put("frames", getFrames(document, annotationIds));
-    doc.put("annotations", getAnnotations(document, tokenIds, annotationIds));
+    final Map<Annotation, String> annotationIds = JsonStreamWriter.getAnnotationIds(document);
     try {
-      final Gson json = new Gson();
-      ow.write(json.toJson(doc));
-      ow.flush();
+      final JsonWriter json = JsonStreamWriter.createJsonWriter(ow);
+      json.beginObject();
+      json.name("frames");
+      writeFrames(json, document, annotationIds);
+      json.name("annotations");
+      writeAnnotations(json, document, annotationIds);
+      json.name("tokens");
+      writeTokens(json, document);
+      json.endObject();
+      json.flush();
     } catch (final IOException e) {
       e.printStackTrace();
     }
   }
 
-  private List<Map<String, Object>> getFrames(final Document document, final Map<Annotation, String> annotationIds) {
-    final List<Map<String, Object>> frames = new ArrayList<>();
+  private void writeFrames(final JsonWriter json, final Document document, final Map<Annotation, String> annotationIds) throws IOException {
+    json.beginArray();
     for (final Frame<Annotation> frame : document.getFrames()) {
-      final Map<String, Object> f = new HashMap<>();
-      final Map<String, Object> slots = new HashMap<>();
+      json.beginObject();
+      json.name("slots");
+      json.beginObject();
 
       final Set<String> slotNames = new HashSet<>();
       slotNames.addAll(frame.getSlots().keySet());
       slotNames.addAll(frame.getSlotAttributes().keySet());
 
       for (final String slotName : slotNames) {
-        final Annotation an = frame.getSlot(slotName);
-        final Map<String, Object> annotation = new HashMap<>();
-        if (an != null) {
-          annotation.put("id", annotationIds.get(an));
-        }
-
+        json.name(slotName);
+        json.beginObject();
         final Map<String, String> annotationAttributes = frame.getSlotAttributes(slotName);
         if (annotationAttributes != null) {
-          annotation.put("attributes", annotationAttributes);
+          json.name("attributes");
+          json.beginObject();
+          for (final Map.Entry<String, String> attribute : annotationAttributes.entrySet()) {
+            json.name(attribute.getKey()).value(attribute.getValue());
+          }
+          json.endObject();
         }
-
-        slots.put(slotName, annotation);
+        final Annotation an = frame.getSlot(slotName);
+        if (an != null) {
+          json.name("id").value(annotationIds.get(an));
+        }
+        json.endObject();
       }
-      f.put("id", "x");
-      f.put("type", frame.getType());
-      f.put("slots", slots);
-      frames.add(f);
+      json.endObject();
+      json.name("id").value("x");
+      json.name("type").value(frame.getType());
+      json.endObject();
     }
-    return frames;
+    json.endArray();
   }
 
-  private List<Map<String, Object>> getAnnotations(final Document document, final Map<Token, String> tokenIds, final Map<Annotation, String> annotationIds) {
-    final List<Map<String, Object>> annotations = new ArrayList<>();
+  private void writeAnnotations(final JsonWriter json, final Document document, final Map<Annotation, String> annotationIds) throws IOException {
+    final Map<Sentence, Integer> tokenOffsets = JsonStreamWriter.getTokenOffsets(document);
+    json.beginArray();
     for (final Annotation an : document.getAnnotations()) {
-      final Map<String, Object> f = new HashMap<>();
-      f.put("id", annotationIds.get(an));
-      f.put("text", an.getText());
-      f.put("type", an.getType());
-      f.put("category", an.getGroup());
-      final Set<String> tokens = new HashSet<>();
-      for (final Token token : an.getTokenTokens()) {
-        tokens.add(tokenIds.get(token));
-      }
-      f.put("tokens", tokens);
-      annotations.add(f);
+      json.beginObject();
+      json.name("tokens");
+      JsonStreamWriter.writeAnnotationTokens(json, an, tokenOffsets);
+      json.name("id").value(annotationIds.get(an));
+      json.name("text").value(an.getText());
+      json.name("type").value(an.getType());
+      json.name("category").value(an.getGroup());
+      json.endObject();
     }
-    return annotations;
+    json.endArray();
   }
 
-  private List<List<String>> getTokens(final Document document, final Map<Token, String> tokenIds) {
-    final List<List<String>> tokens = new ArrayList<>();
-    for (final Paragraph p : document.getParagraphs()) {
-      for (final Sentence s : p.getSentences()) {
-        for (final Token t : s.getTokens()) {
-          final List<String> token = new ArrayList<>();
-          token.add(tokenIds.get(t));
-          token.add(t.getOrth());
-          token.add(t.getDisambTag().getBase());
-          token.add(t.getDisambTag().getCtag());
-          token.add(t.getNoSpaceAfter() ? "1" : "0");
-          tokens.add(token);
-        }
-      }
-    }
-    return tokens;
-  }
-
-  private Map<Token, String> generateTokenIds(final Document document) {
-    final Map<Token, String> ids = new HashMap<>();
+  private void writeTokens(final JsonWriter json, final Document document) throws IOException {
     int id = 1;
+    json.beginArray();
     for (final Paragraph p : document.getParagraphs()) {
       for (final Sentence s : p.getSentences()) {
         for (final Token t : s.getTokens()) {
-          ids.put(t, "t" + (id++));
+          json.beginArray();
+          json.value("t" + (id++));
+          json.value(t.getOrth());
+          json.value(t.getDisambTag().getBase());
+          json.value(t.getDisambTag().getCtag());
+          json.value(t.getNoSpaceAfter() ? "1" : "0");
+          json.endArray();
         }
       }
     }
-    return ids;
-  }
-
-  private Map<Annotation, String> generateAnnotationIds(final Document document) {
-    final Map<Annotation, String> ids = new HashMap<>();
-    int id = 1;
-    for (final Annotation an : document.getAnnotations()) {
-      ids.put(an, "a" + (id++));
-    }
-    return ids;
+    json.endArray();
   }
 
   @Override
@@ -1,13 +1,16 @@
 package g419.corpus.io.writer;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import g419.corpus.structure.*;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.util.*;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * Zapisuje strukturę dokumentu (podział na akapity, zdania, tokeny i anotacje) do formatu json o strukturze:
@@ -26,6 +29,10 @@ import java.util.*;
  * ctag: String
  * disamb: boolean
  * annotations:
+ * <p>
+ * Dokument jest zapisywany strumieniowo, bez budowania drzewa obiektów. Identyfikatory tokenów (t1, t2, ...)
+ * są wyznaczane z pozycji tokenu w dokumencie, a identyfikatory anotacji (a1, a2, ...) z kolejności anotacji.
+ * Kolejność pól obiektów jest taka sama jak w zapisie tworzonym wcześniej przez Gson z map.
  *
  * @author
  */
@@ -52,169 +59,160 @@ public class JsonStreamWriter extends AbstractDocumentWriter {
 
   @Override
   public void writeDocument(Document document) {
-
-    Map<Token, String> tokenIds = this.generateTokenIds(document);
-    Map<Annotation, String> annotationIds = this.generateAnnotationIds(document);
-
-    Map<String, Collection<?>> doc = new HashMap<String, Collection<?>>();
-    doc.put(JsonStreamWriter.ATTR_CHUNKS, this.getChunks(document, tokenIds));
-    doc.put(JsonStreamWriter.ATTR_ANNOTATIONS, this.getAnnotations(document, tokenIds, annotationIds));
     try {
-      Gson json = new Gson();
-      this.ow.write(json.toJson(doc));
-      this.ow.flush();
+      JsonWriter json = createJsonWriter(this.ow);
+      json.beginObject();
+      json.name(JsonStreamWriter.ATTR_CHUNKS);
+      this.writeChunks(json, document);
+      json.name(JsonStreamWriter.ATTR_ANNOTATIONS);
+      this.writeAnnotations(json, document, getTokenOffsets(document), getAnnotationIds(document));
+      json.endObject();
+      json.flush();
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
   /**
-   * Return a list of paragraphs as an nested set of maps.
+   * Tworzy generator json zapisujący do strumienia writer. Ustawienia odpowiadają domyślnym ustawieniom
+   * Gson: pola o wartości null są pomijane, a znaki specjalne HTML są kodowane.
    *
-   * @param document
-   * @param tokenIds
-   * @return
-   */
-  private List<Map<String, Object>> getChunks(Document document, Map<Token, String> tokenIds) {
-    List<Map<String, Object>> chunks = new ArrayList<Map<String, Object>>();
-    for (Paragraph paragraph : document.getParagraphs()) {
-      chunks.add(this.getChunk(paragraph, tokenIds));
-    }
-    return chunks;
-  }
-
-  /**
-   * @param paragraph
-   * @param tokenIds
+   * @param writer
    * @return
    */
-  private Map<String, Object> getChunk(Paragraph paragraph, Map<Token, String> tokenIds) {
-    Map<String, Object> paragraphMap = new HashMap<String, Object>();
-    paragraphMap.put(JsonStreamWriter.ATTR_ID, null);
-    paragraphMap.put(JsonStreamWriter.ATTR_SENTENCES, getSentences(paragraph, tokenIds));
-    return paragraphMap;
+  static JsonWriter createJsonWriter(Writer writer) {
+    JsonWriter json = new JsonWriter(writer);
+    json.setSerializeNulls(false);
+    json.setHtmlSafe(true);
+    return json;
   }
 
   /**
-   * @param paragraph
-   * @param tokenIds
+   * Zwraca numer pierwszego tokenu każdego zdania w dokumencie (tokeny są numerowane od 1).
+   *
+   * @param document
    * @return
    */
-  private List<Map<String, Object>> getSentences(Paragraph paragraph, Map<Token, String> tokenIds) {
-    List<Map<String, Object>> sentences = new ArrayList<Map<String, Object>>();
-    for (Sentence sentence : paragraph.getSentences()) {
-      Map<String, Object> sentenceMap = new HashMap<String, Object>();
-      sentenceMap.put(JsonStreamWriter.ATTR_TOKENS, this.getTokens(sentence, tokenIds));
-      sentences.add(sentenceMap);
+  static Map<Sentence, Integer> getTokenOffsets(Document document) {
+    Map<Sentence, Integer> offsets = new IdentityHashMap<Sentence, Integer>();
+    int id = 1;
+    for (Paragraph p : document.getParagraphs()) {
+      for (Sentence s : p.getSentences()) {
+        offsets.put(s, id);
+        id += s.getTokenNumber();
+      }
     }
-    return sentences;
-  }
-
-  /**
-   * @param sentence
-   * @param tokenIds
-   * @return
-   */
-  public Map<String, Object> getSentence(Sentence sentence, Map<Token, String> tokenIds) {
-    Map<String, Object> sentenceMap = new HashMap<String, Object>();
-    sentenceMap.put(JsonStreamWriter.ATTR_ID, null);
-    sentenceMap.put(JsonStreamWriter.ATTR_TOKENS, this.getTokens(sentence, tokenIds));
-    return sentenceMap;
+    return offsets;
   }
 
   /**
+   * Zwraca identyfikatory anotacji (a1, a2, ...). Anotacje równe sobie (te same tokeny i typ) otrzymują
+   * wspólny identyfikator ostatniej z nich.
+   *
    * @param document
-   * @param tokenIds
-   * @param annotationIds
    * @return
    */
-  private List<Map<String, Object>> getAnnotations(Document document, Map<Token, String> tokenIds, Map<Annotation, String> annotationIds) {
-    List<Map<String, Object>> annotations = new ArrayList<Map<String, Object>>();
+  static Map<Annotation, String> getAnnotationIds(Document document) {
+    Map<Annotation, String> ids = new HashMap<Annotation, String>();
+    int id = 1;
     for (Annotation an : document.getAnnotations()) {
-      Map<String, Object> f = new HashMap<String, Object>();
-      f.put(JsonStreamWriter.ATTR_ID, annotationIds.get(an));
-      f.put("text", an.getText());
-      f.put("type", an.getType());
-      f.put("category", an.getGroup());
-      Set<String> tokens = new HashSet<String>();
-      for (Token token : an.getTokenTokens()) {
-        tokens.add(tokenIds.get(token));
-      }
-      f.put("tokens", tokens);
-      annotations.add(f);
+      ids.put(an, "a" + (id++));
     }
-    return annotations;
+    return ids;
   }
 
   /**
-   * @param tokenIds
-   * @return
+   * Write the list of paragraphs.
+   *
+   * @param json
+   * @param document
    */
-  public List<Map<String, Object>> getTokens(Sentence sentence, Map<Token, String> tokenIds) {
-    List<Map<String, Object>> tokens = new ArrayList<Map<String, Object>>();
-    for (Token t : sentence.getTokens()) {
-      Map<String, Object> token = new HashMap<String, Object>();
-      token.put(JsonStreamWriter.ATTR_ID, tokenIds.get(t));
-      token.put(JsonStreamWriter.ATTR_ORTH, t.getOrth());
-      token.put(JsonStreamWriter.ATTR_NS, t.getNoSpaceAfter());
-      token.put(JsonStreamWriter.ATTR_LEXEMS, this.getLexems(t));
-      tokens.add(token);
+  private void writeChunks(JsonWriter json, Document document) throws IOException {
+    int tokenId = 1;
+    json.beginArray();
+    for (Paragraph paragraph : document.getParagraphs()) {
+      json.beginObject();
+      json.name(JsonStreamWriter.ATTR_SENTENCES);
+      json.beginArray();
+      for (Sentence sentence : paragraph.getSentences()) {
+        json.beginObject();
+        json.name(JsonStreamWriter.ATTR_TOKENS);
+        this.writeTokens(json, sentence, tokenId);
+        json.endObject();
+        tokenId += sentence.getTokenNumber();
+      }
+      json.endArray();
+      json.endObject();
     }
-    return tokens;
+    json.endArray();
   }
 
   /**
-   * @param token
-   * @return
+   * @param json
+   * @param sentence
+   * @param firstTokenId numer pierwszego tokenu zdania w dokumencie
    */
-  public List<Map<String, Object>> getLexems(Token token) {
-    List<Map<String, Object>> lexems = new ArrayList<Map<String, Object>>();
-    for (Tag tag : token.getTags()) {
-      lexems.add(this.getLexem(tag));
+  private void writeTokens(JsonWriter json, Sentence sentence, int firstTokenId) throws IOException {
+    int id = firstTokenId;
+    json.beginArray();
+    for (Token t : sentence.getTokens()) {
+      json.beginObject();
+      json.name(JsonStreamWriter.ATTR_ORTH).value(t.getOrth());
+      json.name(JsonStreamWriter.ATTR_NS).value(t.getNoSpaceAfter());
+      json.name(JsonStreamWriter.ATTR_ID).value("t" + (id++));
+      json.name(JsonStreamWriter.ATTR_LEXEMS);
+      json.beginArray();
+      for (Tag tag : t.getTags()) {
+        json.beginObject();
+        json.name(JsonStreamWriter.ATTR_CTAG).value(tag.getCtag());
+        json.name(JsonStreamWriter.ATTR_DISAMB).value(tag.getDisamb());
+        json.name(JsonStreamWriter.ATTR_BASE).value(tag.getBase());
+        json.endObject();
+      }
+      json.endArray();
+      json.endObject();
     }
-    return lexems;
-  }
-
-  /**
-   * @param tag
-   * @return
-   */
-  public Map<String, Object> getLexem(Tag tag) {
-    Map<String, Object> tagMap = new HashMap<String, Object>();
-    tagMap.put(JsonStreamWriter.ATTR_BASE, tag.getBase());
-    tagMap.put(JsonStreamWriter.ATTR_CTAG, tag.getCtag());
-    tagMap.put(JsonStreamWriter.ATTR_DISAMB, tag.getDisamb());
-    return tagMap;
+    json.endArray();
   }
 
   /**
+   * @param json
    * @param document
-   * @return
+   * @param tokenOffsets
+   * @param annotationIds
    */
-  private Map<Token, String> generateTokenIds(Document document) {
-    Map<Token, String> ids = new HashMap<Token, String>();
-    int id = 1;
-    for (Paragraph p : document.getParagraphs()) {
-      for (Sentence s : p.getSentences()) {
-        for (Token t : s.getTokens()) {
-          ids.put(t, "t" + (id++));
-        }
-      }
+  private void writeAnnotations(JsonWriter json, Document document, Map<Sentence, Integer> tokenOffsets,
+                                Map<Annotation, String> annotationIds) throws IOException {
+    json.beginArray();
+    for (Annotation an : document.getAnnotations()) {
+      json.beginObject();
+      json.name(JsonStreamWriter.ATTR_TOKENS);
+      writeAnnotationTokens(json, an, tokenOffsets);
+      json.name(JsonStreamWriter.ATTR_ID).value(annotationIds.get(an));
+      json.name("text").value(an.getText());
+      json.name("type").value(an.getType());
+      json.name("category").value(an.getGroup());
+      json.endObject();
     }
-    return ids;
+    json.endArray();
   }
 
   /**
-   * @param document
-   * @return
+   * Zapisuje identyfikatory tokenów anotacji w kolejności ich występowania.
+   *
+   * @param json
+   * @param an
+   * @param tokenOffsets
    */
-  private Map<Annotation, String> generateAnnotationIds(Document document) {
-    Map<Annotation, String> ids = new HashMap<Annotation, String>();
-    int id = 1;
-    for (Annotation an : document.getAnnotations()) {
-      ids.put(an, "a" + (id++));
+  static void writeAnnotationTokens(JsonWriter json, Annotation an, Map<Sentence, Integer> tokenOffsets) throws IOException {
+    Integer offset = tokenOffsets.get(an.getSentence());
+    json.beginArray();
+    if (offset != null) {
+      for (int index : an.getTokens()) {
+        json.value("t" + (offset + index));
+      }
     }
-    return ids;
+    json.endArray();
   }
 
   @Override
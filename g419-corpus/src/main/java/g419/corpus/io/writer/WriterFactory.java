@@ -79,6 +79,8 @@ public class WriterFactory {
         return new CclStreamWriter(outWrapped, true);
       case "iob":
         return new IobStreamWriter(outWrapped);
+      case "bin":
+        return new BinaryStreamWriter(outWrapped);
       case "conll":
         return new ConllStreamWriter(outWrapped);
       case "zero_verb":
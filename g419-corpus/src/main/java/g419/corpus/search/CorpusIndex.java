@@ -0,0 +1,368 @@
+package g419.corpus.search;
+
+import g419.corpus.io.DataFormatException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Pozycyjny indeks odwrócony korpusu tworzony przez {@link CorpusIndexBuilder}. Plik indeksu jest
+ * mapowany do pamięci, a przy otwarciu wczytywane są tylko słowniki pól. Listy pozycji tokenów
+ * odczytywane są dopiero dla wartości pasujących do zapytania, dzięki czemu wyszukiwanie nie wymaga
+ * ponownego wczytywania ani przetwarzania dokumentów.
+ * <p>
+ * Plik indeksu nie może przekraczać 2 GB.
+ */
+public class CorpusIndex {
+
+  public static final int MAGIC = 0x4C32495A;
+  public static final int VERSION = 1;
+
+  public static final String FIELD_ORTH = "orth";
+  public static final String FIELD_BASE = "base";
+  public static final String FIELD_CTAG = "ctag";
+  public static final String FIELD_ANNOTATION = "ann";
+
+  private final ByteBuffer data;
+  private final int tokenCount;
+  private final int sentenceCount;
+  private final int sentencesOffset;
+  private final int spacesOffset;
+  private final int orthsOffset;
+  private final String[] documentNames;
+  private final int[] documentStarts;
+  private final Map<String, Field> fields = new LinkedHashMap<>();
+
+  /**
+   * Słownik pola: posortowane wartości oraz położenie i liczba pozycji tokenów dla każdej wartości.
+   */
+  private static class Field {
+    private final String[] terms;
+    private final int[] offsets;
+    private final int[] counts;
+
+    Field(final int size) {
+      terms = new String[size];
+      offsets = new int[size];
+      counts = new int[size];
+    }
+  }
+
+  /**
+   * Otwiera indeks zapisany w pliku.
+   *
+   * @param file
+   * @return
+   * @throws IOException
+   * @throws DataFormatException gdy plik nie jest indeksem korpusu
+   */
+  public static CorpusIndex open(final File file) throws IOException, DataFormatException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new DataFormatException("Corpus index exceeds 2 GB: " + file);
+      }
+      return new CorpusIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public CorpusIndex(final ByteBuffer data) throws DataFormatException {
+    this.data = data;
+    if (data.limit() < 16 || data.getInt(0) != MAGIC) {
+      throw new DataFormatException("Not a corpus index");
+    }
+    if (data.getInt(4) != VERSION) {
+      throw new DataFormatException("Unsupported corpus index version " + data.getInt(4));
+    }
+    final ByteBuffer header = data.duplicate();
+    header.position(toInt(data.getLong(data.limit() - 8)));
+    tokenCount = header.getInt();
+    sentenceCount = header.getInt();
+    sentencesOffset = toInt(header.getLong());
+    spacesOffset = toInt(header.getLong());
+    orthsOffset = toInt(header.getLong());
+    final int documents = header.getInt();
+    documentNames = new String[documents];
+    documentStarts = new int[documents];
+    for (int i = 0; i < documents; i++) {
+      documentNames[i] = readString(header);
+      documentStarts[i] = header.getInt();
+    }
+    final int fieldCount = header.getInt();
+    for (int f = 0; f < fieldCount; f++) {
+      final String name = readString(header);
+      final Field field = new Field(header.getInt());
+      for (int i = 0; i < field.terms.length; i++) {
+        field.terms[i] = readString(header);
+        field.offsets[i] = toInt(header.getLong());
+        field.counts[i] = header.getInt();
+      }
+      fields.put(name, field);
+    }
+  }
+
+  private static int toInt(final long offset) throws DataFormatException {
+    if (offset < 0 || offset > Integer.MAX_VALUE) {
+      throw new DataFormatException("Invalid offset in corpus index: " + offset);
+    }
+    return (int) offset;
+  }
+
+  private static String readString(final ByteBuffer buffer) {
+    final byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public int getTokenCount() {
+    return tokenCount;
+  }
+
+  public int getSentenceCount() {
+    return sentenceCount;
+  }
+
+  public int getDocumentCount() {
+    return documentNames.length;
+  }
+
+  public String getDocumentName(final int document) {
+    return documentNames[document];
+  }
+
+  /**
+   * @return nazwy indeksowanych pól
+   */
+  public Set<String> getFields() {
+    return Collections.unmodifiableSet(fields.keySet());
+  }
+
+  /**
+   * @param field
+   * @return liczba różnych wartości pola
+   */
+  public int getTermCount(final String field) {
+    final Field f = fields.get(field);
+    return f == null ? 0 : f.terms.length;
+  }
+
+  public List<CorpusMatch> search(final String query) {
+    return search(CorpusQuery.parse(query));
+  }
+
+  /**
+   * Zwraca wystąpienia zapytania w kolejności ich pozycji w korpusie. Wystąpienie nie może
+   * przekraczać granicy zdania.
+   *
+   * @param query
+   * @return
+   */
+  public List<CorpusMatch> search(final CorpusQuery query) {
+    final int length = query.getLength();
+    final BitSet[] positions = new BitSet[length];
+    int anchor = -1;
+    for (int j = 0; j < length; j++) {
+      for (final CorpusQuery.Condition condition : query.getTokens().get(j)) {
+        final BitSet matched = getPositions(condition);
+        if (positions[j] == null) {
+          positions[j] = matched;
+        } else {
+          positions[j].and(matched);
+        }
+      }
+      if (positions[j] != null && (anchor < 0 || positions[j].cardinality() < positions[anchor].cardinality())) {
+        anchor = j;
+      }
+    }
+
+    final List<CorpusMatch> matches = new ArrayList<>();
+    int p = anchor < 0 ? 0 : positions[anchor].nextSetBit(0);
+    while (p >= 0 && p < tokenCount) {
+      final int start = anchor < 0 ? p : p - anchor;
+      if (start >= 0 && start + length <= tokenCount && matchesAt(positions, start)) {
+        final int sentence = getSentence(start);
+        if (start + length <= getSentenceEnd(sentence)) {
+          matches.add(new CorpusMatch(start, length, sentence, getDocument(sentence)));
+        }
+      }
+      p = anchor < 0 ? p + 1 : positions[anchor].nextSetBit(p + 1);
+    }
+    return matches;
+  }
+
+  private boolean matchesAt(final BitSet[] positions, final int start) {
+    for (int j = 0; j < positions.length; j++) {
+      if (positions[j] != null && !positions[j].get(start + j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Zwraca pozycje tokenów, których pole spełnia warunek.
+   *
+   * @param condition
+   * @return
+   */
+  public BitSet getPositions(final CorpusQuery.Condition condition) {
+    final BitSet positions = new BitSet(tokenCount);
+    final Field field = fields.get(condition.getField());
+    if (field == null) {
+      return positions;
+    }
+    switch (condition.getOperator()) {
+      case EXACT: {
+        final int i = Arrays.binarySearch(field.terms, condition.getValue());
+        if (i >= 0) {
+          addPostings(field, i, positions);
+        }
+        break;
+      }
+      case PREFIX: {
+        int i = Arrays.binarySearch(field.terms, condition.getValue());
+        for (i = i < 0 ? -i - 1 : i; i < field.terms.length && condition.matches(field.terms[i]); i++) {
+          addPostings(field, i, positions);
+        }
+        break;
+      }
+      default:
+        for (int i = 0; i < field.terms.length; i++) {
+          if (condition.matches(field.terms[i])) {
+            addPostings(field, i, positions);
+          }
+        }
+    }
+    return positions;
+  }
+
+  private void addPostings(final Field field, final int term, final BitSet positions) {
+    final int offset = field.offsets[term];
+    for (int i = 0; i < field.counts[term]; i++) {
+      positions.set(data.getInt(offset + 4 * i));
+    }
+  }
+
+  /**
+   * @param position pozycja tokenu
+   * @return numer zdania zawierającego token
+   */
+  public int getSentence(final int position) {
+    int low = 0;
+    int high = sentenceCount - 1;
+    while (low < high) {
+      final int mid = (low + high + 1) >>> 1;
+      if (getSentenceStart(mid) <= position) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  public int getSentenceStart(final int sentence) {
+    return data.getInt(sentencesOffset + 4 * sentence);
+  }
+
+  /**
+   * @param sentence
+   * @return pozycja tokenu za ostatnim tokenem zdania
+   */
+  public int getSentenceEnd(final int sentence) {
+    return data.getInt(sentencesOffset + 4 * (sentence + 1));
+  }
+
+  /**
+   * @param sentence
+   * @return numer dokumentu zawierającego zdanie
+   */
+  public int getDocument(final int sentence) {
+    int i = Arrays.binarySearch(documentStarts, sentence);
+    if (i < 0) {
+      return -i - 2;
+    }
+    /* Dokumenty bez zdań mają taki sam początek jak następny dokument */
+    while (i + 1 < documentStarts.length && documentStarts[i + 1] == sentence) {
+      i++;
+    }
+    return i;
+  }
+
+  public String getOrth(final int position) {
+    return fields.get(FIELD_ORTH).terms[data.getInt(orthsOffset + 4 * position)];
+  }
+
+  public boolean getNoSpaceAfter(final int position) {
+    return (data.get(spacesOffset + (position >> 3)) & (1 << (position & 7))) != 0;
+  }
+
+  /**
+   * Zwraca tekst tokenów z przedziału [from, to) z zachowaniem odstępów między tokenami.
+   *
+   * @param from
+   * @param to
+   * @return
+   */
+  public String getText(final int from, final int to) {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = from; i < to; i++) {
+      sb.append(getOrth(i));
+      if (i + 1 < to && !getNoSpaceAfter(i)) {
+        sb.append(" ");
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Zwraca wiersz konkordancji: nazwę dokumentu, lewy kontekst, wystąpienie i prawy kontekst
+   * rozdzielone tabulatorami. Kontekst obejmuje co najwyżej context tokenów z tego samego zdania.
+   *
+   * @param match
+   * @param context
+   * @return
+   */
+  public String getConcordance(final CorpusMatch match, final int context) {
+    final int left = Math.max(getSentenceStart(match.getSentence()), match.getStart() - context);
+    final int right = Math.min(getSentenceEnd(match.getSentence()), match.getEnd() + context);
+    return getDocumentName(match.getDocument()) + "\t" + getText(left, match.getStart())
+        + "\t" + getText(match.getStart(), match.getEnd()) + "\t" + getText(match.getEnd(), right);
+  }
+
+  /**
+   * Zwraca tekst zdania z wystąpieniami ujętymi w nawiasy kwadratowe.
+   *
+   * @param sentence
+   * @param matches  wystąpienia w zdaniu w kolejności pozycji
+   * @return
+   */
+  public String getSentenceWithHighlight(final int sentence, final List<CorpusMatch> matches) {
+    final StringBuilder sb = new StringBuilder();
+    final Iterator<CorpusMatch> it = matches.iterator();
+    CorpusMatch next = it.hasNext() ? it.next() : null;
+    int end = -1;
+    for (int i = getSentenceStart(sentence); i < getSentenceEnd(sentence); i++) {
+      if (end < 0 && next != null && next.getStart() == i) {
+        sb.append("[");
+        end = next.getEnd();
+      }
+      while (next != null && next.getStart() <= i) {
+        next = it.hasNext() ? it.next() : null;
+      }
+      sb.append(getOrth(i));
+      if (i + 1 == end) {
+        sb.append("]");
+        end = -1;
+      }
+      if (!getNoSpaceAfter(i)) {
+        sb.append(" ");
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,225 @@
+package g419.corpus.search;
+
+import com.google.common.primitives.ImmutableIntArray;
+import g419.corpus.io.DataFormatException;
+import g419.corpus.structure.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Buduje pozycyjny indeks odwrócony korpusu ({@link CorpusIndex}). Tokeny wszystkich dokumentów
+ * są numerowane kolejno od 0, a dla każdego pola i wartości zapamiętywana jest lista pozycji tokenów.
+ * <p>
+ * Indeksowane pola:
+ * <ul>
+ * <li>orth -- forma tokenu,</li>
+ * <li>base, ctag -- formy podstawowe i tagi wszystkich interpretacji tokenu,</li>
+ * <li>ann -- typy anotacji obejmujących token,</li>
+ * <li>pozostałe atrybuty tokenu (np. cechy wygenerowane przez TokenFeatureGenerator) pod swoimi nazwami.</li>
+ * </ul>
+ */
+public class CorpusIndexBuilder {
+
+  private final Map<String, Map<String, ImmutableIntArray.Builder>> fields = new TreeMap<>();
+  private final Map<String, Integer> orthIds = new HashMap<>();
+  private final List<String> orths = new ArrayList<>();
+  private final ImmutableIntArray.Builder tokenOrths = ImmutableIntArray.builder();
+  private final BitSet noSpaceAfter = new BitSet();
+  private final ImmutableIntArray.Builder sentenceStarts = ImmutableIntArray.builder();
+  private final ImmutableIntArray.Builder documentStarts = ImmutableIntArray.builder();
+  private final List<String> documentNames = new ArrayList<>();
+  private int position = 0;
+  private int sentences = 0;
+
+  /**
+   * Dodaje dokument do indeksu.
+   *
+   * @param document
+   */
+  public void add(final Document document) {
+    documentNames.add(document.getName() == null ? "" : document.getName());
+    documentStarts.add(sentences);
+    final TokenAttributeIndex index = document.getAttributeIndex();
+    final Map<Sentence, Integer> offsets = new IdentityHashMap<>();
+    for (final Paragraph paragraph : document.getParagraphs()) {
+      for (final Sentence sentence : paragraph.getSentences()) {
+        offsets.put(sentence, position);
+        sentenceStarts.add(position);
+        sentences++;
+        for (final Token token : sentence.getTokens()) {
+          addToken(token, index);
+          position++;
+        }
+      }
+    }
+    for (final Annotation annotation : document.getAnnotations()) {
+      final Integer offset = offsets.get(annotation.getSentence());
+      if (offset != null && annotation.getType() != null) {
+        for (final int token : annotation.getTokens()) {
+          add(CorpusIndex.FIELD_ANNOTATION, annotation.getType(), offset + token);
+        }
+      }
+    }
+  }
+
+  private void addToken(final Token token, final TokenAttributeIndex index) {
+    final String orth = token.getOrth() == null ? "" : token.getOrth();
+    Integer orthId = orthIds.get(orth);
+    if (orthId == null) {
+      orthId = orths.size();
+      orthIds.put(orth, orthId);
+      orths.add(orth);
+    }
+    tokenOrths.add(orthId);
+    noSpaceAfter.set(position, token.getNoSpaceAfter());
+    add(CorpusIndex.FIELD_ORTH, orth, position);
+
+    final Set<String> bases = new HashSet<>();
+    final Set<String> ctags = new HashSet<>();
+    for (final Tag tag : token.getTags()) {
+      if (tag.getBase() != null && bases.add(tag.getBase())) {
+        add(CorpusIndex.FIELD_BASE, tag.getBase(), position);
+      }
+      if (tag.getCtag() != null && ctags.add(tag.getCtag())) {
+        add(CorpusIndex.FIELD_CTAG, tag.getCtag(), position);
+      }
+    }
+
+    for (int i = 0; i < token.getNumAttributes() && i < index.getLength(); i++) {
+      final String name = index.getName(i);
+      if (CorpusIndex.FIELD_ORTH.equals(name) || CorpusIndex.FIELD_BASE.equals(name)
+          || CorpusIndex.FIELD_CTAG.equals(name) || CorpusIndex.FIELD_ANNOTATION.equals(name)) {
+        continue;
+      }
+      final String value = token.getAttributeValue(i);
+      if (value != null) {
+        add(name, value, position);
+      }
+    }
+  }
+
+  private void add(final String field, final String value, final int position) {
+    fields.computeIfAbsent(field, f -> new HashMap<>())
+        .computeIfAbsent(value, v -> ImmutableIntArray.builder())
+        .add(position);
+  }
+
+  /**
+   * Zwraca indeks dokumentów dodanych do tej pory, przechowywany w pamięci.
+   *
+   * @return
+   * @throws IOException
+   * @throws DataFormatException
+   */
+  public CorpusIndex build() throws IOException, DataFormatException {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    write(os);
+    return new CorpusIndex(ByteBuffer.wrap(os.toByteArray()));
+  }
+
+  /**
+   * Zapisuje indeks w formacie wczytywanym przez {@link CorpusIndex#open(java.io.File)}:
+   * nagłówek, tablice danych (początki zdań, brak spacji po tokenie, formy tokenów, listy pozycji)
+   * jako liczby 32-bitowe, słowniki pól z położeniem list pozycji i na końcu położenie słowników.
+   *
+   * @param os
+   * @throws IOException
+   */
+  public void write(final OutputStream os) throws IOException {
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+    out.writeInt(CorpusIndex.MAGIC);
+    out.writeInt(CorpusIndex.VERSION);
+    long offset = 8;
+
+    final long sentencesOffset = offset;
+    final ImmutableIntArray starts = sentenceStarts.build();
+    offset += writeInts(out, starts);
+    out.writeInt(position);
+    offset += 4;
+
+    final long spacesOffset = offset;
+    final byte[] spaces = Arrays.copyOf(noSpaceAfter.toByteArray(), (position + 7) / 8);
+    out.write(spaces);
+    offset += spaces.length;
+
+    /* Numery form w kolejności słownika pola orth */
+    final String[] sortedOrths = orths.toArray(new String[0]);
+    Arrays.sort(sortedOrths);
+    final int[] rank = new int[sortedOrths.length];
+    for (int i = 0; i < sortedOrths.length; i++) {
+      rank[orthIds.get(sortedOrths[i])] = i;
+    }
+    final long orthsOffset = offset;
+    final ImmutableIntArray ids = tokenOrths.build();
+    for (int i = 0; i < ids.length(); i++) {
+      out.writeInt(rank[ids.get(i)]);
+    }
+    offset += 4L * ids.length();
+
+    final Map<String, List<String>> terms = new LinkedHashMap<>();
+    final Map<String, long[]> termOffsets = new HashMap<>();
+    final Map<String, int[]> termCounts = new HashMap<>();
+    for (final Map.Entry<String, Map<String, ImmutableIntArray.Builder>> field : fields.entrySet()) {
+      final List<String> values = new ArrayList<>(field.getValue().keySet());
+      Collections.sort(values);
+      final long[] offsets = new long[values.size()];
+      final int[] counts = new int[values.size()];
+      for (int i = 0; i < values.size(); i++) {
+        final ImmutableIntArray postings = field.getValue().get(values.get(i)).build();
+        offsets[i] = offset;
+        counts[i] = postings.length();
+        offset += writeInts(out, postings);
+      }
+      terms.put(field.getKey(), values);
+      termOffsets.put(field.getKey(), offsets);
+      termCounts.put(field.getKey(), counts);
+    }
+
+    final long headerOffset = offset;
+    out.writeInt(position);
+    out.writeInt(sentences);
+    out.writeLong(sentencesOffset);
+    out.writeLong(spacesOffset);
+    out.writeLong(orthsOffset);
+    final ImmutableIntArray docs = documentStarts.build();
+    out.writeInt(documentNames.size());
+    for (int i = 0; i < documentNames.size(); i++) {
+      writeString(out, documentNames.get(i));
+      out.writeInt(docs.get(i));
+    }
+    out.writeInt(terms.size());
+    for (final Map.Entry<String, List<String>> field : terms.entrySet()) {
+      writeString(out, field.getKey());
+      final long[] offsets = termOffsets.get(field.getKey());
+      final int[] counts = termCounts.get(field.getKey());
+      out.writeInt(field.getValue().size());
+      for (int i = 0; i < field.getValue().size(); i++) {
+        writeString(out, field.getValue().get(i));
+        out.writeLong(offsets[i]);
+        out.writeInt(counts[i]);
+      }
+    }
+    out.writeLong(headerOffset);
+    out.flush();
+  }
+
+  private void writeString(final DataOutputStream out, final String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private long writeInts(final DataOutputStream out, final ImmutableIntArray values) throws IOException {
+    for (int i = 0; i < values.length(); i++) {
+      out.writeInt(values.get(i));
+    }
+    return 4L * values.length();
+  }
+}
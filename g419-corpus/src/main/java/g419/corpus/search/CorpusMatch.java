@@ -0,0 +1,43 @@
+package g419.corpus.search;
+
+/**
+ * Wystąpienie zapytania w indeksie korpusu: pozycja pierwszego tokenu, liczba tokenów
+ * oraz numer zdania i dokumentu.
+ */
+public class CorpusMatch {
+
+  private final int start;
+  private final int length;
+  private final int sentence;
+  private final int document;
+
+  public CorpusMatch(final int start, final int length, final int sentence, final int document) {
+    this.start = start;
+    this.length = length;
+    this.sentence = sentence;
+    this.document = document;
+  }
+
+  public int getStart() {
+    return start;
+  }
+
+  /**
+   * @return pozycja tokenu za ostatnim tokenem wystąpienia
+   */
+  public int getEnd() {
+    return start + length;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  public int getSentence() {
+    return sentence;
+  }
+
+  public int getDocument() {
+    return document;
+  }
+}
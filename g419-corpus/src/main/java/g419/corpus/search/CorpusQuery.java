@@ -0,0 +1,164 @@
+package g419.corpus.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Zapytanie do indeksu korpusu ({@link CorpusIndex}) -- sekwencja warunków nałożonych na kolejne tokeny
+ * w obrębie jednego zdania. Warunki dla kolejnych tokenów oddzielone są spacjami, a warunki dla jednego
+ * tokenu znakiem &amp;:
+ * <ul>
+ * <li>pole=wartość -- pole tokenu ma podaną wartość,</li>
+ * <li>pole=prefiks* -- wartość pola zaczyna się od prefiksu,</li>
+ * <li>pole~wyrażenie -- wartość pola pasuje do wyrażenia regularnego,</li>
+ * <li>fraza -- forma tokenu zaczyna się od frazy bez względu na wielkość liter,</li>
+ * <li>* -- dowolny token.</li>
+ * </ul>
+ * Przykład: <code>base=pan&amp;ctag=subst* ann=nam_liv_person*</code>
+ */
+public class CorpusQuery {
+
+  public static final String ANY = "*";
+
+  private final List<List<Condition>> tokens;
+
+  private CorpusQuery(final List<List<Condition>> tokens) {
+    this.tokens = tokens;
+  }
+
+  /**
+   * @param query
+   * @return
+   * @throws IllegalArgumentException gdy zapytanie jest puste lub zawiera niepoprawne wyrażenie regularne
+   */
+  public static CorpusQuery parse(final String query) {
+    final List<List<Condition>> tokens = new ArrayList<>();
+    for (final String token : query.trim().split("\\s+")) {
+      if (token.isEmpty()) {
+        continue;
+      }
+      final List<Condition> conditions = new ArrayList<>();
+      if (!ANY.equals(token)) {
+        for (final String condition : token.split("&")) {
+          if (!condition.isEmpty()) {
+            conditions.add(Condition.parse(condition));
+          }
+        }
+      }
+      tokens.add(Collections.unmodifiableList(conditions));
+    }
+    if (tokens.isEmpty()) {
+      throw new IllegalArgumentException("Empty query");
+    }
+    return new CorpusQuery(Collections.unmodifiableList(tokens));
+  }
+
+  /**
+   * Zwraca warunki dla kolejnych tokenów. Pusta lista oznacza dowolny token.
+   *
+   * @return
+   */
+  public List<List<Condition>> getTokens() {
+    return tokens;
+  }
+
+  public int getLength() {
+    return tokens.size();
+  }
+
+  @Override
+  public String toString() {
+    final List<String> parts = new ArrayList<>();
+    for (final List<Condition> conditions : tokens) {
+      final List<String> token = new ArrayList<>();
+      conditions.forEach(c -> token.add(c.toString()));
+      parts.add(token.isEmpty() ? ANY : String.join("&", token));
+    }
+    return String.join(" ", parts);
+  }
+
+  /**
+   * Warunek nałożony na wartości jednego pola tokenu.
+   */
+  public static class Condition {
+
+    public enum Operator {
+      EXACT, PREFIX, REGEX, PREFIX_IGNORE_CASE
+    }
+
+    private final String field;
+    private final Operator operator;
+    private final String value;
+    private final Pattern pattern;
+
+    public Condition(final String field, final Operator operator, final String value) {
+      this.field = field;
+      this.operator = operator;
+      this.value = operator == Operator.PREFIX_IGNORE_CASE ? value.toLowerCase() : value;
+      try {
+        pattern = operator == Operator.REGEX ? Pattern.compile(value) : null;
+      } catch (final PatternSyntaxException ex) {
+        throw new IllegalArgumentException("Invalid regular expression in query: " + value, ex);
+      }
+    }
+
+    static Condition parse(final String condition) {
+      final int eq = condition.indexOf('=');
+      final int re = condition.indexOf('~');
+      if (re > 0 && (eq < 0 || re < eq)) {
+        return new Condition(condition.substring(0, re), Operator.REGEX, condition.substring(re + 1));
+      } else if (eq > 0) {
+        final String value = condition.substring(eq + 1);
+        if (value.endsWith(ANY)) {
+          return new Condition(condition.substring(0, eq), Operator.PREFIX, value.substring(0, value.length() - 1));
+        }
+        return new Condition(condition.substring(0, eq), Operator.EXACT, value);
+      } else {
+        final String value = condition.endsWith(ANY) ? condition.substring(0, condition.length() - 1) : condition;
+        return new Condition(CorpusIndex.FIELD_ORTH, Operator.PREFIX_IGNORE_CASE, value);
+      }
+    }
+
+    public String getField() {
+      return field;
+    }
+
+    public Operator getOperator() {
+      return operator;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    public boolean matches(final String term) {
+      switch (operator) {
+        case EXACT:
+          return value.equals(term);
+        case PREFIX:
+          return term.startsWith(value);
+        case REGEX:
+          return pattern.matcher(term).matches();
+        default:
+          return term.toLowerCase().startsWith(value);
+      }
+    }
+
+    @Override
+    public String toString() {
+      switch (operator) {
+        case EXACT:
+          return field + "=" + value;
+        case PREFIX:
+          return field + "=" + value + ANY;
+        case REGEX:
+          return field + "~" + value;
+        default:
+          return value;
+      }
+    }
+  }
+}
@@ -217,11 +217,22 @@ public class Annotation extends IdentifiableElement {
 
   public void addToken(final int idx) {
     tokens.add(idx);
+    notifySentence();
   }
 
   public void replaceTokens(final int begin, final int end) {
     tokens.clear();
     IntStream.rangeClosed(begin, end).forEach(tokens::add);
+    notifySentence();
+  }
+
+  /**
+   * Unieważnia indeks anotacji zdania po zmianie zakresu lub typu anotacji.
+   */
+  private void notifySentence() {
+    if (sentence != null) {
+      sentence.annotationChanged();
+    }
   }
 
   @Override
@@ -405,6 +416,7 @@ public class Annotation extends IdentifiableElement {
 
   public void setType(final String type) {
     this.type = type.toLowerCase();
+    notifySentence();
   }
 
   public void setGroup(final String group) {
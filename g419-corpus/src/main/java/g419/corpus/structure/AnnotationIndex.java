@@ -0,0 +1,90 @@
+package g419.corpus.structure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indeks anotacji zdania: token -> anotacje, typ -> anotacje oraz numer kolejny anotacji
+ * wśród anotacji tego samego typu. Listy zachowują kolejność anotacji w zdaniu.
+ * Indeks jest budowany leniwie przez Sentence i przebudowywany po zmianie anotacji.
+ */
+class AnnotationIndex {
+
+  private final List<Annotation>[] byToken;
+  private final Map<String, List<Annotation>> byType = new HashMap<>();
+  private final Map<Annotation, Integer> typeOrdinals = new IdentityHashMap<>();
+
+  /* Stan zdania, dla którego zbudowano indeks */
+  private final Object chunks;
+  private final int chunksVersion;
+  private final int annotationsVersion;
+  private final int tokenCount;
+
+  @SuppressWarnings("unchecked")
+  AnnotationIndex(final AnnotationLinkedHashSet annotations, final int annotationsVersion, final int tokenCount) {
+    this.chunks = annotations;
+    this.chunksVersion = annotations.getVersion();
+    this.annotationsVersion = annotationsVersion;
+    this.tokenCount = tokenCount;
+    int size = tokenCount;
+    for (final Annotation annotation : annotations) {
+      if (!annotation.getTokens().isEmpty()) {
+        size = Math.max(size, annotation.getEnd() + 1);
+      }
+    }
+    byToken = new List[size];
+    for (final Annotation annotation : annotations) {
+      for (final int idx : annotation.getTokens()) {
+        if (idx >= 0) {
+          if (byToken[idx] == null) {
+            byToken[idx] = new ArrayList<>(2);
+          }
+          byToken[idx].add(annotation);
+        }
+      }
+      final List<Annotation> ofType = byType.computeIfAbsent(annotation.getType(), t -> new ArrayList<>());
+      ofType.add(annotation);
+      typeOrdinals.put(annotation, ofType.size());
+    }
+  }
+
+  /**
+   * Sprawdza, czy indeks odpowiada bieżącemu stanowi zdania.
+   */
+  boolean isValidFor(final AnnotationLinkedHashSet annotations, final int annotationsVersion, final int tokenCount) {
+    return chunks == annotations
+        && chunksVersion == annotations.getVersion()
+        && this.annotationsVersion == annotationsVersion
+        && this.tokenCount == tokenCount;
+  }
+
+  /**
+   * Anotacje obejmujące token o podanym indeksie (lista tylko do odczytu).
+   */
+  List<Annotation> getAt(final int idx) {
+    if (idx < 0 || idx >= byToken.length || byToken[idx] == null) {
+      return Collections.emptyList();
+    }
+    return byToken[idx];
+  }
+
+  /**
+   * Anotacje danego typu (lista tylko do odczytu).
+   */
+  List<Annotation> getOfType(final String type) {
+    final List<Annotation> annotations = byType.get(type);
+    return annotations == null ? Collections.emptyList() : annotations;
+  }
+
+  /**
+   * Numer kolejny (od 1) anotacji wśród anotacji tego samego typu lub 0, jeżeli anotacji nie ma w zdaniu.
+   */
+  int getTypeOrdinal(final Annotation annotation) {
+    final Integer ordinal = typeOrdinals.get(annotation);
+    return ordinal == null ? 0 : ordinal;
+  }
+}
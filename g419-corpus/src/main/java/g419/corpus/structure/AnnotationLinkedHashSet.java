@@ -0,0 +1,87 @@
+package g419.corpus.structure;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.function.Predicate;
+
+/**
+ * Zbiór anotacji zdania, który zlicza swoje modyfikacje. Numer wersji pozwala sprawdzić
+ * w czasie stałym, czy indeks anotacji zdania (AnnotationIndex) jest aktualny, również wtedy,
+ * gdy zbiór jest modyfikowany bezpośrednio przez Sentence.getChunks() lub AnnotationSet.
+ */
+class AnnotationLinkedHashSet extends LinkedHashSet<Annotation> {
+
+  private static final long serialVersionUID = 1L;
+
+  private int version = 0;
+
+  AnnotationLinkedHashSet() {
+  }
+
+  AnnotationLinkedHashSet(final Collection<Annotation> annotations) {
+    super(annotations);
+  }
+
+  int getVersion() {
+    return version;
+  }
+
+  @Override
+  public boolean add(final Annotation annotation) {
+    version++;
+    return super.add(annotation);
+  }
+
+  @Override
+  public boolean remove(final Object annotation) {
+    version++;
+    return super.remove(annotation);
+  }
+
+  @Override
+  public void clear() {
+    version++;
+    super.clear();
+  }
+
+  @Override
+  public boolean removeAll(final Collection<?> annotations) {
+    version++;
+    return super.removeAll(annotations);
+  }
+
+  @Override
+  public boolean retainAll(final Collection<?> annotations) {
+    version++;
+    return super.retainAll(annotations);
+  }
+
+  @Override
+  public boolean removeIf(final Predicate<? super Annotation> filter) {
+    version++;
+    return super.removeIf(filter);
+  }
+
+  @Override
+  public Iterator<Annotation> iterator() {
+    final Iterator<Annotation> iterator = super.iterator();
+    return new Iterator<Annotation>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public Annotation next() {
+        return iterator.next();
+      }
+
+      @Override
+      public void remove() {
+        version++;
+        iterator.remove();
+      }
+    };
+  }
+}
@@ -9,11 +9,12 @@ import java.util.LinkedHashSet;
  */
 public class AnnotationSet {
 
-  LinkedHashSet<Annotation> chunks = new LinkedHashSet<>();
+  AnnotationLinkedHashSet chunks = new AnnotationLinkedHashSet();
   Sentence sentence = null;
 
   public AnnotationSet(final Sentence sentence, final LinkedHashSet<Annotation> chunks) {
-    this.chunks = chunks;
+    this.chunks = chunks instanceof AnnotationLinkedHashSet
+        ? (AnnotationLinkedHashSet) chunks : new AnnotationLinkedHashSet(chunks);
     this.sentence = sentence;
   }
 
@@ -16,9 +16,10 @@ public class Document {
   List<Paragraph> paragraphs = new ArrayList<>();
   DocumentDescriptor documentDescriptor = new DocumentDescriptor();
 
-  private HashMap<String, Integer> bases = null;
-  private HashMap<String, Integer> titleBases = null;
-  private int tokenNumber = 0;
+  private volatile DocumentStatistics statistics = null;
+
+  /* Sygnatura konfiguracji cech wygenerowanych dla dokumentu (null, jeżeli cechy nie zostały wygenerowane) */
+  private String featureSignature = null;
   private final Set<Frame<Annotation>> frames = Sets.newHashSet();
 
   /* Zbiór relacji */
@@ -98,6 +99,14 @@ public class Document {
     return paragraphs;
   }
 
+  public String getFeatureSignature() {
+    return featureSignature;
+  }
+
+  public void setFeatureSignature(final String featureSignature) {
+    this.featureSignature = featureSignature;
+  }
+
   public Set<Frame<Annotation>> getFrames() {
     return frames;
   }
@@ -119,8 +128,7 @@ public class Document {
     final HashMap<Sentence, AnnotationSet> chunkings = new HashMap<>();
     for (final Paragraph paragraph : paragraphs) {
       for (final Sentence sentence : paragraph.getSentences()) {
-        final LinkedHashSet<Annotation> annotations = new LinkedHashSet<>();
-        annotations.addAll(sentence.getChunks());
+        final LinkedHashSet<Annotation> annotations = new AnnotationLinkedHashSet(sentence.getChunks());
         chunkings.put(sentence, new AnnotationSet(sentence, annotations));
       }
     }
@@ -186,7 +194,7 @@ public class Document {
   public void removeAnnotations() {
     for (final Paragraph paragraph : paragraphs) {
       for (final Sentence sentence : paragraph.getSentences()) {
-        sentence.chunks = new LinkedHashSet<>();
+        sentence.chunks = new AnnotationLinkedHashSet();
       }
     }
   }
@@ -258,9 +266,14 @@ public class Document {
   public Document clone() {
     final Document copy = new Document(name, attributeIndex.clone());
     for (final Paragraph p : paragraphs) {
-      copy.addParagraph(p.clone());
+      /* Kopie akapitów, zdań i tokenów korzystają ze wspólnego indeksu atrybutów kopii dokumentu,
+       * tak jak w dokumencie wczytanym, aby cechy generowane dla kopii trafiały do wszystkich tokenów */
+      final Paragraph paragraph = p.clone();
+      paragraph.setAttributeIndex(copy.attributeIndex);
+      copy.addParagraph(paragraph);
     }
     copy.documentDescriptor = documentDescriptor.clone();
+    copy.featureSignature = featureSignature;
     return copy;
 
   }
@@ -325,52 +338,47 @@ public class Document {
     return documentDescriptor;
   }
 
-  public int getBaseCount(final String base) {
-    if (bases == null) {
-      bases = new HashMap<>();
-      for (final Paragraph p : paragraphs) {
-        for (final Sentence s : p.getSentences()) {
-          for (final Token t : s.getTokens()) {
-            tokenNumber += 1;
-            final String lemma = t.getAttributeValue("base");
-            if (bases.containsKey(lemma)) {
-              bases.put(lemma, bases.get(lemma) + 1);
-            } else {
-              bases.put(lemma, 1);
-            }
-          }
+  /**
+   * Zwraca statystyki dokumentu. Jeżeli nie zostały wcześniej wyznaczone przez
+   * {@link #computeStatistics()}, są wyznaczane przy pierwszym wywołaniu.
+   *
+   * @return
+   */
+  public DocumentStatistics getStatistics() {
+    DocumentStatistics stats = statistics;
+    if (stats == null) {
+      synchronized (this) {
+        stats = statistics;
+        if (stats == null) {
+          stats = new DocumentStatistics(this);
+          statistics = stats;
         }
       }
     }
-    if (bases.containsKey(base)) {
-      return bases.get(base);
-    }
-    return 0;
+    return stats;
   }
 
-  // ToDo: This should be removed or refactored. tokenNumber is buffered value calculated by getBaseCount.
-  public int getTokenNumber() {
-    return tokenNumber;
+  /**
+   * Wyznacza (ponownie) statystyki dokumentu. Powinno być wywołane przed zmianą atrybutów tokenów,
+   * z których statystyki są liczone, np. przed generowaniem cech.
+   *
+   * @return
+   */
+  public DocumentStatistics computeStatistics() {
+    final DocumentStatistics stats = new DocumentStatistics(this);
+    statistics = stats;
+    return stats;
+  }
+
+  public int getBaseCount(final String base) {
+    return getStatistics().getBaseCount(base);
   }
 
+  public int getTokenNumber() {
+    return getStatistics().getTokenNumber();
+  }
 
   public int isInTitle(final String base) {
-    if (titleBases == null) {
-      titleBases = new HashMap<>();
-      for (final Paragraph p : paragraphs) {
-        if (p.getChunkMetaData("type").equals("title")) {
-          for (final Sentence s : p.getSentences()) {
-            for (final Token t : s.getTokens()) {
-              final String lemma = t.getAttributeValue("base");
-              titleBases.put(lemma, 1);
-            }
-          }
-        }
-      }
-    }
-    if (titleBases.containsKey(base)) {
-      return titleBases.get(base);
-    }
-    return 0;
+    return getStatistics().isInTitle(base) ? 1 : 0;
   }
 }
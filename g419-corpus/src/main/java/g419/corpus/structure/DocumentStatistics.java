@@ -0,0 +1,224 @@
+package g419.corpus.structure;
+
+import java.util.Arrays;
+
+/**
+ * Statystyki dokumentu wyznaczane w jednym przejściu po tokenach: liczba tokenów i zdań,
+ * liczba wystąpień form bazowych oraz formy bazowe występujące w akapitach tytułowych.
+ * Formy bazowe są identyfikowane kodami z tablicy symboli indeksu atrybutów dokumentu,
+ * a liczniki są przechowywane w tablicach liczb całkowitych.
+ * <p>
+ * Statystyki nie zmieniają się po utworzeniu, więc mogą być czytane przez wiele wątków.
+ *
+ * @author Michał Marcińczuk
+ */
+public class DocumentStatistics {
+
+  private final SymbolTable symbols;
+  private final int tokenNumber;
+  private final int sentenceNumber;
+  private final IntCounts baseCounts = new IntCounts();
+  private final IntCounts titleBases = new IntCounts();
+
+  /**
+   * Wyznacza statystyki dokumentu. Forma bazowa jest odczytywana z atrybutu "base" tokenów.
+   *
+   * @param document
+   */
+  public DocumentStatistics(final Document document) {
+    symbols = document.getAttributeIndex() != null ? document.getAttributeIndex().getSymbolTable() : new SymbolTable();
+    int tokens = 0;
+    int sentences = 0;
+    TokenAttributeIndex attributeIndex = null;
+    int baseIndex = -1;
+    for (final Paragraph paragraph : document.getParagraphs()) {
+      final boolean title = "title".equals(paragraph.getChunkMetaData("type"));
+      for (final Sentence sentence : paragraph.getSentences()) {
+        sentences++;
+        for (final Token token : sentence.getTokens()) {
+          tokens++;
+          if (token.getAttributeIndex() != attributeIndex) {
+            attributeIndex = token.getAttributeIndex();
+            baseIndex = attributeIndex.getIndex("base");
+          }
+          final int base = encode(token, baseIndex, true);
+          if (base != SymbolTable.NULL) {
+            baseCounts.increment(base);
+            if (title) {
+              titleBases.put(base, 1);
+            }
+          }
+        }
+      }
+    }
+    tokenNumber = tokens;
+    sentenceNumber = sentences;
+  }
+
+  /**
+   * @return liczba tokenów w dokumencie
+   */
+  public int getTokenNumber() {
+    return tokenNumber;
+  }
+
+  /**
+   * @return liczba zdań w dokumencie
+   */
+  public int getSentenceNumber() {
+    return sentenceNumber;
+  }
+
+  /**
+   * @return liczba różnych form bazowych w dokumencie
+   */
+  public int getBaseNumber() {
+    return baseCounts.size();
+  }
+
+  /**
+   * Zwraca liczbę wystąpień formy bazowej w dokumencie.
+   *
+   * @param base
+   * @return
+   */
+  public int getBaseCount(final String base) {
+    final int code = symbols.lookup(base);
+    return code == SymbolTable.NULL ? 0 : baseCounts.get(code);
+  }
+
+  /**
+   * Zwraca liczbę wystąpień w dokumencie formy bazowej tokenu.
+   *
+   * @param token
+   * @param baseIndex indeks atrybutu "base" w indeksie atrybutów tokenu
+   * @return
+   */
+  public int getBaseCount(final Token token, final int baseIndex) {
+    final int code = encode(token, baseIndex, false);
+    return code == SymbolTable.NULL ? 0 : baseCounts.get(code);
+  }
+
+  /**
+   * Sprawdza, czy forma bazowa występuje w akapicie tytułowym dokumentu.
+   *
+   * @param base
+   * @return
+   */
+  public boolean isInTitle(final String base) {
+    final int code = symbols.lookup(base);
+    return code != SymbolTable.NULL && titleBases.get(code) > 0;
+  }
+
+  /**
+   * Sprawdza, czy forma bazowa tokenu występuje w akapicie tytułowym dokumentu.
+   *
+   * @param token
+   * @param baseIndex indeks atrybutu "base" w indeksie atrybutów tokenu
+   * @return
+   */
+  public boolean isInTitle(final Token token, final int baseIndex) {
+    final int code = encode(token, baseIndex, false);
+    return code != SymbolTable.NULL && titleBases.get(code) > 0;
+  }
+
+  /**
+   * Zwraca kod formy bazowej tokenu w tablicy symboli dokumentu. Kody tokenów korzystających
+   * z innej tablicy symboli są przekodowywane przez wartość.
+   */
+  private int encode(final Token token, final int baseIndex, final boolean add) {
+    if (baseIndex < 0 || baseIndex >= token.getNumAttributes()) {
+      return SymbolTable.NULL;
+    }
+    if (token.getSymbolTable() == symbols) {
+      return token.getAttributeCode(baseIndex);
+    }
+    final String base = token.getAttributeValue(baseIndex);
+    return add ? symbols.encode(base) : symbols.lookup(base);
+  }
+
+  /**
+   * Tablica mieszająca z adresowaniem otwartym przypisująca kodom symboli liczniki.
+   */
+  private static class IntCounts {
+    private static final int EMPTY = -1;
+
+    private int[] keys = new int[64];
+    private int[] values = new int[64];
+    private int size = 0;
+
+    IntCounts() {
+      Arrays.fill(keys, EMPTY);
+    }
+
+    int get(final int key) {
+      final int mask = keys.length - 1;
+      for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return values[i];
+        } else if (keys[i] == EMPTY) {
+          return 0;
+        }
+      }
+    }
+
+    void increment(final int key) {
+      final int i = slot(key);
+      values[i]++;
+    }
+
+    void put(final int key, final int value) {
+      final int i = slot(key);
+      values[i] = value;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * Zwraca pozycję klucza, w razie potrzeby dodając go z wartością 0.
+     */
+    private int slot(final int key) {
+      int mask = keys.length - 1;
+      int i = mix(key) & mask;
+      while (keys[i] != EMPTY) {
+        if (keys[i] == key) {
+          return i;
+        }
+        i = (i + 1) & mask;
+      }
+      if (2 * (size + 1) > keys.length) {
+        grow();
+        return slot(key);
+      }
+      keys[i] = key;
+      size++;
+      return i;
+    }
+
+    private void grow() {
+      final int[] oldKeys = keys;
+      final int[] oldValues = values;
+      keys = new int[oldKeys.length * 2];
+      values = new int[oldKeys.length * 2];
+      Arrays.fill(keys, EMPTY);
+      final int mask = keys.length - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldKeys[j] != EMPTY) {
+          int i = mix(oldKeys[j]) & mask;
+          while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+          }
+          keys[i] = oldKeys[j];
+          values[i] = oldValues[j];
+        }
+      }
+    }
+
+    private static int mix(final int key) {
+      final int h = key * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+}
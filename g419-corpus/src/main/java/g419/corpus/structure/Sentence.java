@@ -20,7 +20,14 @@ public class Sentence extends IdentifiableElement {
   List<Token> tokens = new ArrayList<>();
 
   /* Zbiór anotacji */
-  LinkedHashSet<Annotation> chunks = new LinkedHashSet<>();
+  AnnotationLinkedHashSet chunks = new AnnotationLinkedHashSet();
+
+  /* Licznik zmian anotacji zdania (tokeny, typ), zgłaszanych przez Annotation */
+  int annotationsVersion = 0;
+
+  /* Indeks anotacji budowany leniwie przy pierwszym zapytaniu po zmianie;
+   * volatile, aby zdanie mogło być czytane jednocześnie przez wiele wątków */
+  private volatile AnnotationIndex annotationIndex = null;
 
   /* Tymczasowe obejście braku odniesienia do dokumentu z poziomu klasy Annotation */
   Document document;
@@ -100,15 +107,7 @@ public class Sentence extends IdentifiableElement {
    * Return a list of annotations which contain a token with given index.
    */
   public List<Annotation> getChunksAt(final int idx) {
-    final List<Annotation> returning = new ArrayList<>();
-    final Iterator<Annotation> i_chunk = chunks.iterator();
-    while (i_chunk.hasNext()) {
-      final Annotation currentChunk = i_chunk.next();
-      if (currentChunk.getTokens().contains(idx)) {
-        returning.add(currentChunk);
-      }
-    }
-    return returning;
+    return new ArrayList<>(getAnnotationIndex().getAt(idx));
   }
 
   /**
@@ -116,20 +115,16 @@ public class Sentence extends IdentifiableElement {
    */
   public List<Annotation> getChunksAt(final int idx, final List<Pattern> types) {
     final List<Annotation> returning = new ArrayList<>();
-    final Iterator<Annotation> i_chunk = chunks.iterator();
-    while (i_chunk.hasNext()) {
-      final Annotation currentChunk = i_chunk.next();
-      if (currentChunk.getTokens().contains(idx)) {
-        if (types != null) {
-          for (final Pattern patt : types) {
-            if (patt.matcher(currentChunk.getType()).matches()) {
-              returning.add(currentChunk);
-              break;
-            }
+    for (final Annotation currentChunk : getAnnotationIndex().getAt(idx)) {
+      if (types != null) {
+        for (final Pattern patt : types) {
+          if (patt.matcher(currentChunk.getType()).matches()) {
+            returning.add(currentChunk);
+            break;
           }
-        } else {
-          returning.add(currentChunk);
         }
+      } else {
+        returning.add(currentChunk);
       }
     }
     return returning;
@@ -139,16 +134,45 @@ public class Sentence extends IdentifiableElement {
   Sprawdza, czy token o podanym indeksie jest chunkiem typu 'type'
    */
   public boolean isChunkAt(final int idx, final String type) {
-    final Iterator<Annotation> i_chunk = chunks.iterator();
-    while (i_chunk.hasNext()) {
-      final Annotation currentChunk = i_chunk.next();
-      if (currentChunk.getTokens().contains(idx) && currentChunk.getType().equals(type)) {
+    for (final Annotation currentChunk : getAnnotationIndex().getAt(idx)) {
+      if (currentChunk.getType().equals(type)) {
         return true;
       }
     }
     return false;
   }
 
+  /**
+   * Zwraca numer kolejny anotacji (od 1) wśród anotacji tego samego typu w zdaniu,
+   * w kolejności ich dodania, lub 0, jeżeli anotacja nie należy do zdania.
+   *
+   * @param annotation
+   * @return
+   */
+  public int getAnnotationOrdinal(final Annotation annotation) {
+    return getAnnotationIndex().getTypeOrdinal(annotation);
+  }
+
+  /**
+   * Zwraca indeks anotacji zdania, budując go ponownie, jeżeli od ostatniego zapytania
+   * zmienił się zbiór anotacji, zakres lub typ którejś z nich albo liczba tokenów.
+   */
+  private AnnotationIndex getAnnotationIndex() {
+    AnnotationIndex index = annotationIndex;
+    if (index == null || !index.isValidFor(chunks, annotationsVersion, tokens.size())) {
+      index = new AnnotationIndex(chunks, annotationsVersion, tokens.size());
+      annotationIndex = index;
+    }
+    return index;
+  }
+
+  /**
+   * Wywoływane przez Annotation po zmianie tokenów lub typu anotacji.
+   */
+  void annotationChanged() {
+    annotationsVersion++;
+  }
+
   /**
    * @param idx
    * @param types
@@ -236,14 +260,7 @@ public class Sentence extends IdentifiableElement {
   }
 
   public LinkedHashSet<Annotation> getAnnotations(final String type) {
-    final LinkedHashSet<Annotation> annotationsForTypes = new LinkedHashSet<>();
-    for (final Annotation annotation : chunks) {
-      if (type.equals(annotation.getType())) {
-        annotationsForTypes.add(annotation);
-      }
-    }
-
-    return annotationsForTypes;
+    return new LinkedHashSet<>(getAnnotationIndex().getOfType(type));
   }
 
   public LinkedHashSet<Annotation> getAnnotations(final List<Pattern> types) {
@@ -295,7 +312,7 @@ public class Sentence extends IdentifiableElement {
   }
 
   public void setAnnotations(final AnnotationSet chunking) {
-    chunks = chunking.chunkSet();
+    chunks = chunking.chunks;
   }
 
   public String annotationsToString() {
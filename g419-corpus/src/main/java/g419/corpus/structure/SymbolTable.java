@@ -0,0 +1,84 @@
+package g419.corpus.structure;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tablica symboli przypisująca wartościom atrybutów tokenów kolejne liczby całkowite.
+ * Każda wartość jest przechowywana raz, a tokeny przechowują jedynie kody wartości.
+ * Kod {@link #NULL} oznacza brak wartości.
+ * <p>
+ * Dodawanie wartości jest synchronizowane, odczyt wartości dla kodu nie wymaga blokady.
+ *
+ * @author czuk
+ */
+public final class SymbolTable {
+
+  public static final int NULL = -1;
+
+  private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+
+  private volatile String[] values = new String[64];
+
+  private int size = 0;
+
+  /**
+   * Zwraca kod dla podanej wartości. Jeżeli wartość nie występuje w tablicy, to zostaje dodana.
+   *
+   * @param value wartość atrybutu (może być null)
+   * @return kod wartości
+   */
+  public int encode(final String value) {
+    if (value == null) {
+      return NULL;
+    }
+    final Integer code = codes.get(value);
+    return code != null ? code : add(value);
+  }
+
+  /**
+   * Zwraca kod dla podanej wartości bez dodawania jej do tablicy.
+   *
+   * @param value wartość atrybutu (może być null)
+   * @return kod wartości lub {@link #NULL}, jeżeli wartości nie ma w tablicy
+   */
+  public int lookup(final String value) {
+    if (value == null) {
+      return NULL;
+    }
+    final Integer code = codes.get(value);
+    return code != null ? code : NULL;
+  }
+
+  private synchronized int add(final String value) {
+    final Integer code = codes.get(value);
+    if (code != null) {
+      return code;
+    }
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size] = value;
+    codes.put(value, size);
+    return size++;
+  }
+
+  /**
+   * Zwraca wartość dla podanego kodu.
+   *
+   * @param code kod wartości
+   * @return wartość lub null dla kodu {@link #NULL}
+   */
+  public String decode(final int code) {
+    return code == NULL ? null : values[code];
+  }
+
+  /**
+   * Zwraca liczbę różnych wartości w tablicy.
+   *
+   * @return liczba wartości
+   */
+  public int size() {
+    return codes.size();
+  }
+}
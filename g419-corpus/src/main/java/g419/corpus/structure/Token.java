@@ -12,25 +12,32 @@ public class Token extends IdentifiableElement {
   /* Indeks atrybutów */
   public TokenAttributeIndex attrIdx;
 
-  /* Uporządkowana lista atrybutów */
-  ArrayList<String> attributes = new ArrayList<>();
+  /* Tablica symboli, w której zakodowane są wartości atrybutów */
+  SymbolTable symbols;
+
+  /* Uporządkowana lista kodów wartości atrybutów (pierwsze attributesCount pozycji) */
+  int[] attributes = new int[0];
+
+  int attributesCount = 0;
 
   /* Lista analiz morfologicznych, jeżeli dostępna. */
   ArrayList<Tag> tags = new ArrayList<>();
 
-  /* Opcjonalne cechy nazwanych atrybutów */
-  Map<String, String> props = new HashMap<>();
+  /* Opcjonalne cechy nazwanych atrybutów, tworzone przy dodaniu pierwszej cechy */
+  Map<String, String> props = null;
 
   /* Oznaczenie, czy między bieżącym a następnym tokenem był biały znak. */
   boolean noSpaceAfter = false;
 
   public Token(final TokenAttributeIndex attrIdx) {
     this.attrIdx = attrIdx;
+    symbols = attrIdx.getSymbolTable();
     packAtributes(attrIdx.getLength());
   }
 
   public Token(final String orth, final Tag firstTag, final TokenAttributeIndex attrIdx) {
     this.attrIdx = attrIdx;
+    symbols = attrIdx.getSymbolTable();
     packAtributes(attrIdx.getLength());
     final int index = attrIdx.getIndex("orth");
     if (index == -1) {
@@ -41,11 +48,33 @@ public class Token extends IdentifiableElement {
   }
 
   public void clearAttributes() {
-    attributes = new ArrayList<>();
+    attributes = new int[0];
+    attributesCount = 0;
   }
 
   public void removeAttribute(final int attrIdx) {
-    attributes.remove(attrIdx);
+    if (attrIdx < 0 || attrIdx >= attributesCount) {
+      throw new ArrayIndexOutOfBoundsException("Index: " + attrIdx + ", Size: " + attributesCount);
+    }
+    System.arraycopy(attributes, attrIdx + 1, attributes, attrIdx, attributesCount - attrIdx - 1);
+    attributesCount--;
+  }
+
+  /**
+   * Pozostawia wyłącznie atrybuty o podanych indeksach. Indeksy muszą być rosnące,
+   * dzięki czemu atrybuty są przepisywane w miejscu, w jednym przejściu.
+   *
+   * @param indexes
+   */
+  public void retainAttributes(final int[] indexes) {
+    for (int i = 0; i < indexes.length; i++) {
+      final int index = indexes[i];
+      if (index < i || index >= attributesCount) {
+        throw new ArrayIndexOutOfBoundsException("Index: " + index + ", Size: " + attributesCount);
+      }
+      attributes[i] = attributes[index];
+    }
+    attributesCount = indexes.length;
   }
 
   /**
@@ -56,7 +85,24 @@ public class Token extends IdentifiableElement {
    * @return
    */
   public String getAttributeValue(final int index) {
-    return attributes.get(index);
+    if (index < 0 || index >= attributesCount) {
+      throw new ArrayIndexOutOfBoundsException("Index: " + index + ", Size: " + attributesCount);
+    }
+    return symbols.decode(attributes[index]);
+  }
+
+  /**
+   * Zwraca kod wartości atrybutu o podanym indeksie w tablicy symboli tokenu.
+   *
+   * @param index
+   * @return kod wartości lub {@link SymbolTable#NULL}
+   */
+  public int getAttributeCode(final int index) {
+    return index >= 0 && index < attributesCount ? attributes[index] : SymbolTable.NULL;
+  }
+
+  public SymbolTable getSymbolTable() {
+    return symbols;
   }
 
   public String getAttributeValue(final String attr) {
@@ -65,14 +111,17 @@ public class Token extends IdentifiableElement {
   }
 
   public int getNumAttributes() {
-    return attributes.size();
+    return attributesCount;
   }
 
   public Map<String, String> getProps() {
-    return props;
+    return props == null ? Collections.emptyMap() : props;
   }
 
   public void setProp(final String name, final String value) {
+    if (props == null) {
+      props = new HashMap<>();
+    }
     props.put(name, value);
   }
 
@@ -84,7 +133,7 @@ public class Token extends IdentifiableElement {
    * @return
    */
   public String getOrth() {
-    return attributes.get(attrIdx.getIndex("orth"));
+    return getAttributeValue(attrIdx.getIndex("orth"));
   }
 
   /**
@@ -94,7 +143,7 @@ public class Token extends IdentifiableElement {
    * @return the element
    */
   public String getElement(final String key) {
-    return attributes.get(attrIdx.getIndex(key));
+    return getAttributeValue(attrIdx.getIndex(key));
   }
 
   public boolean getNoSpaceAfter() {
@@ -103,10 +152,10 @@ public class Token extends IdentifiableElement {
 
   public void addTag(final Tag tag) {
     tags.add(tag);
-    if (attrIdx.getIndex("base") != -1 && attributes.get(attrIdx.getIndex("base")) == null) {
+    if (attrIdx.getIndex("base") != -1 && getAttributeValue(attrIdx.getIndex("base")) == null) {
       setAttributeValue(attrIdx.getIndex("base"), tag.getBase());
     }
-    if (attrIdx.getIndex("ctag") != -1 && attributes.get(attrIdx.getIndex("ctag")) == null) {
+    if (attrIdx.getIndex("ctag") != -1 && getAttributeValue(attrIdx.getIndex("ctag")) == null) {
       setAttributeValue(attrIdx.getIndex("ctag"), tag.getCtag());
     }
   }
@@ -129,7 +178,7 @@ public class Token extends IdentifiableElement {
   public String toString() {
     return "Token{" +
         "attrIdx=" + attrIdx +
-        ", attributes=" + attributes +
+        ", attributes=" + getAttributesAsList() +
         ", tags=" + tags +
         ", props=" + props +
         ", noSpaceAfter=" + noSpaceAfter +
@@ -159,16 +208,23 @@ public class Token extends IdentifiableElement {
   }
 
   public void packAtributes(final int size) {
-    while (getNumAttributes() < size) {
-      attributes.add(null);
+    if (size > attributes.length) {
+      final int oldLength = attributes.length;
+      attributes = Arrays.copyOf(attributes, size);
+      Arrays.fill(attributes, oldLength, size, SymbolTable.NULL);
+    }
+    if (size > attributesCount) {
+      Arrays.fill(attributes, attributesCount, size, SymbolTable.NULL);
+      attributesCount = size;
     }
   }
 
   public void setAttributeValue(final int index, final String value) {
-    if (index < attributes.size()) {
-      attributes.set(index, value);
-    } else if (index == attributes.size()) {
-      attributes.add(value);
+    if (index < attributesCount) {
+      attributes[index] = symbols.encode(value);
+    } else if (index == attributesCount) {
+      packAtributes(attributesCount + 1);
+      attributes[index] = symbols.encode(value);
     }
   }
 
@@ -183,30 +239,44 @@ public class Token extends IdentifiableElement {
 
   public String getAttributesAsString() {
     final StringBuilder sb = new StringBuilder();
-    for (final String attr : attributes) {
-      sb.append((sb.length() == 0 ? "" : ", ") + attr);
+    for (int i = 0; i < attributesCount; i++) {
+      sb.append((sb.length() == 0 ? "" : ", ") + symbols.decode(attributes[i]));
     }
     return sb.toString();
   }
 
+  private List<String> getAttributesAsList() {
+    final List<String> values = new ArrayList<>(attributesCount);
+    for (int i = 0; i < attributesCount; i++) {
+      values.add(symbols.decode(attributes[i]));
+    }
+    return values;
+  }
+
   @Override
   public Token clone() {
     final Token cloned = new Token(attrIdx.clone());
     cloned.tags = new ArrayList<>(tags);
-    cloned.attributes = new ArrayList<>(attributes);
+    cloned.symbols = symbols;
+    cloned.attributes = Arrays.copyOf(attributes, attributesCount);
+    cloned.attributesCount = attributesCount;
     cloned.id = id;
     cloned.noSpaceAfter = noSpaceAfter;
     return cloned;
   }
 
   public void setAttributeIndex(final TokenAttributeIndex newAttrIdx) {
-    final ArrayList<String> newAttributes = new ArrayList<>();
-    for (final String feature : newAttrIdx.allAtributes()) {
-      final String value = attrIdx.getIndex(feature) == -1 ? null : getAttributeValue(feature);
-      newAttributes.add(value);
+    final SymbolTable newSymbols = newAttrIdx.getSymbolTable();
+    final int[] newAttributes = new int[newAttrIdx.getLength()];
+    for (int i = 0; i < newAttributes.length; i++) {
+      final int index = attrIdx.getIndex(newAttrIdx.getName(i));
+      final int code = index == -1 ? SymbolTable.NULL : getAttributeCode(index);
+      newAttributes[i] = newSymbols == symbols ? code : newSymbols.encode(symbols.decode(code));
     }
     attrIdx = newAttrIdx;
+    symbols = newSymbols;
     attributes = newAttributes;
+    attributesCount = newAttributes.length;
   }
 
   public boolean isWrapped() {
@@ -22,6 +22,18 @@ public class TokenAttributeIndex {
 
   final Map<String, Integer> nameToIndex = Maps.newHashMap();
 
+  /**
+   * Tablica symboli, w której kodowane są wartości atrybutów tokenów korzystających z indeksu.
+   * Jedna tablica jest wspólna dla wszystkich atrybutów, ponieważ wiele z nich ma te same wartości
+   * (np. 0 i 1), a kody pozostają poprawne po usunięciu atrybutu z tokenu.
+   * Kopie indeksu współdzielą tablicę symboli.
+   */
+  SymbolTable symbols = new SymbolTable();
+
+  public SymbolTable getSymbolTable() {
+    return symbols;
+  }
+
   public TokenAttributeIndex with(final String name) {
     addAttribute(name);
     return this;
@@ -118,6 +130,7 @@ public class TokenAttributeIndex {
   public TokenAttributeIndex clone() {
     final TokenAttributeIndex index = new TokenAttributeIndex();
     index.update(indexes);
+    index.symbols = symbols;
     return index;
   }
 }
@@ -0,0 +1,84 @@
+package g419.corpus.io.reader;
+
+import g419.corpus.io.writer.BinaryStreamWriter;
+import g419.corpus.io.writer.CclStreamWriter;
+import g419.corpus.structure.Document;
+import g419.corpus.structure.Sentence;
+import g419.corpus.structure.Token;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+public class BinaryStreamReaderTest {
+
+  private Document readCcl() throws Exception {
+    final CclSAXStreamReader reader = new CclSAXStreamReader("00099883.xml",
+        getClass().getResourceAsStream("/00099883.xml"),
+        getClass().getResourceAsStream("/00099883.ini"),
+        getClass().getResourceAsStream("/00099883.rel.xml"));
+    final Document document = reader.nextDocument();
+    reader.close();
+    return document;
+  }
+
+  private Document writeAndRead(final Document document) throws Exception {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final BinaryStreamWriter writer = new BinaryStreamWriter(os);
+    writer.writeDocument(document);
+    writer.close();
+    final BinaryStreamReader reader = new BinaryStreamReader("test", new ByteArrayInputStream(os.toByteArray()));
+    final Document read = reader.nextDocument();
+    Assert.assertFalse(reader.hasNext());
+    Assert.assertNull(reader.nextDocument());
+    reader.close();
+    return read;
+  }
+
+  private static String toCcl(final Document document) throws Exception {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final ByteArrayOutputStream rel = new ByteArrayOutputStream();
+    final CclStreamWriter writer = new CclStreamWriter(os, rel);
+    writer.writeDocument(document);
+    writer.close();
+    return os.toString("UTF-8") + rel.toString("UTF-8");
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    final Document document = readCcl();
+    final Document read = writeAndRead(document);
+
+    Assert.assertEquals(document.getName(), read.getName());
+    Assert.assertEquals(document.getDocumentDescriptor(), read.getDocumentDescriptor());
+    Assert.assertEquals(document.getRelationsSet().size(), read.getRelationsSet().size());
+    Assert.assertEquals(document.getAnnotations().size(), read.getAnnotations().size());
+    Assert.assertEquals(toCcl(document), toCcl(read));
+  }
+
+  @Test
+  public void testFeatures() throws Exception {
+    final Document document = readCcl();
+    document.getAttributeIndex().addAttribute("length");
+    for (final Sentence sentence : document.getSentences()) {
+      for (final Token token : sentence.getTokens()) {
+        token.setAttributeValue("length", Integer.toString(token.getOrth().length()));
+      }
+    }
+    document.setFeatureSignature("signature");
+    final Document read = writeAndRead(document);
+
+    Assert.assertEquals("signature", read.getFeatureSignature());
+    Assert.assertEquals(document.getAttributeIndex().getAttributes(), read.getAttributeIndex().getAttributes());
+    for (int s = 0; s < document.getSentences().size(); s++) {
+      final Sentence expected = document.getSentences().get(s);
+      final Sentence actual = read.getSentences().get(s);
+      Assert.assertEquals(expected.getTokenNumber(), actual.getTokenNumber());
+      for (int t = 0; t < expected.getTokenNumber(); t++) {
+        Assert.assertEquals(expected.getTokens().get(t).getAttributesAsString(),
+            actual.getTokens().get(t).getAttributesAsString());
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package g419.corpus.io.reader;
+
+import g419.corpus.io.writer.CclStreamWriter;
+import g419.corpus.structure.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+public class CclStaxStreamReaderTest {
+
+  private static final String DOCUMENT = "/00099883.xml";
+
+  private String readWhole() throws Exception {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final CclSAXStreamReader reader = new CclSAXStreamReader(DOCUMENT,
+        getClass().getResourceAsStream(DOCUMENT), null, null);
+    final CclStreamWriter writer = new CclStreamWriter(os);
+    writer.writeDocument(reader.nextDocument());
+    writer.close();
+    reader.close();
+    return os.toString("UTF-8");
+  }
+
+  private int readParts(final int sentences, final ByteArrayOutputStream os) throws Exception {
+    final CclStaxStreamReader reader = new CclStaxStreamReader(DOCUMENT,
+        getClass().getResourceAsStream(DOCUMENT), null, sentences);
+    final CclStreamWriter writer = new CclStreamWriter(os);
+    int parts = 0;
+    Document part;
+    while ((part = reader.nextDocument()) != null) {
+      writer.writeDocumentPart(part);
+      parts++;
+    }
+    writer.close();
+    reader.close();
+    return parts;
+  }
+
+  @Test
+  public void testPartsWrittenAsWholeDocument() throws Exception {
+    final String whole = readWhole();
+    for (final int sentences : new int[]{1, 3, 100000}) {
+      final ByteArrayOutputStream os = new ByteArrayOutputStream();
+      readParts(sentences, os);
+      Assert.assertEquals(whole, os.toString("UTF-8"));
+    }
+  }
+
+  @Test
+  public void testPartCount() throws Exception {
+    Assert.assertEquals(4, readParts(1, new ByteArrayOutputStream()));
+    Assert.assertEquals(3, readParts(3, new ByteArrayOutputStream()));
+    Assert.assertEquals(1, readParts(100000, new ByteArrayOutputStream()));
+  }
+}
@@ -0,0 +1,138 @@
+package g419.corpus.io.reader.analyzer;
+
+import g419.corpus.structure.Document;
+import g419.corpus.structure.Paragraph;
+import g419.corpus.structure.Sentence;
+import g419.corpus.structure.Token;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Testuje sesję analizatora na skrypcie analyzer/fake-analyzer.sh, który imituje maca-analyse
+ * wypisujące analizę w formacie plain korpusu2. Ctag tokenów zawiera numer tekstu w bieżącym
+ * procesie, co pozwala sprawdzić, czy kolejne teksty trafiają do tego samego procesu.
+ */
+public class ProcessMorphAnalyzerTest {
+
+  private static final String DIE = "ZAKONCZ";
+  private static final String HANG = "ZAWIES";
+
+  private ProcessMorphAnalyzer createAnalyzer(final long timeout) throws Exception {
+    final String script = new File(getClass().getResource("/analyzer/fake-analyzer.sh").toURI()).getPath();
+    return new ProcessMorphAnalyzer(timeout, "sh", script, DIE, HANG);
+  }
+
+  /**
+   * Formy tokenów: akapity rozdzielone "||", zdania "|".
+   */
+  private String toString(final Document document) {
+    return toString(document.getParagraphs());
+  }
+
+  private String toString(final List<Paragraph> document) {
+    final List<String> paragraphs = new ArrayList<>();
+    for (final Paragraph paragraph : document) {
+      final List<String> sentences = new ArrayList<>();
+      for (final Sentence sentence : paragraph.getSentences()) {
+        final List<String> orths = new ArrayList<>();
+        for (final Token token : sentence.getTokens()) {
+          orths.add(token.getOrth());
+        }
+        sentences.add(String.join(" ", orths));
+      }
+      paragraphs.add(String.join(" | ", sentences));
+    }
+    return String.join(" || ", paragraphs);
+  }
+
+  private String getCtag(final Document document) {
+    return document.getParagraphs().get(0).getSentences().get(0).getTokens().get(0).getDisambTag().getCtag();
+  }
+
+  @Test
+  public void testSeveralTextsInOneSession() throws Exception {
+    try (ProcessMorphAnalyzer analyzer = createAnalyzer(ProcessMorphAnalyzer.DEFAULT_TIMEOUT)) {
+      final Document first = analyzer.analyze("d1", "Ala ma kota.\nKot ma Alę.\n\nPies śpi.");
+      Assert.assertEquals("Ala ma kota . Kot ma Alę . || Pies śpi .", toString(first));
+      Assert.assertEquals("d1", first.getName());
+      Assert.assertEquals("t1", getCtag(first));
+      final Token kota = first.getParagraphs().get(0).getSentences().get(0).getTokens().get(2);
+      Assert.assertTrue(kota.getNoSpaceAfter());
+      Assert.assertEquals("kota", kota.getDisambTag().getBase());
+
+      /* Znacznik końca dokumentu w tekście nie może przerwać analizy */
+      final Document second = analyzer.analyze("d2", "Jeden " + ProcessMorphAnalyzer.END_OF_DOCUMENT + " dwa");
+      Assert.assertEquals("Jeden dwa", toString(second));
+      Assert.assertEquals("t2", getCtag(second));
+
+      final Document third = analyzer.analyze("d3", "\n\nTrzy\n\n\n");
+      Assert.assertEquals("Trzy", toString(third));
+      Assert.assertEquals("t3", getCtag(third));
+    }
+  }
+
+  @Test
+  public void testRestartAfterProcessDeath() throws Exception {
+    try (ProcessMorphAnalyzer analyzer = createAnalyzer(ProcessMorphAnalyzer.DEFAULT_TIMEOUT)) {
+      Assert.assertEquals("t1", getCtag(analyzer.analyze("d1", "Raz")));
+      try {
+        analyzer.analyze("d2", "Dwa " + DIE + " trzy");
+        Assert.fail("The analysis should fail when the process dies");
+      } catch (final Exception ex) {
+        Assert.assertTrue(ex.getMessage(), ex.getMessage().startsWith("Communication with"));
+      }
+      final Document document = analyzer.analyze("d3", "Cztery pięć");
+      Assert.assertEquals("Cztery pięć", toString(document));
+      Assert.assertEquals("t1", getCtag(document));
+    }
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    try (ProcessMorphAnalyzer analyzer = createAnalyzer(1000)) {
+      final long start = System.currentTimeMillis();
+      try {
+        analyzer.analyze("d1", "Raz " + HANG + " dwa");
+        Assert.fail("The analysis should fail when the process does not respond");
+      } catch (final Exception ex) {
+        Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("within 1000 ms"));
+      }
+      Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+      final Document document = analyzer.analyze("d2", "Trzy");
+      Assert.assertEquals("Trzy", toString(document));
+      Assert.assertEquals("t1", getCtag(document));
+    }
+  }
+
+  /**
+   * Tekst i jego analiza są znacznie większe niż bufory potoków procesu.
+   */
+  @Test
+  public void testLargeText() throws Exception {
+    final int paragraphs = 20000;
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < paragraphs; i++) {
+      text.append("Akapit numer ").append(i).append(" ma kilka słów.\n\n");
+    }
+    try (ProcessMorphAnalyzer analyzer = createAnalyzer(ProcessMorphAnalyzer.DEFAULT_TIMEOUT)) {
+      final Document document = analyzer.analyze("large", text.toString());
+      Assert.assertEquals(paragraphs, document.getParagraphs().size());
+      int tokens = 0;
+      for (final Paragraph paragraph : document.getParagraphs()) {
+        for (final Sentence sentence : paragraph.getSentences()) {
+          tokens += sentence.getTokenNumber();
+        }
+      }
+      Assert.assertEquals(paragraphs * 7, tokens);
+      final Paragraph last = document.getParagraphs().get(paragraphs - 1);
+      Assert.assertEquals("Akapit numer " + (paragraphs - 1) + " ma kilka słów .",
+          toString(Collections.singletonList(last)));
+      Assert.assertEquals("t2", getCtag(analyzer.analyze("next", "Dalej")));
+    }
+  }
+}
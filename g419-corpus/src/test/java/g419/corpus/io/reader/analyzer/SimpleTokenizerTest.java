@@ -0,0 +1,74 @@
+package g419.corpus.io.reader.analyzer;
+
+import g419.corpus.structure.Document;
+import g419.corpus.structure.Paragraph;
+import g419.corpus.structure.Sentence;
+import g419.corpus.structure.Token;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SimpleTokenizerTest {
+
+  /**
+   * Formy tokenów: akapity rozdzielone "||", zdania "|".
+   */
+  private String segment(final String text) {
+    final Document document = new SimpleTokenizer().analyze("doc", text);
+    final List<String> paragraphs = new ArrayList<>();
+    for (final Paragraph paragraph : document.getParagraphs()) {
+      final List<String> sentences = new ArrayList<>();
+      for (final Sentence sentence : paragraph.getSentences()) {
+        final List<String> orths = new ArrayList<>();
+        for (final Token token : sentence.getTokens()) {
+          orths.add(token.getOrth());
+        }
+        sentences.add(String.join(" ", orths));
+      }
+      paragraphs.add(String.join(" | ", sentences));
+    }
+    return String.join(" || ", paragraphs);
+  }
+
+  @Test
+  public void testParagraphs() {
+    Assert.assertEquals("Pierwszy akapit || Drugi || Trzeci", segment("\n Pierwszy\nakapit\n\nDrugi\n \t\n\n\nTrzeci \n"));
+    Assert.assertEquals("", segment(" \n\n "));
+  }
+
+  @Test
+  public void testSentences() {
+    Assert.assertEquals("Ala ma kota . | Kot ma Alę ! | Czy tak ? | 2 koty … | „ Tak ” .",
+        segment("Ala ma kota. Kot ma Alę! Czy tak? 2 koty… „Tak”."));
+    /* Bez granicy zdania: mała litera, brak spacji po kropce, kropka wewnątrz tokenów */
+    Assert.assertEquals("Np . tak , itd . i tak . Ala . Kot",
+        segment("Np. tak, itd. i tak.Ala.Kot"));
+    Assert.assertEquals("Koniec . | ( Nawias ) . | - Dialog", segment("Koniec. (Nawias). - Dialog"));
+  }
+
+  @Test
+  public void testTokens() {
+    Assert.assertEquals("Zażółć gęślą jaźń 12 345 a 1 b 2 e - mail 3 , 14 % @",
+        segment("Zażółć gęślą jaźń 12 345 a1b2 e-mail 3,14% @"));
+  }
+
+  @Test
+  public void testTokenAttributes() {
+    final Document document = new SimpleTokenizer().analyze("doc", "Kot, pies.\n\nKoń");
+    Assert.assertEquals("doc", document.getName());
+    final List<Token> tokens = document.getParagraphs().get(0).getSentences().get(0).getTokens();
+    Assert.assertEquals(4, tokens.size());
+    Assert.assertTrue(tokens.get(0).getNoSpaceAfter());
+    Assert.assertFalse(tokens.get(1).getNoSpaceAfter());
+    Assert.assertTrue(tokens.get(2).getNoSpaceAfter());
+    Assert.assertFalse(tokens.get(3).getNoSpaceAfter());
+    for (final Token token : tokens) {
+      Assert.assertEquals(1, token.getTags().size());
+      Assert.assertEquals(token.getOrth(), token.getDisambTag().getBase());
+      Assert.assertEquals(SimpleTokenizer.UNKNOWN_CTAG, token.getDisambTag().getCtag());
+    }
+    Assert.assertEquals("ch2", document.getParagraphs().get(1).getId());
+  }
+}
@@ -0,0 +1,26 @@
+package g419.corpus.io.writer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+/**
+ * Porównuje zapis dokumentu 00099883 z zapisem wzorcowym w postaci tworzonej wcześniej przez org.json.
+ */
+public class JsonAnnotationsStreamWriterTest {
+
+  @Test
+  public void testWriteDocument() throws Exception {
+    final String expected = JsonStreamWriterTest.readExpected("/json/00099883.annotations.json");
+    final String actual = JsonStreamWriterTest.write(JsonStreamWriterTest.readDocument(), JsonAnnotationsStreamWriter.class);
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testQuote() throws Exception {
+    final StringWriter w = new StringWriter();
+    JsonAnnotationsStreamWriter.quote(w, "</a> „x” – \u0085\t\"\\ = & '");
+    Assert.assertEquals("\"<\\/a> \\u201ex\\u201d \\u2013 \\u0085\\t\\\"\\\\ = & '\"", w.toString());
+  }
+}
@@ -0,0 +1,18 @@
+package g419.corpus.io.writer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Porównuje zapis dokumentu 00099883 (z jedną ramą) z zapisem wzorcowym utworzonym przez
+ * wcześniejszą implementację zapisu (Gson z map).
+ */
+public class JsonFramesStreamWriterTest {
+
+  @Test
+  public void testWriteDocument() throws Exception {
+    final String expected = JsonStreamWriterTest.readExpected("/json/00099883.frames.json");
+    final String actual = JsonStreamWriterTest.write(JsonStreamWriterTest.readDocument(), JsonFramesStreamWriter.class);
+    Assert.assertEquals(JsonStreamWriterTest.sortTokenIds(expected), actual);
+  }
+}
@@ -0,0 +1,101 @@
+package g419.corpus.io.writer;
+
+import g419.corpus.io.reader.CclSAXStreamReader;
+import g419.corpus.structure.Annotation;
+import g419.corpus.structure.Document;
+import g419.corpus.structure.Frame;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Porównuje zapis dokumentu 00099883 z zapisem wzorcowym utworzonym przez wcześniejszą
+ * implementację zapisu (Gson z map). Wcześniej identyfikatory tokenów anotacji pochodziły
+ * z HashSet, więc ich kolejność nie jest porównywana.
+ */
+public class JsonStreamWriterTest {
+
+  private static final Pattern TOKEN_IDS = Pattern.compile("\"tokens\":\\[(\"t\\d+\"(,\"t\\d+\")*)?\\]");
+
+  static Document readDocument() throws Exception {
+    final CclSAXStreamReader reader = new CclSAXStreamReader("00099883.xml",
+        JsonStreamWriterTest.class.getResourceAsStream("/00099883.xml"),
+        JsonStreamWriterTest.class.getResourceAsStream("/00099883.ini"),
+        JsonStreamWriterTest.class.getResourceAsStream("/00099883.rel.xml"));
+    final Document document = reader.nextDocument();
+    reader.close();
+
+    final Frame<Annotation> frame = new Frame<>("located_in");
+    for (final Annotation an : document.getAnnotations()) {
+      if (an.getType().equals("nam_fac_goe") && !frame.has("object")) {
+        frame.set("object", an);
+      }
+      if (an.getType().equals("nam_loc_gpe_city") && !frame.has("place")) {
+        frame.set("place", an);
+      }
+    }
+    frame.setSlotAttribute("place", "role", "location");
+    frame.setSlotAttribute("time", "value", "\"vague\"");
+    document.getFrames().add(frame);
+    return document;
+  }
+
+  static String write(final Document document, final Class<? extends AbstractDocumentWriter> writerClass) throws Exception {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final AbstractDocumentWriter writer = writerClass.getConstructor(OutputStream.class).newInstance(os);
+    writer.writeDocument(document);
+    writer.close();
+    return new String(os.toByteArray(), Charset.defaultCharset());
+  }
+
+  /**
+   * Wczytuje zapis wzorcowy. Klasy zapisu kodują dokument domyślnym zestawem znaków,
+   * więc wzorzec jest przekształcany w ten sam sposób.
+   */
+  static String readExpected(final String name) {
+    try (InputStream is = JsonStreamWriterTest.class.getResourceAsStream(name);
+         Scanner scanner = new Scanner(is, StandardCharsets.UTF_8.name())) {
+      final String expected = scanner.useDelimiter("\\A").next();
+      return new String(expected.getBytes(Charset.defaultCharset()), Charset.defaultCharset());
+    } catch (final Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Porządkuje identyfikatory tokenów anotacji według pozycji tokenów w dokumencie.
+   */
+  static String sortTokenIds(final String json) {
+    final Matcher matcher = TOKEN_IDS.matcher(json);
+    final StringBuffer sb = new StringBuffer();
+    while (matcher.find()) {
+      final String ids = matcher.group(1);
+      String sorted = "";
+      if (ids != null) {
+        final String[] parts = ids.split(",");
+        Arrays.sort(parts, Comparator.comparingInt(id -> Integer.parseInt(id.substring(2, id.length() - 1))));
+        sorted = String.join(",", parts);
+      }
+      matcher.appendReplacement(sb, Matcher.quoteReplacement("\"tokens\":[" + sorted + "]"));
+    }
+    matcher.appendTail(sb);
+    return sb.toString();
+  }
+
+  @Test
+  public void testWriteDocument() throws Exception {
+    final String expected = readExpected("/json/00099883.json");
+    final String actual = write(readDocument(), JsonStreamWriter.class);
+    Assert.assertEquals(sortTokenIds(expected), actual);
+  }
+}
@@ -0,0 +1,135 @@
+package g419.corpus.search;
+
+import g419.corpus.io.reader.CclSAXStreamReader;
+import g419.corpus.structure.Annotation;
+import g419.corpus.structure.Document;
+import g419.corpus.structure.Sentence;
+import g419.corpus.structure.Token;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CorpusIndexTest {
+
+  private static final String DOCUMENT = "/00099883.xml";
+
+  private Document document;
+
+  private Document readDocument() throws Exception {
+    final CclSAXStreamReader reader = new CclSAXStreamReader(DOCUMENT,
+        getClass().getResourceAsStream(DOCUMENT), null, null);
+    final Document document = reader.nextDocument();
+    reader.close();
+    return document;
+  }
+
+  private CorpusIndex build() throws Exception {
+    document = readDocument();
+    final CorpusIndexBuilder builder = new CorpusIndexBuilder();
+    builder.add(document);
+    builder.add(document);
+    return builder.build();
+  }
+
+  /**
+   * Wyszukiwanie przez przegląd wszystkich tokenów, jak w akcji corpus-search przed wprowadzeniem indeksu.
+   */
+  private List<String> scan(final String orthPrefix, final String ctag) {
+    final List<String> matches = new ArrayList<>();
+    for (int d = 0; d < 2; d++) {
+      for (final Sentence sentence : document.getSentences()) {
+        final List<Token> tokens = sentence.getTokens();
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+          if (tokens.get(i).getOrth().toLowerCase().startsWith(orthPrefix)
+              && tokens.get(i + 1).getDisambTag().getCtag().startsWith(ctag)) {
+            matches.add(tokens.get(i).getOrth() + " " + tokens.get(i + 1).getOrth());
+          }
+        }
+      }
+    }
+    return matches;
+  }
+
+  private List<String> texts(final CorpusIndex index, final List<CorpusMatch> matches) {
+    final List<String> texts = new ArrayList<>();
+    for (final CorpusMatch match : matches) {
+      texts.add(index.getText(match.getStart(), match.getEnd()));
+    }
+    return texts;
+  }
+
+  @Test
+  public void testPhraseQuery() throws Exception {
+    final CorpusIndex index = build();
+    final List<CorpusMatch> matches = index.search("to ctag=subst*");
+    Assert.assertFalse(matches.isEmpty());
+    final List<String> texts = new ArrayList<>();
+    for (final CorpusMatch match : matches) {
+      texts.add(index.getOrth(match.getStart()) + " " + index.getOrth(match.getStart() + 1));
+    }
+    Assert.assertEquals(scan("to", "subst"), texts);
+    Assert.assertEquals(0, matches.get(0).getDocument());
+    Assert.assertEquals(1, matches.get(matches.size() - 1).getDocument());
+  }
+
+  @Test
+  public void testAnnotationQuery() throws Exception {
+    final CorpusIndex index = build();
+    int expected = 0;
+    for (final Annotation annotation : document.getAnnotations()) {
+      if (annotation.getType().equals("nam_loc_gpe_city")) {
+        expected += annotation.getTokens().size();
+      }
+    }
+    Assert.assertTrue(expected > 0);
+    Assert.assertEquals(2 * expected, index.search("ann=nam_loc_gpe_city").size());
+    Assert.assertEquals(index.search("Toronto").size(), index.search("orth~[Tt]oronto").size());
+    Assert.assertTrue(index.search("orth=toronto").isEmpty());
+  }
+
+  @Test
+  public void testMatchWithinSentence() throws Exception {
+    final CorpusIndex index = build();
+    final List<CorpusMatch> matches = index.search("* *");
+    int expected = 0;
+    for (final Sentence sentence : document.getSentences()) {
+      expected += Math.max(0, sentence.getTokenNumber() - 1);
+    }
+    Assert.assertEquals(2 * expected, matches.size());
+    for (final CorpusMatch match : matches) {
+      Assert.assertEquals(index.getSentence(match.getStart()), index.getSentence(match.getEnd() - 1));
+    }
+  }
+
+  @Test
+  public void testConcordance() throws Exception {
+    final CorpusIndex index = build();
+    final CorpusMatch match = index.search("base=kompleks").get(0);
+    Assert.assertEquals(document.getName() + "\tToronto Dominion Centre -\tkompleks\thandlowo-kulturalny w",
+        index.getConcordance(match, 4));
+    Assert.assertEquals(texts(index, index.search("kompleks")), texts(index, index.search("base=kompleks")));
+  }
+
+  @Test
+  public void testWriteAndOpen() throws Exception {
+    document = readDocument();
+    final CorpusIndexBuilder builder = new CorpusIndexBuilder();
+    builder.add(document);
+    final File file = File.createTempFile("corpus", ".idx");
+    file.deleteOnExit();
+    try (OutputStream os = new FileOutputStream(file)) {
+      builder.write(os);
+    }
+    final CorpusIndex index = CorpusIndex.open(file);
+    final CorpusIndex memory = builder.build();
+    Assert.assertEquals(memory.getTokenCount(), index.getTokenCount());
+    Assert.assertEquals(document.getSentences().size(), index.getSentenceCount());
+    Assert.assertEquals(memory.getFields(), index.getFields());
+    Assert.assertEquals(texts(memory, memory.search("ctag=adj*")), texts(index, index.search("ctag=adj*")));
+  }
+}
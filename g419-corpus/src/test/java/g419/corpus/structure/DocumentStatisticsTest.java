@@ -0,0 +1,79 @@
+package g419.corpus.structure;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+public class DocumentStatisticsTest {
+
+  private static Document getSampleDocument() {
+    final TokenAttributeIndex index = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    final Document document = new Document("test", index);
+    final Paragraph title = new Paragraph("p1", index);
+    final HashMap<String, String> metaData = new HashMap<>();
+    metaData.put("type", "title");
+    title.setChunkMetaData(metaData);
+    title.addSentence(SentenceTest.getSampleSentence(index));
+    document.addParagraph(title);
+    final Paragraph body = new Paragraph("p2", index);
+    body.addSentence(SentenceTest.getSampleSentence(index));
+    final Sentence sentence = new Sentence(index);
+    sentence.addToken(new Token("Kot", new Tag("kot", "subst:sg:nom:m2", true), index));
+    body.addSentence(sentence);
+    document.addParagraph(body);
+    return document;
+  }
+
+  @Test
+  public void testCounts() {
+    final DocumentStatistics stats = new DocumentStatistics(getSampleDocument());
+
+    Assert.assertEquals(9, stats.getTokenNumber());
+    Assert.assertEquals(3, stats.getSentenceNumber());
+    Assert.assertEquals(4, stats.getBaseNumber());
+    Assert.assertEquals(2, stats.getBaseCount("mieć"));
+    Assert.assertEquals(3, stats.getBaseCount("kot"));
+    Assert.assertEquals(0, stats.getBaseCount("pies"));
+  }
+
+  @Test
+  public void testIsInTitle() {
+    final Document document = getSampleDocument();
+    final DocumentStatistics stats = new DocumentStatistics(document);
+    final Sentence last = document.getParagraphs().get(1).getSentences().get(1);
+
+    Assert.assertTrue(stats.isInTitle("Ala"));
+    Assert.assertTrue(stats.isInTitle(last.getTokens().get(0), 1));
+    Assert.assertFalse(stats.isInTitle("pies"));
+  }
+
+  @Test
+  public void testDocumentTokenNumberIndependentOfCallOrder() {
+    final Document document = getSampleDocument();
+
+    Assert.assertEquals(9, document.getTokenNumber());
+    Assert.assertEquals(1, document.isInTitle("kot"));
+    Assert.assertEquals(3, document.getBaseCount("kot"));
+  }
+
+  @Test
+  public void testManyBases() {
+    final TokenAttributeIndex index = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    final Document document = new Document("test", index);
+    final Paragraph paragraph = new Paragraph("p1", index);
+    final Sentence sentence = new Sentence(index);
+    for (int i = 0; i < 1000; i++) {
+      final String base = "b" + (i % 300);
+      sentence.addToken(new Token(base, new Tag(base, "subst:sg:nom:m2", true), index));
+    }
+    paragraph.addSentence(sentence);
+    document.addParagraph(paragraph);
+    final DocumentStatistics stats = new DocumentStatistics(document);
+
+    Assert.assertEquals(300, stats.getBaseNumber());
+    Assert.assertEquals(4, stats.getBaseCount("b0"));
+    Assert.assertEquals(3, stats.getBaseCount("b299"));
+  }
+
+}
@@ -1,7 +1,10 @@
 package g419.corpus.structure;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 public class SentenceTest {
 
   @Test
@@ -34,14 +37,59 @@ public class SentenceTest {
     //fail("Not yet implemented"); // TODO
   }
 
+  private Sentence createSentence(final String... orths) {
+    final TokenAttributeIndex index = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    final Sentence sentence = new Sentence(index);
+    for (final String orth : orths) {
+      sentence.addToken(new Token(orth, new Tag(orth, "subst", true), index));
+    }
+    return sentence;
+  }
+
   @Test
   public void testGetChunksAt() {
-    //fail("Not yet implemented"); // TODO
+    final Sentence sentence = createSentence("Jan", "Nowak", "z", "Wrocławia");
+    final Annotation person = new Annotation(0, 1, "nam_liv", sentence);
+    final Annotation city = new Annotation(3, 3, "nam_loc", sentence);
+    sentence.addChunk(person);
+    sentence.addChunk(city);
+
+    Assert.assertEquals(Arrays.asList(person), sentence.getChunksAt(1));
+    Assert.assertTrue(sentence.getChunksAt(2).isEmpty());
+    Assert.assertTrue(sentence.getChunksAt(10).isEmpty());
+
+    sentence.getChunks().remove(city);
+    Assert.assertTrue(sentence.getChunksAt(3).isEmpty());
+
+    person.replaceTokens(0, 2);
+    Assert.assertEquals(Arrays.asList(person), sentence.getChunksAt(2));
+  }
+
+  @Test
+  public void testGetAnnotationOrdinal() {
+    final Sentence sentence = createSentence("Jan", "i", "Anna");
+    final Annotation first = new Annotation(0, 0, "nam_liv", sentence);
+    final Annotation other = new Annotation(1, 1, "conj", sentence);
+    final Annotation second = new Annotation(2, 2, "nam_liv", sentence);
+    sentence.addChunk(first);
+    sentence.addChunk(other);
+    sentence.addChunk(second);
+
+    Assert.assertEquals(1, sentence.getAnnotationOrdinal(first));
+    Assert.assertEquals(1, sentence.getAnnotationOrdinal(other));
+    Assert.assertEquals(2, sentence.getAnnotationOrdinal(second));
+    Assert.assertEquals(0, sentence.getAnnotationOrdinal(new Annotation(1, 2, "nam_liv", sentence)));
   }
 
   @Test
   public void testGetTokenClassLabel() {
-    //fail("Not yet implemented"); // TODO
+    final Sentence sentence = createSentence("Jan", "Nowak", "z", "Wrocławia");
+    sentence.addChunk(new Annotation(0, 1, "nam_liv", sentence));
+    sentence.addChunk(new Annotation(0, 0, "nam_liv_first", sentence));
+
+    Assert.assertEquals("B-nam_liv#B-nam_liv_first", sentence.getTokenClassLabel(0));
+    Assert.assertEquals("I-nam_liv", sentence.getTokenClassLabel(1));
+    Assert.assertEquals("O", sentence.getTokenClassLabel(2));
   }
 
   @Test
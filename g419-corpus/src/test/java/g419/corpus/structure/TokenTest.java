@@ -1,5 +1,6 @@
 package g419.corpus.structure;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 public class TokenTest {
@@ -21,12 +22,34 @@ public class TokenTest {
 
   @Test
   public void testRemoveAttribute() {
-    //fail("Not yet implemented"); // TODO
+    TokenAttributeIndex index = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    Token token = new Token("Ala", new Tag("ala", "subst:sg:nom:f", true), index);
+    token.removeAttribute(0);
+
+    Assert.assertEquals(2, token.getNumAttributes());
+    Assert.assertEquals("ala", token.getAttributeValue(0));
+    Assert.assertEquals("subst:sg:nom:f", token.getAttributeValue(1));
+  }
+
+  @Test
+  public void testRetainAttributes() {
+    TokenAttributeIndex index = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    Token token = new Token("Ala", new Tag("ala", "subst:sg:nom:f", true), index);
+    token.retainAttributes(new int[]{1, 2});
+
+    Assert.assertEquals(2, token.getNumAttributes());
+    Assert.assertEquals("ala", token.getAttributeValue(0));
+    Assert.assertEquals("subst:sg:nom:f", token.getAttributeValue(1));
   }
 
   @Test
   public void testGetAttributeValue() {
-    //fail("Not yet implemented"); // TODO
+    TokenAttributeIndex index = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    Token token = new Token("Ala", new Tag("ala", "subst:sg:nom:f", true), index);
+
+    Assert.assertEquals("Ala", token.getAttributeValue(0));
+    Assert.assertEquals("ala", token.getAttributeValue("base"));
+    Assert.assertEquals("subst:sg:nom:f", token.getAttributeValue("ctag"));
   }
 
   @Test
@@ -61,12 +84,29 @@ public class TokenTest {
 
   @Test
   public void testPackAtributes() {
-    //fail("Not yet implemented"); // TODO
+    TokenAttributeIndex index = new TokenAttributeIndex().with("orth");
+    Token token = new Token(index);
+    token.packAtributes(5);
+
+    Assert.assertEquals(5, token.getNumAttributes());
+    Assert.assertNull(token.getAttributeValue(4));
   }
 
   @Test
   public void testSetAttributeValue() {
-    //fail("Not yet implemented"); // TODO
+    TokenAttributeIndex index = new TokenAttributeIndex().with("orth").with("flag1").with("flag2");
+    Token token1 = new Token(index);
+    Token token2 = new Token(index);
+    token1.setAttributeValue("flag1", "1");
+    token2.setAttributeValue("flag2", "1");
+    token2.setAttributeValue(3, "appended");
+
+    Assert.assertEquals("1", token1.getAttributeValue("flag1"));
+    Assert.assertNull(token1.getAttributeValue("flag2"));
+    Assert.assertEquals("1", token2.getAttributeValue("flag2"));
+    Assert.assertEquals("appended", token2.getAttributeValue(3));
+    Assert.assertEquals("Equal values should share a single code",
+        token1.getAttributeCode(1), token2.getAttributeCode(2));
   }
 
   @Test
@@ -81,12 +121,27 @@ public class TokenTest {
 
   @Test
   public void testSetAttributeIndex() {
-    //fail("Not yet implemented"); // TODO
+    TokenAttributeIndex index = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    Token token = new Token("Ala", new Tag("ala", "subst:sg:nom:f", true), index);
+    TokenAttributeIndex newIndex = new TokenAttributeIndex().with("ctag").with("orth").with("new");
+    token.setAttributeIndex(newIndex);
+
+    Assert.assertEquals(3, token.getNumAttributes());
+    Assert.assertEquals("subst:sg:nom:f", token.getAttributeValue(0));
+    Assert.assertEquals("Ala", token.getAttributeValue("orth"));
+    Assert.assertNull(token.getAttributeValue("new"));
   }
 
   @Test
   public void testClone() {
-    //fail("Not yet implemented"); // TODO
+    TokenAttributeIndex index = new TokenAttributeIndex().with("orth").with("base").with("ctag");
+    Token token = new Token("Ala", new Tag("ala", "subst:sg:nom:f", true), index);
+    Token cloned = token.clone();
+    cloned.setAttributeValue("base", "ola");
+
+    Assert.assertEquals("Ala", cloned.getOrth());
+    Assert.assertEquals("ola", cloned.getAttributeValue("base"));
+    Assert.assertEquals("ala", token.getAttributeValue("base"));
   }
 
 }
@@ -0,0 +1,60 @@
+#!/bin/sh
+# Imituje maca-analyse -qs ... -o plain: czyta tekst ze stdin i wypisuje analizę w formacie
+# plain korpusu2 po każdym akapicie zakończonym pustą linią. Akapit jest jednym zdaniem, tokeny
+# są rozdzielone spacjami, a kropka na końcu słowa jest osobnym tokenem. Forma bazowa jest równa
+# formie, a ctag zawiera numer tekstu w bieżącym procesie (t1, t2, ...).
+# Wejście jest czytane wbudowanym read, które nie buforuje kolejnych linii (w przeciwieństwie np. do mawk).
+#
+# $1 - słowo, po którym proces kończy się błędem
+# $2 - słowo, po którym proces przestaje odpowiadać (czyta wejście, ale nic nie wypisuje)
+die=$1
+hang=$2
+doc=1
+par=0
+lines=0
+
+emit() {
+  printf '%s\t%s\n\t%s\tt%d\tdisamb\n' "$1" "$2" "$1" "$doc"
+}
+
+set -f
+while IFS= read -r line; do
+  set -- $line
+  if [ $# -eq 0 ]; then
+    if [ $par -eq 1 ]; then
+      echo
+    fi
+    par=0
+    lines=0
+    continue
+  fi
+  i=0
+  for w in "$@"; do
+    i=$((i + 1))
+    if [ "$w" = "$die" ]; then
+      exit 1
+    fi
+    if [ "$w" = "$hang" ]; then
+      while IFS= read -r line; do
+        :
+      done
+      exit 0
+    fi
+    if [ $i -gt 1 ]; then
+      ws=space
+    elif [ $lines -gt 0 ]; then
+      ws=newline
+    else
+      ws=newpar
+    fi
+    case $w in
+      ?*.) emit "${w%.}" "$ws"; emit . none ;;
+      *) emit "$w" "$ws" ;;
+    esac
+    if [ "$w" = LINER2ENDOFDOCUMENT ]; then
+      doc=$((doc + 1))
+    fi
+  done
+  par=1
+  lines=$((lines + 1))
+done
@@ -45,6 +45,11 @@ public class CommonOptions {
   public static final String OPTION_MALT_DESC = "path to maltparser model";
   public static final String OPTION_MALT_ARG = "path";
 
+  public static final String OPTION_THREADS = "T";
+  public static final String OPTION_THREADS_LONG = "threads";
+  public static final String OPTION_THREADS_DESC = "number of worker threads";
+  public static final String OPTION_THREADS_ARG = "number";
+
   public static final String OPTION_ANNOTATION_PATTERN = "A";
   public static final String OPTION_ANNOTATION_PATTERN_LONG = "annotation-type-pattern";
   public static final String OPTION_ANNOTATION_PATTERN_DESC = "pattern of annotation type";
@@ -76,13 +81,13 @@ public class CommonOptions {
   public static Option getInputFileFormatOption() {
     return Option.builder(CommonOptions.OPTION_INPUT_FORMAT)
         .longOpt(CommonOptions.OPTION_INPUT_FORMAT_LONG)
-        .hasArg().argName("format").desc("input format [iob, ccl, plain, plain:maca, plain:wcrft, tei, batch:{format}]").build();
+        .hasArg().argName("format").desc("input format [iob, ccl, plain, plain:maca, plain:wcrft, plain:simple, tei, batch:{format}]").build();
   }
 
   public static Option getInputFileFormatsOption() {
     return Option.builder(CommonOptions.OPTION_INPUT_FORMAT)
         .longOpt(CommonOptions.OPTION_INPUT_FORMAT_LONG)
-        .hasArgs().argName("format").desc("input format [iob, ccl, plain, plain:maca, plain:wcrft, tei, batch:{format}]").build();
+        .hasArgs().argName("format").desc("input format [iob, ccl, plain, plain:maca, plain:wcrft, plain:simple, tei, batch:{format}]").build();
   }
 
   public static Option getFeaturesOption() {
@@ -144,6 +149,11 @@ public class CommonOptions {
         .desc(OPTION_MALT_DESC).required().build();
   }
 
+  public static Option getThreadsOption() {
+    return Option.builder(OPTION_THREADS).longOpt(OPTION_THREADS_LONG).hasArg().argName(OPTION_THREADS_ARG)
+        .desc(OPTION_THREADS_DESC).build();
+  }
+
   public static Option getAnnotationTypePatterns() {
     return Option.builder(OPTION_ANNOTATION_PATTERN).longOpt(OPTION_ANNOTATION_PATTERN_LONG).desc(OPTION_ANNOTATION_PATTERN_DESC).hasArgs().build();
   }
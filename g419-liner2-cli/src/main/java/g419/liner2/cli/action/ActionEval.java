@@ -22,12 +22,18 @@ import g419.liner2.core.tools.ProcessingTimer;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.io.IOUtils;
+import org.ini4j.Ini;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 
@@ -41,6 +47,7 @@ public class ActionEval extends Action {
   private String inputFile = null;
   private String inputFormat = null;
   private boolean errorsOnly = false;
+  private int threads = 1;
 
   private boolean checkLemma = false;
 
@@ -49,6 +56,9 @@ public class ActionEval extends Action {
   private static final String PARAM_CHECK_LEMMA = "l";
   private static final String PARAM_CHECK_LEMMA_LONG = "lemma";
 
+  /* Parametry chunkerów wskazujące pliki zapisywane podczas treningu */
+  private static final String[] FOLD_PATH_PARAMETERS = {"store", "store-training-data"};
+
   //@SuppressWarnings("static-access")
   public ActionEval() {
     super("eval");
@@ -58,6 +68,7 @@ public class ActionEval extends Action {
     options.addOption(CommonOptions.getInputFileNameOption());
     options.addOption(CommonOptions.getModelFileOption());
     options.addOption(CommonOptions.getVerboseDeatilsOption());
+    options.addOption(CommonOptions.getThreadsOption());
     options.addOption(Option.builder(PARAM_ERRORS_ONLY).longOpt(PARAM_ERRORS_ONLY_LONG).desc("print only sentence with errors").build());
     options.addOption(Option.builder(PARAM_CHECK_LEMMA).longOpt(PARAM_CHECK_LEMMA_LONG).desc("evaluate with annotation lemma").build());
   }
@@ -68,6 +79,7 @@ public class ActionEval extends Action {
     inputFormat = line.getOptionValue(CommonOptions.OPTION_INPUT_FORMAT, "ccl");
     errorsOnly = line.hasOption(PARAM_ERRORS_ONLY_LONG);
     checkLemma = line.hasOption(PARAM_CHECK_LEMMA_LONG);
+    threads = Integer.parseInt(line.getOptionValue(CommonOptions.OPTION_THREADS, "1"));
     LinerOptions.getGlobal().parseModelIni(line.getOptionValue(CommonOptions.OPTION_MODEL));
     if (line.hasOption(CommonOptions.OPTION_VERBOSE_DETAILS)) {
       ConsolePrinter.verboseDetails = true;
@@ -108,17 +120,47 @@ public class ActionEval extends Action {
       inputFormat = inputFormat.substring(3);
       LinerOptions.getGlobal().setCVDataFormat(inputFormat);
       final List<List<String>> folds = loadFolds();
-      for (int i = 0; i < folds.size(); i++) {
-        timer.startTimer("fold " + (i + 1));
-        System.out.println("***************************************** FOLD " + (i + 1) + " *****************************************");
-        final String trainSet = getTrainingSet(i, folds);
-        final String testSet = getTestingSet(i, folds);
-        final ChunkerManager cm = new ChunkerManager(LinerOptions.getGlobal());
-        cm.loadTrainData(new BatchReader(IOUtils.toInputStream(trainSet, "UTF-8"), "", inputFormat), gen);
-        final AbstractDocumentReader reader = new BatchReader(IOUtils.toInputStream(testSet, "UTF-8"), "", inputFormat);
-        evaluate(reader, gen, cm, globalEval, globalEvalMuc, i, errorsOnly);
-        timer.stopTimer();
+      if (threads > 1) {
+        checkFoldPaths();
+      }
+
+      timer.startTimer("Data reading and feature generation");
+      final List<List<Document>> foldDocuments = loadFoldDocuments(folds, inputFormat, gen);
+      final TokenFeatureGenerator foldGen = isFeaturizedOnLoad(gen) ? null : gen;
+      timer.stopTimer();
+
+      /* Każda część jest trenowana i oceniana w osobnym zadaniu, a wyniki są łączone po kolei */
+      timer.startTimer("Cross validation");
+      final List<ChunkerEvaluator> foldEvals = new ArrayList<>();
+      final List<ChunkerEvaluatorMuc> foldEvalsMuc = new ArrayList<>();
+      final List<Future<?>> tasks = new ArrayList<>();
+      final ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, folds.size())));
+      try {
+        for (int i = 0; i < folds.size(); i++) {
+          final int fold = i;
+          final ChunkerEvaluator eval = new ChunkerEvaluator(LinerOptions.getGlobal().types, false, errorsOnly);
+          eval.setCheckLemma(checkLemma);
+          final ChunkerEvaluatorMuc evalMuc = new ChunkerEvaluatorMuc(LinerOptions.getGlobal().types);
+          foldEvals.add(eval);
+          foldEvalsMuc.add(evalMuc);
+          tasks.add(pool.submit(() -> {
+            evaluateFold(fold, folds, foldDocuments, foldGen, eval, evalMuc);
+            return null;
+          }));
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+          try {
+            tasks.get(i).get();
+          } catch (final ExecutionException ex) {
+            throw new Exception("Error while evaluating fold " + (i + 1), ex.getCause());
+          }
+          globalEval.join(foldEvals.get(i));
+          globalEvalMuc.join(foldEvalsMuc.get(i));
+        }
+      } finally {
+        pool.shutdownNow();
       }
+      timer.stopTimer();
 
       System.out.println("***************************************** SUMMARY *****************************************");
       globalEval.printResults();
@@ -127,22 +169,140 @@ public class ActionEval extends Action {
       timer.printStats();
     } else {
       final ChunkerManager cm = new ChunkerManager(LinerOptions.getGlobal());
-      evaluate(ReaderFactory.get().getStreamReader(inputFile, inputFormat),
-          gen, cm, null, null, null, errorsOnly);
+      final ChunkerEvaluator eval = new ChunkerEvaluator(LinerOptions.getGlobal().types, false, errorsOnly);
+      eval.setCheckLemma(checkLemma);
+      final ChunkerEvaluatorMuc evalMuc = new ChunkerEvaluatorMuc(LinerOptions.getGlobal().types);
+      evaluate(ReaderFactory.get().getStreamReader(inputFile, inputFormat), gen, cm, eval, evalMuc, null);
     }
   }
 
   /**
-   * @param dataReader
+   * Sprawdza, czy części oceniane równolegle zapisują modele i dane treningowe do osobnych plików,
+   * tj. czy każda ścieżka w parametrach store i store-training-data zawiera {FOLD_NO}.
+   *
+   * @throws ParameterException
+   */
+  private void checkFoldPaths() throws ParameterException {
+    for (final Ini.Section description : LinerOptions.getGlobal().getChunkerDescriptions()) {
+      for (final String key : FOLD_PATH_PARAMETERS) {
+        final String value = description.get(key);
+        if (value != null && !value.contains("{FOLD_NO}")) {
+          throw new ParameterException(String.format("Cross validation with %d threads requires {FOLD_NO} in '%s' "
+              + "of [%s], otherwise the folds overwrite each other's files: %s", threads, key, description.getName(), value));
+        }
+      }
+    }
+  }
+
+  /**
+   * Trenuje model na dokumentach pozostałych części i ocenia go na dokumentach wskazanej części.
+   * Dokumenty wczytane raz są współdzielone przez wszystkie części, dlatego trening i ocena
+   * odbywają się na ich kopiach (fabryki chunkerów generują cechy na danych treningowych).
+   *
+   * @param fold          numer części (od 0)
+   * @param folds         pliki w podziale na części
+   * @param foldDocuments dokumenty w podziale na części, zob. {@link #loadFoldDocuments(List, String, TokenFeatureGenerator)}
+   * @param gen           generator cech dla kopii dokumentów lub null, jeżeli cechy zostały wygenerowane przy wczytaniu
+   * @param eval
+   * @param evalMuc
+   * @throws Exception
+   */
+  private void evaluateFold(final int fold, final List<List<String>> folds, final List<List<Document>> foldDocuments,
+                            final TokenFeatureGenerator gen, final ChunkerEvaluator eval,
+                            final ChunkerEvaluatorMuc evalMuc) throws Exception {
+    System.out.println("***************************************** FOLD " + (fold + 1) + " *****************************************");
+    final ChunkerManager cm = new ChunkerManager(LinerOptions.getGlobal());
+    cm.trainingData = getTrainingDocuments(fold, foldDocuments, gen);
+    cm.trainingDataFiles = new ArrayList<>();
+    for (int i = 0; i < folds.size(); i++) {
+      if (i != fold) {
+        cm.trainingDataFiles.addAll(folds.get(i));
+      }
+    }
+    cm.trainingDataFormat = inputFormat;
+    evaluate(getTestDocuments(fold, foldDocuments), gen, cm, eval, evalMuc, fold);
+  }
+
+  /**
+   * Zwraca kopie dokumentów treningowych części (dokumenty wszystkich pozostałych części).
+   *
+   * @param fold
+   * @param foldDocuments
+   * @param gen generator cech dla kopii lub null
+   * @return
+   * @throws Exception
+   */
+  static ArrayList<Document> getTrainingDocuments(final int fold, final List<List<Document>> foldDocuments,
+                                                  final TokenFeatureGenerator gen) throws Exception {
+    final ArrayList<Document> documents = new ArrayList<>();
+    for (int i = 0; i < foldDocuments.size(); i++) {
+      if (i != fold) {
+        for (final Document document : foldDocuments.get(i)) {
+          final Document copy = document.clone();
+          if (gen != null) {
+            gen.generateFeatures(copy);
+          }
+          documents.add(copy);
+        }
+      }
+    }
+    return documents;
+  }
+
+  /**
+   * Zwraca kopie dokumentów testowych części. Cechy kopii, które nie zostały wygenerowane przy
+   * wczytaniu, są generowane w {@link #prepareDocument(Document, List, TokenFeatureGenerator)}.
+   *
+   * @param fold
+   * @param foldDocuments
+   * @return
+   */
+  static Iterator<Document> getTestDocuments(final int fold, final List<List<Document>> foldDocuments) {
+    return foldDocuments.get(fold).stream().map(Document::clone).iterator();
+  }
+
+  /**
+   * Usuwa z dokumentu oceniane anotacje, a następnie generuje cechy dokumentu.
+   *
+   * @param ps
+   * @param types
+   * @param gen
+   * @throws Exception
+   */
+  static void prepareDocument(final Document ps, final List<Pattern> types, final TokenFeatureGenerator gen) throws Exception {
+    /* Remove annotations from data */
+    //ps.removeAnnotations();
+    ps.removeAnnotationsByTypePatterns(types);
+
+    /* Generate features */
+    if (gen != null) {
+      gen.generateFeatures(ps);
+    }
+  }
+
+  /**
+   * Czy cechy dokumentów części są generowane raz przy wczytaniu. Nie dotyczy to cech zależnych
+   * od anotacji ({@link TokenFeatureGenerator#getSignature()} równe null), które w dokumentach
+   * testowych muszą być wyznaczone po usunięciu ocenianych anotacji.
+   *
+   * @param gen
+   * @return
+   */
+  static boolean isFeaturizedOnLoad(final TokenFeatureGenerator gen) {
+    return gen != null && gen.getSignature() != null;
+  }
+
+  /**
+   * @param documents
    * @param gen
    * @param cm
-   * @param globalEval
-   * @param globalEvalMuc
-   * @param errorsOnly
+   * @param eval
+   * @param evalMuc
+   * @param foldNumber
    * @throws Exception
    */
-  private void evaluate(final AbstractDocumentReader dataReader, final TokenFeatureGenerator gen, final ChunkerManager cm,
-                        final ChunkerEvaluator globalEval, final ChunkerEvaluatorMuc globalEvalMuc, final Integer foldNumber, final boolean errorsOnly) throws Exception {
+  private void evaluate(final Iterator<Document> documents, final TokenFeatureGenerator gen, final ChunkerManager cm,
+                        final ChunkerEvaluator eval, final ChunkerEvaluatorMuc evalMuc, final Integer foldNumber) throws Exception {
     final ProcessingTimer timer = new ProcessingTimer();
     timer.startTimer("Model loading");
     if (foldNumber != null) {
@@ -153,14 +313,8 @@ public class ActionEval extends Action {
     final Chunker chunker = cm.getChunkerByName(LinerOptions.getGlobal().getOptionUse());
     timer.stopTimer();
 
-
-    /* Create all defined chunkers. */
-    final ChunkerEvaluator eval = new ChunkerEvaluator(LinerOptions.getGlobal().types, false, errorsOnly);
-    eval.setCheckLemma(checkLemma);
-    final ChunkerEvaluatorMuc evalMuc = new ChunkerEvaluatorMuc(LinerOptions.getGlobal().types);
-
     timer.startTimer("Data reading");
-    Document ps = dataReader.nextDocument();
+    Document ps = documents.hasNext() ? documents.next() : null;
     timer.stopTimer();
 
     Map<Sentence, AnnotationSet> chunkings = null;
@@ -169,15 +323,8 @@ public class ActionEval extends Action {
       /* Get reference set of annotations */
       final Map<Sentence, AnnotationSet> referenceChunks = ps.getChunkings();
 
-      /* Remove annotations from data */
-      //ps.removeAnnotations();
-      ps.removeAnnotationsByTypePatterns(LinerOptions.getGlobal().types);
-
-      /* Generate features */
       timer.startTimer("Feature generation");
-      if (gen != null) {
-        gen.generateFeatures(ps);
-      }
+      prepareDocument(ps, LinerOptions.getGlobal().types, gen);
       timer.stopTimer();
 
       timer.startTimer("Chunking");
@@ -193,22 +340,55 @@ public class ActionEval extends Action {
 
       timer.startTimer("Evaluation", false);
       timer.addTokens(ps);
-      if (globalEval != null) {
-        globalEval.evaluate(ps, chunkings, referenceChunks);
-        globalEvalMuc.evaluate(ps, chunkings, referenceChunks);
-      }
       eval.evaluate(ps, chunkings, referenceChunks);
       evalMuc.evaluate(ps, chunkings, referenceChunks);
       timer.stopTimer();
 
       timer.startTimer("Data reading");
-      ps = dataReader.nextDocument();
+      ps = documents.hasNext() ? documents.next() : null;
       timer.stopTimer();
     }
 
-    eval.printResults();
-    evalMuc.printResults();
-    timer.printStats();
+    /* Wyniki części wypisywane w całości, nawet gdy części są oceniane równolegle */
+    synchronized (System.out) {
+      if (foldNumber != null) {
+        System.out.println("***************************************** FOLD " + (foldNumber + 1) + " RESULTS *****************************************");
+      }
+      eval.printResults();
+      evalMuc.printResults();
+      timer.printStats();
+    }
+  }
+
+  /**
+   * Wczytuje dokumenty wszystkich części i generuje dla nich cechy. Cechy są generowane jeden raz
+   * dla każdego dokumentu, niezależnie od liczby części, w których dokument jest używany. Jeżeli
+   * któraś z cech zależy od anotacji, dokumenty pozostają bez cech ({@link #isFeaturizedOnLoad(TokenFeatureGenerator)}).
+   *
+   * @param folds
+   * @param inputFormat
+   * @param gen
+   * @return
+   * @throws Exception
+   */
+  static List<List<Document>> loadFoldDocuments(final List<List<String>> folds, final String inputFormat,
+                                                final TokenFeatureGenerator gen) throws Exception {
+    final List<List<Document>> foldDocuments = new ArrayList<>();
+    for (final List<String> fold : folds) {
+      final List<Document> documents = new ArrayList<>();
+      try (final AbstractDocumentReader reader = new BatchReader(IOUtils.toInputStream(String.join("\n", fold), "UTF-8"), "", inputFormat)) {
+        Document document = reader.nextDocument();
+        while (document != null) {
+          if (isFeaturizedOnLoad(gen)) {
+            gen.generateFeatures(document);
+          }
+          documents.add(document);
+          document = reader.nextDocument();
+        }
+      }
+      foldDocuments.add(documents);
+    }
+    return foldDocuments;
   }
 
   /**
@@ -245,25 +425,4 @@ public class ActionEval extends Action {
     return folds;
 
   }
-
-  private String getTrainingSet(final int fold, final List<List<String>> folds) {
-    final StringBuilder sbtrain = new StringBuilder();
-
-    for (int i = 0; i < folds.size(); i++) {
-      if (i != fold) {
-        for (final String line : folds.get(i)) {
-          sbtrain.append(line + "\n");
-        }
-      }
-    }
-    return sbtrain.toString().trim();
-  }
-
-  private String getTestingSet(final int fold, final List<List<String>> folds) {
-    final StringBuilder sbtrain = new StringBuilder();
-    for (final String line : folds.get(fold)) {
-      sbtrain.append(line + "\n");
-    }
-    return sbtrain.toString().trim();
-  }
 }
@@ -100,7 +100,7 @@ public class ActionFeatureSelection extends Action {
 
     ChunkerEvaluator globalEval = new ChunkerEvaluator(LinerOptions.getGlobal().types, true);
     ChunkerEvaluatorMuc globalEvalMuc = new ChunkerEvaluatorMuc(LinerOptions.getGlobal().types);
-    LinerOptions.getGlobal().setCVDataFormat("ccl");
+    LinerOptions.getGlobal().setCVDataFormat(getDataFormat());
 
     folds = loadFolds();
     String crfppChunkerName = cit.toString();
@@ -111,8 +111,8 @@ public class ActionFeatureSelection extends Action {
       String trainSet = getTrainingSet(i, folds);
       String testSet = getTestingSet(i, folds);
       cm = new ChunkerManager(LinerOptions.getGlobal());
-      cm.loadTrainData(new BatchReader(IOUtils.toInputStream(trainSet, "UTF-8"), "", "ccl"), gen);
-      AbstractDocumentReader reader = new BatchReader(IOUtils.toInputStream(testSet, "UTF-8"), "", "ccl");
+      cm.loadTrainData(new BatchReader(IOUtils.toInputStream(trainSet, "UTF-8"), "", getDataFormat()), gen);
+      AbstractDocumentReader reader = new BatchReader(IOUtils.toInputStream(testSet, "UTF-8"), "", getDataFormat());
       evaluate(reader, gen, cm, globalEval, globalEvalMuc);
       timer.stopTimer();
       break;
@@ -335,14 +335,14 @@ public class ActionFeatureSelection extends Action {
     ChunkerEvaluator globalEval = new ChunkerEvaluator(LinerOptions.getGlobal().types, true);
     ChunkerEvaluatorMuc globalEvalMuc = new ChunkerEvaluatorMuc(LinerOptions.getGlobal().types);
 
-    LinerOptions.getGlobal().setCVDataFormat("ccl");
+    LinerOptions.getGlobal().setCVDataFormat(getDataFormat());
     for (int i = 0; i < folds.size(); i++) {
       timer.startTimer("fold " + (i + 1));
       System.out.println("***************************************** FOLD " + (i + 1) + " *****************************************");
       String trainSet = getTrainingSet(i, folds);
       String testSet = getTestingSet(i, folds);
-      cm.loadTrainData(new BatchReader(IOUtils.toInputStream(trainSet, "UTF-8"), "", "ccl"), this.gen);
-      AbstractDocumentReader reader = new BatchReader(IOUtils.toInputStream(testSet, "UTF-8"), "", "ccl");
+      cm.loadTrainData(new BatchReader(IOUtils.toInputStream(trainSet, "UTF-8"), "", getDataFormat()), this.gen);
+      AbstractDocumentReader reader = new BatchReader(IOUtils.toInputStream(testSet, "UTF-8"), "", getDataFormat());
       evaluate(reader, gen, cm, globalEval, globalEvalMuc);
       timer.stopTimer();
 
@@ -475,4 +475,12 @@ public class ActionFeatureSelection extends Action {
     return sbtrain.toString().trim();
   }
 
+  /**
+   * Dokumenty są wczytywane z bufora dokumentów z wygenerowanymi cechami, jeżeli został skonfigurowany.
+   *
+   * @return
+   */
+  private String getDataFormat() {
+    return LinerOptions.isGlobalOption(LinerOptions.OPTION_FEATURES_CACHE) ? "cache:ccl" : "ccl";
+  }
 }
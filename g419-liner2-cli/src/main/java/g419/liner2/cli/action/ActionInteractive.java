@@ -44,6 +44,7 @@ public class ActionInteractive extends Action {
     validInputFormats.add("plain");
     validInputFormats.add("plain:maca");
     validInputFormats.add("plain:wcrft");
+    validInputFormats.add("plain:simple");
 
     validOutputFormats.add("ccl");
     validOutputFormats.add("iob");
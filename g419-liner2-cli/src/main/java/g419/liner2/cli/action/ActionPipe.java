@@ -14,6 +14,15 @@ import g419.liner2.core.chunker.Chunker;
 import g419.liner2.core.chunker.factory.ChunkerManager;
 import g419.liner2.core.features.TokenFeatureGenerator;
 import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * Chunking in pipe mode.
@@ -22,10 +31,18 @@ import org.apache.commons.cli.CommandLine;
  */
 public class ActionPipe extends Action {
 
+  public static final String OPTION_PARTS = "P";
+  public static final String OPTION_PARTS_LONG = "parts";
+  public static final String OPTION_PARTS_ARG = "sentences";
+  public static final String OPTION_PARTS_DESC = "read, process and write a ccl document in parts of whole paragraphs "
+      + "with at least the given number of sentences (document-level features are computed for each part)";
+
   private String input_file = null;
   private String input_format = null;
   private String output_file = null;
   private String output_format = null;
+  private int threads = 1;
+  private int partSentences = 0;
 
   public ActionPipe() {
     super("pipe");
@@ -37,6 +54,9 @@ public class ActionPipe extends Action {
     this.options.addOption(CommonOptions.getOutputFileNameOption());
     this.options.addOption(CommonOptions.getFeaturesOption());
     this.options.addOption(CommonOptions.getModelFileOption());
+    this.options.addOption(CommonOptions.getThreadsOption());
+    this.options.addOption(Option.builder(OPTION_PARTS).longOpt(OPTION_PARTS_LONG).hasArg().argName(OPTION_PARTS_ARG)
+        .desc(OPTION_PARTS_DESC).build());
   }
 
   protected ActionPipe(final String name) {
@@ -49,6 +69,8 @@ public class ActionPipe extends Action {
     this.output_format = line.getOptionValue(CommonOptions.OPTION_OUTPUT_FORMAT, "ccl");
     this.input_file = line.getOptionValue(CommonOptions.OPTION_INPUT_FILE);
     this.input_format = line.getOptionValue(CommonOptions.OPTION_INPUT_FORMAT, "ccl");
+    this.threads = Integer.parseInt(line.getOptionValue(CommonOptions.OPTION_THREADS, "1"));
+    this.partSentences = Integer.parseInt(line.getOptionValue(OPTION_PARTS, "0"));
     LinerOptions.getGlobal().parseModelIni(line.getOptionValue(CommonOptions.OPTION_MODEL));
   }
 
@@ -79,16 +101,105 @@ public class ActionPipe extends Action {
     try (final AbstractDocumentReader reader = getInputReader();
          final AbstractDocumentWriter writer = getOutputWriter()
     ) {
-      while (reader.hasNext()) {
-        final Document ps = reader.nextDocument();
-        final RelationSet relations = ps.getRelations();
-        if (gen != null) {
-          gen.generateFeatures(ps);
+      /* Części dokumentu są zapisywane jako jeden dokument */
+      final Consumer<Document> sink = partSentences > 0 ? writer::writeDocumentPart : writer::writeDocument;
+      if (threads > 1) {
+        runParallel(reader, sink, gen, chunker);
+      } else {
+        while (reader.hasNext()) {
+          sink.accept(process(reader.nextDocument(), gen, chunker));
         }
-        chunker.chunkInPlace(ps);
-        ps.setRelations(relations);
-        writer.writeDocument(ps);
       }
+      if (partSentences > 0) {
+        writer.endDocument();
+      }
+    }
+  }
+
+  private Document process(final Document ps, final TokenFeatureGenerator gen, final Chunker chunker) throws Exception {
+    final RelationSet relations = ps.getRelations();
+    if (gen != null) {
+      gen.generateFeatures(ps);
+    }
+    chunker.chunkInPlace(ps);
+    ps.setRelations(relations);
+    return ps;
+  }
+
+  /**
+   * Processes the documents in a pipeline: reading (a separate thread), feature generation (a pool of
+   * threads), chunking (a pool of threads) and writing (the current thread). The documents are written
+   * in the input order. At most 2*threads documents are in the pipeline at the same time.
+   *
+   * @param reader
+   * @param sink    writes the processed documents
+   * @param gen
+   * @param chunker
+   * @throws Exception
+   */
+  private void runParallel(final AbstractDocumentReader reader, final Consumer<Document> sink,
+                           final TokenFeatureGenerator gen, final Chunker chunker) throws Exception {
+    final ExecutorService featurePool = Executors.newFixedThreadPool(threads);
+    final ExecutorService chunkPool = Executors.newFixedThreadPool(threads);
+    final CompletableFuture<Document> endOfInput = CompletableFuture.completedFuture(null);
+    final BlockingQueue<CompletableFuture<Document>> pending = new ArrayBlockingQueue<>(2 * threads);
+
+    final Thread readerThread = new Thread(() -> {
+      CompletableFuture<Document> last = endOfInput;
+      try {
+        while (!Thread.currentThread().isInterrupted() && reader.hasNext()) {
+          final Document ps = reader.nextDocument();
+          final RelationSet relations = ps.getRelations();
+          pending.put(CompletableFuture
+              .supplyAsync(() -> {
+                try {
+                  if (gen != null) {
+                    gen.generateFeatures(ps);
+                  }
+                } catch (final Exception ex) {
+                  throw new RuntimeException(ex);
+                }
+                return ps;
+              }, featurePool)
+              .thenApplyAsync(doc -> {
+                chunker.chunkInPlace(doc);
+                doc.setRelations(relations);
+                return doc;
+              }, chunkPool));
+        }
+      } catch (final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } catch (final Throwable ex) {
+        last = new CompletableFuture<>();
+        last.completeExceptionally(ex);
+      } finally {
+        /* Przerwanie oznacza, że zapis został zakończony i nikt nie czeka na koniec danych */
+        if (!Thread.currentThread().isInterrupted()) {
+          try {
+            pending.put(last);
+          } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    }, "pipe-reader");
+    readerThread.start();
+
+    try {
+      CompletableFuture<Document> next;
+      while ((next = pending.take()) != endOfInput) {
+        try {
+          sink.accept(next.get());
+        } catch (final ExecutionException ex) {
+          throw new Exception("Error while processing document", ex.getCause());
+        }
+      }
+    } finally {
+      /* Czytnik jest zamykany po powrocie z metody, więc wątek czytający musi się najpierw zakończyć */
+      readerThread.interrupt();
+      readerThread.join();
+      featurePool.shutdownNow();
+      chunkPool.shutdownNow();
     }
   }
 
@@ -124,6 +235,9 @@ public class ActionPipe extends Action {
    * @throws Exception
    */
   protected AbstractDocumentReader getInputReader() throws Exception {
+    if (partSentences > 0) {
+      return ReaderFactory.get().getStreamPartReader(this.input_file, this.input_format, partSentences);
+    }
     return ReaderFactory.get().getStreamReader(this.input_file, this.input_format);
   }
 
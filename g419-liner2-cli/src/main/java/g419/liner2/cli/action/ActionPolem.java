@@ -1,25 +1,53 @@
 package g419.liner2.cli.action;
 
+import g419.corpus.io.reader.AbstractDocumentReader;
+import g419.corpus.io.reader.ReaderFactory;
+import g419.corpus.structure.Annotation;
+import g419.corpus.structure.Document;
 import g419.lib.cli.Action;
+import g419.lib.cli.CommonOptions;
 import g419.liner2.core.tools.PolemLemmatizer;
 import org.apache.commons.cli.CommandLine;
 
+import java.util.List;
+
 public class ActionPolem extends Action {
 
+  private String inputFile = null;
+  private String inputFormat = null;
+
   public ActionPolem() {
     super("polem");
-    this.setDescription("test lemmatization module powered by Polem");
+    this.setDescription("test lemmatization module powered by Polem; with an input file lemmatizes all annotations of the documents");
+    this.options.addOption(CommonOptions.getInputFileFormatOption());
+    this.options.addOption(CommonOptions.getInputFileNameOption());
   }
 
   @Override
   public void parseOptions(CommandLine line) throws Exception {
-
+    this.inputFile = line.getOptionValue(CommonOptions.OPTION_INPUT_FILE);
+    this.inputFormat = line.getOptionValue(CommonOptions.OPTION_INPUT_FORMAT, "ccl");
   }
 
   @Override
   public void run() throws Exception {
-    PolemLemmatizer polem = new PolemLemmatizer();
-    System.out.println(polem.lemmatize("Rady Ministrów", "rada minister", "subst:sg:gen:f subst:pl:gen:m1", false));
+    PolemLemmatizer polem = PolemLemmatizer.getShared();
+    if (this.inputFile == null) {
+      System.out.println(polem.lemmatize("Rady Ministrów", "rada minister", "subst:sg:gen:f subst:pl:gen:m1", false));
+      return;
+    }
+
+    try (AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(this.inputFile, this.inputFormat)) {
+      Document document;
+      while ((document = reader.nextDocument()) != null) {
+        List<Annotation> annotations = document.getAnnotations();
+        polem.lemmatize(annotations);
+        for (Annotation an : annotations) {
+          System.out.println(String.join("\t", document.getName(), an.getType(), an.getText(), String.valueOf(an.getLemma())));
+        }
+      }
+    }
+    getLogger().info("Lemmatized annotations: {} from cache, {} by Polem", polem.getCacheHits(), polem.getCacheMisses());
   }
 
 }
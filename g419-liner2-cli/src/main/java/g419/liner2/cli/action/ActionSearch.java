@@ -4,23 +4,29 @@ package g419.liner2.cli.action;
 import g419.corpus.ConsolePrinter;
 import g419.corpus.io.reader.AbstractDocumentReader;
 import g419.corpus.io.reader.ReaderFactory;
+import g419.corpus.search.CorpusIndex;
+import g419.corpus.search.CorpusIndexBuilder;
+import g419.corpus.search.CorpusMatch;
+import g419.corpus.search.CorpusQuery;
 import g419.corpus.structure.Document;
-import g419.corpus.structure.Sentence;
 import g419.lib.cli.Action;
 import g419.lib.cli.CommonOptions;
+import g419.lib.cli.ParameterException;
 import g419.liner2.core.LinerOptions;
 import g419.liner2.core.features.TokenFeatureGenerator;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 
-import java.util.ArrayList;
+import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.StringJoiner;
 
 
 /**
  * Searches for a phrases matching given pattern based on a set of token features.
+ * The pattern is a {@link CorpusQuery}, e.g. "base=pan&amp;ctag=subst* class=upper_case".
+ * The query is answered from an index created with corpus-index or, when no index is given,
+ * from an index of the featurized corpus built in memory.
  *
  * @author Michał Marcińczuk
  */
@@ -29,21 +35,33 @@ public class ActionSearch extends Action {
   private static final String PARAM_PATTERN = "p";
   private static final String PARAM_PATTERN_LONG = "pattern";
 
+  private static final String PARAM_INDEX = "x";
+  private static final String PARAM_INDEX_LONG = "index";
+
+  private static final String PARAM_CONTEXT = "c";
+  private static final String PARAM_CONTEXT_LONG = "context";
+
   private String inputFile = null;
   private String inputFormat = null;
   private String featuresFile = null;
+  private String indexFile = null;
   private String pattern = null;
+  private int context = 5;
 
   public ActionSearch() {
     super("search");
-    this.setDescription("earches for a phrases matching given pattern based on a set of token features");
+    this.setDescription("searches for a phrases matching given pattern based on a set of token features");
 
     this.options.addOption(CommonOptions.getInputFileFormatOption());
     this.options.addOption(CommonOptions.getInputFileNameOption());
-    this.options.addOption(CommonOptions.getFeaturesOption(true));
+    this.options.addOption(CommonOptions.getFeaturesOption(false));
     this.options.addOption(CommonOptions.getVerboseDeatilsOption());
     this.options.addOption(Option.builder(PARAM_PATTERN).longOpt(PARAM_PATTERN_LONG).hasArg().argName("pattern")
-        .desc("wzorzec jako sekwencja nazw cech").required().build());
+        .desc("wzorzec jako sekwencja warunków cecha=wartość, cecha=prefiks*, cecha~wyrażenie lub * dla kolejnych tokenów").required().build());
+    this.options.addOption(Option.builder(PARAM_INDEX).longOpt(PARAM_INDEX_LONG).hasArg().argName("filename")
+        .desc("indeks korpusu utworzony akcją corpus-index").build());
+    this.options.addOption(Option.builder(PARAM_CONTEXT).longOpt(PARAM_CONTEXT_LONG).hasArg().argName("tokens")
+        .desc("liczba tokenów kontekstu w konkordancji (domyślnie 5)").build());
   }
 
   @Override
@@ -51,51 +69,44 @@ public class ActionSearch extends Action {
     this.inputFile = line.getOptionValue(CommonOptions.OPTION_INPUT_FILE);
     this.inputFormat = line.getOptionValue(CommonOptions.OPTION_INPUT_FORMAT, "ccl");
     this.featuresFile = line.getOptionValue(CommonOptions.OPTION_FEATURES_LONG);
+    this.indexFile = line.getOptionValue(PARAM_INDEX);
     this.pattern = line.getOptionValue(PARAM_PATTERN);
+    this.context = Integer.parseInt(line.getOptionValue(PARAM_CONTEXT, "5"));
     if (line.hasOption(CommonOptions.OPTION_VERBOSE_DETAILS)) {
       ConsolePrinter.verboseDetails = true;
     }
+    if (this.indexFile == null && (this.inputFile == null || this.featuresFile == null)) {
+      throw new ParameterException("Either an index (-" + PARAM_INDEX + ") or an input file (-"
+          + CommonOptions.OPTION_INPUT_FILE + ") with features (-" + CommonOptions.OPTION_FEATURES + ") must be given");
+    }
   }
 
   /**
    *
    */
   public void run() throws Exception {
+    CorpusQuery query = CorpusQuery.parse(this.pattern);
+    CorpusIndex index = this.indexFile != null ? CorpusIndex.open(new File(this.indexFile)) : this.buildIndex();
 
-    LinkedHashMap<String, String> features = LinerOptions.getGlobal().parseFeatures(this.featuresFile);
-    TokenFeatureGenerator gen = new TokenFeatureGenerator(features);
-
-    AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(this.inputFile, this.inputFormat);
-
-    Document document = null;
-
-    List<String> attributes = new ArrayList<String>();
-    for (String item : this.pattern.split("[ +]")) {
-      attributes.add(item);
+    List<CorpusMatch> matches = index.search(query);
+    for (CorpusMatch match : matches) {
+      System.out.println("Match # " + index.getConcordance(match, this.context));
     }
+    ConsolePrinter.log("Matches: " + matches.size(), true);
+  }
 
-    while ((document = reader.nextDocument()) != null) {
-      gen.generateFeatures(document);
-
-      for (Sentence sentence : document.getSentences()) {
-        for (int i = 0; i < sentence.getTokenNumber(); i++) {
-          if (i + attributes.size() < sentence.getTokenNumber()) {
-            StringJoiner joinerFeatures = new StringJoiner(" ");
-            StringJoiner joinerOrth = new StringJoiner(" ");
-            StringJoiner joinerLabels = new StringJoiner(" ");
-            for (int j = 0; j < attributes.size(); j++) {
-              joinerOrth.add(sentence.getTokens().get(i + j).getOrth());
-              joinerLabels.add(sentence.getTokenClassLabel(i + j));
-              joinerFeatures.add(sentence.getTokens().get(i + j).getAttributeValue(attributes.get(j)));
-            }
-            System.out.println("Match # " + joinerFeatures + " # " + joinerOrth.toString() + " # " + joinerLabels);
-          }
-        }
+  private CorpusIndex buildIndex() throws Exception {
+    LinkedHashMap<String, String> features = LinerOptions.getGlobal().parseFeatures(this.featuresFile);
+    TokenFeatureGenerator gen = new TokenFeatureGenerator(features);
+    CorpusIndexBuilder builder = new CorpusIndexBuilder();
+    try (AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(this.inputFile, this.inputFormat)) {
+      Document document;
+      while ((document = reader.nextDocument()) != null) {
+        gen.generateFeatures(document);
+        builder.add(document);
       }
-
     }
-
+    return builder.build();
   }
 
-
 }
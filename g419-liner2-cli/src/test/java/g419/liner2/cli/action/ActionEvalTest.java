@@ -0,0 +1,188 @@
+package g419.liner2.cli.action;
+
+import g419.corpus.io.reader.AbstractDocumentReader;
+import g419.corpus.io.reader.BatchReader;
+import g419.corpus.io.writer.CclStreamWriter;
+import g419.corpus.structure.Annotation;
+import g419.corpus.structure.Document;
+import g419.corpus.structure.Paragraph;
+import g419.corpus.structure.Sentence;
+import g419.corpus.structure.Tag;
+import g419.corpus.structure.Token;
+import g419.corpus.structure.TokenAttributeIndex;
+import g419.liner2.core.features.TokenFeatureGenerator;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Porównuje dokumenty przekazywane do treningu i oceny w walidacji krzyżowej (dokumenty wczytane
+ * raz i kopiowane dla każdej części) z dokumentami wczytywanymi osobno dla każdej części, tak jak
+ * przed wprowadzeniem wspólnego wczytywania.
+ */
+public class ActionEvalTest {
+
+  private static final List<Pattern> TYPES = Collections.singletonList(Pattern.compile("nam_loc"));
+
+  private static final String[][] SENTENCES = {
+      {"Jan", "mieszka", "w", "Warszawie", "."},
+      {"Anna", "pojechała", "do", "Krakowa", "."},
+      {"W", "Gdańsku", "pada", "."},
+      {"Piotr", "lubi", "Poznań", "."}};
+
+  @Test
+  public void testAnnotationDependentFeatures() throws Exception {
+    final TokenFeatureGenerator gen = createGenerator("is_annotation-nam_loc", "is_annotation-nam_liv");
+    Assert.assertFalse(ActionEval.isFeaturizedOnLoad(gen));
+    final List<String> training = assertSameAsSequential(gen);
+    Assert.assertTrue(String.join("", training).contains("is_annotation-nam_loc=B"));
+  }
+
+  @Test
+  public void testAnnotationIndependentFeatures() throws Exception {
+    final TokenFeatureGenerator gen = createGenerator("starts_with_upper_case");
+    Assert.assertTrue(ActionEval.isFeaturizedOnLoad(gen));
+    assertSameAsSequential(gen);
+  }
+
+  private TokenFeatureGenerator createGenerator(final String... features) {
+    final LinkedHashMap<String, String> definitions = new LinkedHashMap<>();
+    for (final String feature : Arrays.asList("orth", "base", "ctag", "class")) {
+      definitions.put(feature, feature);
+    }
+    for (final String feature : features) {
+      definitions.put(feature, feature);
+    }
+    return new TokenFeatureGenerator(definitions);
+  }
+
+  /**
+   * @return dokumenty treningowe wszystkich części
+   */
+  private List<String> assertSameAsSequential(final TokenFeatureGenerator gen) throws Exception {
+    final List<String> allTraining = new ArrayList<>();
+    final List<List<String>> folds = writeFolds();
+    final List<List<Document>> foldDocuments = ActionEval.loadFoldDocuments(folds, "ccl", gen);
+    final TokenFeatureGenerator foldGen = ActionEval.isFeaturizedOnLoad(gen) ? null : gen;
+
+    for (int fold = 0; fold < folds.size(); fold++) {
+      final List<String> expectedTraining = new ArrayList<>();
+      for (int i = 0; i < folds.size(); i++) {
+        if (i != fold) {
+          for (final Document document : read(folds.get(i))) {
+            gen.generateFeatures(document);
+            expectedTraining.add(toString(document));
+          }
+        }
+      }
+      final List<String> training = new ArrayList<>();
+      for (final Document document : ActionEval.getTrainingDocuments(fold, foldDocuments, foldGen)) {
+        training.add(toString(document));
+      }
+      Assert.assertEquals(expectedTraining, training);
+      allTraining.addAll(training);
+
+      final List<String> expectedTest = new ArrayList<>();
+      for (final Document document : read(folds.get(fold))) {
+        ActionEval.prepareDocument(document, TYPES, gen);
+        expectedTest.add(toString(document));
+      }
+      final List<String> test = new ArrayList<>();
+      final Iterator<Document> documents = ActionEval.getTestDocuments(fold, foldDocuments);
+      while (documents.hasNext()) {
+        final Document document = documents.next();
+        ActionEval.prepareDocument(document, TYPES, foldGen);
+        test.add(toString(document));
+      }
+      Assert.assertEquals(expectedTest, test);
+      for (final String document : test) {
+        Assert.assertFalse("Features of a test document see the evaluated annotations",
+            document.contains("is_annotation-nam_loc=B"));
+      }
+    }
+    return allTraining;
+  }
+
+  /**
+   * Zapisuje dokumenty w plikach tymczasowych i zwraca listy plików dwóch części.
+   */
+  private List<List<String>> writeFolds() throws Exception {
+    final List<List<String>> folds = Arrays.asList(new ArrayList<>(), new ArrayList<>());
+    for (int d = 0; d < SENTENCES.length; d++) {
+      final File file = File.createTempFile("cv" + d, ".xml");
+      file.deleteOnExit();
+      try (FileOutputStream os = new FileOutputStream(file)) {
+        final CclStreamWriter writer = new CclStreamWriter(os);
+        writer.writeDocument(createDocument("doc" + d, SENTENCES[d]));
+        writer.close();
+      }
+      folds.get(d % 2).add(file.getAbsolutePath());
+    }
+    return folds;
+  }
+
+  private Document createDocument(final String name, final String[] words) {
+    final TokenAttributeIndex index = new TokenAttributeIndex();
+    index.addAttribute("orth");
+    index.addAttribute("base");
+    index.addAttribute("ctag");
+    final Sentence sentence = new Sentence(index);
+    for (final String word : words) {
+      final String ctag = word.equals(".") ? "interp" : "subst:sg:nom:m1";
+      sentence.addToken(new Token(word, new Tag(word.toLowerCase(), ctag, true), index));
+    }
+    sentence.addChunk(new Annotation(0, "nam_liv", sentence));
+    for (int i = 1; i < words.length; i++) {
+      if (Character.isUpperCase(words[i].charAt(0))) {
+        sentence.addChunk(new Annotation(i, "nam_loc", sentence));
+      }
+    }
+    final Paragraph paragraph = new Paragraph("p1", index);
+    paragraph.addSentence(sentence);
+    final Document document = new Document(name, index);
+    document.addParagraph(paragraph);
+    return document;
+  }
+
+  private List<Document> read(final List<String> files) throws Exception {
+    final List<Document> documents = new ArrayList<>();
+    try (AbstractDocumentReader reader = new BatchReader(IOUtils.toInputStream(String.join("\n", files), "UTF-8"), "", "ccl")) {
+      Document document = reader.nextDocument();
+      while (document != null) {
+        documents.add(document);
+        document = reader.nextDocument();
+      }
+    }
+    return documents;
+  }
+
+  /**
+   * Wartości wszystkich atrybutów tokenów i anotacje dokumentu.
+   */
+  private String toString(final Document document) {
+    final StringBuilder sb = new StringBuilder(document.getName()).append('\n');
+    final TokenAttributeIndex index = document.getAttributeIndex();
+    for (final Sentence sentence : document.getSentences()) {
+      for (final Token token : sentence.getTokens()) {
+        for (int i = 0; i < index.getLength(); i++) {
+          sb.append(index.getName(i)).append('=').append(token.getAttributeValue(i)).append(' ');
+        }
+        sb.append('\n');
+      }
+      for (final Annotation annotation : sentence.getChunks()) {
+        sb.append(annotation.getType()).append(' ').append(annotation.getTokens()).append('\n');
+      }
+    }
+    return sb.toString();
+  }
+}
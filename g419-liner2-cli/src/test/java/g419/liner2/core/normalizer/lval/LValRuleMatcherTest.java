@@ -0,0 +1,181 @@
+package g419.liner2.core.normalizer.lval;
+
+import g419.corpus.structure.Annotation;
+import g419.corpus.structure.Sentence;
+import g419.corpus.structure.Tag;
+import g419.corpus.structure.Token;
+import g419.corpus.structure.TokenAttributeIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Porównuje wartości lval wyznaczane przez {@link LValRuleMatcher} z wartościami wyznaczanymi
+ * przez wcześniejszą implementację {@link LValRuleContainer#getLVal(Annotation)}, która dla każdej
+ * anotacji uruchamiała wszystkie reguły i podstawiała dopasowania przez String.replaceAll.
+ */
+public class LValRuleMatcherTest {
+
+  private static final List<String> TYPES = Arrays.asList("t3_date", "t3_time", "t3_duration", "t3_set");
+
+  /* Tagi dla warunków lemmaTags: pierwszy spełnia warunki "sg", drugi nie */
+  private static final List<String> CTAGS = Arrays.asList("subst:sg:nom:m3", "subst:pl:nom:m3");
+
+  private static final List<String> NUMBERS = Arrays.asList("1", "2", "7", "12", "15", "24", "31", "00", "30",
+      "45", "1999", "2005", "XX", "xx");
+
+  private static final int PHRASES = 3000;
+
+  @Test
+  public void testRules() throws Exception {
+    assertSameAsPrevious("/rules-lval/rules.json");
+  }
+
+  @Test
+  public void testDurationRules() throws Exception {
+    assertSameAsPrevious("/rules-lval/rules-duration.json");
+  }
+
+  /**
+   * Reguły z warunkiem lemmaTags, których dopasowanie nie ma wartości (nieobecna grupa, brak wartości
+   * w mapie). Szablony nie mogą być wypełniane dla anotacji niespełniających warunku lemmaTags.
+   */
+  @Test
+  public void testLemmaTagsWithAbsentGroup() throws Exception {
+    final File rules = File.createTempFile("rules-lval", ".json");
+    rules.deleteOnExit();
+    try (PrintWriter writer = new PrintWriter(rules, "UTF-8")) {
+      writer.println("{\"keys\": {}, \"maps\": {\"months\": {\"maj\": \"05\"}}, \"rules\": ["
+          + "{\"desc\": \"dzień\", \"keys\": [], \"groups\": [\"day\"], \"match\": \"^((?<day>[0-9]+) )?dzień$\","
+          + " \"lemmaTags\": {\"dzień\": \"sg\"}, \"map\": {},"
+          + " \"value\": {\"year\": \"xxxx\", \"month\": \"xx\", \"day\": \"$day\"}},"
+          + "{\"desc\": \"miesiąc\", \"keys\": [], \"groups\": [\"month\"], \"match\": \"^(?<month>[a-z]+) miesiąc$\","
+          + " \"lemmaTags\": {\"miesiąc\": \"sg\"}, \"map\": {\"month\": \"months\"},"
+          + " \"value\": {\"year\": \"xxxx\", \"month\": \"$month\"}}]}");
+    }
+    final LValRuleContainer container = LValRuleContainer.load(rules.getPath());
+    final String[][] cases = {
+        {"dzień", CTAGS.get(1), "None"},
+        {"5 dzień", CTAGS.get(0), "xxxx-xx-05"},
+        {"5 dzień", CTAGS.get(1), "None"},
+        {"luty miesiąc", CTAGS.get(1), "None"},
+        {"maj miesiąc", CTAGS.get(0), "xxxx-05"}};
+    for (final String[] item : cases) {
+      final Annotation annotation = createAnnotation(item[0], "t3_date", item[1]);
+      Assert.assertEquals(item[0] + " " + item[1], item[2], getPreviousLVal(container, annotation));
+      Assert.assertEquals(item[0] + " " + item[1], item[2], container.getLVal(annotation));
+    }
+  }
+
+  private void assertSameAsPrevious(final String rulesPath) throws Exception {
+    final LValRuleContainer container =
+        LValRuleContainer.load(new File(getClass().getResource(rulesPath).toURI()).getPath());
+    int matched = 0;
+    for (final String phrase : getPhrases(container)) {
+      for (final String type : TYPES) {
+        /* Obie wersje tagów dla tego samego tekstu korzystają z tego samego zapamiętanego wyniku */
+        for (final String ctag : CTAGS) {
+          final Annotation annotation = createAnnotation(phrase, type, ctag);
+          final String expected = getPreviousLVal(container, annotation);
+          Assert.assertEquals(type + " [" + phrase + "] " + ctag, expected, container.getLVal(annotation));
+          Assert.assertEquals(type + " [" + phrase + "] " + ctag, expected, container.getLVal(annotation));
+          if (!expected.equals("None") && !expected.equals("VAGUE")) {
+            matched++;
+          }
+        }
+      }
+    }
+    Assert.assertTrue("Too few phrases matched by the rules: " + matched, matched > 100);
+  }
+
+  /**
+   * Teksty anotacji złożone z wartości kluczy i map reguł, słów występujących w wyrażeniach
+   * reguł i liczb: każdy element osobno oraz losowe ciągi od 2 do 4 elementów.
+   */
+  private List<String> getPhrases(final LValRuleContainer container) {
+    final Set<String> vocabulary = new LinkedHashSet<>(NUMBERS);
+    for (final List<String> values : container.keys.values()) {
+      vocabulary.addAll(values);
+    }
+    for (final Map<String, String> map : container.maps.values()) {
+      vocabulary.addAll(map.keySet());
+    }
+    for (final LValRule rule : container.rules) {
+      final Matcher words = Pattern.compile("\\p{L}{2,}").matcher(rule.match.replaceAll("\\$\\w+", " "));
+      while (words.find()) {
+        vocabulary.add(words.group());
+      }
+    }
+    vocabulary.remove("");
+
+    final List<String> elements = new ArrayList<>(vocabulary);
+    final Set<String> phrases = new LinkedHashSet<>(elements);
+    final Random random = new Random(7);
+    while (phrases.size() < elements.size() + PHRASES) {
+      final int length = 2 + random.nextInt(3);
+      final StringBuilder phrase = new StringBuilder(elements.get(random.nextInt(elements.size())));
+      for (int i = 1; i < length; i++) {
+        phrase.append(' ').append(elements.get(random.nextInt(elements.size())));
+      }
+      phrases.add(phrase.toString());
+    }
+    return new ArrayList<>(phrases);
+  }
+
+  private Annotation createAnnotation(final String phrase, final String type, final String ctag) {
+    final TokenAttributeIndex index = new TokenAttributeIndex();
+    index.addAttribute("orth");
+    index.addAttribute("base");
+    index.addAttribute("ctag");
+    final Sentence sentence = new Sentence(index);
+    for (final String word : phrase.split(" ")) {
+      sentence.addToken(new Token(word, new Tag(word, ctag, true), index));
+    }
+    return new Annotation(0, sentence.getTokenNumber() - 1, type, sentence);
+  }
+
+  /**
+   * Wcześniejsza implementacja {@link LValRuleContainer#getLVal(Annotation)}.
+   */
+  private String getPreviousLVal(final LValRuleContainer container, final Annotation annotation) {
+    final String annBase = annotation.getBaseText(false);
+    final String annType = annotation.getType();
+    final Map<String, String> globalValues = new HashMap<>();
+    for (final LValRule rule : container.rules) {
+      if (rule.limit != null && !rule.limit.contains(annType)) {
+        continue;
+      }
+      final Matcher match = rule.pattern.matcher(annBase);
+      if (match.find() && rule.checkLemmaTags(annotation)) {
+        final Map<String, String> matchDict = new HashMap<>();
+        for (final String group : rule.groups) {
+          matchDict.put(group, match.group(group));
+        }
+        for (final Map.Entry<String, String> ruleMapEntry : rule.map.entrySet()) {
+          final String matchKey = ruleMapEntry.getKey();
+          matchDict.put(matchKey, container.maps.get(ruleMapEntry.getValue()).get(matchDict.get(matchKey)));
+        }
+        for (final Map.Entry<String, String> ruleValueEntry : rule.value.entrySet()) {
+          String value = ruleValueEntry.getValue();
+          for (final Map.Entry<String, String> matchDictEntry : matchDict.entrySet()) {
+            value = value.replaceAll("\\$" + matchDictEntry.getKey(), matchDictEntry.getValue());
+          }
+          globalValues.put(ruleValueEntry.getKey(), value);
+        }
+      }
+    }
+    return container.getLVal(annType, globalValues);
+  }
+}
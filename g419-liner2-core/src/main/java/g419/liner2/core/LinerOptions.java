@@ -1,6 +1,8 @@
 package g419.liner2.core;
 
 
+import g419.corpus.io.reader.ReaderFactory;
+import g419.liner2.core.features.FeaturizedDocumentCache;
 import g419.liner2.core.lib.LibLoader;
 import org.ini4j.Ini;
 
@@ -52,6 +54,7 @@ public class LinerOptions {
   public static final String OPTION_TYPES = "types";
   public static final String OPTION_USED_CHUNKER = "chunker";
   public static final String OPTION_CRFLIB = "crflib";
+  public static final String OPTION_FEATURES_CACHE = "features-cache";
 
   public LinkedHashMap<String, String> features = new LinkedHashMap<String, String>();
   private Set<Ini.Section> chunkersDescriptions = new LinkedHashSet<Ini.Section>();
@@ -125,6 +128,12 @@ public class LinerOptions {
       if (main.containsKey(OPTION_FEATURES)) {
         this.features = parseFeatures(main.get(OPTION_FEATURES).replace("{INI_PATH}", iniPath));
       }
+      if (main.containsKey(OPTION_FEATURES_CACHE)) {
+        /* Dokumenty z wygenerowanymi cechami dla formatów wejściowych cache:FORMAT */
+        File cacheDir = new File(main.get(OPTION_FEATURES_CACHE).replace("{INI_PATH}", iniPath));
+        ReaderFactory.get().setDocumentCache(new FeaturizedDocumentCache(cacheDir, this.features));
+        this.properties.setProperty(OPTION_FEATURES_CACHE, cacheDir.getPath());
+      }
       if (main.containsKey(OPTION_TYPES)) {
         this.types = parseTypes(main.get(OPTION_TYPES).replace("{INI_PATH}", iniPath));
       }
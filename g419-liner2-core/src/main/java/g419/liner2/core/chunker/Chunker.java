@@ -53,6 +53,18 @@ public abstract class Chunker {
 
   }
 
+  /**
+   * Czy chunker jedynie odczytuje dokument, tj. nie dodaje ani nie usuwa anotacji i nie zmienia
+   * atrybutów tokenów. Tylko takie chunkery są uruchamiane jednocześnie na tym samym dokumencie
+   * w zespołach chunkerów. Klasa dziedzicząca, która nie modyfikuje dokumentu, powinna przeciążyć
+   * tą metodę.
+   *
+   * @return domyślnie false
+   */
+  public boolean isReadOnly() {
+    return false;
+  }
+
   /**
    * Przygotowanie do klasyfikacji danego tekstu. Tą metodę przeciążają klasyfikatory,
    * które wymagają podania całego tekstu przed rozpoczęciem pracy, np. dwuprzebiegowe.
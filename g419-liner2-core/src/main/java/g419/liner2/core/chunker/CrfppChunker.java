@@ -7,13 +7,24 @@ import g419.liner2.core.chunker.interfaces.SerializableChunkerInterface;
 import g419.liner2.core.chunker.interfaces.TrainableChunkerInterface;
 import g419.liner2.core.tools.TemplateFactory;
 import org.apache.log4j.Logger;
+import org.chasen.crfpp.Model;
 import org.chasen.crfpp.Tagger;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -21,8 +32,12 @@ public class CrfppChunker extends Chunker
     implements TrainableChunkerInterface, DeserializableChunkerInterface, SerializableChunkerInterface {
 
   private File trainingFile = null;
-  private PrintWriter trainingFileWriter = null;
-  private Tagger tagger = null;
+  private Writer trainingFileWriter = null;
+  /* Czy plik z danymi treningowymi ma zostać usunięty po treningu */
+  private boolean trainingFileTemporary = false;
+  private Model model = null;
+  private BlockingQueue<Tagger> taggers = null;
+  private ExecutorService executor = null;
   private Pattern p = Pattern.compile("([IB])-([^#]*)");
   private CrfTemplate template = null;
   private String model_filename = null;
@@ -32,47 +47,61 @@ public class CrfppChunker extends Chunker
   private String trainingDataFileName = null;
   private List<String> usedFeatures;
   private String wrap = null;
+  private CrfppIobEncoder encoder = null;
 
   public CrfppChunker(List<String> usedFeatures, String wrap) {
-    this.types = new ArrayList<Pattern>();
-    this.usedFeatures = usedFeatures;
-    this.wrap = wrap;
+    this(1, new ArrayList<Pattern>(), usedFeatures, wrap);
   }
 
   /**
-   * @param threads
+   * @param threads      Number of CRF++ taggers sharing the loaded model, i.e. the number of sentences
+   *                     which can be tagged at the same time.
    * @param types
    * @param usedFeatures
    * @param wrap         Annotation name category used to wrap annotation sequences annotated with given name.
    */
   public CrfppChunker(int threads, List<Pattern> types, List<String> usedFeatures, String wrap) {
-    this.threads = threads;
+    this.threads = Math.max(1, threads);
     this.types = types;
     this.usedFeatures = usedFeatures;
     this.wrap = wrap;
+    this.encoder = new CrfppIobEncoder(usedFeatures, types, wrap);
   }
 
   /**
    * Reads output from the external CRF tagger.
    * Transforms the result from IOB format into a list of annotations.
+   * The sentence is tagged with the first free tagger from the pool. If all taggers are busy
+   * the method waits until one of them is returned to the pool.
    *
    * @return chunking with annotations
    */
-
-  private synchronized AnnotationSet chunkSentence(Sentence sentence) {
+  private AnnotationSet chunkSentence(Sentence sentence) {
     if (sentence.getTokenNumber() > MAX_TOKENS) {
       return new AnnotationSet(sentence);
     }
-    return this.chunk(sentence);
+    final Tagger tagger;
+    try {
+      tagger = taggers.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for a CRF++ tagger", e);
+    }
+    try {
+      return this.chunk(sentence, tagger);
+    } finally {
+      taggers.offer(tagger);
+    }
   }
 
   /**
    * Chunks the sentence using CRF++ API.
    *
    * @param sentence
+   * @param tagger   tagger used exclusively by the current thread
    * @return set of recognized chunks
    */
-  private AnnotationSet chunk(Sentence sentence) {
+  private AnnotationSet chunk(Sentence sentence, Tagger tagger) {
     Map<Integer, Integer> tokenIndexMapping = new HashMap<Integer, Integer>();
     Map<Integer, Annotation> annotationsToWrap = new HashMap<Integer, Annotation>();
     if (wrap != null) {
@@ -155,71 +184,104 @@ public class CrfppChunker extends Chunker
   @Override
   public void train() throws Exception {
     ConsolePrinter.log("Training CRF classifer using features:\n" + this.template.printFeatures());
-    this.trainingFileWriter.close();
+    this.closeTrainingData();
     this.compileTagger();
   }
 
   @Override
-  public void addTrainingData(Document paragraphSet) {
+  public void addTrainingData(Document paragraphSet) throws IOException {
     ConsolePrinter.log("Loading training data for CRF from document:" + paragraphSet.getName());
+    StringBuilder sb = new StringBuilder();
+    this.encoder.encode(paragraphSet, sb);
+    this.openTrainingData().append(sb);
+  }
 
-    // Utwórz tymczasowy plik do zapisu danych treningowych
-    if (this.trainingFileWriter == null) {
-      try {
-        if (trainingDataFileName != null) {
-          this.trainingFile = new File(trainingDataFileName);
-        } else {
-          this.trainingFile = File.createTempFile("crf_iob", ".txt");
-          this.trainingFile.deleteOnExit();
+  /**
+   * Dodaje dane treningowe z wielu dokumentów. Dokumenty są kodowane równolegle przez tyle wątków,
+   * ile taggerów ma chunker, i zapisywane w kolejności wejściowej. Jednocześnie kodowanych jest
+   * co najwyżej 2*threads dokumentów.
+   *
+   * @param documents
+   * @throws Exception
+   */
+  public void addTrainingData(Collection<Document> documents) throws Exception {
+    if (this.threads == 1) {
+      for (Document document : documents) {
+        this.addTrainingData(document);
+      }
+      return;
+    }
+    Writer writer = this.openTrainingData();
+    ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+    try {
+      Deque<Future<StringBuilder>> pending = new ArrayDeque<Future<StringBuilder>>();
+      for (Document document : documents) {
+        if (pending.size() == 2 * this.threads) {
+          writer.append(pending.poll().get());
         }
-        System.out.println("STORE TRAINING DATA IN: " + trainingFile.getAbsolutePath());
-        this.trainingFileWriter = new PrintWriter(this.trainingFile);
-      } catch (IOException e) {
-        e.printStackTrace();
+        ConsolePrinter.log("Loading training data for CRF from document:" + document.getName());
+        pending.add(pool.submit(() -> {
+          StringBuilder sb = new StringBuilder();
+          this.encoder.encode(document, sb);
+          return sb;
+        }));
+      }
+      while (!pending.isEmpty()) {
+        writer.append(pending.poll().get());
       }
+    } catch (ExecutionException e) {
+      throw new Exception("Error while encoding CRF training data", e.getCause());
+    } finally {
+      pool.shutdownNow();
     }
+  }
 
-    for (Paragraph paragraph : paragraphSet.getParagraphs()) {
-      for (Sentence sentence : paragraph.getSentences()) {
+  /**
+   * Używa gotowego pliku z danymi treningowymi (np. zapisanego wcześniej przez store-training-data)
+   * zamiast kodowania dokumentów. Plik nie jest usuwany po treningu.
+   *
+   * @param file
+   */
+  public void useTrainingData(File file) {
+    if (this.trainingFileWriter != null) {
+      throw new IllegalStateException("Training data were already added to " + this.trainingFile);
+    }
+    this.trainingFile = file;
+    this.trainingFileTemporary = false;
+  }
 
-        Map<Integer, Annotation> annotationsToWrap = new HashMap<Integer, Annotation>();
-        if (wrap != null) {
-          for (Annotation an : sentence.getAnnotations(wrap)) {
-            annotationsToWrap.put(an.getBegin(), an);
-          }
-        }
+  /**
+   * Zamyka plik z danymi treningowymi.
+   *
+   * @return plik z danymi treningowymi
+   * @throws IOException
+   */
+  public File closeTrainingData() throws IOException {
+    if (this.trainingFileWriter != null) {
+      this.trainingFileWriter.close();
+      this.trainingFileWriter = null;
+    }
+    return this.trainingFile;
+  }
 
-        List<Token> tokens = sentence.getTokens();
-        for (int i = 0; i < tokens.size(); i++) {
-          String oStr = "";
-          for (String feature : usedFeatures) {
-            Token token = tokens.get(i);
-            Annotation anWrap = annotationsToWrap.get(i);
-            if (anWrap != null) {
-              i = anWrap.getEnd();
-              token = anWrap.getHeadToken();
-              Logger.getLogger(this.getClass()).info("Annotation wrapped: " + anWrap.toString() + " into " + token.getOrth());
-            }
-            try {
-              String val = token.getAttributeValue(feature);
-              if (val != null) {
-                val = val.length() == 0 ? "NULL" : val.replaceAll("\\s+", "_");
-              }
-              oStr += " " + val;
-            } catch (ArrayIndexOutOfBoundsException e) {
-              System.out.println("Error: Feature used by CRF chunker not in attribute index: " + feature);
-              System.exit(1);
-            }
-          }
-          String tokClass = sentence.getTokenClassLabel(i, this.types);
-          oStr += " " + tokClass;
-          this.trainingFileWriter.write(oStr.trim() + "\n");
-        }
-        this.trainingFileWriter.write("\n");
+  /**
+   * Otwiera plik do zapisu danych treningowych, jeżeli nie został jeszcze otwarty.
+   */
+  private Writer openTrainingData() throws IOException {
+    if (this.trainingFileWriter == null) {
+      if (trainingDataFileName != null) {
+        this.trainingFile = new File(trainingDataFileName);
+        this.trainingFileTemporary = false;
+      } else {
+        this.trainingFile = File.createTempFile("crf_iob", ".txt");
+        this.trainingFile.deleteOnExit();
+        this.trainingFileTemporary = true;
       }
+      System.out.println("STORE TRAINING DATA IN: " + trainingFile.getAbsolutePath());
+      this.trainingFileWriter = new BufferedWriter(
+          new OutputStreamWriter(new FileOutputStream(this.trainingFile), StandardCharsets.UTF_8), 1 << 16);
     }
-
-    this.trainingFileWriter.flush();
+    return this.trainingFileWriter;
   }
 
 
@@ -229,7 +291,6 @@ public class CrfppChunker extends Chunker
    * zostaje uruchomiony crf_learn. Wynikiem przetwarzania jest plik z modelem.
    */
   private void compileTagger() throws Exception {
-    this.trainingFileWriter.close();
     if (this.template == null) {
       throw new Exception("Template for CrfppChunker not set. (required in train mode)");
     }
@@ -270,18 +331,33 @@ public class CrfppChunker extends Chunker
       e.printStackTrace();
     }
     templateFile.delete();
-    this.trainingFile.delete();
+    if (this.trainingFileTemporary) {
+      this.trainingFile.delete();
+    }
   }
 
   /**
    * Wczytuje chunker z modelu binarnego.
+   * Model jest wczytywany jednokrotnie i współdzielony przez pulę taggerów o rozmiarze równym
+   * liczbie wątków (parametr threads).
    *
    * @param model_filename
    */
   @Override
   public void deserialize(String model_filename) {
     String parameters = String.format("-m %s -v 3 -n 1", model_filename);
-    this.tagger = new Tagger(parameters);
+    this.model = new Model(parameters);
+    this.taggers = new ArrayBlockingQueue<Tagger>(threads);
+    for (int i = 0; i < threads; i++) {
+      this.taggers.add(this.model.createTagger());
+    }
+    if (threads > 1) {
+      this.executor = Executors.newFixedThreadPool(threads, r -> {
+        Thread thread = new Thread(r, "crfpp-tagger");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
   }
 
   @Override
@@ -290,8 +366,20 @@ public class CrfppChunker extends Chunker
 
   @Override
   public void close() {
-    this.tagger.delete();
-
+    if (this.executor != null) {
+      this.executor.shutdownNow();
+      this.executor = null;
+    }
+    if (this.taggers != null) {
+      for (Tagger tagger : this.taggers) {
+        tagger.delete();
+      }
+      this.taggers = null;
+    }
+    if (this.model != null) {
+      this.model.delete();
+      this.model = null;
+    }
   }
 
   public CrfTemplate getTemplate() {
@@ -329,15 +417,52 @@ public class CrfppChunker extends Chunker
     this.trainingDataFileName = trainingDataFilename;
   }
 
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Chunks all sentences of the document. If the chunker has more than one tagger, the sentences
+   * are tagged in parallel.
+   *
+   * @param ps
+   * @return
+   */
   @Override
   public HashMap<Sentence, AnnotationSet> chunk(Document ps) {
     HashMap<Sentence, AnnotationSet> chunkings = new HashMap<Sentence, AnnotationSet>();
+    if (this.executor == null) {
+      for (Paragraph paragraph : ps.getParagraphs()) {
+        for (Sentence sentence : paragraph.getSentences()) {
+          chunkings.put(sentence, this.chunkSentence(sentence));
+        }
+      }
+      return chunkings;
+    }
+
+    Map<Sentence, Future<AnnotationSet>> futures = new HashMap<Sentence, Future<AnnotationSet>>();
     for (Paragraph paragraph : ps.getParagraphs()) {
       for (Sentence sentence : paragraph.getSentences()) {
-        chunkings.put(sentence, this.chunkSentence(sentence));
+        futures.put(sentence, this.executor.submit(() -> this.chunkSentence(sentence)));
       }
     }
+    try {
+      for (Map.Entry<Sentence, Future<AnnotationSet>> entry : futures.entrySet()) {
+        chunkings.put(entry.getKey(), entry.getValue().get());
+      }
+    } catch (InterruptedException e) {
+      futures.values().forEach(f -> f.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while chunking document " + ps.getName(), e);
+    } catch (ExecutionException e) {
+      futures.values().forEach(f -> f.cancel(true));
+      throw new RuntimeException("Error while chunking document " + ps.getName(), e.getCause());
+    }
     return chunkings;
   }
 
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
 }
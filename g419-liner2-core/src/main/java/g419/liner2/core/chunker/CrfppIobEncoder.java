@@ -0,0 +1,145 @@
+package g419.liner2.core.chunker;
+
+import g419.corpus.structure.*;
+import org.apache.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Koduje dokumenty do formatu IOB wczytywanego przez crf_learn: jeden token w linii,
+ * wartości wybranych atrybutów oddzielone spacjami, etykieta klasy w ostatniej kolumnie,
+ * pusta linia po każdym zdaniu.
+ * <p>
+ * Linie są składane w jednym buforze bez tworzenia pośrednich napisów. Koder nie zmienia
+ * dokumentów, więc kilka dokumentów może być kodowanych jednocześnie.
+ */
+class CrfppIobEncoder {
+
+  private final List<String> usedFeatures;
+  private final List<Pattern> types;
+  private final String wrap;
+
+  /**
+   * @param usedFeatures atrybuty zapisywane w kolejnych kolumnach
+   * @param types        typy anotacji uwzględniane w etykietach
+   * @param wrap         typ anotacji, których tokeny są zastępowane tokenem głównym (może być null)
+   */
+  CrfppIobEncoder(final List<String> usedFeatures, final List<Pattern> types, final String wrap) {
+    this.usedFeatures = usedFeatures;
+    this.types = types;
+    this.wrap = wrap;
+  }
+
+  /**
+   * Dopisuje do bufora dane treningowe dokumentu.
+   *
+   * @param document
+   * @param out
+   */
+  void encode(final Document document, final StringBuilder out) {
+    TokenAttributeIndex attributeIndex = null;
+    int[] attributeIndexes = null;
+    for (final Paragraph paragraph : document.getParagraphs()) {
+      for (final Sentence sentence : paragraph.getSentences()) {
+        if (sentence.getTokenNumber() > 0 && sentence.getTokens().get(0).getAttributeIndex() != attributeIndex) {
+          attributeIndex = sentence.getTokens().get(0).getAttributeIndex();
+          attributeIndexes = resolve(attributeIndex);
+        }
+        encode(sentence, attributeIndexes, out);
+      }
+    }
+  }
+
+  /**
+   * Zamienia nazwy atrybutów na ich pozycje w indeksie atrybutów.
+   */
+  private int[] resolve(final TokenAttributeIndex attributeIndex) {
+    final int[] indexes = new int[usedFeatures.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = attributeIndex.getIndex(usedFeatures.get(i));
+      if (indexes[i] == -1) {
+        throw new IllegalArgumentException("Feature used by CRF chunker not in attribute index: " + usedFeatures.get(i));
+      }
+    }
+    return indexes;
+  }
+
+  private void encode(final Sentence sentence, final int[] attributeIndexes, final StringBuilder out) {
+    final Map<Integer, Annotation> annotationsToWrap = new HashMap<>();
+    if (wrap != null) {
+      for (final Annotation an : sentence.getAnnotations(wrap)) {
+        annotationsToWrap.put(an.getBegin(), an);
+      }
+    }
+
+    final List<Token> tokens = sentence.getTokens();
+    for (int i = 0; i < tokens.size(); i++) {
+      final int lineStart = out.length();
+      for (final int attributeIndex : attributeIndexes) {
+        /* Zawijanie sprawdzane dla każdej kolumny, tak jak w dotychczasowym zapisie danych */
+        Token token = tokens.get(i);
+        if (!annotationsToWrap.isEmpty()) {
+          final Annotation anWrap = annotationsToWrap.get(i);
+          if (anWrap != null) {
+            i = anWrap.getEnd();
+            token = anWrap.getHeadToken();
+            Logger.getLogger(getClass()).info("Annotation wrapped: " + anWrap.toString() + " into " + token.getOrth());
+          }
+        }
+        out.append(' ');
+        appendValue(token.getAttributeValue(attributeIndex), out);
+      }
+      out.append(' ').append(sentence.getTokenClassLabel(i, types));
+      trim(out, lineStart);
+      out.append('\n');
+    }
+    out.append('\n');
+  }
+
+  /**
+   * Zapisuje wartość atrybutu, zastępując ciągi białych znaków (\s) pojedynczym znakiem '_'.
+   * Pusta wartość jest zapisywana jako NULL, a brak wartości jako null.
+   */
+  private static void appendValue(final String value, final StringBuilder out) {
+    if (value == null) {
+      out.append("null");
+    } else if (value.isEmpty()) {
+      out.append("NULL");
+    } else {
+      boolean inWhitespace = false;
+      for (int i = 0; i < value.length(); i++) {
+        final char c = value.charAt(i);
+        if (c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r') {
+          if (!inWhitespace) {
+            out.append('_');
+            inWhitespace = true;
+          }
+        } else {
+          out.append(c);
+          inWhitespace = false;
+        }
+      }
+    }
+  }
+
+  /**
+   * Odpowiednik String.trim() dla linii zaczynającej się na pozycji start.
+   */
+  private static void trim(final StringBuilder out, final int start) {
+    int end = out.length();
+    while (end > start && out.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    out.setLength(end);
+    int first = start;
+    while (first < end && out.charAt(first) <= ' ') {
+      first++;
+    }
+    if (first > start) {
+      out.delete(start, first);
+    }
+  }
+}
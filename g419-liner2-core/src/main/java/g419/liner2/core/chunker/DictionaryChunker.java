@@ -5,12 +5,15 @@ import g419.corpus.ConsolePrinter;
 import g419.corpus.structure.*;
 import g419.liner2.core.chunker.interfaces.DeserializableChunkerInterface;
 import g419.liner2.core.chunker.interfaces.SerializableChunkerInterface;
+import g419.liner2.core.tools.TrieDictFinder;
+import g419.liner2.core.tools.TrieDictNode;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,84 +28,73 @@ public class DictionaryChunker extends Chunker
 
   static HashMap<String, HashMap<String, String>> loadedDicts = new HashMap<String, HashMap<String, String>>();
   static HashMap<String, HashSet<String>> loadedCommons = new HashMap<String, HashSet<String>>();
+  static HashMap<String, CompiledDictionary> compiledDicts = new HashMap<String, CompiledDictionary>();
 
   private HashMap<String, String> dictionary = null;
   private HashSet<String> commons = null;
   private ArrayList<String> types = null;
+  private CompiledDictionary compiled = null;
 
   public DictionaryChunker(ArrayList<String> types) {
     this.types = types;
     this.dictionary = new HashMap<String, String>();
     this.commons = new HashSet<String>();
+    this.compiled = new CompiledDictionary(this.dictionary);
   }
 
   private AnnotationSet chunkSentence(Sentence sentence) {
     AnnotationSet chunking = new AnnotationSet(sentence);
     List<Token> tokens = sentence.getTokens();
-    int sentenceLength = sentence.getTokenNumber();
-    if (sentenceLength > 500) {
-      return chunking;
-    }
-    // [długość] -> początek => n-gram
-    ArrayList<HashMap<Integer, String>> nGrams =
-        new ArrayList<HashMap<Integer, String>>();
-
-    // wygeneruj unigramy
-    nGrams.add(new HashMap<Integer, String>());
-    for (int i = 0; i < sentenceLength; i++) {
-      nGrams.get(0).put(new Integer(i), tokens.get(i).getOrth());
-    }
-    // wygeneruj n-gramy
-    for (int n = 1; n < sentenceLength; n++) {
-      nGrams.add(new HashMap<Integer, String>());
-      for (int j = 0; j < sentenceLength - n; j++) {
-        nGrams.get(n).put(new Integer(j),
-            nGrams.get(n - 1).get(j) + " " + tokens.get(j + n).getOrth());
-      }
-    }
-
-    // chunkuj (poczynając od najdłuższych n-gramów)
-    for (int n = sentenceLength - 1; n >= 0; n--) {
-      for (int i = 0; i < sentenceLength - n; i++) {
-        int idx = new Integer(i);
+    boolean[] taken = new boolean[tokens.size()];
 
-        // jeśli danego n-gramu nie ma w tablicy, to kontynuuj
-        if (nGrams.get(n).get(idx) == null) {
-          continue;
-        }
+    // chunkuj (poczynając od najdłuższych dopasowań)
+    for (TrieDictFinder.Match match : this.compiled.getFinder().findAllByOrth(sentence)) {
+      // pomiń, jeśli dopasowanie zahacza o już dodany chunk
+      if (!match.isFree(taken)) {
+        continue;
+      }
 
-        // jeśli znaleziono w słowniku
-        if (this.dictionary.containsKey(nGrams.get(n).get(idx))) {
+      // odrzuć, jeśli base jest nazwą pospolitą
+      if ((match.length() == 1) && (this.commons.contains(sentence.getAttributeIndex()
+          .getAttributeValue(tokens.get(match.getStart()), "base")))) {
+        continue;
+      }
 
-          // odrzuć, jeśli base jest nazwą pospolitą
-          if ((n == 0) && (this.commons.contains(sentence.getAttributeIndex()
-              .getAttributeValue(tokens.get(i), "base")))) {
-            continue;
-          }
+      String chunkType = this.dictionary.get(match.getNode().getValue());
 
-          String chunkType = this.dictionary.get(nGrams.get(n).get(idx));
+      // odrzuć, jeśli ten typ nie ma być brany pod uwagę
+      if ((this.types != null) && (!this.types.contains(chunkType))) {
+        continue;
+      }
 
-          // odrzuć, jeśli ten typ nie ma być brany pod uwagę
-          if ((this.types != null) && (!this.types.contains(chunkType))) {
-            continue;
-          }
+      // dodaj chunk
+      chunking.addChunk(new Annotation(match.getStart(), match.getEnd(), chunkType, sentence));
+      match.take(taken);
+    }
 
-          // dodaj chunk
-          chunking.addChunk(new Annotation(i, i + n,
-              this.dictionary.get(nGrams.get(n).get(idx)), sentence));
+    return chunking;
+  }
 
-          // usuń z tablicy wszystkie krótsze n-gramy, które zahaczają o to miejsce
-          // j - dł. odrzucanego n-gramu - 1, k - pozycja startowa
-          for (int j = n; j >= 0; j--) {
-            for (int k = i - j; k <= i + n; k++) {
-              nGrams.get(j).remove(new Integer(k));
-            }
-          }
-        }
-      }
+  /**
+   * Zwraca słownik skompilowany dla słownika wczytanego z pliku. Słowniki wczytane z pliku są
+   * kompilowane raz i współdzielone przez wszystkie chunkery korzystające z tego samego pliku.
+   *
+   * @param dictName
+   * @param dictionary
+   * @return
+   */
+  private static CompiledDictionary getCompiled(String dictName, HashMap<String, String> dictionary) {
+    synchronized (compiledDicts) {
+      return compiledDicts.computeIfAbsent(dictName, name -> new CompiledDictionary(dictionary));
     }
+  }
 
-    return chunking;
+  private static TrieDictNode compile(Map<String, String> dictionary) {
+    TrieDictNode root = new TrieDictNode(false);
+    for (String name : dictionary.keySet()) {
+      root.addPhrase(name.split(" ", -1), name);
+    }
+    return root;
   }
 
   public void loadDictionary(String dictFile, String commonsFile) {
@@ -162,14 +154,21 @@ public class DictionaryChunker extends Chunker
       loadedDicts.put(dictName, this.dictionary);
       loadedCommons.put(dictName, this.commons);
     }
+    this.compiled = getCompiled(dictName, this.dictionary);
   }
 
+  /**
+   * Zmiana zawartości słownika unieważnia jego postać skompilowaną we wszystkich chunkerach,
+   * które współdzielą ten słownik.
+   */
   public void addEntry(String name, String channel) {
     this.dictionary.put(name, channel);
+    this.compiled.invalidate();
   }
 
   public void removeEntry(String name) {
     this.dictionary.remove(name);
+    this.compiled.invalidate();
   }
 
   public boolean hasName(String name) {
@@ -207,6 +206,7 @@ public class DictionaryChunker extends Chunker
       loadedDicts.put(dictName, this.dictionary);
       loadedCommons.put(dictName, this.commons);
     }
+    this.compiled = getCompiled(dictName, this.dictionary);
   }
 
   @Override
@@ -237,4 +237,44 @@ public class DictionaryChunker extends Chunker
     return chunkings;
   }
 
-}	
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
+  /**
+   * Słownik wraz z jego postacią skompilowaną do drzewa trie na poziomie tokenów. Drzewo jest
+   * budowane przy pierwszym użyciu i publikowane przez pole volatile, więc wyszukiwanie w kolejnych
+   * zdaniach nie wymaga synchronizacji.
+   */
+  static class CompiledDictionary {
+
+    private final Map<String, String> dictionary;
+    private volatile TrieDictFinder finder = null;
+
+    CompiledDictionary(Map<String, String> dictionary) {
+      this.dictionary = dictionary;
+    }
+
+    TrieDictFinder getFinder() {
+      TrieDictFinder result = this.finder;
+      if (result == null) {
+        synchronized (this) {
+          result = this.finder;
+          if (result == null) {
+            result = new TrieDictFinder(compile(this.dictionary));
+            this.finder = result;
+          }
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Po zmianie zawartości słownik jest kompilowany ponownie przy następnym użyciu.
+     */
+    synchronized void invalidate() {
+      this.finder = null;
+    }
+  }
+}
@@ -5,12 +5,12 @@ import g419.corpus.ConsolePrinter;
 import g419.corpus.structure.*;
 import g419.liner2.core.chunker.interfaces.DeserializableChunkerInterface;
 import g419.liner2.core.chunker.interfaces.SerializableChunkerInterface;
+import g419.liner2.core.tools.TrieDictFinder;
+import g419.liner2.core.tools.TrieDictNode;
 
 import java.io.*;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 
 
 /**
@@ -22,68 +22,43 @@ public class FullDictionaryChunker extends Chunker
     implements DeserializableChunkerInterface, SerializableChunkerInterface {
 
   private HashMap<String, HashSet<String>> dictionary = null;
+  private TrieDictFinder finder = null;
 
   public FullDictionaryChunker() {
   }
 
   private AnnotationSet chunkSentence(Sentence sentence) {
     AnnotationSet chunking = new AnnotationSet(sentence);
-    List<Token> tokens = sentence.getTokens();
-    int sentenceLength = sentence.getTokenNumber();
-
-    // [długość] -> początek => n-gram
-    ArrayList<HashMap<Integer, String>> nGrams =
-        new ArrayList<HashMap<Integer, String>>();
-
-    // wygeneruj unigramy
-    nGrams.add(new HashMap<Integer, String>());
-    for (int i = 0; i < sentenceLength; i++) {
-      nGrams.get(0).put(new Integer(i), tokens.get(i).getOrth());
-    }
-    // wygeneruj n-gramy
-    for (int n = 1; n < sentenceLength; n++) {
-      nGrams.add(new HashMap<Integer, String>());
-      for (int j = 0; j < sentenceLength - n; j++) {
-        nGrams.get(n).put(new Integer(j),
-            nGrams.get(n - 1).get(j) + " " + tokens.get(j + n).getOrth());
+    boolean[] taken = new boolean[sentence.getTokenNumber()];
+
+    // chunkuj (poczynając od najdłuższych dopasowań)
+    for (TrieDictFinder.Match match : getFinder().findAllByOrth(sentence)) {
+      if (match.isFree(taken)) {
+        // dodaj wszystkie chunki
+        for (String type : this.dictionary.get(match.getNode().getValue())) {
+          chunking.addChunk(new Annotation(match.getStart(), match.getEnd(), type, sentence));
+        }
+        match.take(taken);
       }
     }
 
-    // chunkuj (poczynając od najdłuższych n-gramów) - DO SPRAWDZENIA
-    for (int n = sentenceLength - 1; n >= 0; n--) {
-      for (int i = 0; i < sentenceLength - n; i++) {
-        int idx = new Integer(i);
-
-        // jeśli danego n-gramu nie ma w tablicy, to kontynuuj
-        if (nGrams.get(n).get(idx) == null) {
-          continue;
-        }
-
-        // jeśli znaleziono w słowniku
-        if (this.dictionary.containsKey(nGrams.get(n).get(idx))) {
-
-          // dodaj wszystkie chunki
-          HashSet<String> types = this.dictionary.get(nGrams.get(n).get(idx));
-          for (String type : types) {
-            chunking.addChunk(new Annotation(i, i + n, type, sentence));
-          }
+    return chunking;
+  }
 
-          // usuń z tablicy wszystkie krótsze n-gramy, które zahaczają o to miejsce
-          // j - dł. odrzucanego n-gramu - 1, k - pozycja startowa
-          for (int j = n; j >= 0; j--) {
-            for (int k = i - j; k <= i + n; k++) {
-              nGrams.get(j).remove(new Integer(k));
-            }
-          }
-        }
+  private synchronized TrieDictFinder getFinder() {
+    if (this.finder == null) {
+      TrieDictNode root = new TrieDictNode(false);
+      for (String name : this.dictionary.keySet()) {
+        root.addPhrase(name.split(" ", -1), name);
       }
+      this.finder = new TrieDictFinder(root);
     }
-
-    return chunking;
+    return this.finder;
   }
 
   public void loadDictionary(String dictFile) {
     this.dictionary = new HashMap<String, HashSet<String>>();
+    this.finder = null;
     try {
       BufferedReader dictReader = new BufferedReader(new FileReader(dictFile));
       String line = dictReader.readLine();
@@ -120,6 +95,7 @@ public class FullDictionaryChunker extends Chunker
     try {
       ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename));
       this.dictionary = (HashMap<String, HashSet<String>>) in.readObject();
+      this.finder = null;
       in.close();
     } catch (ClassNotFoundException ex) {
       ex.printStackTrace();
@@ -155,4 +131,8 @@ public class FullDictionaryChunker extends Chunker
     return chunkings;
   }
 
-}	
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+}
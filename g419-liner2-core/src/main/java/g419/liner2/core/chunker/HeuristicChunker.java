@@ -611,4 +611,9 @@ public class HeuristicChunker extends Chunker {
     }
     return chunkings;
   }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
 }
@@ -13,4 +13,8 @@ public class NullChunker extends Chunker {
     return new HashMap<Sentence, AnnotationSet>();
   }
 
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
 }
@@ -1,10 +1,12 @@
 package g419.liner2.core.chunker;
 
+import g419.corpus.structure.Annotation;
 import g419.corpus.structure.AnnotationSet;
 import g419.corpus.structure.Document;
 import g419.corpus.structure.Sentence;
 import g419.liner2.core.tools.PolemLemmatizer;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -17,7 +19,7 @@ import java.util.regex.Pattern;
 public class PolemChunker extends Chunker {
 
   final List<Pattern> annotationPatterns;
-  final PolemLemmatizer polem = new PolemLemmatizer();
+  final PolemLemmatizer polem = PolemLemmatizer.getShared();
   final private Chunker baseChunker;
 
   public PolemChunker(Chunker baseChunker, List<Pattern> annotationPatterns) {
@@ -33,7 +35,9 @@ public class PolemChunker extends Chunker {
   @Override
   public Map<Sentence, AnnotationSet> chunk(Document ps) {
     Map<Sentence, AnnotationSet> chunkings = this.baseChunker.chunk(ps);
-    chunkings.values().stream().forEach(set -> set.chunkSet().forEach(an -> polem.lemmatize(an)));
+    final List<Annotation> annotations = new ArrayList<>();
+    chunkings.values().forEach(set -> annotations.addAll(set.chunkSet()));
+    polem.lemmatize(annotations);
     return chunkings;
   }
 
@@ -147,4 +147,9 @@ public class SmartDictionaryChunker extends Chunker {
     }
     return new SmartDictionaryChunker(dictionary, "nam");
   }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
 }
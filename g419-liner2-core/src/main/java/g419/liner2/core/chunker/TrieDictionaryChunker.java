@@ -1,7 +1,7 @@
 package g419.liner2.core.chunker;
 
 import g419.corpus.structure.*;
-import g419.liner2.core.tools.TrieDictNode;
+import g419.liner2.core.tools.TrieDict;
 
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -9,7 +9,7 @@ import java.util.List;
 
 
 /**
- * Chunker rozpoznaje anotacje znajdujące się w słowniku typu <code>TrieDictNode</code>.
+ * Chunker rozpoznaje anotacje znajdujące się w słowniku typu <code>TrieDict</code>.
  *
  * @author Michał Marcińczuk
  */
@@ -18,7 +18,7 @@ public class TrieDictionaryChunker extends Chunker {
   /**
    * The dict roads.
    */
-  private TrieDictNode dictRoads = null;
+  private TrieDict dictRoads = null;
 
   /**
    * The annotation name.
@@ -38,7 +38,7 @@ public class TrieDictionaryChunker extends Chunker {
    * @param annotationName the annotation name
    * @param wordSource     the word source
    */
-  public TrieDictionaryChunker(TrieDictNode node, String annotationName, String wordSource) {
+  public TrieDictionaryChunker(TrieDict node, String annotationName, String wordSource) {
     this.dictRoads = node;
     this.annotationName = annotationName;
     this.wordSource = wordSource;
@@ -104,13 +104,13 @@ public class TrieDictionaryChunker extends Chunker {
    * @param index  the index
    * @return the int
    */
-  private int match(TrieDictNode dict, List<Token> tokens, int index) {
-    TrieDictNode currentNode = dict;
+  private int match(TrieDict dict, List<Token> tokens, int index) {
+    TrieDict currentNode = dict;
     int longestMatch = 0;
     int offset = 0;
     while (currentNode != null && index + offset < tokens.size()) {
       String word = tokens.get(index + (offset++)).getElement(this.wordSource);
-      TrieDictNode nextNode = currentNode.getChild(word);
+      TrieDict nextNode = currentNode.getChild(word);
 
       if (nextNode != null && nextNode.isTerminal()) {
         longestMatch = offset;
@@ -134,4 +134,9 @@ public class TrieDictionaryChunker extends Chunker {
     }
     return chunkings;
   }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
 }
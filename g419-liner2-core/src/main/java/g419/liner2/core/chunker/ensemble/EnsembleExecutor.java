@@ -0,0 +1,91 @@
+package g419.liner2.core.chunker.ensemble;
+
+import g419.corpus.structure.AnnotationSet;
+import g419.corpus.structure.Document;
+import g419.corpus.structure.Sentence;
+import g419.liner2.core.chunker.Chunker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uruchamia chunkery zespołu na tym samym dokumencie. Chunkery działają jednocześnie tylko wtedy,
+ * gdy wszystkie jedynie odczytują dokument ({@link Chunker#isReadOnly()}); w przeciwnym razie
+ * (np. RuleTitleChunker, BsnlpFixChunker, AduChunker) są uruchamiane po kolei w bieżącym wątku.
+ * <p>
+ * Pierwszy chunker działa w bieżącym wątku, pozostałe w ograniczonej puli wątków. Gdy wszystkie
+ * wątki puli są zajęte, chunker działa w wątku zlecającym, dzięki czemu zagnieżdżone zespoły
+ * (np. suma głosowań) nie czekają na siebie nawzajem.
+ *
+ * @author Michał Marcińczuk
+ */
+final class EnsembleExecutor {
+
+  private static final ExecutorService pool = new ThreadPoolExecutor(0, Runtime.getRuntime().availableProcessors(),
+      60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), r -> {
+    Thread thread = new Thread(r, "ensemble-member");
+    thread.setDaemon(true);
+    return thread;
+  }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+  private EnsembleExecutor() {
+  }
+
+  /**
+   * @param chunkers
+   * @return true, gdy żaden z chunkerów nie modyfikuje dokumentu
+   */
+  static boolean isReadOnly(List<Chunker> chunkers) {
+    for (Chunker chunker : chunkers) {
+      if (!chunker.isReadOnly()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Zwraca wyniki chunkerów w kolejności, w jakiej zostały podane.
+   *
+   * @param chunkers
+   * @param ps
+   * @return
+   */
+  static List<Map<Sentence, AnnotationSet>> chunk(List<Chunker> chunkers, Document ps) {
+    List<Map<Sentence, AnnotationSet>> chunkings = new ArrayList<Map<Sentence, AnnotationSet>>(chunkers.size());
+    if (chunkers.isEmpty()) {
+      return chunkings;
+    }
+    if (chunkers.size() == 1 || !isReadOnly(chunkers)) {
+      for (Chunker chunker : chunkers) {
+        chunkings.add(chunker.chunk(ps));
+      }
+      return chunkings;
+    }
+    List<Future<Map<Sentence, AnnotationSet>>> futures = new ArrayList<Future<Map<Sentence, AnnotationSet>>>();
+    for (Chunker chunker : chunkers.subList(1, chunkers.size())) {
+      futures.add(pool.submit(() -> chunker.chunk(ps)));
+    }
+    try {
+      chunkings.add(chunkers.get(0).chunk(ps));
+      for (Future<Map<Sentence, AnnotationSet>> future : futures) {
+        chunkings.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while chunking document " + ps.getName(), e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Error while chunking document " + ps.getName(), e.getCause());
+    } finally {
+      futures.forEach(f -> f.cancel(true));
+    }
+    return chunkings;
+  }
+}
@@ -5,8 +5,11 @@ import g419.liner2.core.chunker.Chunker;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 
 /**
@@ -27,37 +30,60 @@ public class MajorityVotingChunker extends Chunker {
     this.chunkers = chunkers;
   }
 
-  public AnnotationSet voting(Sentence sentence, ArrayList<AnnotationSet> chunkings) {
-    AnnotationSet resultChunking = new AnnotationSet(sentence);
+  /**
+   * Klucz głosu: typ i zbiór tokenów anotacji.
+   */
+  private static final class Vote {
+    final String type;
+    final Set<Integer> tokens;
+    final Annotation chunk;
+    int count = 0;
+
+    Vote(Annotation chunk) {
+      this.type = chunk.getType();
+      this.tokens = chunk.getTokens();
+      this.chunk = chunk;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof Vote)) {
+        return false;
+      }
+      Vote that = (Vote) object;
+      return Objects.equals(type, that.type) && tokens.equals(that.tokens);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Objects.hashCode(type) + tokens.hashCode();
+    }
+  }
 
-    Hashtable<Annotation, Integer> votes = new Hashtable<Annotation, Integer>();
+  public AnnotationSet voting(Sentence sentence, List<AnnotationSet> chunkings) {
+    AnnotationSet resultChunking = new AnnotationSet(sentence);
 
+    Map<Vote, Vote> votes = new LinkedHashMap<Vote, Vote>();
     for (AnnotationSet chunking : chunkings) {
       for (Annotation chunk : chunking.chunkSet()) {
-        boolean found = false;
-        for (Annotation key : votes.keySet()) {
-          if (chunk.equals(key)) {
-            found = true;
-            votes.put(key, votes.get(key) + 1);
-            break;
-          }
-        }
-        if (!found) {
-          votes.put(chunk, new Integer(1));
-        }
+        Vote vote = new Vote(chunk);
+        votes.computeIfAbsent(vote, v -> v).count++;
       }
     }
 
     int majority = this.chunkers.size() / 2 + this.chunkers.size() % 2;
-    for (Annotation chunk : votes.keySet()) {
-      if (votes.get(chunk) >= majority) {
-        resultChunking.addChunk(chunk);
+    for (Vote vote : votes.values()) {
+      if (vote.count >= majority) {
+        resultChunking.addChunk(vote.chunk);
       }
     }
 
     return resultChunking;
   }
 
+  /**
+   * Chunkery zespołu działają jednocześnie na tym samym dokumencie.
+   */
   @Override
   public Map<Sentence, AnnotationSet> chunk(Document ps) {
 
@@ -70,8 +96,7 @@ public class MajorityVotingChunker extends Chunker {
       }
     }
 
-    for (Chunker chunker : this.chunkers) {
-      Map<Sentence, AnnotationSet> chunkingsThis = chunker.chunk(ps);
+    for (Map<Sentence, AnnotationSet> chunkingsThis : EnsembleExecutor.chunk(this.chunkers, ps)) {
       for (Sentence sentence : chunkingsThis.keySet()) {
         sentenceChunkings.get(sentence).add(chunkingsThis.get(sentence));
       }
@@ -83,4 +108,9 @@ public class MajorityVotingChunker extends Chunker {
 
     return chunkings;
   }
+
+  @Override
+  public boolean isReadOnly() {
+    return EnsembleExecutor.isReadOnly(this.chunkers);
+  }
 }
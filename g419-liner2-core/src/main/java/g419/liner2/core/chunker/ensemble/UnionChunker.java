@@ -37,8 +37,8 @@ public class UnionChunker extends Chunker {
       }
     }
 
-    for (Chunker chunker : this.chunkers) {
-      Map<Sentence, AnnotationSet> chunkingThis = chunker.chunk(ps);
+    /* Chunkery działają jednocześnie, a ich wyniki są sumowane w kolejności podania */
+    for (Map<Sentence, AnnotationSet> chunkingThis : EnsembleExecutor.chunk(this.chunkers, ps)) {
       for (Sentence sentence : chunkingThis.keySet()) {
         chunkings.get(sentence).union(chunkingThis.get(sentence));
       }
@@ -47,5 +47,8 @@ public class UnionChunker extends Chunker {
     return chunkings;
   }
 
-
+  @Override
+  public boolean isReadOnly() {
+    return EnsembleExecutor.isReadOnly(this.chunkers);
+  }
 }
@@ -17,16 +17,24 @@ import org.ini4j.Ini;
 import org.ini4j.Profile;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 
 public class ChunkerFactoryItemCrfpp extends ChunkerFactoryItem {
 
   public static final String PARAM_WRAP = "wrap";
+  public static final String PARAM_THREADS = "threads";
+  public static final String PARAM_TRAINING_DATA_CACHE = "training-data-cache";
 
   public ChunkerFactoryItemCrfpp() {
     super("crfpp");
@@ -60,12 +68,13 @@ public class ChunkerFactoryItemCrfpp extends ChunkerFactoryItem {
   private Chunker load(Profile.Section description, ChunkerManager cm, TokenFeatureGenerator gen) throws Exception {
     String store = description.get("store");
     String wrap = description.get(PARAM_WRAP);
+    int threads = description.containsKey(PARAM_THREADS) ? Integer.parseInt(description.get(PARAM_THREADS)) : 1;
 
-    ConsolePrinter.log("--> CRFPP Chunker deserialize from " + store);
+    ConsolePrinter.log("--> CRFPP Chunker deserialize from " + store + " (taggers: " + threads + ")");
 
     CrfTemplate template = getTemplate(description, cm, gen);
     List<String> features = description.containsKey("features") ? loadUsedFeatures(description.get("features")) : template.getUsedFeatures();
-    CrfppChunker chunker = new CrfppChunker(features, wrap);
+    CrfppChunker chunker = new CrfppChunker(threads, new ArrayList<Pattern>(), features, wrap);
     chunker.deserialize(store);
     chunker.setTemplate(template);
 
@@ -95,10 +104,53 @@ public class ChunkerFactoryItemCrfpp extends ChunkerFactoryItem {
       trainingDataConverter = ConverterFactory.createPipe(converters);
     }
 
-    int threads = Integer.parseInt(description.get("threads"));
+    int threads = Integer.parseInt(description.get(PARAM_THREADS));
     String inputFile = description.get("training-data");
-    String inputFormat;
+    String inputFormat = description.get("format");
     String modelFilename = description.get("store");
+    String storeTrainingData = description.get("store-training-data");
+
+    List<Pattern> types = new ArrayList<Pattern>();
+    if (description.containsKey("types")) {
+      types = LinerOptions.getGlobal().parseTypes(description.get("types"));
+    }
+
+    ConsolePrinter.log("--> Training on file=" + inputFile);
+
+    CrfTemplate template = getTemplate(description, cm, gen);
+    List<String> features = description.containsKey("features") ? loadUsedFeatures(description.get("features")) : template.getUsedFeatures();
+    CrfppChunker chunker = new CrfppChunker(threads, types, features, wrap);
+
+    chunker.setTemplate(template);
+    chunker.setModelFilename(modelFilename);
+
+    /* Dane treningowe zakodowane wcześniej dla takiej samej konfiguracji i danych wejściowych */
+    File cachedTrainingData = null;
+    if (description.containsKey(PARAM_TRAINING_DATA_CACHE)) {
+      String key = getTrainingDataKey(description, cm, features, types, wrap, inputFile, inputFormat);
+      if (key == null) {
+        ConsolePrinter.log("--> CRF training data not cached: source files of {CV_TRAIN} documents are unknown");
+      } else {
+        File cacheDir = new File(description.get(PARAM_TRAINING_DATA_CACHE));
+        cacheDir.mkdirs();
+        cachedTrainingData = new File(cacheDir, "crf_iob_" + key + ".txt");
+        if (cachedTrainingData.isFile()) {
+          ConsolePrinter.log("--> Reusing CRF training data from " + cachedTrainingData);
+          chunker.useTrainingData(cachedTrainingData);
+          if (storeTrainingData != null) {
+            Files.copy(cachedTrainingData.toPath(), new File(storeTrainingData).toPath(), StandardCopyOption.REPLACE_EXISTING);
+          }
+          chunker.train();
+          return chunker;
+        }
+      }
+    }
+    if (cachedTrainingData != null) {
+      chunker.setTrainingDataFilename(
+          File.createTempFile("crf_iob", ".tmp", cachedTrainingData.getParentFile()).getAbsolutePath());
+    } else {
+      chunker.setTrainingDataFilename(storeTrainingData);
+    }
 
     ArrayList<Document> trainData = new ArrayList<Document>();
 
@@ -114,7 +166,6 @@ public class ChunkerFactoryItemCrfpp extends ChunkerFactoryItem {
         trainData = cm.trainingData;
       }
     } else {
-      inputFormat = description.get("format");
       AbstractDocumentReader reader =
           ReaderFactory.get().getStreamReader(inputFile, inputFormat);
       Document document = reader.nextDocument();
@@ -128,30 +179,93 @@ public class ChunkerFactoryItemCrfpp extends ChunkerFactoryItem {
       }
     }
 
-    List<Pattern> types = new ArrayList<Pattern>();
-    if (description.containsKey("types")) {
-      types = LinerOptions.getGlobal().parseTypes(description.get("types"));
-    }
-
-    ConsolePrinter.log("--> Training on file=" + inputFile);
+    chunker.addTrainingData(trainData);
 
-    CrfTemplate template = getTemplate(description, cm, gen);
-    List<String> features = description.containsKey("features") ? loadUsedFeatures(description.get("features")) : template.getUsedFeatures();
-    CrfppChunker chunker = new CrfppChunker(threads, types, features, wrap);
-
-    chunker.setTemplate(template);
-
-    chunker.setTrainingDataFilename(description.get("store-training-data"));
-    chunker.setModelFilename(modelFilename);
-
-    for (Document document : trainData) {
-      chunker.addTrainingData(document);
+    if (cachedTrainingData != null) {
+      File trainingData = chunker.closeTrainingData();
+      Files.move(trainingData.toPath(), cachedTrainingData.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      chunker.useTrainingData(cachedTrainingData);
+      if (storeTrainingData != null) {
+        Files.copy(cachedTrainingData.toPath(), new File(storeTrainingData).toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
     }
     chunker.train();
 
     return chunker;
   }
 
+  /**
+   * Wyznacza klucz danych treningowych w katalogu training-data-cache. Klucz obejmuje wszystko, od czego
+   * zależy zawartość pliku IOB: definicje cech, listę zapisywanych cech, typy anotacji, wrap, konwertery
+   * wraz z rozmiarami i datami modyfikacji plików, do których się odwołują, oraz pliki wejściowe: ich
+   * format, ścieżki, rozmiary i daty modyfikacji. Dla {CV_TRAIN} są to pliki części treningowych
+   * ({@link ChunkerManager#trainingDataFiles}), więc klucz nie wymaga przeglądania dokumentów.
+   * Szablon nie wpływa na dane treningowe i nie jest częścią klucza.
+   *
+   * @return skrót SHA-1 w postaci szesnastkowej lub null, jeżeli pliki dokumentów {CV_TRAIN} nie są znane
+   * @throws Exception
+   */
+  private String getTrainingDataKey(Ini.Section description, ChunkerManager cm, List<String> features,
+                                    List<Pattern> types, String wrap, String inputFile, String inputFormat) throws Exception {
+    MessageDigest md = MessageDigest.getInstance("SHA-1");
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, String> feature : cm.opts.features.entrySet()) {
+      sb.append("feature\t").append(feature.getKey()).append('\t').append(feature.getValue()).append('\n');
+      TokenFeatureGenerator.appendFileSignatures(sb, feature.getValue());
+    }
+    sb.append("features\t").append(features).append('\n');
+    sb.append("types\t").append(types).append('\n');
+    sb.append("wrap\t").append(wrap).append('\n');
+    sb.append("converter\t").append(description.get("training-data-converter")).append('\n');
+    List<File> files = new ArrayList<>();
+    if (inputFile.equals("{CV_TRAIN}")) {
+      if (cm.trainingDataFiles == null) {
+        return null;
+      }
+      sb.append("format\t").append(cm.trainingDataFormat).append('\n');
+      for (String file : cm.trainingDataFiles) {
+        files.addAll(getInputFiles(file, cm.trainingDataFormat));
+      }
+    } else {
+      sb.append("format\t").append(inputFormat).append('\n');
+      files.addAll(getInputFiles(inputFile, inputFormat));
+    }
+    for (File file : files) {
+      sb.append("file\t").append(file.getAbsolutePath())
+          .append('\t').append(file.length())
+          .append('\t').append(file.lastModified()).append('\n');
+    }
+    byte[] digest = md.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+    StringBuilder key = new StringBuilder();
+    for (byte b : digest) {
+      key.append(String.format("%02x", b));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Zwraca pliki wczytywane przez czytnik danych treningowych, dla formatu batch: również pliki z listy.
+   */
+  private List<File> getInputFiles(String inputFile, String inputFormat) throws IOException {
+    List<File> files = new ArrayList<>();
+    File file = new File(inputFile).getAbsoluteFile();
+    files.add(file);
+    if (inputFormat.startsWith("batch:")) {
+      try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        String line = reader.readLine();
+        while (line != null) {
+          String name = line.trim().split(";")[0];
+          if (name.length() == 0) {
+            break;
+          }
+          files.add(name.startsWith("/") ? new File(name) : new File(file.getParentFile(), name));
+          line = reader.readLine();
+        }
+      }
+    }
+    return files;
+  }
+
   private List<String> loadUsedFeatures(String file) throws IOException {
     List<String> usedFeatures = new ArrayList<>();
     BufferedReader reader = new BufferedReader(new FileReader(file));
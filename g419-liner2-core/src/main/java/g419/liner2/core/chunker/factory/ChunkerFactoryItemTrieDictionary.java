@@ -2,6 +2,7 @@ package g419.liner2.core.chunker.factory;
 
 import g419.liner2.core.chunker.Chunker;
 import g419.liner2.core.chunker.TrieDictionaryChunker;
+import g419.liner2.core.tools.TrieDict;
 import g419.liner2.core.tools.TrieDictNode;
 import org.apache.log4j.Logger;
 import org.ini4j.Ini;
@@ -28,7 +29,7 @@ public class ChunkerFactoryItemTrieDictionary extends ChunkerFactoryItem {
    */
   @Override
   public Chunker getChunker(final Ini.Section description, final ChunkerManager cm) throws Exception {
-    TrieDictNode dict = null;
+    TrieDict dict = null;
 
     final String dictionaryPath = description.get("dictionary");
     final String annotationName = description.get("annotation");
@@ -37,7 +38,7 @@ public class ChunkerFactoryItemTrieDictionary extends ChunkerFactoryItem {
       dict = new TrieDictNode(false);
       Logger.getLogger(getClass()).error("Brak parametru 'dictionary' w opisie chunkera rule-road");
     } else {
-      dict = TrieDictNode.loadPlain(dictionaryPath);
+      dict = TrieDict.load(dictionaryPath);
     }
 
     return new TrieDictionaryChunker(dict, annotationName, wordSource);
@@ -12,6 +12,7 @@ import org.ini4j.Ini;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Created with IntelliJ IDEA.
@@ -25,6 +26,10 @@ public class ChunkerManager {
   private HashMap<String, Chunker> chunkers = new HashMap<String, Chunker>();
   public LinerOptions opts;
   public ArrayList<Document> trainingData;
+  /* Pliki, z których wczytano trainingData (np. pliki części treningowych walidacji krzyżowej),
+   * i ich format; null, jeżeli dokumenty nie pochodzą bezpośrednio z plików */
+  public List<String> trainingDataFiles;
+  public String trainingDataFormat;
   private HashMap<String, CrfTemplate> chunkerTemplates = new HashMap<String, CrfTemplate>();
 
   public ChunkerManager(LinerOptions config) {
@@ -0,0 +1,164 @@
+package g419.liner2.core.features;
+
+import g419.corpus.HasLogger;
+import g419.corpus.io.reader.AbstractDocumentReader;
+import g419.corpus.io.reader.BatchReader;
+import g419.corpus.io.reader.BinaryStreamReader;
+import g419.corpus.io.reader.DocumentCache;
+import g419.corpus.io.reader.ReaderFactory;
+import g419.corpus.io.writer.BinaryStreamWriter;
+import g419.corpus.structure.Document;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Bufor dokumentów z wygenerowanymi cechami dla formatów wejściowych "cache:FORMAT"
+ * (np. cache:ccl, batch:cache:ccl). Dokumenty z pliku są wczytywane i przetwarzane przez
+ * {@link TokenFeatureGenerator} tylko raz, a następnie zapisywane w formacie binarnym
+ * ({@link BinaryStreamWriter}) w katalogu bufora. Kolejne uruchomienia wczytują plik binarny,
+ * pomijając parsowanie XML i generowanie cech.
+ * <p>
+ * Kluczem pliku jest suma kontrolna SHA-256 zawartości pliku wejściowego (i plików towarzyszących:
+ * ini, rel.xml) oraz sygnatura konfiguracji cech ({@link TokenFeatureGenerator#getSignature()}),
+ * więc zmiana danych lub cech tworzy nowy wpis. Również przy pierwszym wczytaniu dokumenty są
+ * zwracane z zapisanego pliku, dzięki czemu każde uruchomienie przetwarza takie same dane.
+ */
+public class FeaturizedDocumentCache implements DocumentCache, HasLogger {
+
+  private static final String[] COMPANION_SUFFIXES = {".ini", ".rel.xml", ".rel_r", ".rel_cls"};
+
+  private final File directory;
+  private final LinkedHashMap<String, String> features;
+  private final String signature;
+  private final TokenFeatureGenerator gen;
+
+  /**
+   * @param directory katalog z plikami bufora
+   * @param features  definicje cech (sekcja features modelu)
+   */
+  public FeaturizedDocumentCache(File directory, LinkedHashMap<String, String> features) {
+    this.directory = directory;
+    this.features = features;
+    this.gen = new TokenFeatureGenerator(features);
+    this.signature = gen.getSignature();
+    if (signature == null) {
+      getLogger().warn("Features depend on document annotations, documents are not cached");
+    }
+  }
+
+  @Override
+  public AbstractDocumentReader getStreamReader(String inputFile, String inputFormat) throws Exception {
+    if (inputFormat.startsWith("batch:")) {
+      String root = new File(inputFile).getAbsoluteFile().getParent();
+      return new BatchReader(new FileInputStream(inputFile), root, "cache:" + inputFormat.substring(6));
+    }
+    if (signature == null || features.isEmpty()) {
+      return ReaderFactory.get().getStreamReader(inputFile, inputFormat);
+    }
+    File cached = new File(directory, getKey(inputFile, inputFormat) + ".bin");
+    if (!cached.isFile()) {
+      try {
+        store(inputFile, inputFormat, cached);
+      } catch (IOException ex) {
+        getLogger().warn("Failed to store featurized documents from {} in {}", inputFile, cached, ex);
+        return ReaderFactory.get().getStreamReader(inputFile, inputFormat);
+      }
+    } else {
+      getLogger().debug("Reading featurized documents of {} from {}", inputFile, cached);
+    }
+    return new BinaryStreamReader(inputFile, new FileInputStream(cached));
+  }
+
+  /**
+   * Wczytuje dokumenty, generuje dla nich cechy i zapisuje je w pliku bufora. Plik jest zapisywany
+   * pod nazwą tymczasową i przenoszony, więc inne procesy nie wczytają niepełnego pliku.
+   */
+  private void store(String inputFile, String inputFormat, File cached) throws Exception {
+    getLogger().info("Storing featurized documents of {} in {}", inputFile, cached);
+    directory.mkdirs();
+    File tmp = File.createTempFile(cached.getName(), ".tmp", directory);
+    try {
+      try (AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(inputFile, inputFormat)) {
+        BinaryStreamWriter writer = new BinaryStreamWriter(new FileOutputStream(tmp));
+        try {
+          Document document = reader.nextDocument();
+          while (document != null) {
+            gen.generateFeatures(document);
+            writer.write(document);
+            document = reader.nextDocument();
+          }
+        } finally {
+          writer.finish();
+        }
+      }
+      Files.move(tmp.toPath(), cached.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp.toPath());
+    }
+  }
+
+  private String getKey(String inputFile, String inputFormat) throws Exception {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    digest.update(("signature\t" + signature + "\nformat\t" + inputFormat + "\n").getBytes(StandardCharsets.UTF_8));
+    byte[] buffer = new byte[1 << 16];
+    for (File file : getSourceFiles(new File(inputFile))) {
+      digest.update(("file\t" + file.getName() + "\t" + file.length() + "\n").getBytes(StandardCharsets.UTF_8));
+      try (InputStream in = new FileInputStream(file)) {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          digest.update(buffer, 0, read);
+        }
+      }
+    }
+    StringBuilder key = new StringBuilder();
+    for (byte b : digest.digest()) {
+      key.append(String.format("%02x", b));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Zwraca pliki, z których wczytywany jest dokument: plik wejściowy i istniejące pliki towarzyszące,
+   * a dla formatów zapisanych w katalogu (np. tei) wszystkie pliki katalogu.
+   */
+  private List<File> getSourceFiles(File input) {
+    List<File> files = new ArrayList<>();
+    if (input.isDirectory()) {
+      File[] children = input.listFiles(File::isFile);
+      if (children != null) {
+        Arrays.sort(children);
+        files.addAll(Arrays.asList(children));
+      }
+      return files;
+    }
+    files.add(input);
+    String name = input.getName();
+    String gz = "";
+    if (name.endsWith(".gz")) {
+      gz = ".gz";
+      name = name.substring(0, name.length() - 3);
+    }
+    if (name.endsWith(".xml")) {
+      String base = name.substring(0, name.length() - 4);
+      for (String suffix : COMPANION_SUFFIXES) {
+        File companion = new File(input.getAbsoluteFile().getParentFile(), base + suffix + gz);
+        if (companion.isFile()) {
+          files.add(companion);
+        }
+      }
+    }
+    return files;
+  }
+}
@@ -3,13 +3,24 @@ package g419.liner2.core.features;
 import g419.corpus.ConsolePrinter;
 import g419.corpus.structure.*;
 import g419.liner2.core.features.tokens.Feature;
+import g419.liner2.core.features.tokens.OrthFeature;
+import g419.liner2.core.features.tokens.OrthShape;
 import g419.liner2.core.features.tokens.TokenFeature;
 import g419.liner2.core.features.tokens.TokenFeatureFactory;
 import g419.liner2.core.features.tokens.TokenInSentenceFeature;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 
 public class TokenFeatureGenerator {
@@ -30,6 +41,17 @@ public class TokenFeatureGenerator {
   private TokenAttributeIndex attributeIndex = new TokenAttributeIndex();
   protected ArrayList<String> featureNames;
 
+  /* Sygnatura konfiguracji cech zapisywana w dokumentach z wygenerowanymi cechami */
+  private final String signature;
+
+  /* Plan generowania cech wyznaczany raz w konstruktorze: indeks atrybutu dla każdej cechy,
+   * cechy liczone z formy ortograficznej oraz indeksy atrybutów pozostawianych w tokenie
+   * (null, jeżeli wszystkie atrybuty źródłowe są zachowywane). */
+  private int[] tokenSlots;
+  private OrthFeature[] orthFeatures;
+  private int orthSlot;
+  private int[] retainedSlots;
+
   /**
    * @param features — array with feature definitions
    */
@@ -39,10 +61,12 @@ public class TokenFeatureGenerator {
     for (String sf : sourceFeatures) {
       this.attributeIndex.addAttribute(sf);
     }
+    boolean annotationDependent = false;
     try {
       for (String feature : features.values()) {
         Feature f = TokenFeatureFactory.create(feature);
         if (f != null) {
+          annotationDependent |= f.isAnnotationDependent();
           if (TokenInSentenceFeature.class.isInstance(f)) {
             this.sentenceGenerators.add((TokenInSentenceFeature) f);
           } else if (TokenFeature.class.isInstance(f)) {
@@ -57,9 +81,108 @@ public class TokenFeatureGenerator {
       ex.printStackTrace();
       System.out.println(">> " + ex.getMessage());
     }
+    compilePlan();
+    signature = annotationDependent ? null : getSignature(features);
     ConsolePrinter.log(featureNames.toString());
   }
 
+  /**
+   * Zwraca sygnaturę konfiguracji cech: skrót nazw i definicji cech oraz rozmiarów i dat modyfikacji
+   * plików, do których odwołują się definicje (np. słowników). Konstruktor nie wyznacza sygnatury,
+   * jeżeli któraś z cech zależy od anotacji dokumentu ({@link Feature#isAnnotationDependent()}).
+   *
+   * @param features
+   * @return sygnatura
+   */
+  private static String getSignature(Map<String, String> features) {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, String> feature : features.entrySet()) {
+      sb.append("feature\t").append(feature.getKey()).append('\t').append(feature.getValue()).append('\n');
+      appendFileSignatures(sb, feature.getValue());
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+      StringBuilder key = new StringBuilder();
+      for (byte b : digest) {
+        key.append(String.format("%02x", b));
+      }
+      return key.toString();
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Dopisuje ścieżki, rozmiary i daty modyfikacji plików, do których odwołuje się definicja cechy.
+   * Dla katalogów (np. wordnetu) dopisywane są wszystkie pliki katalogu i jego podkatalogów.
+   * Katalog bieżący i katalogi nadrzędne są pomijane.
+   *
+   * @param sb
+   * @param feature definicja cechy
+   */
+  public static void appendFileSignatures(StringBuilder sb, String feature) {
+    for (String part : feature.split(":")) {
+      File file = new File(part);
+      if (file.isFile()) {
+        appendFileSignature(sb, file.toPath());
+      } else if (!part.isEmpty() && file.isDirectory() && !isWorkingDirectoryOrAncestor(file)) {
+        try (Stream<Path> paths = Files.walk(file.toPath())) {
+          paths.filter(Files::isRegularFile).sorted().forEach(path -> appendFileSignature(sb, path));
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      }
+    }
+  }
+
+  private static void appendFileSignature(StringBuilder sb, Path path) {
+    File file = path.toFile();
+    sb.append("file\t").append(file.getAbsolutePath())
+        .append('\t').append(file.length())
+        .append('\t').append(file.lastModified()).append('\n');
+  }
+
+  private static boolean isWorkingDirectoryOrAncestor(File dir) {
+    Path cwd = new File("").getAbsoluteFile().toPath().normalize();
+    return cwd.startsWith(dir.getAbsoluteFile().toPath().normalize());
+  }
+
+  public String getSignature() {
+    return signature;
+  }
+
+  private void compilePlan() {
+    tokenSlots = new int[tokenGenerators.size()];
+    orthFeatures = new OrthFeature[tokenGenerators.size()];
+    for (int i = 0; i < tokenGenerators.size(); i++) {
+      TokenFeature f = tokenGenerators.get(i);
+      tokenSlots[i] = attributeIndex.getIndex(f.getName());
+      if (f instanceof OrthFeature) {
+        orthFeatures[i] = (OrthFeature) f;
+      }
+    }
+    orthSlot = attributeIndex.getIndex("orth");
+
+    Set<Integer> dropped = new HashSet<Integer>();
+    Set<String> names = new HashSet<String>(featureNames);
+    for (String sourceFeat : sourceFeatures) {
+      if (!names.contains(sourceFeat)) {
+        dropped.add(attributeIndex.getIndex(sourceFeat));
+      }
+    }
+    if (dropped.isEmpty()) {
+      retainedSlots = null;
+    } else {
+      retainedSlots = new int[attributeIndex.getLength() - dropped.size()];
+      int j = 0;
+      for (int i = 0; i < attributeIndex.getLength(); i++) {
+        if (!dropped.contains(i)) {
+          retainedSlots[j++] = i;
+        }
+      }
+    }
+  }
+
   /**
    * Return index of token attributes (mapping from feature name to their corresponding
    * position in the array of attributes).
@@ -78,11 +201,20 @@ public class TokenFeatureGenerator {
    * @throws Exception
    */
   public void generateFeatures(Document ps) throws Exception {
+    if (signature != null && signature.equals(ps.getFeatureSignature())) {
+      /* Cechy zostały już wygenerowane dla tej konfiguracji, np. dokument wczytany z bufora dokumentów */
+      return;
+    }
+    if (!this.sentenceGenerators.isEmpty()) {
+      /* Statystyki dokumentu liczone przed generowaniem cech, które może usuwać atrybuty źródłowe */
+      ps.computeStatistics();
+    }
     ps.getAttributeIndex().update(this.attributeIndex.allAtributes());
     for (Paragraph p : ps.getParagraphs()) {
       generateFeatures(p, false);
     }
     ps.getAttributeIndex().update(featureNames);
+    ps.setFeatureSignature(signature);
   }
 
   public void generateFeatures(Paragraph p, boolean updateAttributeIndex) throws Exception {
@@ -98,19 +230,12 @@ public class TokenFeatureGenerator {
   }
 
   public void generateFeatures(Sentence s) throws Exception {
-
-    LinkedList<Integer> toDel = new LinkedList<Integer>();
+    int length = this.attributeIndex.getLength();
     for (Token t : s.getTokens()) {
-      t.packAtributes(this.attributeIndex.getLength());
-      toDel.clear();
+      t.packAtributes(length);
       generateFeatures(t);
-      for (String sourceFeat : sourceFeatures) {
-        if (!featureNames.contains(sourceFeat)) {
-          toDel.add(this.attributeIndex.getIndex(sourceFeat) - toDel.size());
-        }
-      }
-      for (int idx : toDel) {
-        t.removeAttribute(idx);
+      if (retainedSlots != null) {
+        t.retainAttributes(retainedSlots);
       }
     }
 
@@ -119,11 +244,26 @@ public class TokenFeatureGenerator {
     }
   }
 
+  /**
+   * Generates token features. Features computed from the orth share a single OrthShape,
+   * i.e. the orth is decoded and scanned once per token.
+   *
+   * @param t
+   * @throws Exception
+   */
   public void generateFeatures(Token t) throws Exception {
-    for (TokenFeature f : this.tokenGenerators) {
-      t.setAttributeValue(
-          this.attributeIndex.getIndex(f.getName()),
-          f.generate(t, this.attributeIndex));
+    OrthShape shape = null;
+    for (int i = 0; i < tokenSlots.length; i++) {
+      String value;
+      if (orthFeatures[i] != null) {
+        if (shape == null) {
+          shape = new OrthShape(t.getAttributeValue(orthSlot));
+        }
+        value = orthFeatures[i].generate(shape);
+      } else {
+        value = tokenGenerators.get(i).generate(t, this.attributeIndex);
+      }
+      t.setAttributeValue(tokenSlots[i], value);
     }
   }
 
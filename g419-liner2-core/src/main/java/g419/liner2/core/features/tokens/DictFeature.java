@@ -2,6 +2,7 @@ package g419.liner2.core.features.tokens;
 
 import g419.corpus.structure.Sentence;
 import g419.corpus.structure.Token;
+import g419.liner2.core.tools.TrieDict;
 import g419.liner2.core.tools.TrieDictNode;
 
 import java.io.File;
@@ -12,9 +13,9 @@ import java.util.List;
 
 
 public class DictFeature extends TokenInSentenceFeature {
-  static HashMap<String, TrieDictNode> loadedDicts = new HashMap<String, TrieDictNode>();
+  static HashMap<String, TrieDict> loadedDicts = new HashMap<String, TrieDict>();
 
-  private TrieDictNode dict = new TrieDictNode(false);
+  private TrieDict dict = new TrieDictNode(false);
   private int sourceFeatureIdx;
 
   public DictFeature(String name, String dict_path, int sourceFeatureIdx) {
@@ -35,7 +36,7 @@ public class DictFeature extends TokenInSentenceFeature {
     if (loadedDicts.containsKey(dictFile.getName())) {
       this.dict = loadedDicts.get(dictFile.getName());
     } else {
-      this.dict = TrieDictNode.loadPlain(path);
+      this.dict = TrieDict.load(path);
       loadedDicts.put(dictFile.getName(), this.dict);
     }
   }
@@ -48,13 +49,14 @@ public class DictFeature extends TokenInSentenceFeature {
     String sourceFeatureValue = null;
     while (tokenIdx < sentence.getTokenNumber()) {
       sourceFeatureValue = tokens.get(tokenIdx).getAttributeValue(sourceFeatureIdx);
-      if (inDict(sourceFeatureValue)) {
-        TrieDictNode current = this.dict.getChild(sourceFeatureValue);
+      TrieDict current = this.dict.getChild(sourceFeatureValue);
+      if (current != null) {
         int terminalToken = current.isTerminal() ? tokenIdx : -1;
         for (int currTok = tokenIdx + 1; currTok < sentence.getTokenNumber(); currTok++) {
           sourceFeatureValue = tokens.get(currTok).getAttributeValue(sourceFeatureIdx);
-          if (current.hasChild(sourceFeatureValue)) {
-            current = current.getChild(sourceFeatureValue);
+          TrieDict next = current.getChild(sourceFeatureValue);
+          if (next != null) {
+            current = next;
             if (current.isTerminal()) {
               terminalToken = currTok;
             }
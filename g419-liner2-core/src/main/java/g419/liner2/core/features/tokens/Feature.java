@@ -12,4 +12,14 @@ public abstract class Feature {
     return name;
   }
 
+  /**
+   * Czy wartości cechy zależą od anotacji dokumentu. Wartości takich cech zmieniają się po usunięciu
+   * lub dodaniu anotacji, więc nie można ich zapamiętywać razem z dokumentem.
+   *
+   * @return
+   */
+  public boolean isAnnotationDependent() {
+    return false;
+  }
+
 }
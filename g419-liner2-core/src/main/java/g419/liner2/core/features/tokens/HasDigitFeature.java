@@ -1,24 +1,13 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
-
-import java.util.regex.Pattern;
-
-
-public class HasDigitFeature extends TokenFeature {
-
-  private Pattern DIGITS = Pattern.compile("\\p{N}");
+public class HasDigitFeature extends OrthFeature {
 
   public HasDigitFeature(String name) {
     super(name);
   }
 
-  public String generate(Token token, TokenAttributeIndex index) {
-    if (DIGITS.matcher(token.getAttributeValue(index.getIndex("orth"))).find()) {
-      return "1";
-    } else {
-      return "0";
-    }
+  public String generate(OrthShape shape) {
+    return shape.hasDigit() ? "1" : "0";
   }
+
 }
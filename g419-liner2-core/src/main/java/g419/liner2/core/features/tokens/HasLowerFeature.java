@@ -1,20 +1,13 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
-
-public class HasLowerFeature extends TokenFeature {
+public class HasLowerFeature extends OrthFeature {
 
   public HasLowerFeature(String name) {
     super(name);
   }
 
-  public String generate(Token token, TokenAttributeIndex index) {
-    for (char c : token.getAttributeValue(index.getIndex("orth")).toCharArray()) {
-      if (Character.isLowerCase(c)) {
-        return "1";
-      }
-    }
-    return "0";
+  public String generate(OrthShape shape) {
+    return shape.hasLowerCase() ? "1" : "0";
   }
-}
\ No newline at end of file
+
+}
@@ -1,25 +1,13 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
-
-import java.util.regex.Pattern;
-
-
-public class HasSymbolFeature extends TokenFeature {
-
-  private Pattern SYMBOLS = Pattern.compile("[\\p{Punct}\\p{P}\\p{S}\\p{Space}\\p{C}\\p{M}]");
+public class HasSymbolFeature extends OrthFeature {
 
   public HasSymbolFeature(String name) {
     super(name);
   }
 
-  public String generate(Token token, TokenAttributeIndex index) {
-    if (SYMBOLS.matcher(token.getAttributeValue(index.getIndex("orth"))).find()) {
-      return "1";
-    } else {
-      return "0";
-    }
+  public String generate(OrthShape shape) {
+    return shape.hasSymbol() ? "1" : "0";
   }
 
 }
@@ -1,27 +1,24 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
-import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataLemmaRaw;
 import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRaw;
 
 import java.util.ArrayList;
-import java.util.Collections;
 
-public class HypernymFeature extends TokenFeature {
+public class HypernymFeature extends WordnetTokenFeature {
 
-  WordnetLoader database;
   private int distance;
 
   public HypernymFeature(String name, WordnetLoader database, int distance) {
-    super(name);
-    this.database = database;
+    super(name, database);
     this.distance = distance;
   }
 
-  public String generate(Token token, TokenAttributeIndex index) {
-    String base = token.getAttributeValue(index.getIndex("base"));
-    ArrayList<String> lemmas = new ArrayList<String>();
+  @Override
+  public String getKind() {
+    return "hypernym " + distance;
+  }
+
+  public String generate(String base) {
     ArrayList<PrincetonDataRaw> thisDistSynsets = database.getSynsets(base);
     ArrayList<PrincetonDataRaw> allSynsets = new ArrayList<PrincetonDataRaw>();
 
@@ -36,27 +33,7 @@ public class HypernymFeature extends TokenFeature {
     if (allSynsets.isEmpty()) {
       return base;
     }
-    for (PrincetonDataLemmaRaw lr : allSynsets.get(0).lemmas) {
-      lemmas.add(lr.lemma);
-    }
-    if (allSynsets.size() > 1) {
-
-      for (PrincetonDataRaw synset : allSynsets.subList(1, allSynsets.size())) {
-        ArrayList<String> common_lemmas = new ArrayList<String>();
-        for (PrincetonDataLemmaRaw lr : synset.lemmas) {
-          if (lemmas.contains(lr.lemma)) {
-            common_lemmas.add(lr.lemma);
-          }
-        }
-        lemmas = common_lemmas;
-      }
-    }
-
-    if (lemmas.isEmpty()) {
-      return base;
-    }
-    Collections.sort(lemmas);
-    return lemmas.get(0);
-
+    String lemma = SynonymFeature.getCommonLemma(allSynsets);
+    return lemma == null ? base : lemma;
   }
 }
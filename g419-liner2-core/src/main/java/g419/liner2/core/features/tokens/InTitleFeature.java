@@ -1,5 +1,6 @@
 package g419.liner2.core.features.tokens;
 
+import g419.corpus.structure.DocumentStatistics;
 import g419.corpus.structure.Sentence;
 import g419.corpus.structure.Token;
 
@@ -16,13 +17,14 @@ public class InTitleFeature extends TokenInSentenceFeature {
   @Override
   public void generate(final Sentence sentence) {
     final int thisFeatureIdx = sentence.getAttributeIndex().getIndex(getName());
+    final int baseIdx = sentence.getAttributeIndex().getIndex("base");
     final List<Token> tokens = sentence.getTokens();
+    final DocumentStatistics stats = sentence.getDocument().getStatistics();
 
     int tokenIdx = 0;
     while (tokenIdx < sentence.getTokenNumber()) {
       final Token t = tokens.get(tokenIdx);
-      final String base = t.getAttributeValue("base");
-      t.setAttributeValue(thisFeatureIdx, sentence.getDocument().isInTitle(base) + "");
+      t.setAttributeValue(thisFeatureIdx, stats.isInTitle(t, baseIdx) ? "1" : "0");
       tokenIdx++;
     }
   }
@@ -15,6 +15,10 @@ public class IsAnnotationFeature extends TokenInSentenceFeature {
     this.type = type;
   }
 
+  @Override
+  public boolean isAnnotationDependent() {
+    return true;
+  }
 
   @Override
   public void generate(Sentence sentence) {
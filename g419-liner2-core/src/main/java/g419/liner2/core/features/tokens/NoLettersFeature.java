@@ -1,28 +1,13 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
-
-import java.util.regex.Pattern;
-
-
-public class NoLettersFeature extends TokenFeature {
-
-  private Pattern ANY_LETTER = Pattern.compile("\\p{L}");
+public class NoLettersFeature extends OrthFeature {
 
   public NoLettersFeature(String name) {
     super(name);
   }
 
-  public String generate(Token t, TokenAttributeIndex index) {
-    String orth = t.getAttributeValue(index.getIndex("orth"));
-    if (ANY_LETTER.matcher(orth).find()) {
-      return "0";
-    } else {
-      return "1";
-    }
-
+  public String generate(OrthShape shape) {
+    return !shape.hasLetter() ? "1" : "0";
   }
 
-
 }
@@ -0,0 +1,22 @@
+package g419.liner2.core.features.tokens;
+
+import g419.corpus.structure.Token;
+import g419.corpus.structure.TokenAttributeIndex;
+
+/**
+ * Cecha wyznaczana wyłącznie na podstawie formy ortograficznej tokenu. Generator cech
+ * wylicza OrthShape raz dla tokenu i przekazuje go wszystkim cechom tego typu.
+ */
+public abstract class OrthFeature extends TokenFeature {
+
+  public OrthFeature(String name) {
+    super(name);
+  }
+
+  public abstract String generate(OrthShape shape);
+
+  public String generate(Token token, TokenAttributeIndex index) {
+    return generate(new OrthShape(token.getAttributeValue(index.getIndex("orth"))));
+  }
+
+}
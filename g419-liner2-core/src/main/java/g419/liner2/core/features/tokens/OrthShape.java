@@ -0,0 +1,265 @@
+package g419.liner2.core.features.tokens;
+
+/**
+ * Klasy znakowe formy ortograficznej tokenu wyznaczone w jednym przejściu po znakach.
+ * Zastępuje dopasowywanie osobnego wyrażenia regularnego przez każdą z cech
+ * (has_*, all_*, starts_with_*, pattern itd.) i zachowuje ich dotychczasową semantykę:
+ * klasy odpowiadają \p{L}, \p{Lu}, \p{Ll}, \p{N} oraz
+ * [\p{Punct}\p{P}\p{S}\p{Space}\p{C}\p{M}], a wzorce zakotwiczone ^...$ dopuszczają,
+ * tak jak java.util.regex, jeden końcowy znak końca linii.
+ */
+public final class OrthShape {
+
+  private static final int LETTER = 1;
+  private static final int UPPER = 1 << 1;
+  private static final int LOWER = 1 << 2;
+  private static final int DIGIT = 1 << 3;
+  private static final int SYMBOL = 1 << 4;
+  private static final int ALNUM = 1 << 5;
+  private static final int ALL = LETTER | UPPER | LOWER | DIGIT | SYMBOL | ALNUM;
+
+  private final String orth;
+
+  /* Suma i iloczyn klas wszystkich znaków formy */
+  private int any = 0;
+  private int every = ALL;
+
+  /* Iloczyn klas znaków bez końcowego znaku końca linii */
+  private int bodyEvery = ALL;
+  private boolean bodyEmpty = true;
+  private boolean hasTerminator = false;
+
+  private boolean hasUpperChar = false;
+  private boolean hasLowerChar = false;
+  private int firstClass = 0;
+
+  /* Sekwencje wielkich (U) i małych (L) liter: typ pierwszej sekwencji, liczba sekwencji
+   * oraz długości dwóch pierwszych. Wartość runs == -1 oznacza znak spoza \p{Lu} i \p{Ll}. */
+  private int runs = 0;
+  private int firstRunClass = 0;
+  private int firstRunLength = 0;
+  private int secondRunLength = 0;
+
+  public OrthShape(final String orth) {
+    this.orth = orth;
+    final int length = orth.length();
+    final int bodyEnd = length - terminatorLength(orth);
+    hasTerminator = bodyEnd < length;
+    bodyEmpty = bodyEnd == 0;
+
+    int lastRunClass = 0;
+    int i = 0;
+    while (i < length) {
+      final int cp = orth.codePointAt(i);
+      final int cls = classOf(cp);
+      if (i == 0) {
+        firstClass = cls;
+      }
+      any |= cls;
+      every &= cls;
+      if (i < bodyEnd) {
+        bodyEvery &= cls;
+        final int runClass = cls & (UPPER | LOWER);
+        if (runs >= 0) {
+          if (runClass == 0) {
+            runs = -1;
+          } else if (runClass != lastRunClass) {
+            runs++;
+            lastRunClass = runClass;
+            if (runs == 1) {
+              firstRunClass = runClass;
+            }
+          }
+          if (runs == 1) {
+            firstRunLength++;
+          } else if (runs == 2) {
+            secondRunLength++;
+          }
+        }
+      }
+      i += Character.charCount(cp);
+    }
+
+    for (int j = 0; j < length; j++) {
+      final char c = orth.charAt(j);
+      hasUpperChar |= Character.isUpperCase(c);
+      hasLowerChar |= Character.isLowerCase(c);
+    }
+  }
+
+  public String getOrth() {
+    return orth;
+  }
+
+  public int length() {
+    return orth.length();
+  }
+
+  /**
+   * Odpowiednik Character.isUpperCase(orth.charAt(0)).
+   */
+  public boolean startsWithUpperCase() {
+    return Character.isUpperCase(orth.charAt(0));
+  }
+
+  /**
+   * Odpowiednik Character.isLowerCase(orth.charAt(0)).
+   */
+  public boolean startsWithLowerCase() {
+    return Character.isLowerCase(orth.charAt(0));
+  }
+
+  public boolean startsWithDigit() {
+    return (firstClass & DIGIT) != 0;
+  }
+
+  public boolean startsWithSymbol() {
+    return (firstClass & SYMBOL) != 0;
+  }
+
+  public boolean hasUpperCase() {
+    return hasUpperChar;
+  }
+
+  public boolean hasLowerCase() {
+    return hasLowerChar;
+  }
+
+  public boolean hasLetter() {
+    return (any & LETTER) != 0;
+  }
+
+  public boolean hasDigit() {
+    return (any & DIGIT) != 0;
+  }
+
+  public boolean hasSymbol() {
+    return (any & SYMBOL) != 0;
+  }
+
+  public boolean hasAlphanumeric() {
+    return (any & ALNUM) != 0;
+  }
+
+  public boolean allLetters() {
+    return all(LETTER);
+  }
+
+  public boolean allUpper() {
+    return all(UPPER);
+  }
+
+  public boolean allLower() {
+    return all(LOWER);
+  }
+
+  public boolean allDigits() {
+    return all(DIGIT);
+  }
+
+  public boolean allSymbols() {
+    return all(SYMBOL);
+  }
+
+  public boolean allAlphanumeric() {
+    return all(ALNUM);
+  }
+
+  /**
+   * Odpowiednik ^\p{Lu}\p{Ll}+$.
+   */
+  public boolean upperInit() {
+    return runs == 2 && firstRunClass == UPPER && firstRunLength == 1;
+  }
+
+  /**
+   * Odpowiednik ^\p{Lu}+\p{Ll}+\p{Lu}*\p{Ll}*$.
+   */
+  public boolean upperCamelCase() {
+    return runs >= 2 && runs <= 4 && firstRunClass == UPPER;
+  }
+
+  /**
+   * Odpowiednik ^\p{Ll}+\p{Lu}\p{Ll}*$.
+   */
+  public boolean lowerCamelCase() {
+    return runs >= 2 && runs <= 3 && firstRunClass == LOWER && secondRunLength == 1;
+  }
+
+  private boolean all(final int cls) {
+    if (orth.isEmpty()) {
+      return false;
+    }
+    if ((every & cls) != 0) {
+      return true;
+    }
+    return hasTerminator && !bodyEmpty && (bodyEvery & cls) != 0;
+  }
+
+  /**
+   * Długość końcowego znaku końca linii rozpoznawanego przez $ w java.util.regex.
+   */
+  private static int terminatorLength(final String s) {
+    final int length = s.length();
+    if (length == 0) {
+      return 0;
+    }
+    final char last = s.charAt(length - 1);
+    if (last == '\n') {
+      return length > 1 && s.charAt(length - 2) == '\r' ? 2 : 1;
+    }
+    return last == '\r' || last == 0x0085 || last == 0x2028 || last == 0x2029 ? 1 : 0;
+  }
+
+  private static int classOf(final int cp) {
+    final int type = Character.getType(cp);
+    switch (type) {
+      case Character.UPPERCASE_LETTER:
+        return LETTER | UPPER | ALNUM;
+      case Character.LOWERCASE_LETTER:
+        return LETTER | LOWER | ALNUM;
+      case Character.TITLECASE_LETTER:
+      case Character.MODIFIER_LETTER:
+      case Character.OTHER_LETTER:
+        return LETTER | ALNUM;
+      case Character.DECIMAL_DIGIT_NUMBER:
+      case Character.LETTER_NUMBER:
+      case Character.OTHER_NUMBER:
+        return DIGIT | ALNUM;
+      case Character.CONNECTOR_PUNCTUATION:
+      case Character.DASH_PUNCTUATION:
+      case Character.START_PUNCTUATION:
+      case Character.END_PUNCTUATION:
+      case Character.INITIAL_QUOTE_PUNCTUATION:
+      case Character.FINAL_QUOTE_PUNCTUATION:
+      case Character.OTHER_PUNCTUATION:
+      case Character.MATH_SYMBOL:
+      case Character.CURRENCY_SYMBOL:
+      case Character.MODIFIER_SYMBOL:
+      case Character.OTHER_SYMBOL:
+      case Character.CONTROL:
+      case Character.FORMAT:
+      case Character.PRIVATE_USE:
+      case Character.SURROGATE:
+      case Character.UNASSIGNED:
+      case Character.NON_SPACING_MARK:
+      case Character.ENCLOSING_MARK:
+      case Character.COMBINING_SPACING_MARK:
+        return SYMBOL;
+      default:
+        return isAsciiPunctOrSpace(cp) ? SYMBOL : 0;
+    }
+  }
+
+  /**
+   * \p{Punct} i \p{Space} w java.util.regex obejmują wyłącznie znaki ASCII.
+   */
+  private static boolean isAsciiPunctOrSpace(final int cp) {
+    if (cp >= 128) {
+      return false;
+    }
+    return cp == ' ' || cp == '\t' || cp == '\n' || cp == 0x0B || cp == '\f' || cp == '\r'
+        || (cp >= '!' && cp <= '/') || (cp >= ':' && cp <= '@')
+        || (cp >= '[' && cp <= '`') || (cp >= '{' && cp <= '~');
+  }
+}
@@ -1,19 +1,13 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
-
-public class StartsWithLowerFeature extends TokenFeature {
+public class StartsWithLowerFeature extends OrthFeature {
 
   public StartsWithLowerFeature(String name) {
     super(name);
   }
 
-  public String generate(Token token, TokenAttributeIndex index) {
-    if (Character.isLowerCase(token.getAttributeValue(index.getIndex("orth")).charAt(0))) {
-      return "1";
-    } else {
-      return "0";
-    }
+  public String generate(OrthShape shape) {
+    return shape.startsWithLowerCase() ? "1" : "0";
   }
-}
\ No newline at end of file
+
+}
@@ -1,21 +1,13 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
-
-public class StartsWithUpperFeature extends TokenFeature {
+public class StartsWithUpperFeature extends OrthFeature {
 
   public StartsWithUpperFeature(String name) {
     super(name);
   }
 
-  public String generate(Token token, TokenAttributeIndex index) {
-    if (Character.isUpperCase(token.getAttributeValue(index.getIndex("orth")).charAt(0))) {
-      return "1";
-    } else {
-      return "0";
-    }
+  public String generate(OrthShape shape) {
+    return shape.startsWithUpperCase() ? "1" : "0";
   }
-}
-	
 
+}
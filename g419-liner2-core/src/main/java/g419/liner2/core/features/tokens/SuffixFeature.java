@@ -1,9 +1,6 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
-
-public class SuffixFeature extends TokenFeature {
+public class SuffixFeature extends OrthFeature {
 
   private int n;
 
@@ -12,8 +9,8 @@ public class SuffixFeature extends TokenFeature {
     this.n = Integer.parseInt(name.substring(name.length() - 1));
   }
 
-  public String generate(Token t, TokenAttributeIndex index) {
-    String orth = t.getAttributeValue(index.getIndex("orth"));
+  public String generate(OrthShape shape) {
+    String orth = shape.getOrth();
     if (orth.length() >= n) {
       return orth.substring(orth.length() - n);
     } else {
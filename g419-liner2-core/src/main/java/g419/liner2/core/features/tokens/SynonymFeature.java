@@ -1,50 +1,57 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
 import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataLemmaRaw;
 import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRaw;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
-public class SynonymFeature extends TokenFeature {
-
-  WordnetLoader database;
+public class SynonymFeature extends WordnetTokenFeature {
 
   public SynonymFeature(String name, WordnetLoader database) {
-    super(name);
-    this.database = database;
+    super(name, database);
+  }
+
+  @Override
+  public String getKind() {
+    return "synonym";
   }
 
-  public String generate(Token token, TokenAttributeIndex index) {
-    String base = token.getAttributeValue(index.getIndex("base"));
-    ArrayList<String> lemmas = new ArrayList<String>();
+  public String generate(String base) {
     ArrayList<PrincetonDataRaw> synsets = database.getSynsets(base);
     if (synsets.isEmpty()) {
       return base;
     }
+    String lemma = getCommonLemma(synsets);
+    return lemma == null ? base : lemma;
+  }
+
+  /**
+   * Zwraca pierwszy alfabetycznie lemat wspólny dla wszystkich synsetów lub null.
+   *
+   * @param synsets
+   * @return
+   */
+  static String getCommonLemma(List<PrincetonDataRaw> synsets) {
+    Set<String> lemmas = new HashSet<String>();
     for (PrincetonDataLemmaRaw lr : synsets.get(0).lemmas) {
       lemmas.add(lr.lemma);
     }
-    if (synsets.size() > 1) {
-
-      for (PrincetonDataRaw synset : synsets.subList(1, synsets.size())) {
-        ArrayList<String> common_lemmas = new ArrayList<String>();
-        for (PrincetonDataLemmaRaw lr : synset.lemmas) {
-          if (lemmas.contains(lr.lemma)) {
-            common_lemmas.add(lr.lemma);
-          }
+    for (PrincetonDataRaw synset : synsets.subList(1, synsets.size())) {
+      if (lemmas.isEmpty()) {
+        break;
+      }
+      Set<String> common = new HashSet<String>();
+      for (PrincetonDataLemmaRaw lr : synset.lemmas) {
+        if (lemmas.contains(lr.lemma)) {
+          common.add(lr.lemma);
         }
-        lemmas = common_lemmas;
       }
+      lemmas = common;
     }
-
-    if (lemmas.isEmpty()) {
-      return base;
-    }
-    Collections.sort(lemmas);
-    return lemmas.get(0);
-
+    return lemmas.isEmpty() ? null : Collections.min(lemmas);
   }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package g419.liner2.core.features.tokens;
 
+import g419.corpus.structure.DocumentStatistics;
 import g419.corpus.structure.Sentence;
 import g419.corpus.structure.Token;
 
@@ -17,16 +18,18 @@ public class TfIdfFeature extends TokenInSentenceFeature {
   public void generate(Sentence sentence) {
 
     int thisFeatureIdx = sentence.getAttributeIndex().getIndex(this.getName());
+    int baseIdx = sentence.getAttributeIndex().getIndex("base");
+    int idfIdx = sentence.getAttributeIndex().getIndex("key_value_idf_base");
     List<Token> tokens = sentence.getTokens();
 
-    float tokenNumber = (float) (sentence.getDocument().getTokenNumber());
+    DocumentStatistics stats = sentence.getDocument().getStatistics();
+    float tokenNumber = (float) (stats.getTokenNumber());
 
     int tokenIdx = 0;
     while (tokenIdx < sentence.getTokenNumber()) {
       Token t = tokens.get(tokenIdx);
-      String base = t.getAttributeValue("base");
-      float idf = Float.parseFloat(t.getAttributeValue("key_value_idf_base"));
-      float tf = (float) (sentence.getDocument().getBaseCount(base));
+      float idf = Float.parseFloat(t.getAttributeValue(idfIdx));
+      float tf = (float) (stats.getBaseCount(t, baseIdx));
       float normTf = tf / tokenNumber;
       float tfIdf = normTf * idf;
       t.setAttributeValue(thisFeatureIdx, tfIdf > 0.05 ? "1" : "0");
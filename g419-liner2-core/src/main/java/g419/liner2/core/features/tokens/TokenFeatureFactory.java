@@ -1,5 +1,6 @@
 package g419.liner2.core.features.tokens;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.zip.DataFormatException;
@@ -108,32 +109,14 @@ public class TokenFeatureFactory {
       }
       return new DictFeature(fData[0], fData[2], sourceFeatureIndex);
     } else if (feature.startsWith("synonym")) {
-      String[] fData = feature.split(":");
-      if (fData.length != 2) {
-        throw new DataFormatException("Invalid feature description: " + feature);
-      }
-      if (database == null) {
-        database = new WordnetLoader(fData[1]);
-      }
-      return new SynonymFeature(fData[0], database);
+      String[] fData = getWordnetFeatureData(feature);
+      return withTable(new SynonymFeature(fData[0], getDatabase(fData[1])), fData);
     } else if (feature.startsWith("hypernym")) {
-      String[] fData = feature.split(":");
-      if (fData.length != 2) {
-        throw new DataFormatException("Invalid feature description: " + feature);
-      }
-      if (database == null) {
-        database = new WordnetLoader(fData[1]);
-      }
-      return new HypernymFeature(fData[0], database, Integer.parseInt(fData[0].split("-")[1]));
+      String[] fData = getWordnetFeatureData(feature);
+      return withTable(new HypernymFeature(fData[0], getDatabase(fData[1]), Integer.parseInt(fData[0].split("-")[1])), fData);
     } else if (feature.startsWith("top4hyper")) {
-      String[] fData = feature.split(":");
-      if (fData.length != 2) {
-        throw new DataFormatException("Invalid feature description: " + feature);
-      }
-      if (database == null) {
-        database = new WordnetLoader(fData[1]);
-      }
-      return new TopHyperFeature(fData[0], database, Integer.parseInt(fData[0].split("-")[1]));
+      String[] fData = getWordnetFeatureData(feature);
+      return withTable(new TopHyperFeature(fData[0], getDatabase(fData[1]), Integer.parseInt(fData[0].split("-")[1])), fData);
     } else if (sourceFeats.contains(feature))  //zwroci null dla orth, base i ctag bo sa pobierane z pliku zrodlowego wiec nie potrzebe sa dla nich generatory
     {
       return null;
@@ -178,4 +161,35 @@ public class TokenFeatureFactory {
     }
   }
 
+  /**
+   * Dzieli opis cechy wordnetowej postaci nazwa:ścieżka_do_wordnetu[:tabela_wartości].
+   *
+   * @param feature
+   * @return
+   * @throws DataFormatException
+   */
+  private static String[] getWordnetFeatureData(String feature) throws DataFormatException {
+    String[] fData = feature.split(":");
+    if (fData.length != 2 && fData.length != 3) {
+      throw new DataFormatException("Invalid feature description: " + feature);
+    }
+    return fData;
+  }
+
+  private static synchronized WordnetLoader getDatabase(String path) {
+    if (database == null) {
+      database = new WordnetLoader(path);
+    }
+    return database;
+  }
+
+  /**
+   * Wczytuje do pamięci podręcznej cechy tabelę wartości wyznaczonych wcześniej, jeżeli została podana.
+   */
+  private static WordnetTokenFeature withTable(WordnetTokenFeature feature, String[] fData) throws IOException, DataFormatException {
+    if (fData.length == 3) {
+      feature.getCache().loadTable(fData[2], feature.getTableHeader());
+    }
+    return feature;
+  }
 }
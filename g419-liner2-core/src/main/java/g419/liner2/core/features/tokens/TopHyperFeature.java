@@ -1,23 +1,24 @@
 package g419.liner2.core.features.tokens;
 
-import g419.corpus.structure.Token;
-import g419.corpus.structure.TokenAttributeIndex;
 import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataLemmaRaw;
 import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRaw;
 
 import java.util.*;
 
-public class TopHyperFeature extends TokenFeature {
+public class TopHyperFeature extends WordnetTokenFeature {
 
-  WordnetLoader database;
   private int number;
 
   public TopHyperFeature(String name, WordnetLoader database, int number) {
-    super(name);
-    this.database = database;
+    super(name, database);
     this.number = number;
   }
 
+  @Override
+  public String getKind() {
+    return "top4hyper " + number;
+  }
+
   public ArrayList<String> getRoots(PrincetonDataRaw synset) {
     ArrayList<String> roots = new ArrayList<String>();
     ArrayList<PrincetonDataRaw> hypernyms = database.getHypernyms(synset);
@@ -53,8 +54,7 @@ public class TopHyperFeature extends TokenFeature {
     return result;
   }
 
-  public String generate(Token token, TokenAttributeIndex index) {
-    String base = token.getAttributeValue(index.getIndex("base"));
+  public String generate(String base) {
     ArrayList<PrincetonDataRaw> thisDistSynsets = database.getSynsets(base);
     ArrayList<String> roots = new ArrayList<String>();
     for (PrincetonDataRaw synset : thisDistSynsets) {
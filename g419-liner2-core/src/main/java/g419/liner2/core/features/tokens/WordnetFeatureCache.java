@@ -0,0 +1,173 @@
+package g419.liner2.core.features.tokens;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+
+/**
+ * Pamięć podręczna wartości cechy wyznaczanej z wordnetu na podstawie formy bazowej tokenu.
+ * Liczba różnych form bazowych jest niewielka w porównaniu z liczbą tokenów, więc wartość
+ * dla danej formy jest liczona tylko raz. Pamięć jest ograniczona do capacity wpisów; po jej
+ * zapełnieniu wartości dla nowych form są liczone przy każdym wystąpieniu.
+ * <p>
+ * Opcjonalnie wartości mogą być wczytane z tabeli wyznaczonej wcześniej i dołączonej do modelu
+ * (plik tekstowy: nagłówek z rodzajem cechy i odciskiem wordnetu, a dalej wiersze: forma bazowa,
+ * tabulator, wartość cechy). Tabela jest wczytywana tylko wtedy, gdy nagłówek odpowiada cesze
+ * i wordnetowi, z którymi jest używana.
+ *
+ * @author Michał Marcińczuk
+ */
+public class WordnetFeatureCache {
+
+  public static final int DEFAULT_CAPACITY = 1 << 18;
+
+  public static final String TABLE_MAGIC = "#liner2-wordnet-feature-table";
+
+  /* Oznacza wartość null, której nie można zapisać w ConcurrentHashMap */
+  private static final String NULL = new String("null");
+
+  private final int capacity;
+  private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<String, String>();
+  private Map<String, String> table = Collections.emptyMap();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder tableHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public WordnetFeatureCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public WordnetFeatureCache(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Zwraca wartość cechy dla formy bazowej, wyznaczając ją funkcją compute, jeżeli nie ma jej
+   * w tabeli ani w pamięci podręcznej.
+   *
+   * @param base
+   * @param compute
+   * @return
+   */
+  public String get(String base, Function<String, String> compute) {
+    String value = table.get(base);
+    if (value != null) {
+      tableHits.increment();
+      return value;
+    }
+    value = values.get(base);
+    if (value != null) {
+      hits.increment();
+      return value == NULL ? null : value;
+    }
+    misses.increment();
+    value = compute.apply(base);
+    if (values.size() < capacity) {
+      values.putIfAbsent(base, value == null ? NULL : value);
+    }
+    return value;
+  }
+
+  /**
+   * Tworzy nagłówek tabeli wartości cechy.
+   *
+   * @param kind        rodzaj cechy wraz z parametrami
+   * @param fingerprint odcisk wordnetu
+   * @return
+   */
+  public static String getTableHeader(String kind, String fingerprint) {
+    return TABLE_MAGIC + "\t" + kind + "\t" + fingerprint;
+  }
+
+  /**
+   * Wczytuje tabelę wartości wyznaczonych wcześniej.
+   *
+   * @param path
+   * @param header nagłówek, który musi mieć tabela, zob. {@link #getTableHeader(String, String)}
+   * @throws IOException
+   * @throws DataFormatException tabela nie ma nagłówka albo został wyznaczony dla innej cechy lub innego wordnetu
+   */
+  public void loadTable(String path, String header) throws IOException, DataFormatException {
+    Map<String, String> table = new HashMap<String, String>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8))) {
+      String line = reader.readLine();
+      if (line == null || !line.startsWith(TABLE_MAGIC + "\t")) {
+        throw new DataFormatException("Missing header of the wordnet feature table " + path);
+      }
+      if (!line.equals(header)) {
+        throw new DataFormatException(String.format("Wordnet feature table %s was computed for [%s], expected [%s]",
+            path, line.substring(TABLE_MAGIC.length() + 1), header.substring(TABLE_MAGIC.length() + 1)));
+      }
+      while ((line = reader.readLine()) != null) {
+        int tab = line.indexOf('\t');
+        if (tab > 0) {
+          table.put(line.substring(0, tab), line.substring(tab + 1));
+        }
+      }
+    }
+    this.table = table;
+  }
+
+  /**
+   * Zapisuje tabelę wartości cechy dla podanych form bazowych w formacie wczytywanym
+   * przez {@link #loadTable(String, String)}. Formy, dla których cecha nie ma wartości, są pomijane.
+   *
+   * @param header
+   * @param bases
+   * @param compute
+   * @param path
+   * @throws IOException
+   */
+  public static void writeTable(String header, Iterable<String> bases, Function<String, String> compute, String path) throws IOException {
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+      writer.write(header);
+      writer.write('\n');
+      for (String base : bases) {
+        String value = compute.apply(base);
+        if (value != null && base.indexOf('\t') < 0 && base.indexOf('\n') < 0 && value.indexOf('\n') < 0) {
+          writer.write(base);
+          writer.write('\t');
+          writer.write(value);
+          writer.write('\n');
+        }
+      }
+    }
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getTableHits() {
+    return tableHits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public int getSize() {
+    return values.size();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("hits=%d table_hits=%d misses=%d size=%d table_size=%d",
+        getHits(), getTableHits(), getMisses(), getSize(), table.size());
+  }
+
+}
@@ -1,111 +1,57 @@
 package g419.liner2.core.features.tokens;
 
+import g419.toolbox.wordnet.MappedWordnet;
 import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRaw;
-import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRelationRaw;
-import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonIndexRaw;
-import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonParser;
 
-import java.io.*;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class WordnetLoader {
-  HashMap<String, HashMap<String, PrincetonDataRaw>> data = new HashMap<String, HashMap<String, PrincetonDataRaw>>();
-  HashMap<String, HashMap<String, PrincetonIndexRaw>> index = new HashMap<String, HashMap<String, PrincetonIndexRaw>>();
 
-  String[][] poses = new String[][] {{"adj", "a"}, {"adv", "r"}, {"noun", "n"}, {"verb", "v"}};
+  MappedWordnet wordnet;
+  boolean[] hypernymTypes;
 
   String wordnet_path;
 
   public WordnetLoader(String path) {
     wordnet_path = path;
     try {
-      if (!new File(path).exists()) {
-        throw new FileNotFoundException("Invalid database directory: " + path);
-      }
-      for (String pos[] : poses) {
-        String filename = path + File.separator + "index." + pos[0];
-        if ((new File(filename)).exists()) {
-          index.put(pos[1], readIndexFile(filename));
-
-
-        }
-      }
-      for (String pos[] : poses) {
-
-        String filename = path + File.separator + "data." + pos[0];
-        if ((new File(filename)).exists()) {
-          data.put(pos[1], readDataFile(filename, pos[1]));
-        }
-
-      }
-
+      wordnet = MappedWordnet.load(path);
     } catch (Exception e) {
       e.printStackTrace();
+      wordnet = MappedWordnet.empty();
     }
-
-
+    hypernymTypes = wordnet.getRelationTypes("@"::equals);
   }
 
-  public HashMap<String, PrincetonIndexRaw> readIndexFile(String filename) throws IOException {
-    HashMap<String, PrincetonIndexRaw> units = new HashMap<String, PrincetonIndexRaw>();
-
-    BufferedReader r = new BufferedReader(new FileReader(filename));
-
-    String line = null;
-    while ((line = r.readLine()) != null) {
-      // Skip lines with comments. Lines with comments starts with two spaces.
-      if (line.startsWith("  ")) {
-        continue;
-      }
-      // Parse line
-      PrincetonIndexRaw raw = PrincetonParser.parseIndexLine(line);
-      units.put(raw.lemma, raw);
-    }
-    r.close();
-    return units;
+  public ArrayList<PrincetonDataRaw> getSynsets(String word) {
+    return new ArrayList<PrincetonDataRaw>(wordnet.getSynsets(wordnet.getSynsetIds(word)));
   }
 
-  public HashMap<String, PrincetonDataRaw> readDataFile(String filename, String pos) throws IOException {
-    BufferedReader r = new BufferedReader(new FileReader(filename));
-    HashMap<String, PrincetonDataRaw> data = new HashMap<String, PrincetonDataRaw>();
-
-    String line = null;
-    while ((line = r.readLine()) != null) {
-      // Skip lines with comments. Lines with comments starts with two spaces.
-      if (line.startsWith("  ")) {
-        continue;
-      }
-      // Parse line
-      PrincetonDataRaw d = PrincetonParser.parseDataLine(line);
-      d.pos = pos;
-      data.put(d.offset, d);
-    }
-    r.close();
-
-
-    return data;
+  /**
+   * Zwraca lematy wszystkich haseł wordnetu.
+   *
+   * @return
+   */
+  public Set<String> getLemmas() {
+    return new LinkedHashSet<String>(wordnet.getIndexLemmas());
   }
 
-  public ArrayList<PrincetonDataRaw> getSynsets(String word) {
-    ArrayList<PrincetonDataRaw> synsets = new ArrayList<PrincetonDataRaw>();
-    for (Entry<String, HashMap<String, PrincetonIndexRaw>> units : index.entrySet()) {
-      if (units.getValue().containsKey(word)) {
-        for (String offset : units.getValue().get(word).synset_offsets) {
-          synsets.add(data.get(units.getKey()).get(offset));
-        }
-      }
-    }
-    return synsets;
+  /**
+   * Zwraca odcisk zawartości wordnetu, zob. {@link MappedWordnet#getFingerprint()}.
+   *
+   * @return
+   */
+  public String getFingerprint() {
+    return wordnet.getFingerprint();
   }
 
   public ArrayList<PrincetonDataRaw> getHypernyms(PrincetonDataRaw synset) {
     ArrayList<PrincetonDataRaw> hypernyms = new ArrayList<PrincetonDataRaw>();
-    for (PrincetonDataRelationRaw rel : synset.relations) {
-      if (rel.type.equals("@")) {
-        hypernyms.add(data.get(rel.pos).get(rel.offset));
-      }
+    int id = wordnet.getSynsetId(synset);
+    if (id >= 0) {
+      hypernyms.addAll(wordnet.getSynsets(wordnet.getDirectSynsetIds(id, hypernymTypes)));
     }
     return hypernyms;
 
@@ -0,0 +1,62 @@
+package g419.liner2.core.features.tokens;
+
+import g419.corpus.structure.Token;
+import g419.corpus.structure.TokenAttributeIndex;
+
+/**
+ * Cecha tokenu wyznaczana z wordnetu wyłącznie na podstawie formy bazowej. Wartości są
+ * zapamiętywane w {@link WordnetFeatureCache} osobnej dla każdej cechy. Formy bazowe są
+ * wyszukiwane w wordnecie bez względu na część mowy, więc kluczem jest sama forma bazowa.
+ */
+public abstract class WordnetTokenFeature extends TokenFeature {
+
+  WordnetLoader database;
+  private final WordnetFeatureCache cache = new WordnetFeatureCache();
+
+  public WordnetTokenFeature(String name, WordnetLoader database) {
+    super(name);
+    this.database = database;
+  }
+
+  @Override
+  public String generate(Token token, TokenAttributeIndex index) {
+    String base = token.getAttributeValue(index.getIndex("base"));
+    if (base == null) {
+      return generate(base);
+    }
+    return cache.get(base, this::generate);
+  }
+
+  /**
+   * Wyznacza wartość cechy dla formy bazowej bez użycia pamięci podręcznej.
+   *
+   * @param base
+   * @return
+   */
+  public abstract String generate(String base);
+
+  /**
+   * Zwraca rodzaj cechy wraz z parametrami, od których zależą jej wartości, np. "hypernym 2".
+   *
+   * @return
+   */
+  public abstract String getKind();
+
+  /**
+   * Zwraca nagłówek tabeli wartości cechy: rodzaj cechy z parametrami i odcisk wordnetu.
+   *
+   * @return
+   */
+  public String getTableHeader() {
+    return WordnetFeatureCache.getTableHeader(getKind(), database.getFingerprint());
+  }
+
+  public WordnetFeatureCache getCache() {
+    return cache;
+  }
+
+  public WordnetLoader getDatabase() {
+    return database;
+  }
+
+}
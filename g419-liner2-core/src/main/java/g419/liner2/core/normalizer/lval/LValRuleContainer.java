@@ -9,10 +9,8 @@ import org.apache.commons.lang3.StringUtils;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -22,6 +20,7 @@ public class LValRuleContainer {
   public Map<String, List<String>> keys;
   public Map<String, Map<String, String>> maps;
   public List<LValRule> rules;
+  private transient LValRuleMatcher matcher;
 
   public void prepareRules() {
     for (LValRule rule : rules) {
@@ -31,6 +30,7 @@ public class LValRuleContainer {
       }
       rule.pattern = Pattern.compile(match);
     }
+    matcher = new LValRuleMatcher(rules, maps);
   }
 
   public static LValRuleContainer load(String path) {
@@ -48,47 +48,35 @@ public class LValRuleContainer {
   }
 
 
+  /**
+   * Wyznacza wartość lval anotacji na podstawie reguł pasujących do jej tekstu.
+   *
+   * @param annotation
+   * @return
+   */
   public String getLVal(Annotation annotation) {
     String annBase = annotation.getBaseText(false);
     String annType = annotation.getType();
-    List<LValRule> rulesUsed = new LinkedList<>();
-    //ostateczne wartości year, month, day, hour
-    Map<String, String> globalValues = new HashMap<>();
-    for (LValRule rule : rules) {
-      if (rule.limit != null && !rule.limit.contains(annType)) {
-        continue;
-      }
-      //czy reguła na ciągu base'ów jest spełniona
-      Matcher match = rule.pattern.matcher(annBase);
-      if (match.find() && rule.checkLemmaTags(annotation)) {
-        //zapisz użytą regułę
-        rulesUsed.add(rule);
-        Map<String, String> matchDict = new HashMap<>();
-        //pobierz lokalne matche
-        for (String group : rule.groups) {
-          matchDict.put(group, match.group(group));
-        }
-        //zmapuj lokalne matche
-        for (Map.Entry<String, String> ruleMapEntry : rule.map.entrySet()) {
-          String matchKey = ruleMapEntry.getKey();
-          String mapName = ruleMapEntry.getValue();
-          matchDict.put(matchKey, this.maps.get(mapName).get(matchDict.get(matchKey)));
-        }
-        //wstaw ostateczne wartości do docelowego słownika
-        for (Map.Entry<String, String> ruleValueEntry : rule.value.entrySet()) {
-          String valueKey = ruleValueEntry.getKey();
-          String value = new String(ruleValueEntry.getValue());
-          //zmodyfikuj szablon wartości w oparciu o lokalne matche
-          for (Map.Entry<String, String> matchDictEntry : matchDict.entrySet()) {
-            String matchKey = matchDictEntry.getKey();
-            String matchValue = matchDictEntry.getValue();
-            value = value.replaceAll("\\$" + matchKey, matchValue);
-          }
-          //wstaw do globalnego słownika ostateczny value (lub nadpisz)
-          globalValues.put(valueKey, value);
-        }
+    LValRuleMatcher.Result result = matcher.match(annType, annBase);
+    String lval = result.lval;
+    if (lval == null) {
+      //ostateczne wartości year, month, day, hour
+      lval = getLVal(annType, result.getValues(annotation));
+      if (result.isLemmaIndependent()) {
+        result.lval = lval;
       }
     }
+    return lval;
+  }
+
+  /**
+   * Składa wartość lval z ostatecznych wartości (year, month, day, hour, ...) pasujących reguł.
+   *
+   * @param annType
+   * @param globalValues
+   * @return
+   */
+  String getLVal(String annType, Map<String, String> globalValues) {
     String lval = "None";
     Map<String, String> matches = globalValues;
     if (!annType.equals("t3_duration")) {
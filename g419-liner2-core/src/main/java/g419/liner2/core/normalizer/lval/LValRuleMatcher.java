@@ -0,0 +1,499 @@
+package g419.liner2.core.normalizer.lval;
+
+import g419.corpus.structure.Annotation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+
+/**
+ * Skompilowany zbiór reguł {@link LValRule}. Dla każdego typu anotacji wybierane są raz reguły,
+ * których pole limit dopuszcza ten typ, a wyrażenie reguły jest uruchamiane tylko wtedy, gdy tekst
+ * zawiera jeden z napisów, bez których wyrażenie nie może zostać dopasowane. Szablony wartości są
+ * rozbite na fragmenty stałe i odwołania do grup, a wyniki dopasowania reguł są zapamiętywane dla
+ * pary (typ, tekst).
+ * <p>
+ * Reguły z warunkiem lemmaTags zależą od tagów tokenów anotacji, dlatego zapamiętywane są lokalne
+ * dopasowania wszystkich pasujących reguł, a warunek jest sprawdzany dla każdej anotacji osobno.
+ * Tak jak w poprzedniej implementacji szablony są wypełniane dopiero dla reguł spełniających
+ * warunek lemmaTags (dopasowania innych reguł mogą nie mieć wartości, np. nieobecna grupa).
+ */
+class LValRuleMatcher {
+
+  /* Maksymalna liczba zapamiętanych wyników */
+  static final int CACHE_CAPACITY = 1 << 16;
+
+  private final List<CompiledRule> rules = new ArrayList<>();
+  private final Map<String, List<CompiledRule>> byType = new ConcurrentHashMap<>();
+  private final Map<String, Result> cache = new ConcurrentHashMap<>();
+
+  LValRuleMatcher(final List<LValRule> rules, final Map<String, Map<String, String>> maps) {
+    for (final LValRule rule : rules) {
+      this.rules.add(new CompiledRule(rule, maps));
+    }
+  }
+
+  /**
+   * Zwraca wyniki reguł pasujących do tekstu anotacji danego typu (bez sprawdzenia lemmaTags).
+   *
+   * @param type
+   * @param base
+   * @return
+   */
+  Result match(final String type, final String base) {
+    final String key = type + '\u0000' + base;
+    Result result = cache.get(key);
+    if (result == null) {
+      result = compute(type, base);
+      if (cache.size() < CACHE_CAPACITY) {
+        cache.putIfAbsent(key, result);
+      }
+    }
+    return result;
+  }
+
+  private Result compute(final String type, final String base) {
+    final List<RuleMatch> matches = new ArrayList<>();
+    for (final CompiledRule rule : byType.computeIfAbsent(type, this::getRules)) {
+      final RuleMatch match = rule.match(base);
+      if (match != null) {
+        matches.add(match);
+      }
+    }
+    return new Result(matches);
+  }
+
+  private List<CompiledRule> getRules(final String type) {
+    final List<CompiledRule> selected = new ArrayList<>();
+    for (final CompiledRule rule : rules) {
+      if (rule.rule.limit == null || rule.rule.limit.contains(type)) {
+        selected.add(rule);
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Reguły pasujące do tekstu w kolejności z pliku reguł.
+   */
+  static class Result {
+    private final List<RuleMatch> matches;
+    private final boolean lemmaIndependent;
+    /* Wartość lval, jeżeli nie zależy od tagów anotacji */
+    volatile String lval;
+
+    Result(final List<RuleMatch> matches) {
+      this.matches = matches;
+      boolean independent = true;
+      for (final RuleMatch match : matches) {
+        independent &= match.rule.lemmaTags == null || match.rule.lemmaTags.isEmpty();
+      }
+      lemmaIndependent = independent;
+    }
+
+    boolean isLemmaIndependent() {
+      return lemmaIndependent;
+    }
+
+    /**
+     * Zwraca ostateczne wartości (year, month, day, hour, ...) reguł spełniających warunek lemmaTags.
+     *
+     * @param annotation
+     * @return
+     */
+    Map<String, String> getValues(final Annotation annotation) {
+      final Map<String, String> values = new HashMap<>();
+      for (final RuleMatch match : matches) {
+        if (match.rule.checkLemmaTags(annotation)) {
+          final String[] matchValues = match.getValues();
+          for (int i = 0; i < matchValues.length; i++) {
+            values.put(match.compiled.valueKeys[i], matchValues[i]);
+          }
+        }
+      }
+      return values;
+    }
+  }
+
+  private static class RuleMatch {
+    final LValRule rule;
+    final CompiledRule compiled;
+    final String[] slotValues;
+    /* Wypełnione szablony, wyznaczane przy pierwszym użyciu */
+    private volatile String[] values;
+
+    RuleMatch(final CompiledRule compiled, final String[] slotValues) {
+      this.rule = compiled.rule;
+      this.compiled = compiled;
+      this.slotValues = slotValues;
+    }
+
+    String[] getValues() {
+      String[] filled = values;
+      if (filled == null) {
+        filled = compiled.fill(slotValues);
+        values = filled;
+      }
+      return filled;
+    }
+  }
+
+  private static class CompiledRule {
+    final LValRule rule;
+    /* Tekst musi zawierać jeden z napisów, aby wyrażenie mogło zostać dopasowane (null - brak warunku) */
+    final String[] anchors;
+    final String[] groups;
+    final int[] groupSlots;
+    final int[] mapSlots;
+    final Map<String, String>[] mapTables;
+    /* Klucze lokalnych dopasowań w kolejności, w jakiej były podstawiane w szablonach */
+    final String[] slotNames;
+    final String[] valueKeys;
+    final Template[] templates;
+
+    @SuppressWarnings("unchecked")
+    CompiledRule(final LValRule rule, final Map<String, Map<String, String>> maps) {
+      this.rule = rule;
+      final Set<String> required = LiteralAnalyzer.getRequiredLiterals(rule.pattern.pattern());
+      anchors = required == null ? null : required.toArray(new String[0]);
+
+      /* Kolejność iteracji jest taka sama jak w słowniku budowanym dla każdego dopasowania */
+      final Map<String, String> order = new HashMap<>();
+      for (final String group : rule.groups) {
+        order.put(group, group);
+      }
+      for (final String key : rule.map.keySet()) {
+        order.put(key, key);
+      }
+      slotNames = order.keySet().toArray(new String[0]);
+      final Map<String, Integer> slots = new HashMap<>();
+      for (int i = 0; i < slotNames.length; i++) {
+        slots.put(slotNames[i], i);
+      }
+
+      groups = rule.groups.toArray(new String[0]);
+      groupSlots = new int[groups.length];
+      for (int i = 0; i < groups.length; i++) {
+        groupSlots[i] = slots.get(groups[i]);
+      }
+      mapSlots = new int[rule.map.size()];
+      mapTables = new Map[rule.map.size()];
+      int i = 0;
+      for (final Map.Entry<String, String> entry : rule.map.entrySet()) {
+        mapSlots[i] = slots.get(entry.getKey());
+        mapTables[i] = maps.get(entry.getValue());
+        i++;
+      }
+
+      valueKeys = rule.value.keySet().toArray(new String[0]);
+      templates = new Template[valueKeys.length];
+      for (int j = 0; j < valueKeys.length; j++) {
+        templates[j] = new Template(rule.value.get(valueKeys[j]), slotNames);
+      }
+    }
+
+    RuleMatch match(final String base) {
+      if (anchors != null && !containsAny(base, anchors)) {
+        return null;
+      }
+      final Matcher matcher = rule.pattern.matcher(base);
+      if (!matcher.find()) {
+        return null;
+      }
+      final String[] slotValues = new String[slotNames.length];
+      for (int i = 0; i < groups.length; i++) {
+        slotValues[groupSlots[i]] = matcher.group(groups[i]);
+      }
+      for (int i = 0; i < mapSlots.length; i++) {
+        slotValues[mapSlots[i]] = mapTables[i].get(slotValues[mapSlots[i]]);
+      }
+      return new RuleMatch(this, slotValues);
+    }
+
+    String[] fill(final String[] slotValues) {
+      final String[] values = new String[templates.length];
+      for (int i = 0; i < templates.length; i++) {
+        values[i] = templates[i].fill(slotNames, slotValues);
+      }
+      return values;
+    }
+
+    private static boolean containsAny(final String base, final String[] anchors) {
+      for (final String anchor : anchors) {
+        if (base.contains(anchor)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Szablon wartości podzielony na fragmenty stałe i odwołania do lokalnych dopasowań ($nazwa).
+   * Wynik jest taki sam jak przy kolejnym podstawianiu String.replaceAll dla każdego dopasowania.
+   * Jeżeli podstawiona wartość mogłaby zostać zinterpretowana przy kolejnym podstawieniu
+   * (zawiera '$' lub '\'), używane jest podstawianie przez replaceAll.
+   */
+  private static class Template {
+    final String template;
+    /* Fragmenty szablonu: napis stały albo numer dopasowania (Integer) */
+    final Object[] parts;
+    final boolean compiled;
+
+    Template(final String template, final String[] slotNames) {
+      this.template = template;
+      List<Object> parts = Collections.singletonList(template);
+      for (int slot = 0; slot < slotNames.length; slot++) {
+        final String reference = "$" + slotNames[slot];
+        final List<Object> split = new ArrayList<>();
+        for (final Object part : parts) {
+          if (part instanceof String) {
+            final String text = (String) part;
+            int from = 0;
+            int pos;
+            while ((pos = text.indexOf(reference, from)) >= 0) {
+              split.add(text.substring(from, pos));
+              split.add(slot);
+              from = pos + reference.length();
+            }
+            split.add(text.substring(from));
+          } else {
+            split.add(part);
+          }
+        }
+        parts = split;
+      }
+      /* '$' przed wstawioną wartością mógłby razem z nią utworzyć kolejne odwołanie */
+      boolean safe = true;
+      for (int i = 0; i + 1 < parts.size(); i++) {
+        if (parts.get(i) instanceof String && parts.get(i + 1) instanceof Integer
+            && ((String) parts.get(i)).indexOf('$') >= 0) {
+          safe = false;
+        }
+      }
+      this.parts = parts.toArray();
+      compiled = safe;
+    }
+
+    String fill(final String[] slotNames, final String[] slotValues) {
+      if (compiled) {
+        final StringBuilder sb = new StringBuilder(template.length() + 16);
+        for (final Object part : parts) {
+          if (part instanceof String) {
+            sb.append((String) part);
+          } else {
+            final String value = slotValues[(Integer) part];
+            if (value == null || value.indexOf('$') >= 0 || value.indexOf('\\') >= 0) {
+              return replace(slotNames, slotValues);
+            }
+            sb.append(value);
+          }
+        }
+        return sb.toString();
+      }
+      return replace(slotNames, slotValues);
+    }
+
+    private String replace(final String[] slotNames, final String[] slotValues) {
+      String value = template;
+      for (int i = 0; i < slotNames.length; i++) {
+        value = value.replaceAll("\\$" + slotNames[i], slotValues[i]);
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Wyznacza napisy, z których co najmniej jeden musi wystąpić w tekście pasującym do wyrażenia.
+   * Analiza jest zachowawcza: dla konstrukcji, których nie obsługuje, nie nakłada żadnego warunku.
+   */
+  static class LiteralAnalyzer {
+    private final String regex;
+    private int pos = 0;
+
+    private LiteralAnalyzer(final String regex) {
+      this.regex = regex;
+    }
+
+    /**
+     * @param regex
+     * @return zbiór napisów lub null, jeżeli nie można go wyznaczyć
+     */
+    static Set<String> getRequiredLiterals(final String regex) {
+      try {
+        final LiteralAnalyzer analyzer = new LiteralAnalyzer(regex);
+        final Set<String> literals = analyzer.alternation();
+        return analyzer.pos == regex.length() ? literals : null;
+      } catch (final UnsupportedOperationException | IndexOutOfBoundsException e) {
+        return null;
+      }
+    }
+
+    private Set<String> alternation() {
+      final Set<String> literals = new HashSet<>();
+      boolean all = true;
+      while (true) {
+        final Set<String> branch = sequence();
+        if (branch == null) {
+          all = false;
+        } else {
+          literals.addAll(branch);
+        }
+        if (pos < regex.length() && regex.charAt(pos) == '|') {
+          pos++;
+        } else {
+          break;
+        }
+      }
+      return all ? literals : null;
+    }
+
+    private Set<String> sequence() {
+      Set<String> best = null;
+      final StringBuilder run = new StringBuilder();
+      while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+        final char c = regex.charAt(pos);
+        Set<String> atom = null;
+        Character literal = null;
+        if (c == '(') {
+          pos++;
+          boolean lookaround = false;
+          if (regex.charAt(pos) == '?') {
+            pos++;
+            final char kind = regex.charAt(pos);
+            if (kind == ':') {
+              pos++;
+            } else if (kind == '<' && Character.isLetter(regex.charAt(pos + 1))) {
+              pos = regex.indexOf('>', pos) + 1;
+            } else if (kind == '=' || kind == '!' || kind == '<') {
+              lookaround = true;
+              pos += kind == '<' ? 2 : 1;
+            } else {
+              /* Flagi, np. (?i), zmieniają znaczenie całego wyrażenia */
+              throw new UnsupportedOperationException();
+            }
+          }
+          atom = alternation();
+          if (regex.charAt(pos) != ')') {
+            throw new UnsupportedOperationException();
+          }
+          pos++;
+          if (lookaround) {
+            atom = null;
+          }
+        } else if (c == '[') {
+          skipClass();
+        } else if (c == '\\') {
+          final char escaped = regex.charAt(pos + 1);
+          pos += 2;
+          if (!Character.isLetterOrDigit(escaped)) {
+            literal = escaped;
+          } else if (escaped == 'Q' || escaped == 'p' || escaped == 'P' || escaped == 'k'
+              || escaped == 'x' || escaped == 'u' || escaped == 'c' || escaped == '0') {
+            throw new UnsupportedOperationException();
+          }
+        } else if (c == '.' || c == '^' || c == '$') {
+          pos++;
+        } else if (c == '*' || c == '+' || c == '?' || c == '{') {
+          throw new UnsupportedOperationException();
+        } else {
+          literal = c;
+          pos++;
+        }
+
+        final int quantifier = quantifier();
+        if (quantifier == 0) {
+          /* Element opcjonalny */
+          atom = null;
+          literal = null;
+        }
+        if (literal != null) {
+          run.append(literal.charValue());
+          if (quantifier == 2) {
+            best = better(best, run);
+            run.setLength(0);
+          }
+        } else {
+          best = better(best, run);
+          run.setLength(0);
+          if (atom != null && (best == null || minLength(atom) > minLength(best))) {
+            best = atom;
+          }
+        }
+      }
+      return better(best, run);
+    }
+
+    /**
+     * Pomija kwantyfikator po elemencie.
+     *
+     * @return 0 - element może nie wystąpić, 1 - brak kwantyfikatora, 2 - element może się powtórzyć
+     */
+    private int quantifier() {
+      if (pos >= regex.length()) {
+        return 1;
+      }
+      final char c = regex.charAt(pos);
+      final int result;
+      if (c == '?' || c == '*') {
+        pos++;
+        result = 0;
+      } else if (c == '+') {
+        pos++;
+        result = 2;
+      } else if (c == '{') {
+        final int end = regex.indexOf('}', pos);
+        final String min = regex.substring(pos + 1, end).split(",", -1)[0].trim();
+        pos = end + 1;
+        result = min.equals("0") ? 0 : 2;
+      } else {
+        return 1;
+      }
+      if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+        pos++;
+      }
+      return result;
+    }
+
+    private void skipClass() {
+      pos++;
+      if (regex.charAt(pos) == '^') {
+        pos++;
+      }
+      if (regex.charAt(pos) == ']') {
+        pos++;
+      }
+      while (regex.charAt(pos) != ']') {
+        if (regex.charAt(pos) == '[') {
+          throw new UnsupportedOperationException();
+        }
+        if (regex.charAt(pos) == '\\') {
+          pos++;
+        }
+        pos++;
+      }
+      pos++;
+    }
+
+    private static Set<String> better(final Set<String> best, final CharSequence run) {
+      if (run.length() > 0 && (best == null || run.length() > minLength(best))) {
+        return Collections.singleton(run.toString());
+      }
+      return best;
+    }
+
+    private static int minLength(final Set<String> literals) {
+      int min = Integer.MAX_VALUE;
+      for (final String literal : literals) {
+        min = Math.min(min, literal.length());
+      }
+      return min;
+    }
+  }
+}
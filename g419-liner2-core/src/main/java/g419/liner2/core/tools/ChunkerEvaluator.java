@@ -446,12 +446,19 @@ public class ChunkerEvaluator {
    * Dołącza do danych zawartość innego obiektu ChunkerEvaluator.
    */
   public void join(final ChunkerEvaluator foreign) {
-
+    updateTypes(foreign.types);
     for (final String foreignKey : foreign.types) {
       joinMaps(foreignKey, chunksTruePositives, foreign.chunksTruePositives);
       joinMaps(foreignKey, chunksFalsePositives, foreign.chunksFalsePositives);
       joinMaps(foreignKey, chunksFalseNegatives, foreign.chunksFalseNegatives);
     }
+    for (final Map.Entry<String, Integer> entry : foreign.falsePositivesExistingRangeOnly.entrySet()) {
+      falsePositivesExistingRangeOnly.merge(entry.getKey(), entry.getValue(), Integer::sum);
+    }
+    globalTruePositivesRangeOnly += foreign.globalTruePositivesRangeOnly;
+    globalFalsePositivesRangeOnly += foreign.globalFalsePositivesRangeOnly;
+    globalFalseNegativesRangeOnly += foreign.globalFalseNegativesRangeOnly;
+    sentenceNum += foreign.sentenceNum;
   }
 
   private void joinMaps(final String key, final HashMap<String, ArrayList<Annotation>> target, final HashMap<String, ArrayList<Annotation>> source) {
@@ -400,6 +400,7 @@ public class ChunkerEvaluatorMuc {
       if (!this.keys.contains(foreignKey)) {
         this.keys.add(foreignKey);
       }
+      this.types.add(foreignKey);
 
       if (foreign.chunksTruePositives.getChunkCount(foreignKey) > 0) {
         ArrayList<Annotation> chunks = foreign.chunksTruePositives.getChunks(foreignKey);
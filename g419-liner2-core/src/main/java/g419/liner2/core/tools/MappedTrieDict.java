@@ -0,0 +1,353 @@
+package g419.liner2.core.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Słownik trie zapisany w zwartym formacie binarnym i mapowany do pamięci tylko do odczytu.
+ * Słowa są zastąpione identyfikatorami (pozycja w posortowanej tablicy napisów), a węzły i krawędzie
+ * zapisane w płaskich tablicach, więc słownik nie jest deserializowany przy wczytaniu, a kilka
+ * procesów korzystających z tego samego pliku współdzieli pamięć podręczną systemu plików.
+ * <p>
+ * Układ pliku (liczby całkowite big-endian):
+ * <pre>
+ * int MAGIC, int VERSION, int wordCount, int nodeCount, int edgeCount, int stringBytes
+ * int[wordCount + 1] wordOffset   -- początki napisów w bloku strings (UTF-8, posortowane bajtowo)
+ * int[nodeCount + 1] firstEdge    -- krawędzie węzła n to przedział [firstEdge[n], firstEdge[n + 1])
+ * int[nodeCount]     nodeValue    -- identyfikator wartości węzła lub -1
+ * int[edgeCount]     edgeWord     -- identyfikator słowa krawędzi, rosnąco w obrębie węzła
+ * int[edgeCount]     edgeTarget   -- węzeł docelowy krawędzi
+ * byte[nodeCount]    terminal
+ * byte[stringBytes]  strings
+ * </pre>
+ * Korzeniem jest węzeł 0.
+ *
+ * @author Michał Marcińczuk
+ */
+public class MappedTrieDict {
+
+  public static final int MAGIC = 0x4C544431; // "LTD1"
+
+  /* Numer wersji układu pliku, zmieniany przy każdej niezgodnej zmianie formatu */
+  public static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 6 * 4;
+
+  private final ByteBuffer buffer;
+  private final int wordCount;
+  private final int nodeCount;
+  private final int wordOffsetPos;
+  private final int firstEdgePos;
+  private final int nodeValuePos;
+  private final int edgeWordPos;
+  private final int edgeTargetPos;
+  private final int terminalPos;
+  private final int stringsPos;
+
+  private MappedTrieDict(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a compiled trie dictionary");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported version of the compiled trie dictionary: " + buffer.getInt(4)
+          + " (expected " + VERSION + "), compile the dictionary again");
+    }
+    wordCount = buffer.getInt(8);
+    nodeCount = buffer.getInt(12);
+    int edgeCount = buffer.getInt(16);
+    wordOffsetPos = HEADER_SIZE;
+    firstEdgePos = wordOffsetPos + 4 * (wordCount + 1);
+    nodeValuePos = firstEdgePos + 4 * (nodeCount + 1);
+    edgeWordPos = nodeValuePos + 4 * nodeCount;
+    edgeTargetPos = edgeWordPos + 4 * edgeCount;
+    terminalPos = edgeTargetPos + 4 * edgeCount;
+    stringsPos = terminalPos + nodeCount;
+  }
+
+  /**
+   * Mapuje skompilowany słownik do pamięci i zwraca jego korzeń.
+   *
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  public static TrieDict open(String path) throws IOException {
+    File file = new File(path);
+    if (!file.exists()) {
+      throw new FileNotFoundException("File " + path + " does not exist");
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Compiled trie dictionary " + path + " exceeds 2GB");
+      }
+      return new MappedTrieDict(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).getRoot();
+    }
+  }
+
+  /**
+   * Sprawdza, czy plik jest słownikiem skompilowanym do formatu binarnego. Sprawdzany jest tylko
+   * znacznik MAGIC, więc plik w innej wersji formatu jest odrzucany przez {@link #open(String)},
+   * a nie wczytywany jako słownik tekstowy.
+   *
+   * @param file
+   * @return
+   * @throws IOException
+   */
+  public static boolean isCompiled(File file) throws IOException {
+    if (!file.isFile() || file.length() < HEADER_SIZE) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      return in.readInt() == MAGIC;
+    }
+  }
+
+  /**
+   * Zapisuje słownik w formacie binarnym.
+   *
+   * @param root
+   * @param path
+   * @throws IOException
+   */
+  public static void compile(TrieDictNode root, String path) throws IOException {
+    /* Numeracja węzłów wszerz, korzeń otrzymuje numer 0 */
+    List<TrieDictNode> nodes = new ArrayList<TrieDictNode>();
+    TreeSet<byte[]> strings = new TreeSet<byte[]>(MappedTrieDict::compare);
+    nodes.add(root);
+    for (int i = 0; i < nodes.size(); i++) {
+      TrieDictNode node = nodes.get(i);
+      if (node.getValue() != null) {
+        strings.add(encode(node.getValue()));
+      }
+      for (Map.Entry<String, TrieDictNode> child : node.getChildren().entrySet()) {
+        strings.add(encode(child.getKey()));
+        nodes.add(child.getValue());
+      }
+    }
+
+    Map<String, Integer> wordIds = new HashMap<String, Integer>();
+    int[] wordOffset = new int[strings.size() + 1];
+    int id = 0;
+    for (byte[] string : strings) {
+      wordIds.put(new String(string, StandardCharsets.UTF_8), id);
+      wordOffset[id + 1] = wordOffset[id] + string.length;
+      id++;
+    }
+
+    Map<TrieDictNode, Integer> nodeIds = new HashMap<TrieDictNode, Integer>();
+    for (int i = 0; i < nodes.size(); i++) {
+      nodeIds.put(nodes.get(i), i);
+    }
+    long edgeCount = nodes.size() - 1;
+    long size = HEADER_SIZE + 4L * (wordOffset.length + nodes.size() + 1 + nodes.size() + 2 * edgeCount)
+        + nodes.size() + wordOffset[wordOffset.length - 1];
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Dictionary too large for the compiled trie format (" + size + " bytes)");
+    }
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(strings.size());
+      out.writeInt(nodes.size());
+      out.writeInt((int) edgeCount);
+      out.writeInt(wordOffset[wordOffset.length - 1]);
+      for (int offset : wordOffset) {
+        out.writeInt(offset);
+      }
+
+      /* Krawędzie każdego węzła posortowane według identyfikatora słowa */
+      int[][] edges = new int[nodes.size()][];
+      int first = 0;
+      for (int i = 0; i < nodes.size(); i++) {
+        Map<String, TrieDictNode> children = nodes.get(i).getChildren();
+        int[] nodeEdges = new int[children.size()];
+        int j = 0;
+        for (Map.Entry<String, TrieDictNode> child : children.entrySet()) {
+          nodeEdges[j++] = wordIds.get(child.getKey());
+        }
+        Arrays.sort(nodeEdges);
+        edges[i] = nodeEdges;
+        out.writeInt(first);
+        first += nodeEdges.length;
+      }
+      out.writeInt(first);
+
+      for (TrieDictNode node : nodes) {
+        out.writeInt(node.getValue() == null ? -1 : wordIds.get(node.getValue()));
+      }
+
+      List<String> words = new ArrayList<String>(wordIds.size());
+      for (byte[] string : strings) {
+        words.add(new String(string, StandardCharsets.UTF_8));
+      }
+      for (int[] nodeEdges : edges) {
+        for (int word : nodeEdges) {
+          out.writeInt(word);
+        }
+      }
+      for (int i = 0; i < nodes.size(); i++) {
+        TrieDictNode node = nodes.get(i);
+        for (int word : edges[i]) {
+          out.writeInt(nodeIds.get(node.getChild(words.get(word))));
+        }
+      }
+
+      for (TrieDictNode node : nodes) {
+        out.writeByte(node.isTerminal() ? 1 : 0);
+      }
+      for (byte[] string : strings) {
+        out.write(string);
+      }
+    }
+  }
+
+  private TrieDict getRoot() {
+    return new Node(0);
+  }
+
+  /**
+   * Wyszukuje binarnie identyfikator słowa w posortowanej tablicy napisów.
+   *
+   * @param word
+   * @return identyfikator słowa lub -1
+   */
+  private int getWordId(byte[] word) {
+    int low = 0;
+    int high = wordCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compareWord(mid, word);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private int compareWord(int id, byte[] word) {
+    int start = stringsPos + buffer.getInt(wordOffsetPos + 4 * id);
+    int length = stringsPos + buffer.getInt(wordOffsetPos + 4 * (id + 1)) - start;
+    int n = Math.min(length, word.length);
+    for (int i = 0; i < n; i++) {
+      int cmp = (buffer.get(start + i) & 0xff) - (word[i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return length - word.length;
+  }
+
+  private String getWord(int id) {
+    int start = stringsPos + buffer.getInt(wordOffsetPos + 4 * id);
+    int length = stringsPos + buffer.getInt(wordOffsetPos + 4 * (id + 1)) - start;
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Wyszukuje binarnie krawędź węzła o podanym identyfikatorze słowa.
+   *
+   * @param node
+   * @param wordId
+   * @return numer węzła docelowego lub -1
+   */
+  private int getChild(int node, int wordId) {
+    int low = buffer.getInt(firstEdgePos + 4 * node);
+    int high = buffer.getInt(firstEdgePos + 4 * (node + 1)) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int word = buffer.getInt(edgeWordPos + 4 * mid);
+      if (word < wordId) {
+        low = mid + 1;
+      } else if (word > wordId) {
+        high = mid - 1;
+      } else {
+        return buffer.getInt(edgeTargetPos + 4 * mid);
+      }
+    }
+    return -1;
+  }
+
+  private static byte[] encode(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int compare(byte[] a, byte[] b) {
+    int n = Math.min(a.length, b.length);
+    for (int i = 0; i < n; i++) {
+      int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return a.length - b.length;
+  }
+
+  /**
+   * Węzeł słownika wskazywany numerem w tablicach pliku.
+   */
+  private class Node implements TrieDict {
+
+    private final int index;
+
+    Node(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public TrieDict getChild(String value) {
+      if (value == null) {
+        return null;
+      }
+      int wordId = getWordId(encode(value));
+      if (wordId < 0) {
+        return null;
+      }
+      int child = MappedTrieDict.this.getChild(index, wordId);
+      return child < 0 ? null : new Node(child);
+    }
+
+    @Override
+    public boolean hasChild(String value) {
+      return getChild(value) != null;
+    }
+
+    @Override
+    public boolean isTerminal() {
+      return buffer.get(terminalPos + index) != 0;
+    }
+
+    @Override
+    public String getValue() {
+      int value = buffer.getInt(nodeValuePos + 4 * index);
+      return value < 0 ? null : getWord(value);
+    }
+  }
+
+}
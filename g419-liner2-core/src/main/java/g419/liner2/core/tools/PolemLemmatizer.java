@@ -1,35 +1,153 @@
 package g419.liner2.core.tools;
 
 import g419.corpus.structure.Annotation;
+import g419.corpus.structure.Token;
 import g419.liner2.core.lib.LibLoaderPolem;
 import g419.polem.CascadeLemmatizer;
 
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Lematyzacja fraz (nazw własnych) przy pomocy biblioteki Polem. Lematy są zapamiętywane w ograniczonym
+ * buforze (najdawniej używane są usuwane jako pierwsze), a anotacje o takiej samej kategorii, formach,
+ * formach podstawowych, tagach i odstępach między tokenami lematyzowane są tylko raz.
+ * <p>
+ * Obiekt może być używany przez wiele wątków -- wywołania biblioteki natywnej są synchronizowane.
+ */
 public class PolemLemmatizer {
 
+  public static final int DEFAULT_CACHE_SIZE = 100000;
+
+  private static PolemLemmatizer shared = null;
+
   final CascadeLemmatizer lemmatizer;
 
+  private final int cacheSize;
+  private final LinkedHashMap<List<String>, String> cache;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
   public PolemLemmatizer() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param cacheSize maksymalna liczba zapamiętanych lematów, 0 -- lematy nie są zapamiętywane
+   */
+  public PolemLemmatizer(final int cacheSize) {
     LibLoaderPolem.load();
     lemmatizer = CascadeLemmatizer.assembleLemmatizer();
+    this.cacheSize = Math.max(0, cacheSize);
+    cache = new LinkedHashMap<List<String>, String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<List<String>, String> eldest) {
+        return size() > PolemLemmatizer.this.cacheSize;
+      }
+    };
   }
 
+  /**
+   * Zwraca lematyzator współdzielony przez wszystkie dokumenty i wątki. Lematyzator jest tworzony
+   * przy pierwszym wywołaniu.
+   *
+   * @return
+   */
+  public static synchronized PolemLemmatizer getShared() {
+    if (shared == null) {
+      shared = new PolemLemmatizer();
+    }
+    return shared;
+  }
 
   public String lemmatize(final String orths, final String bases, final String ctags) {
     return lemmatize(orths, bases, ctags, false);
   }
 
   public String lemmatize(final String orths, final String bases, final String ctags, final boolean debug) {
-    return lemmatizer.lemmatizeS(orths, bases, ctags, debug);
+    synchronized (lemmatizer) {
+      return lemmatizer.lemmatizeS(orths, bases, ctags, debug);
+    }
   }
 
   public void lemmatize(final Annotation an) {
-    final String orths = an.getTokenTokens().stream().map(t -> t.getOrth()).collect(Collectors.joining(" "));
-    final String bases = an.getTokenTokens().stream().map(t -> t.getDisambTag().getBase()).collect(Collectors.joining(" "));
-    final String ctags = an.getTokenTokens().stream().map(t -> t.getDisambTag().getCtag()).collect(Collectors.joining(" "));
-    final String ns = an.getTokenTokens().stream().map(t -> t.getNoSpaceAfter() ? "False" : "True").collect(Collectors.joining(" "));
-    final String category = an.getType();
-    an.setLemma(lemmatizer.lemmatizeS(orths, bases, ctags, ns, category, false));
+    lemmatize(Collections.singletonList(an));
+  }
+
+  /**
+   * Ustawia lematy anotacji. Lematy anotacji o takim samym kluczu są wyznaczane raz, a lematy
+   * nieobecne w buforze -- w jednej sekcji krytycznej wywołań biblioteki natywnej.
+   *
+   * @param annotations
+   */
+  public void lemmatize(final Collection<Annotation> annotations) {
+    final Map<List<String>, List<Annotation>> groups = new LinkedHashMap<>();
+    for (final Annotation an : annotations) {
+      groups.computeIfAbsent(getKey(an), k -> new ArrayList<>()).add(an);
+    }
+
+    final Map<List<String>, String> lemmas = new HashMap<>();
+    synchronized (cache) {
+      for (final List<String> key : groups.keySet()) {
+        final String lemma = cache.get(key);
+        if (lemma != null) {
+          lemmas.put(key, lemma);
+        }
+      }
+    }
+    hits.add(lemmas.size());
+
+    final List<List<String>> missing = new ArrayList<>();
+    for (final List<String> key : groups.keySet()) {
+      if (!lemmas.containsKey(key)) {
+        missing.add(key);
+      }
+    }
+    if (!missing.isEmpty()) {
+      misses.add(missing.size());
+      synchronized (lemmatizer) {
+        for (final List<String> key : missing) {
+          lemmas.put(key, lemmatizer.lemmatizeS(key.get(1), key.get(2), key.get(3), key.get(4), key.get(0), false));
+        }
+      }
+      if (cacheSize > 0) {
+        synchronized (cache) {
+          for (final List<String> key : missing) {
+            cache.put(key, lemmas.get(key));
+          }
+        }
+      }
+    }
+
+    for (final Map.Entry<List<String>, List<Annotation>> group : groups.entrySet()) {
+      final String lemma = lemmas.get(group.getKey());
+      group.getValue().forEach(an -> an.setLemma(lemma));
+    }
+  }
+
+  /**
+   * Klucz anotacji: kategoria oraz formy, formy podstawowe, tagi i odstępy kolejnych tokenów
+   * w postaci przekazywanej do biblioteki Polem.
+   */
+  private List<String> getKey(final Annotation an) {
+    final StringJoiner orths = new StringJoiner(" ");
+    final StringJoiner bases = new StringJoiner(" ");
+    final StringJoiner ctags = new StringJoiner(" ");
+    final StringJoiner ns = new StringJoiner(" ");
+    for (final Token t : an.getTokenTokens()) {
+      orths.add(t.getOrth());
+      bases.add(t.getDisambTag().getBase());
+      ctags.add(t.getDisambTag().getCtag());
+      ns.add(t.getNoSpaceAfter() ? "False" : "True");
+    }
+    return Arrays.asList(an.getType(), orths.toString(), bases.toString(), ctags.toString(), ns.toString());
+  }
+
+  public long getCacheHits() {
+    return hits.sum();
+  }
+
+  public long getCacheMisses() {
+    return misses.sum();
   }
 }
@@ -0,0 +1,54 @@
+package g419.liner2.core.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Słownik sekwencji słów w postaci drzewa trie. Każdy obiekt reprezentuje węzeł drzewa,
+ * a korzeń odpowiada pustej sekwencji.
+ *
+ * @author Michał Marcińczuk
+ */
+public interface TrieDict {
+
+  /**
+   * Zwraca węzeł potomny dla podanego słowa lub null, jeżeli takiego nie ma.
+   *
+   * @param value
+   * @return
+   */
+  TrieDict getChild(String value);
+
+  boolean hasChild(String value);
+
+  /**
+   * Czy w tym węźle kończy się fraza ze słownika.
+   *
+   * @return
+   */
+  boolean isTerminal();
+
+  /**
+   * Wartość przypisana do frazy kończącej się w tym węźle lub null.
+   *
+   * @return
+   */
+  String getValue();
+
+  /**
+   * Wczytuje słownik z pliku. Plik skompilowany przez MappedTrieDict.compile jest mapowany
+   * do pamięci, a plik tekstowy (jedna fraza w linii) wczytywany przez TrieDictNode.loadPlain.
+   *
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  static TrieDict load(String path) throws IOException {
+    if (MappedTrieDict.isCompiled(new File(path))) {
+      return MappedTrieDict.open(path);
+    } else {
+      return TrieDictNode.loadPlain(path);
+    }
+  }
+
+}
@@ -3,6 +3,8 @@ package g419.liner2.core.tools;
 import g419.corpus.structure.Sentence;
 import g419.corpus.structure.Token;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -12,12 +14,12 @@ import java.util.List;
  */
 public class TrieDictFinder {
 
-  TrieDictNode dict = null;
+  TrieDict dict = null;
 
   /**
    * @param dict słownik sekwencji
    */
-  public TrieDictFinder(TrieDictNode dict) {
+  public TrieDictFinder(TrieDict dict) {
     this.dict = dict;
   }
 
@@ -30,14 +32,14 @@ public class TrieDictFinder {
    * @return
    */
   public int find(Sentence sentence, int index) {
-    TrieDictNode currentNode = dict;
+    TrieDict currentNode = dict;
     List<Token> tokens = sentence.getTokens();
     int longestMatch = 0;
     int offset = 0;
     while (currentNode != null && index + offset < tokens.size()) {
       // Dla uproszczenia sprawdzany jest tylko base dla pierwszego disamba
       String word = tokens.get(index + (offset++)).getDisambTag().getBase();
-      TrieDictNode nextNode = currentNode.getChild(word);
+      TrieDict nextNode = currentNode.getChild(word);
 
       if (nextNode != null && nextNode.isTerminal()) {
         longestMatch = offset;
@@ -58,7 +60,7 @@ public class TrieDictFinder {
    * @return
    */
   public int findByOrth(Sentence sentence, int index, boolean cs) {
-    TrieDictNode currentNode = dict;
+    TrieDict currentNode = dict;
     List<Token> tokens = sentence.getTokens();
     int longestMatch = 0;
     int offset = 0;
@@ -67,7 +69,7 @@ public class TrieDictFinder {
       if (!cs) {
         word = word.toLowerCase();
       }
-      TrieDictNode nextNode = currentNode.getChild(word);
+      TrieDict nextNode = currentNode.getChild(word);
 
       if (nextNode != null && nextNode.isTerminal()) {
         longestMatch = offset;
@@ -76,4 +78,85 @@ public class TrieDictFinder {
     }
     return longestMatch;
   }
+
+  /**
+   * Wyszukuje wszystkie wystąpienia fraz ze słownika w zdaniu (porównywane są orthy, z uwzględnieniem
+   * wielkości liter). Słownik przeglądany jest od każdego tokenu, więc koszt zależy liniowo
+   * od długości zdania i długości najdłuższej frazy. Wyniki są posortowane od najdłuższych,
+   * a przy równej długości od lewej.
+   *
+   * @param sentence
+   * @return
+   */
+  public List<Match> findAllByOrth(Sentence sentence) {
+    List<Token> tokens = sentence.getTokens();
+    List<Match> matches = new ArrayList<Match>();
+    for (int index = 0; index < tokens.size(); index++) {
+      TrieDict currentNode = dict;
+      int offset = index;
+      while (currentNode != null && offset < tokens.size()) {
+        currentNode = currentNode.getChild(tokens.get(offset).getOrth());
+        if (currentNode != null && currentNode.isTerminal()) {
+          matches.add(new Match(index, offset, currentNode));
+        }
+        offset++;
+      }
+    }
+    Collections.sort(matches, (a, b) -> a.length() != b.length()
+        ? b.length() - a.length() : a.getStart() - b.getStart());
+    return matches;
+  }
+
+  /**
+   * Wystąpienie frazy słownika w zdaniu: indeksy pierwszego i ostatniego tokenu oraz węzeł końcowy frazy.
+   */
+  public static class Match {
+
+    private final int start;
+    private final int end;
+    private final TrieDict node;
+
+    public Match(int start, int end, TrieDict node) {
+      this.start = start;
+      this.end = end;
+      this.node = node;
+    }
+
+    public int getStart() {
+      return start;
+    }
+
+    public int getEnd() {
+      return end;
+    }
+
+    public int length() {
+      return end - start + 1;
+    }
+
+    public TrieDict getNode() {
+      return node;
+    }
+
+    /**
+     * Sprawdza, czy żaden z tokenów wystąpienia nie jest oznaczony jako zajęty.
+     *
+     * @param taken
+     * @return
+     */
+    public boolean isFree(boolean[] taken) {
+      for (int i = start; i <= end; i++) {
+        if (taken[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    public void take(boolean[] taken) {
+      for (int i = start; i <= end; i++) {
+        taken[i] = true;
+      }
+    }
+  }
 }
@@ -1,12 +1,15 @@
 package g419.liner2.core.tools;
 
 import java.io.*;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
-public class TrieDictNode {
+public class TrieDictNode implements TrieDict {
 
   private HashMap<String, TrieDictNode> children = new HashMap<String, TrieDictNode>();
   private boolean terminal;
+  private String value = null;
 
   public TrieDictNode() {
     this.terminal = false;
@@ -28,6 +31,10 @@ public class TrieDictNode {
     }
   }
 
+  public Map<String, TrieDictNode> getChildren() {
+    return Collections.unmodifiableMap(children);
+  }
+
   public boolean hasChild(String value) {
     return children.containsKey(value);
   }
@@ -44,24 +51,45 @@ public class TrieDictNode {
     this.terminal = terminal;
   }
 
+  /**
+   * Wartość przypisana do frazy kończącej się w tym węźle (np. pełna fraza słownika).
+   *
+   * @return
+   */
+  public String getValue() {
+    return value;
+  }
+
+  public void setValue(String value) {
+    this.value = value;
+  }
+
 
   /**
    * @param phrase
    */
   public void addPhrase(String[] phrase) {
-    if (phrase.length == 1) {
-      this.addChild(phrase[0], true);
-    } else {
-      int wordIdx = 0;
-      TrieDictNode dictNode = this;
-      while (wordIdx < phrase.length - 1) {
-        dictNode.addChild(phrase[wordIdx], false);
-        dictNode = dictNode.getChild(phrase[wordIdx]);
-        wordIdx++;
-      }
-      dictNode.addChild(phrase[wordIdx], true);
-    }
+    addPhrase(phrase, null);
+  }
 
+  /**
+   * Dodaje frazę i przypisuje wartość do jej węzła końcowego.
+   *
+   * @param phrase
+   * @param value
+   */
+  public void addPhrase(String[] phrase, String value) {
+    int wordIdx = 0;
+    TrieDictNode dictNode = this;
+    while (wordIdx < phrase.length - 1) {
+      dictNode.addChild(phrase[wordIdx], false);
+      dictNode = dictNode.getChild(phrase[wordIdx]);
+      wordIdx++;
+    }
+    dictNode.addChild(phrase[wordIdx], true);
+    if (value != null) {
+      dictNode.getChild(phrase[wordIdx]).setValue(value);
+    }
   }
 
   /**
@@ -1,104 +1,43 @@
 package g419.liner2.core.tools;
 
-import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.*;
+import g419.toolbox.wordnet.MappedWordnet;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataLemmaRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRaw;
 
-import java.io.*;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.HashSet;
-import java.util.Map.Entry;
 import java.util.Set;
 
 public class Wordnet2 {
-  HashMap<String, HashMap<String, PrincetonDataRaw>> data = new HashMap<String, HashMap<String, PrincetonDataRaw>>();
-  HashMap<String, HashMap<String, PrincetonIndexRaw>> index = new HashMap<String, HashMap<String, PrincetonIndexRaw>>();
 
-  String[][] poses = new String[][] {{"adj", "a"}, {"adv", "r"}, {"noun", "n"}, {"verb", "v"}};
+  MappedWordnet wordnet;
+  boolean[] hypernymTypes;
+  boolean[] hyponymTypes;
 
   String wordnet_path;
 
   public Wordnet2(String path) {
     wordnet_path = path;
     try {
-      if (!new File(path).exists()) {
-        throw new FileNotFoundException("Invalid database directory: " + path);
-      }
-      for (String pos[] : poses) {
-        String filename = path + File.separator + "index." + pos[0];
-        if ((new File(filename)).exists()) {
-          index.put(pos[1], readIndexFile(filename));
-        }
-      }
-      for (String pos[] : poses) {
-        String filename = path + File.separator + "data." + pos[0];
-        if ((new File(filename)).exists()) {
-          data.put(pos[1], readDataFile(filename, pos[1]));
-        }
-      }
+      wordnet = MappedWordnet.load(path);
     } catch (Exception e) {
       e.printStackTrace();
+      wordnet = MappedWordnet.empty();
     }
-  }
-
-  public HashMap<String, PrincetonIndexRaw> readIndexFile(String filename) throws IOException {
-    HashMap<String, PrincetonIndexRaw> units = new HashMap<String, PrincetonIndexRaw>();
-
-    BufferedReader r = new BufferedReader(new FileReader(filename));
-
-    String line = null;
-    while ((line = r.readLine()) != null) {
-      // Skip lines with comments. Lines with comments starts with two spaces.
-      if (line.startsWith("  ")) {
-        continue;
-      }
-      // Parse line
-      PrincetonIndexRaw raw = PrincetonParser.parseIndexLine(line);
-      units.put(raw.lemma, raw);
-    }
-    r.close();
-    return units;
-  }
-
-  public HashMap<String, PrincetonDataRaw> readDataFile(String filename, String pos) throws IOException {
-    BufferedReader r = new BufferedReader(new FileReader(filename));
-    HashMap<String, PrincetonDataRaw> data = new HashMap<String, PrincetonDataRaw>();
-
-    String line = null;
-    while ((line = r.readLine()) != null) {
-      // Skip lines with comments. Lines with comments starts with two spaces.
-      if (line.startsWith("  ")) {
-        continue;
-      }
-      // Parse line
-      PrincetonDataRaw d = PrincetonParser.parseDataLine(line);
-      d.pos = pos;
-      data.put(d.offset, d);
-    }
-    r.close();
-
-
-    return data;
+    hypernymTypes = wordnet.getRelationTypes("@"::equals);
+    hyponymTypes = wordnet.getRelationTypes("~"::equals);
   }
 
   public ArrayList<PrincetonDataRaw> getSynsets(String word) {
-    ArrayList<PrincetonDataRaw> synsets = new ArrayList<PrincetonDataRaw>();
-    for (Entry<String, HashMap<String, PrincetonIndexRaw>> units : index.entrySet()) {
-      if (units.getValue().containsKey(word)) {
-        for (String offset : units.getValue().get(word).synset_offsets) {
-          synsets.add(data.get(units.getKey()).get(offset));
-        }
-      }
-    }
-    return synsets;
+    return new ArrayList<PrincetonDataRaw>(wordnet.getSynsets(wordnet.getSynsetIds(word)));
   }
 
   public ArrayList<String> getMuliwordPhrases() {
     ArrayList<String> multiwordPhrases = new ArrayList<String>();
-    for (Entry<String, HashMap<String, PrincetonIndexRaw>> units : index.entrySet()) {
-      for (String wordUnit : (units.getValue().keySet())) {
-        if (wordUnit.contains("_")) {
-          multiwordPhrases.add(wordUnit.replace("_", " "));
-        }
+    for (String wordUnit : wordnet.getIndexLemmas()) {
+      if (wordUnit.contains("_")) {
+        multiwordPhrases.add(wordUnit.replace("_", " "));
       }
     }
     return multiwordPhrases;
@@ -112,66 +51,40 @@ public class Wordnet2 {
    * @return
    */
   public ArrayList<PrincetonDataRaw> getSynsets(String word, int sense) {
-    ArrayList<PrincetonDataRaw> synsets = new ArrayList<PrincetonDataRaw>();
-    for (Entry<String, HashMap<String, PrincetonIndexRaw>> units : index.entrySet()) {
-      if (units.getValue().containsKey(word)) {
-        if (units.getValue().get(word).synset_offsets.size() >= sense) {
-          String offset = units.getValue().get(word).synset_offsets.get(sense - 1);
-          synsets.add(data.get(units.getKey()).get(offset));
-        }
-      }
-    }
-    return synsets;
+    return new ArrayList<PrincetonDataRaw>(wordnet.getSynsets(wordnet.getSynsetIds(word, sense)));
   }
 
   /**
+   * Zwraca słowa należące do synsetów słowa word o sensie sense i do wszystkich synsetów
+   * będących ich hiponimami.
+   *
    * @param word
    * @param sense
    * @return
    */
   public Set<String> getHyponymWords(String word, int sense) {
-    Set<PrincetonDataRaw> visited = new HashSet<PrincetonDataRaw>();
-    Set<String> words = new HashSet<String>();
-    for (PrincetonDataRaw synset : this.getSynsets(word, sense)) {
-      this.getHyponymWordsRecursive(synset, visited, words);
+    BitSet synsets = new BitSet(wordnet.getSynsetCount());
+    for (int synset : wordnet.getSynsetIds(word, sense)) {
+      synsets.set(synset);
+      synsets.or(wordnet.getAllSynsetIds(synset, hyponymTypes));
     }
-    return words;
-  }
-
-  /**
-   * Rekurencyjna funkcja tworząca listę słów będących należących do danego synsetu i wszystkich synsetów
-   * będących hiponimami.
-   *
-   * @param synset
-   * @param visited
-   * @param words
-   */
-  private void getHyponymWordsRecursive(PrincetonDataRaw synset, Set<PrincetonDataRaw> visited, Set<String> words) {
-    if (!visited.contains(synset)) {
-      visited.add(synset);
-      // Dodaj słowa z synsetu
+    Set<String> words = new HashSet<String>();
+    for (PrincetonDataRaw synset : wordnet.getSynsets(synsets)) {
       for (PrincetonDataLemmaRaw lemma : synset.lemmas) {
         words.add(lemma.lemma);
       }
-      // Wywołanie rekurencyjne dla kolejnych poziomów zagnieżdżenia
-      for (PrincetonDataRelationRaw rel : synset.relations) {
-        if (rel.type.equals("~")) {
-          this.getHyponymWordsRecursive(this.data.get(rel.pos).get(rel.offset), visited, words);
-        }
-      }
     }
+    return words;
   }
 
-
   public ArrayList<PrincetonDataRaw> getHypernyms(PrincetonDataRaw synset) {
     ArrayList<PrincetonDataRaw> hypernyms = new ArrayList<PrincetonDataRaw>();
-    for (PrincetonDataRelationRaw rel : synset.relations) {
-      if (rel.type.equals("@")) {
-        hypernyms.add(data.get(rel.pos).get(rel.offset));
-      }
+    int id = wordnet.getSynsetId(synset);
+    if (id >= 0) {
+      hypernyms.addAll(wordnet.getSynsets(wordnet.getDirectSynsetIds(id, hypernymTypes)));
     }
     return hypernyms;
 
   }
 
-}
\ No newline at end of file
+}
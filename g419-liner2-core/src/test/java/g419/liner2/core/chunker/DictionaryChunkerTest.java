@@ -0,0 +1,95 @@
+package g419.liner2.core.chunker;
+
+import g419.corpus.structure.Annotation;
+import g419.corpus.structure.AnnotationSet;
+import g419.corpus.structure.Document;
+import g419.corpus.structure.Paragraph;
+import g419.corpus.structure.Sentence;
+import g419.corpus.structure.Tag;
+import g419.corpus.structure.Token;
+import g419.corpus.structure.TokenAttributeIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class DictionaryChunkerTest {
+
+  private File writeFile(final String suffix, final String... lines) throws Exception {
+    final File file = File.createTempFile("dict", suffix);
+    file.deleteOnExit();
+    try (PrintWriter writer = new PrintWriter(file)) {
+      for (final String line : lines) {
+        writer.println(line);
+      }
+    }
+    return file;
+  }
+
+  private Document createDocument(final String text) {
+    final TokenAttributeIndex index = new TokenAttributeIndex();
+    index.addAttribute("orth");
+    index.addAttribute("base");
+    index.addAttribute("ctag");
+    final Sentence sentence = new Sentence(index);
+    for (final String word : text.split(" ")) {
+      sentence.addToken(new Token(word, new Tag(word.toLowerCase(), "subst", true), index));
+    }
+    final Paragraph paragraph = new Paragraph("p1", index);
+    paragraph.addSentence(sentence);
+    final Document document = new Document("doc", index);
+    document.addParagraph(paragraph);
+    return document;
+  }
+
+  private List<String> chunk(final DictionaryChunker chunker, final String text) {
+    final List<String> chunks = new ArrayList<>();
+    for (final Map.Entry<Sentence, AnnotationSet> entry : chunker.chunk(createDocument(text)).entrySet()) {
+      for (final Annotation annotation : entry.getValue().chunkSet()) {
+        chunks.add(annotation.getType() + ":" + annotation.getText());
+      }
+    }
+    chunks.sort(String::compareTo);
+    return chunks;
+  }
+
+  /**
+   * Chunkery wczytane z tego samego pliku współdzielą słownik, więc zmiana słownika w jednym z nich
+   * musi być widoczna w pozostałych, również po wcześniejszym użyciu skompilowanego słownika.
+   */
+  @Test
+  public void testSharedDictionaryChanges() throws Exception {
+    final File dict = writeFile(".txt", "nam_loc\tNowy Jork", "nam_loc\tWarszawa", "nam_liv\tJan Kowalski");
+    final File commons = writeFile(".commons", "jan");
+
+    final DictionaryChunker first = new DictionaryChunker(null);
+    first.loadDictionary(dict.getPath(), commons.getPath());
+    final DictionaryChunker second = new DictionaryChunker(null);
+    second.loadDictionary(dict.getPath(), commons.getPath());
+
+    final String text = "Jan Kowalski i Anna jadą z Warszawa do Nowy Jork";
+    Assert.assertEquals(Arrays.asList("nam_liv:Jan Kowalski", "nam_loc:Nowy Jork", "nam_loc:Warszawa"), chunk(first, text));
+    Assert.assertEquals(chunk(first, text), chunk(second, text));
+
+    second.addEntry("Anna", "nam_liv");
+    Assert.assertEquals(Arrays.asList("nam_liv:Anna", "nam_liv:Jan Kowalski", "nam_loc:Nowy Jork", "nam_loc:Warszawa"),
+        chunk(first, text));
+
+    first.removeEntry("Warszawa");
+    Assert.assertEquals(Arrays.asList("nam_liv:Anna", "nam_liv:Jan Kowalski", "nam_loc:Nowy Jork"), chunk(second, text));
+  }
+
+  @Test
+  public void testOwnDictionary() {
+    final DictionaryChunker chunker = new DictionaryChunker(null);
+    Assert.assertTrue(chunk(chunker, "Jan Kowalski").isEmpty());
+    chunker.addEntry("Jan Kowalski", "nam_liv");
+    chunker.addEntry("Jan", "nam_liv");
+    Assert.assertEquals(Arrays.asList("nam_liv:Jan Kowalski"), chunk(chunker, "Jan Kowalski"));
+  }
+}
@@ -0,0 +1,172 @@
+package g419.liner2.core.tools;
+
+import g419.corpus.structure.Sentence;
+import g419.corpus.structure.Tag;
+import g419.corpus.structure.Token;
+import g419.corpus.structure.TokenAttributeIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Porównuje słownik skompilowany przez {@link MappedTrieDict#compile(TrieDictNode, String)}
+ * i mapowany do pamięci ze słownikiem {@link TrieDictNode}, z którego został utworzony.
+ */
+public class MappedTrieDictTest {
+
+  private static final String[][] PHRASES = {
+      {"Jan", "nam_liv_person_first"},
+      {"Jan Kowalski", "nam_liv_person"},
+      {"Nowy Jork", "nam_loc_gpe_city"},
+      {"Nowy Jork City", null},
+      {"Bank Polski SA", "nam_org_company"},
+      {"Zielona Góra", "nam_loc_gpe_city"},
+      {"Łódź", "nam_loc_gpe_city"},
+      {"ul . Długa", "nam_fac_road"}};
+
+  private static final String[] SENTENCES = {
+      /* Frazy wielowyrazowe, zagnieżdżone i nakładające się */
+      "Jan Kowalski mieszka w Nowy Jork City i w Zielona Góra",
+      "Jan Jan Kowalski Kowalski",
+      /* Tylko prefiksy fraz: Bank Polski, Nowy, Zielona, ul . */
+      "Bank Polski ma siedzibę w Nowy Targ , Zielona ul . Krótka",
+      /* Frazy na początku i na końcu zdania */
+      "Łódź ul . Długa",
+      /* Słowa spoza słownika, różnica wielkości liter */
+      "jan kowalski , łódź , NOWY JORK",
+      ""};
+
+  private TrieDictNode createDictionary() {
+    final TrieDictNode root = new TrieDictNode(false);
+    for (final String[] phrase : PHRASES) {
+      root.addPhrase(phrase[0].split(" "), phrase[1]);
+    }
+    return root;
+  }
+
+  private File compile(final TrieDictNode root) throws IOException {
+    final File file = File.createTempFile("trie", ".bin");
+    file.deleteOnExit();
+    MappedTrieDict.compile(root, file.getPath());
+    return file;
+  }
+
+  private Sentence createSentence(final String text) {
+    final TokenAttributeIndex index = new TokenAttributeIndex();
+    index.addAttribute("orth");
+    index.addAttribute("base");
+    index.addAttribute("ctag");
+    final Sentence sentence = new Sentence(index);
+    for (final String word : text.split(" ")) {
+      if (!word.isEmpty()) {
+        sentence.addToken(new Token(word, new Tag(word, "subst", true), index));
+      }
+    }
+    return sentence;
+  }
+
+  private List<String> findAll(final TrieDict dict, final Sentence sentence) {
+    final List<String> matches = new ArrayList<>();
+    for (final TrieDictFinder.Match match : new TrieDictFinder(dict).findAllByOrth(sentence)) {
+      matches.add(match.getStart() + "-" + match.getEnd() + ":" + match.getNode().getValue());
+    }
+    return matches;
+  }
+
+  @Test
+  public void testFindAllByOrth() throws Exception {
+    final TrieDictNode root = createDictionary();
+    final TrieDict mapped = MappedTrieDict.open(compile(root).getPath());
+    int matches = 0;
+    for (final String text : SENTENCES) {
+      final Sentence sentence = createSentence(text);
+      final List<String> expected = findAll(root, sentence);
+      Assert.assertEquals(text, expected, findAll(mapped, sentence));
+      matches += expected.size();
+    }
+    Assert.assertEquals(Arrays.asList("4-6:null", "0-1:nam_liv_person", "4-5:nam_loc_gpe_city",
+        "9-10:nam_loc_gpe_city", "0-0:nam_liv_person_first"), findAll(mapped, createSentence(SENTENCES[0])));
+    Assert.assertTrue(findAll(mapped, createSentence(SENTENCES[2])).isEmpty());
+    Assert.assertEquals(10, matches);
+  }
+
+  @Test
+  public void testNodes() throws Exception {
+    final TrieDict mapped = MappedTrieDict.open(compile(createDictionary()).getPath());
+    Assert.assertFalse(mapped.isTerminal());
+    Assert.assertNull(mapped.getValue());
+
+    /* Prefiks frazy */
+    final TrieDict prefix = mapped.getChild("Bank").getChild("Polski");
+    Assert.assertFalse(prefix.isTerminal());
+    Assert.assertNull(prefix.getValue());
+    Assert.assertTrue(prefix.hasChild("SA"));
+    Assert.assertEquals("nam_org_company", prefix.getChild("SA").getValue());
+
+    /* Fraza bez wartości i fraza będąca prefiksem innej frazy */
+    Assert.assertTrue(mapped.getChild("Nowy").getChild("Jork").getChild("City").isTerminal());
+    Assert.assertNull(mapped.getChild("Nowy").getChild("Jork").getChild("City").getValue());
+    Assert.assertTrue(mapped.getChild("Jan").isTerminal());
+    Assert.assertTrue(mapped.getChild("Jan").hasChild("Kowalski"));
+
+    /* Brakujące słowa, również słowa występujące w słowniku w innym miejscu */
+    Assert.assertNull(mapped.getChild("Kowalski"));
+    Assert.assertNull(mapped.getChild("Bank").getChild("SA"));
+    Assert.assertNull(mapped.getChild("Łódź").getChild("Łódź"));
+    Assert.assertNull(mapped.getChild("nam_loc_gpe_city"));
+    Assert.assertNull(mapped.getChild(""));
+    Assert.assertNull(mapped.getChild(null));
+    Assert.assertFalse(mapped.hasChild("łódź"));
+  }
+
+  @Test
+  public void testEmptyDictionary() throws Exception {
+    final TrieDict mapped = MappedTrieDict.open(compile(new TrieDictNode(false)).getPath());
+    Assert.assertNull(mapped.getChild("Jan"));
+    Assert.assertTrue(findAll(mapped, createSentence(SENTENCES[0])).isEmpty());
+  }
+
+  @Test
+  public void testLoad() throws Exception {
+    final File file = compile(createDictionary());
+    Assert.assertTrue(MappedTrieDict.isCompiled(file));
+    Assert.assertTrue(TrieDict.load(file.getPath()).getChild("Jan").isTerminal());
+  }
+
+  @Test
+  public void testBadMagic() throws Exception {
+    final File file = compile(createDictionary());
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.writeInt(0x4C544430);
+    }
+    Assert.assertFalse(MappedTrieDict.isCompiled(file));
+    try {
+      MappedTrieDict.open(file.getPath());
+      Assert.fail("A file without the magic number should be rejected");
+    } catch (final IOException ex) {
+      Assert.assertEquals("Not a compiled trie dictionary", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testBadVersion() throws Exception {
+    final File file = compile(createDictionary());
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(4);
+      raf.writeInt(MappedTrieDict.VERSION + 1);
+    }
+    Assert.assertTrue(MappedTrieDict.isCompiled(file));
+    try {
+      TrieDict.load(file.getPath());
+      Assert.fail("A file in another version of the format should be rejected");
+    } catch (final IOException ex) {
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().startsWith("Unsupported version"));
+    }
+  }
+}
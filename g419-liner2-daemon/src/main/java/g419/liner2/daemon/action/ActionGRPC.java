@@ -3,6 +3,7 @@ package g419.liner2.daemon.action;
 import g419.lib.cli.Action;
 import g419.lib.cli.CommonOptions;
 import g419.liner2.daemon.utils.GrpcWorker;
+import g419.liner2.daemon.utils.ResultCache;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 
@@ -20,17 +21,39 @@ public class ActionGRPC extends Action {
     public static final String OPTION_PORT_ARG = "name";
     public static final String OPTION_PORT_DESC = "gRPC port";
 
+    public static final String OPTION_QUEUE_SIZE = "Q";
+    public static final String OPTION_QUEUE_SIZE_LONG = "queue-size";
+    public static final String OPTION_QUEUE_SIZE_DEFAULT = "100";
+    public static final String OPTION_QUEUE_SIZE_ARG = "number";
+    public static final String OPTION_QUEUE_SIZE_DESC = "number of requests waiting for a free worker, "
+            + "further requests are rejected with RESOURCE_EXHAUSTED";
+
+    public static final String OPTION_DEADLINE = "D";
+    public static final String OPTION_DEADLINE_LONG = "deadline";
+    public static final String OPTION_DEADLINE_DEFAULT = "0";
+    public static final String OPTION_DEADLINE_ARG = "ms";
+    public static final String OPTION_DEADLINE_DESC = "maximum time of processing a single request in milliseconds "
+            + "(0 -- no limit)";
+
     private String modelPath;
     private String grpcHostname;
     private String grpcPort;
+    private int threads;
+    private int queueSize;
+    private long deadline;
+    private ResultCache cache;
 
     public ActionGRPC() {
         super("grpc");
         setDescription("Starts Liner2 daemon processing requests via gRPC");
         options.addOption(getHostnameOption());
         options.addOption(getPortOption());
+        options.addOption(getQueueSizeOption());
+        options.addOption(getDeadlineOption());
+        options.addOption(CommonOptions.getThreadsOption());
         options.addOption(CommonOptions.getModelFileOption());
         options.addOption(CommonOptions.getInputFileFormatOption());
+        ResultCacheOptions.addOptions(options);
     }
 
     private static Option getHostnameOption() {
@@ -43,17 +66,32 @@ public class ActionGRPC extends Action {
                 .hasArg().argName(OPTION_PORT_ARG).desc(OPTION_PORT_DESC).build();
     }
 
+    private static Option getQueueSizeOption() {
+        return Option.builder(OPTION_QUEUE_SIZE).longOpt(OPTION_QUEUE_SIZE_LONG)
+                .hasArg().argName(OPTION_QUEUE_SIZE_ARG).desc(OPTION_QUEUE_SIZE_DESC).build();
+    }
+
+    private static Option getDeadlineOption() {
+        return Option.builder(OPTION_DEADLINE).longOpt(OPTION_DEADLINE_LONG)
+                .hasArg().argName(OPTION_DEADLINE_ARG).desc(OPTION_DEADLINE_DESC).build();
+    }
 
     @Override
     public void parseOptions(final CommandLine line) throws Exception {
         modelPath = line.getOptionValue(CommonOptions.OPTION_MODEL);
         grpcHostname = line.getOptionValue(OPTION_HOSTNAME, OPTION_HOSTNAME_DEFAULT);
         grpcPort = line.getOptionValue(OPTION_PORT, OPTION_PORT_DEFAULT);
+        threads = Integer.parseInt(line.getOptionValue(CommonOptions.OPTION_THREADS,
+                "" + Runtime.getRuntime().availableProcessors()));
+        queueSize = Integer.parseInt(line.getOptionValue(OPTION_QUEUE_SIZE, OPTION_QUEUE_SIZE_DEFAULT));
+        deadline = Long.parseLong(line.getOptionValue(OPTION_DEADLINE, OPTION_DEADLINE_DEFAULT));
+        cache = ResultCacheOptions.createCache(line, modelPath);
     }
 
     @Override
     public void run() throws Exception {
-        final GrpcWorker worker = new GrpcWorker(grpcHostname, Integer.parseInt(grpcPort), modelPath);
+        final GrpcWorker worker = new GrpcWorker(grpcHostname, Integer.parseInt(grpcPort), modelPath,
+                threads, queueSize, deadline, cache);
         worker.run();
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package g419.liner2.daemon.action;
 import g419.lib.cli.Action;
 import g419.lib.cli.CommonOptions;
 import g419.liner2.daemon.utils.RabbitMqWorker;
+import g419.liner2.daemon.utils.ResultCache;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 
@@ -20,21 +21,41 @@ public class ActionRabbitMq extends Action {
   public static final String OPTION_HOSTNAME_ARG = "name";
   public static final String OPTION_HOSTNAME_DEFAULT = "localhost";
 
+  public static final String OPTION_PREFETCH = "p";
+  public static final String OPTION_PREFETCH_LONG = "prefetch";
+  public static final String OPTION_PREFETCH_DESC = "number of unacknowledged messages delivered to a single consumer";
+  public static final String OPTION_PREFETCH_ARG = "number";
+  public static final String OPTION_PREFETCH_DEFAULT = "1";
+
+  public static final String OPTION_DEAD_LETTER_QUEUE = "L";
+  public static final String OPTION_DEAD_LETTER_QUEUE_LONG = "dead-letter-queue";
+  public static final String OPTION_DEAD_LETTER_QUEUE_DESC = "name of the RabbitMQ queue for messages which could not be processed";
+  public static final String OPTION_DEAD_LETTER_QUEUE_ARG = "name";
+  public static final String OPTION_DEAD_LETTER_QUEUE_DEFAULT = "liner2-dead-letter";
+
   public static final String OPTION_OUTPUT_QUEUE_DEFAULT = "liner2-output";
 
   String inputQueueName;
   String outputQueueName;
+  String deadLetterQueueName;
   String modelPath = null;
   String inputFormat;
   String rabbitMqHostname = "localhost";
+  int threads;
+  int prefetch;
+  ResultCache cache;
 
   public ActionRabbitMq() {
     super("rabbitmq");
     setDescription("Starts Liner2 daemon processing requests from a RabbitMQ queue");
     options.addOption(getHostnameOption());
     options.addOption(getQueueNameOption());
+    options.addOption(getDeadLetterQueueNameOption());
+    options.addOption(getPrefetchOption());
+    options.addOption(CommonOptions.getThreadsOption());
     options.addOption(CommonOptions.getModelFileOption());
     options.addOption(CommonOptions.getInputFileFormatOption());
+    ResultCacheOptions.addOptions(options);
   }
 
   private static Option getQueueNameOption() {
@@ -42,6 +63,16 @@ public class ActionRabbitMq extends Action {
         .hasArg().argName(OPTION_QUEUE_ARG).desc(OPTION_QUEUE_DESC).build();
   }
 
+  private static Option getDeadLetterQueueNameOption() {
+    return Option.builder(OPTION_DEAD_LETTER_QUEUE).longOpt(OPTION_DEAD_LETTER_QUEUE_LONG)
+        .hasArg().argName(OPTION_DEAD_LETTER_QUEUE_ARG).desc(OPTION_DEAD_LETTER_QUEUE_DESC).build();
+  }
+
+  private static Option getPrefetchOption() {
+    return Option.builder(OPTION_PREFETCH).longOpt(OPTION_PREFETCH_LONG)
+        .hasArg().argName(OPTION_PREFETCH_ARG).desc(OPTION_PREFETCH_DESC).build();
+  }
+
   private static Option getHostnameOption() {
     return Option.builder(OPTION_HOSTNAME).longOpt(OPTION_HOSTNAME_LONG)
         .hasArg().argName(OPTION_HOSTNAME_ARG).desc(OPTION_HOSTNAME_DESC).build();
@@ -52,15 +83,21 @@ public class ActionRabbitMq extends Action {
   public void parseOptions(final CommandLine line) throws Exception {
     inputQueueName = line.getOptionValue(OPTION_QUEUE, OPTION_QUEUE_DEFAULT);
     outputQueueName = OPTION_OUTPUT_QUEUE_DEFAULT;
+    deadLetterQueueName = line.getOptionValue(OPTION_DEAD_LETTER_QUEUE, OPTION_DEAD_LETTER_QUEUE_DEFAULT);
     modelPath = line.getOptionValue(CommonOptions.OPTION_MODEL);
     inputFormat = line.getOptionValue(CommonOptions.OPTION_INPUT_FORMAT);
     rabbitMqHostname = line.getOptionValue(OPTION_HOSTNAME, OPTION_HOSTNAME_DEFAULT);
+    threads = Integer.parseInt(line.getOptionValue(CommonOptions.OPTION_THREADS,
+        "" + Runtime.getRuntime().availableProcessors()));
+    prefetch = Integer.parseInt(line.getOptionValue(OPTION_PREFETCH, OPTION_PREFETCH_DEFAULT));
+    cache = ResultCacheOptions.createCache(line, modelPath);
   }
 
   @Override
   public void run() throws Exception {
     final RabbitMqWorker worker =
-        new RabbitMqWorker(rabbitMqHostname, inputQueueName, outputQueueName, modelPath, inputFormat);
+        new RabbitMqWorker(rabbitMqHostname, inputQueueName, outputQueueName, deadLetterQueueName,
+            modelPath, inputFormat, threads, prefetch, cache);
     (new Thread(worker)).start();
   }
 }
@@ -0,0 +1,58 @@
+package g419.liner2.daemon.action;
+
+import g419.liner2.daemon.utils.ResultCache;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Options of the result cache shared by the daemon actions. The cache is disabled unless
+ * its memory size or directory is given.
+ */
+final class ResultCacheOptions {
+
+  public static final String OPTION_CACHE_SIZE_LONG = "cache-size";
+  public static final String OPTION_CACHE_SIZE_DEFAULT = "0";
+  public static final String OPTION_CACHE_SIZE_ARG = "MB";
+  public static final String OPTION_CACHE_SIZE_DESC = "maximum size of results of repeated inputs kept in memory "
+      + "in megabytes (0 -- no memory cache)";
+
+  public static final String OPTION_CACHE_TTL_LONG = "cache-ttl";
+  public static final String OPTION_CACHE_TTL_DEFAULT = "0";
+  public static final String OPTION_CACHE_TTL_ARG = "seconds";
+  public static final String OPTION_CACHE_TTL_DESC = "time after which a cached result expires (0 -- no limit)";
+
+  public static final String OPTION_CACHE_DIR_LONG = "cache-dir";
+  public static final String OPTION_CACHE_DIR_ARG = "path";
+  public static final String OPTION_CACHE_DIR_DESC = "directory for results of repeated inputs stored on disk";
+
+  private ResultCacheOptions() {
+  }
+
+  static void addOptions(final Options options) {
+    options.addOption(Option.builder().longOpt(OPTION_CACHE_SIZE_LONG)
+        .hasArg().argName(OPTION_CACHE_SIZE_ARG).desc(OPTION_CACHE_SIZE_DESC).build());
+    options.addOption(Option.builder().longOpt(OPTION_CACHE_TTL_LONG)
+        .hasArg().argName(OPTION_CACHE_TTL_ARG).desc(OPTION_CACHE_TTL_DESC).build());
+    options.addOption(Option.builder().longOpt(OPTION_CACHE_DIR_LONG)
+        .hasArg().argName(OPTION_CACHE_DIR_ARG).desc(OPTION_CACHE_DIR_DESC).build());
+  }
+
+  /**
+   * @param line
+   * @param modelPath
+   * @return the cache configured by the options or null if it is disabled
+   * @throws IOException
+   */
+  static ResultCache createCache(final CommandLine line, final String modelPath) throws IOException {
+    final long size = Long.parseLong(line.getOptionValue(OPTION_CACHE_SIZE_LONG, OPTION_CACHE_SIZE_DEFAULT));
+    final long ttl = Long.parseLong(line.getOptionValue(OPTION_CACHE_TTL_LONG, OPTION_CACHE_TTL_DEFAULT));
+    final String dir = line.getOptionValue(OPTION_CACHE_DIR_LONG);
+    final ResultCache cache = new ResultCache(modelPath, size * 1024 * 1024, ttl * 1000,
+        dir == null ? null : new File(dir));
+    return cache.isEnabled() ? cache : null;
+  }
+}
@@ -7,45 +7,132 @@ import g419.corpus.structure.*;
 import g419.corpus.structure.Annotation;
 import g419.liner2.core.Liner2;
 import g419.liner2.daemon.grpc.*;
+import io.grpc.Context;
+import io.grpc.Contexts;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
 import org.apache.commons.io.IOUtils;
 import java.io.IOException;
-import java.util.LinkedHashSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Serves Liner2 over gRPC. Requests are processed by a fixed pool of worker threads sharing a single
+ * loaded model. Requests which do not fit into the bounded queue are rejected with RESOURCE_EXHAUSTED
+ * and requests which are not completed before their deadline are answered with DEADLINE_EXCEEDED.
+ * The streaming call keeps up to a fixed number of documents in flight and sends the results back
+ * as soon as each document is processed. Documents of a stream wait in the stream and are passed to
+ * the workers only when there is room for them, so a busy server slows the stream down instead of
+ * rejecting its documents. Optionally the results of repeated inputs are taken from
+ * a {@link ResultCache} without running the pipeline.
+ */
 public class GrpcWorker implements HasLogger {
     private final Server server;
 
     final int port;
     final Liner2 liner2;
     final String hostname;
+    final ThreadPoolExecutor executor;
+    final ScheduledExecutorService deadlineScheduler;
 
-    public GrpcWorker(final String hostname, final int port, final String modelPath) throws Exception {
+    /**
+     * @param hostname
+     * @param port
+     * @param modelPath  path to the model ini, the model is loaded once and shared by all workers
+     * @param threads    number of requests processed at the same time
+     * @param queueSize  number of requests waiting for a free worker, further requests are rejected
+     * @param deadlineMs maximum processing time of a single request in milliseconds, 0 means no limit
+     *                   (a shorter deadline set by the client is always respected)
+     * @param cache      cache of results of repeated inputs or null
+     * @throws Exception
+     */
+    public GrpcWorker(final String hostname, final int port, final String modelPath,
+                      final int threads, final int queueSize, final long deadlineMs,
+                      final ResultCache cache) throws Exception {
         this.port = port;
         this.hostname = hostname;
         liner2 = new Liner2(modelPath);
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), new WorkerThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        deadlineScheduler = Executors.newSingleThreadScheduledExecutor();
         server = ServerBuilder.forPort(port)
-                .addService(new LinerServerImpl(liner2))
+                .addService(new LinerServerImpl(liner2, executor, deadlineScheduler, deadlineMs,
+                        threads + Math.max(1, queueSize), cache))
                 .build();
     }
 
     public void run() {
         try {
-            getLogger().info("Listing to gRPC on port {}", port);
+            getLogger().info("Listing to gRPC on port {} (workers: {}, queue size: {})",
+                    port, executor.getMaximumPoolSize(), executor.getQueue().remainingCapacity());
             server.start();
             server.awaitTermination();
         } catch (final IOException | InterruptedException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            executor.shutdownNow();
+            deadlineScheduler.shutdownNow();
+        }
+    }
+
+    static class WorkerThreadFactory implements ThreadFactory {
+        final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "liner2-grpc-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 
     static class LinerServerImpl extends LinerGrpc.LinerImplBase implements HasLogger {
+        /* Delay before a stream retries passing a document to the workers when their queue is full */
+        static final long STREAM_RETRY_DELAY_MS = 50;
+
         final Liner2 linerService;
+        final ThreadPoolExecutor executor;
+        final ScheduledExecutorService deadlineScheduler;
+        final long deadlineMs;
+        final int streamWindow;
+        final ResultCache cache;
 
-        public LinerServerImpl(final Liner2 linerService) {
+        /**
+         * @param linerService
+         * @param executor
+         * @param deadlineScheduler
+         * @param deadlineMs
+         * @param streamWindow      maximum number of documents of a single stream being processed
+         *                          or waiting in the queue
+         * @param cache             cache of results of repeated inputs or null
+         */
+        public LinerServerImpl(final Liner2 linerService,
+                               final ThreadPoolExecutor executor,
+                               final ScheduledExecutorService deadlineScheduler,
+                               final long deadlineMs,
+                               final int streamWindow,
+                               final ResultCache cache) {
             this.linerService = linerService;
+            this.executor = executor;
+            this.deadlineScheduler = deadlineScheduler;
+            this.deadlineMs = deadlineMs;
+            this.streamWindow = streamWindow;
+            this.cache = cache;
         }
 
         private AnnotationType mapAnnotationType(String entType) throws Exception {
@@ -84,67 +171,333 @@ public class GrpcWorker implements HasLogger {
         }
 
         @Override
-        public void tagNamedEntities(TagRequest request,
-                                     io.grpc.stub.StreamObserver<TagResponse> responseObserver) {
-            TagResponse.Builder reply = TagResponse.newBuilder();
+        public void tagNamedEntities(final TagRequest request,
+                                     final StreamObserver<TagResponse> responseObserver) {
+            final Context.CancellableContext context = deadlineMs > 0
+                    ? Context.current().withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS, deadlineScheduler)
+                    : Context.current().withCancellation();
+            try {
+                executor.execute(context.wrap(() -> {
+                    try {
+                        process(request, responseObserver, context);
+                    } finally {
+                        context.cancel(null);
+                    }
+                }));
+            } catch (final RejectedExecutionException e) {
+                context.cancel(null);
+                getLogger().warn("Request rejected, all {} workers are busy and the queue is full",
+                        executor.getMaximumPoolSize());
+                responseObserver.onError(Status.RESOURCE_EXHAUSTED
+                        .withDescription("Server is busy, try again later")
+                        .asRuntimeException());
+            }
+        }
 
+        private void process(final TagRequest request,
+                             final StreamObserver<TagResponse> responseObserver,
+                             final Context context) {
             try {
-                AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(
-                    "grpc input",
-                    IOUtils.toInputStream(request.getText(), "UTF-8"),
-                    "plain:wcrft"
-                );
-                Document text = reader.nextDocument();
-                reader.close();
-
-                linerService.chunkInPlace(text);
-                getLogger().debug("Num sentences: " + text.getSentences().size());
-                int annChanelOffset = 0;
-                for(int i = 0, s = text.getSentences().size(); i < s; i++) {
-                    Sentence sentence = text.getSentences().get(i);
-                    LinkedHashSet<Annotation> chunks = sentence.getChunks();
-                    final List<Token> tokens = sentence.getTokens();
-
-                    getLogger().debug("Num tokens: " + tokens.size());
-                    int biggestAnnIdx = 0;
-                    for(int j = 0; j < tokens.size(); j++) {
-                        Token token = tokens.get(j);
-                        List<Annotation> chunksInToken = sentence.getChunksAt(j);
-                        getLogger().debug("Token: " + token.getOrth() + ", num chunks: " + chunksInToken.size());
-
-                        if(chunksInToken.size() > 0) {
-                            Entity.Builder entBuilder = Entity.newBuilder()
-                                    .setOrth(token.getOrth())
-                                    .setLemma(token.getDisambTag().getBase());
-
-                            for (Annotation ann : chunksInToken) {
-                                int annIdx = 1;
-                                for (final Annotation a : chunks) {
-                                    if (a.getType().equals(ann.getType())) {
-                                        if (a == ann) {
-                                            break;
-                                        }
-                                        annIdx++;
-                                    }
-                                }
-                                biggestAnnIdx = Math.max(biggestAnnIdx, annIdx);
-
-                                entBuilder.addAnnotations(g419.liner2.daemon.grpc.Annotation.newBuilder()
-                                        .setAnnotationType(mapAnnotationType(ann.getType().toLowerCase()))
-                                        .setChannelIdx(annIdx + annChanelOffset)
-                                        .build());
-                            }
-                            reply.addEntities(entBuilder.build());
+                if (context.isCancelled()) {
+                    responseObserver.onError(cancellationStatus(context).asRuntimeException());
+                    return;
+                }
+                final TagResponse reply = tag(request);
+                if (context.isCancelled()) {
+                    responseObserver.onError(cancellationStatus(context).asRuntimeException());
+                    return;
+                }
+                responseObserver.onNext(reply);
+                responseObserver.onCompleted();
+            } catch (final Exception e) {
+                getLogger().error("Error while tagging: ", e);
+                responseObserver.onError(Status.INTERNAL
+                        .withDescription(e.getMessage())
+                        .withCause(e)
+                        .asRuntimeException());
+            }
+        }
+
+        private Status cancellationStatus(final Context context) {
+            final Status status = Contexts.statusFromCancelled(context);
+            return status != null ? status : Status.CANCELLED;
+        }
+
+        @Override
+        public StreamObserver<TagStreamRequest> tagNamedEntitiesStream(
+                final StreamObserver<TagStreamResponse> responseObserver) {
+            return new DocumentStream((ServerCallStreamObserver<TagStreamResponse>) responseObserver);
+        }
+
+        private TagResponse tag(final TagRequest request) throws Exception {
+            return tagText(request.getText());
+        }
+
+        private TagStreamResponse tag(final TagStreamRequest request) throws Exception {
+            final TagResponse result;
+            switch (request.getInputCase()) {
+                case TEXT:
+                    result = tagText(request.getText());
+                    break;
+                case TOKENIZED:
+                    result = tagTokenized(request.getTokenized());
+                    break;
+                default:
+                    throw new Exception("Empty input for document `" + request.getId() + "`");
+            }
+            return TagStreamResponse.newBuilder()
+                    .setId(request.getId())
+                    .addAllEntities(result.getEntitiesList())
+                    .build();
+        }
+
+        private TagResponse tagText(final String text) throws Exception {
+            final String key = cache == null ? null : cache.key("text", text);
+            final TagResponse cached = getCached(key);
+            if (cached != null) {
+                return cached;
+            }
+            return putCached(key, TagResponse.newBuilder()
+                    .addAllEntities(getEntities(chunk(readText(text))))
+                    .build());
+        }
+
+        private TagResponse tagTokenized(final TokenizedText text) throws Exception {
+            final String key = cache == null ? null : cache.key("tokenized", text.toByteArray());
+            final TagResponse cached = getCached(key);
+            if (cached != null) {
+                return cached;
+            }
+            return putCached(key, TagResponse.newBuilder()
+                    .addAllEntities(getEntities(chunk(readTokenized(text))))
+                    .build());
+        }
+
+        private TagResponse getCached(final String key) throws IOException {
+            if (key == null) {
+                return null;
+            }
+            final byte[] value = cache.get(key);
+            return value == null ? null : TagResponse.parseFrom(value);
+        }
+
+        private TagResponse putCached(final String key, final TagResponse response) {
+            if (key != null) {
+                cache.put(key, response.toByteArray());
+            }
+            return response;
+        }
+
+        private Document readText(final String text) throws Exception {
+            AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(
+                "grpc input",
+                IOUtils.toInputStream(text, "UTF-8"),
+                "plain:wcrft"
+            );
+            Document document = reader.nextDocument();
+            reader.close();
+            return document;
+        }
+
+        /**
+         * Creates a document from a pre-tokenized text. Every token gets a single disambiguated tag
+         * built from the given base and ctag, so the morphological tagger is not used.
+         */
+        private Document readTokenized(final TokenizedText text) {
+            final TokenAttributeIndex attributeIndex = new TokenAttributeIndex()
+                    .with("orth").with("base").with("ctag");
+            final Paragraph paragraph = new Paragraph("ch1", attributeIndex);
+            for (final TokenizedSentence inputSentence : text.getSentencesList()) {
+                final Sentence sentence = new Sentence(attributeIndex)
+                        .withId("s" + (paragraph.numSentences() + 1));
+                for (final InputToken inputToken : inputSentence.getTokensList()) {
+                    final String base = inputToken.getBase().isEmpty() ? inputToken.getOrth() : inputToken.getBase();
+                    final String ctag = inputToken.getCtag().isEmpty() ? "ign" : inputToken.getCtag();
+                    sentence.addToken(new Token(inputToken.getOrth(), new Tag(base, ctag, true), attributeIndex)
+                            .withNoSpaceAfter(inputToken.getNoSpaceAfter()));
+                }
+                paragraph.addSentence(sentence);
+            }
+            final Document document = new Document("grpc input", attributeIndex);
+            document.addParagraph(paragraph);
+            return document;
+        }
+
+        private Document chunk(final Document document) {
+            linerService.chunkInPlace(document);
+            getLogger().debug("Num sentences: " + document.getSentences().size());
+            return document;
+        }
+
+        private List<Entity> getEntities(final Document text) throws Exception {
+            final List<Entity> entities = new ArrayList<>();
+            int annChanelOffset = 0;
+            for(int i = 0, s = text.getSentences().size(); i < s; i++) {
+                Sentence sentence = text.getSentences().get(i);
+                final List<Token> tokens = sentence.getTokens();
+
+                getLogger().debug("Num tokens: " + tokens.size());
+                int biggestAnnIdx = 0;
+                for(int j = 0; j < tokens.size(); j++) {
+                    Token token = tokens.get(j);
+                    List<Annotation> chunksInToken = sentence.getChunksAt(j);
+                    getLogger().debug("Token: " + token.getOrth() + ", num chunks: " + chunksInToken.size());
+
+                    if(chunksInToken.size() > 0) {
+                        Entity.Builder entBuilder = Entity.newBuilder()
+                                .setOrth(token.getOrth())
+                                .setLemma(token.getDisambTag().getBase());
+
+                        for (Annotation ann : chunksInToken) {
+                            int annIdx = sentence.getAnnotationOrdinal(ann);
+                            biggestAnnIdx = Math.max(biggestAnnIdx, annIdx);
+
+                            entBuilder.addAnnotations(g419.liner2.daemon.grpc.Annotation.newBuilder()
+                                    .setAnnotationType(mapAnnotationType(ann.getType().toLowerCase()))
+                                    .setChannelIdx(annIdx + annChanelOffset)
+                                    .build());
                         }
+                        entities.add(entBuilder.build());
                     }
-                    annChanelOffset += biggestAnnIdx;
                 }
+                annChanelOffset += biggestAnnIdx;
+            }
+            return entities;
+        }
 
-                responseObserver.onNext(reply.build());
-                responseObserver.onCompleted();
-            } catch(Exception e) {
-                getLogger().error("Error while tagging: ", e);
+        /**
+         * Handles a single bidirectional stream. At most streamWindow documents are requested from
+         * the client at a time, a next one is requested after each completed document. Received
+         * documents wait in the stream and at most as many of them as there are workers are passed to
+         * the worker pool at a time. If the queue of the pool is full, the document is passed again when
+         * another document of the stream completes or after a short delay. The deadline applies to every
+         * document from the moment it is received. The stream is completed when the client has finished
+         * sending and all pending documents have been answered.
+         */
+        class DocumentStream implements StreamObserver<TagStreamRequest> {
+            final ServerCallStreamObserver<TagStreamResponse> responseObserver;
+            final Deque<PendingDocument> waiting = new ArrayDeque<>();
+            int inFlight = 0;
+            int running = 0;
+            boolean retryScheduled = false;
+            boolean halfClosed = false;
+            boolean finished = false;
+
+            DocumentStream(final ServerCallStreamObserver<TagStreamResponse> responseObserver) {
+                this.responseObserver = responseObserver;
+                responseObserver.disableAutoInboundFlowControl();
+                responseObserver.request(streamWindow);
+            }
+
+            @Override
+            public synchronized void onNext(final TagStreamRequest request) {
+                inFlight++;
+                waiting.add(new PendingDocument(request, System.currentTimeMillis()));
+                submitWaiting();
+            }
+
+            @Override
+            public synchronized void onError(final Throwable t) {
+                getLogger().warn("Stream closed by the client: {}", t.getMessage());
+                finished = true;
+                inFlight -= waiting.size();
+                waiting.clear();
+            }
+
+            @Override
+            public synchronized void onCompleted() {
+                halfClosed = true;
+                completeIfDone();
+            }
+
+            /**
+             * Passes the waiting documents to the worker pool while the stream has fewer running
+             * documents than there are workers and the queue of the pool is not full.
+             */
+            private synchronized void submitWaiting() {
+                while (!waiting.isEmpty() && running < executor.getMaximumPoolSize()) {
+                    final PendingDocument document = waiting.poll();
+                    try {
+                        executor.execute(() -> process(document));
+                        running++;
+                    } catch (final RejectedExecutionException e) {
+                        waiting.addFirst(document);
+                        if (running == 0 && !retryScheduled) {
+                            retryScheduled = true;
+                            deadlineScheduler.schedule(this::retry, STREAM_RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+                        }
+                        return;
+                    }
+                }
+            }
+
+            private synchronized void retry() {
+                retryScheduled = false;
+                submitWaiting();
+            }
+
+            private void process(final PendingDocument document) {
+                final TagStreamRequest request = document.request;
+                try {
+                    if (isExpired(document)) {
+                        send(deadlineExceeded(request));
+                    } else if (!responseObserver.isCancelled()) {
+                        final TagStreamResponse response = tag(request);
+                        send(isExpired(document) ? deadlineExceeded(request) : response);
+                    }
+                } catch (final Exception e) {
+                    getLogger().error("Error while tagging document " + request.getId() + ": ", e);
+                    send(error(request, Status.INTERNAL.getCode() + ": " + e.getMessage()));
+                } finally {
+                    done();
+                }
+            }
+
+            private boolean isExpired(final PendingDocument document) {
+                return deadlineMs > 0 && System.currentTimeMillis() - document.received > deadlineMs;
+            }
+
+            private TagStreamResponse deadlineExceeded(final TagStreamRequest request) {
+                return error(request, Status.DEADLINE_EXCEEDED.getCode() + ": Document was not processed within "
+                        + deadlineMs + " ms");
+            }
+
+            private TagStreamResponse error(final TagStreamRequest request, final String message) {
+                return TagStreamResponse.newBuilder().setId(request.getId()).setError(message).build();
+            }
+
+            private synchronized void send(final TagStreamResponse response) {
+                if (!finished && !responseObserver.isCancelled()) {
+                    responseObserver.onNext(response);
+                }
+            }
+
+            private synchronized void done() {
+                inFlight--;
+                running--;
+                if (!finished && !halfClosed) {
+                    responseObserver.request(1);
+                }
+                submitWaiting();
+                completeIfDone();
+            }
+
+            private void completeIfDone() {
+                if (!finished && halfClosed && inFlight == 0) {
+                    finished = true;
+                    responseObserver.onCompleted();
+                }
+            }
+        }
+
+        static class PendingDocument {
+            final TagStreamRequest request;
+            final long received;
+
+            PendingDocument(final TagStreamRequest request, final long received) {
+                this.request = request;
+                this.received = received;
             }
         }
     }
-}
\ No newline at end of file
+}
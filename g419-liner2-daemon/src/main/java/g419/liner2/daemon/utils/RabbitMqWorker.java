@@ -9,100 +9,177 @@ import g419.corpus.io.writer.WriterFactory;
 import g419.corpus.structure.Document;
 import g419.liner2.core.Liner2;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class RabbitMqWorker implements Runnable, Consumer, HasLogger {
+/**
+ * Processes requests from a RabbitMQ queue. Each of the consumers has its own channel with a limited
+ * number of unacknowledged messages (prefetch), all consumers share a single loaded model.
+ * A message is acknowledged after the output file is written and the reply is confirmed by the broker.
+ * Messages which could not be processed are moved to the dead-letter queue. Each consumer publishes
+ * its replies through its own confirm channel, so waiting for a confirmation does not block the other
+ * consumers; the channel is recreated after a failed publish. Optionally the outputs of repeated inputs are taken from
+ * a {@link ResultCache} without running the pipeline.
+ */
+public class RabbitMqWorker implements Runnable, HasLogger {
+
+  /* Maximum time of waiting for the broker to confirm a published message */
+  static final long CONFIRM_TIMEOUT_MS = 30000;
 
   final String inputQueueName;
   final String outputQueueName;
+  final String deadLetterQueueName;
   final Connection connection;
-  final Channel channel;
+  final List<DeliveryConsumer> consumers = new ArrayList<>();
+  final ExecutorService consumerPool;
   final Liner2 liner2;
   final String inputFormat;
   final String hostname;
+  final int prefetch;
+  final ResultCache cache;
 
+  /**
+   * @param hostname
+   * @param inputQueueName
+   * @param outputQueueName     name of the exchange the replies are sent to
+   * @param deadLetterQueueName name of the queue for the messages which could not be processed
+   * @param modelPath           path to the model ini, the model is loaded once and shared by all consumers
+   * @param inputFormat
+   * @param threads             number of messages processed at the same time
+   * @param prefetch            number of unacknowledged messages delivered to a single consumer
+   * @param cache               cache of outputs of repeated inputs or null
+   * @throws Exception
+   */
   public RabbitMqWorker(final String hostname,
                         final String inputQueueName,
                         final String outputQueueName,
+                        final String deadLetterQueueName,
                         final String modelPath,
-                        final String inputFormat)
+                        final String inputFormat,
+                        final int threads,
+                        final int prefetch,
+                        final ResultCache cache)
       throws IOException, TimeoutException, Exception {
     this.inputQueueName = inputQueueName;
     this.outputQueueName = outputQueueName;
+    this.deadLetterQueueName = deadLetterQueueName;
     this.inputFormat = inputFormat;
     this.hostname = hostname;
-    final ConnectionFactory factory = new ConnectionFactory();
-    factory.setHost(hostname);
-    connection = factory.newConnection();
-    channel = connection.createChannel();
-    channel.queueDeclare(inputQueueName, false, false, false, null);
+    this.prefetch = Math.max(1, prefetch);
+    this.cache = cache;
     liner2 = new Liner2(modelPath);
-  }
 
-  /**
-   * Called when consumer is registered.
-   */
-  @Override
-  public void handleConsumeOk(final String consumerTag) {
-    System.out.println("Consumer " + consumerTag + " registered");
-  }
+    consumerPool = Executors.newFixedThreadPool(Math.max(1, threads), new ConsumerThreadFactory());
+    final ConnectionFactory factory = new ConnectionFactory();
+    factory.setHost(hostname);
+    connection = factory.newConnection(consumerPool);
 
-  @Override
-  public void handleCancel(final String consumerTag) {
-  }
+    final Channel setup = connection.createChannel();
+    setup.exchangeDeclare(outputQueueName, "direct");
+    setup.queueDeclare(deadLetterQueueName, true, false, false, null);
+    setup.queueDeclare(inputQueueName, false, false, false, null);
+    setup.close();
 
-  @Override
-  public void handleCancelOk(final String consumerTag) {
+    for (int i = 0; i < Math.max(1, threads); i++) {
+      final Channel channel = connection.createChannel();
+      channel.basicQos(this.prefetch);
+      consumers.add(new DeliveryConsumer(channel, createPublisher()));
+    }
   }
 
-  @Override
-  public void handleRecoverOk(final String consumerTag) {
+  /**
+   * Creates a channel for publishing replies in the confirm mode.
+   */
+  Channel createPublisher() throws IOException {
+    final Channel publisher = connection.createChannel();
+    publisher.confirmSelect();
+    return publisher;
   }
 
   @Override
-  public void handleShutdownSignal(final String consumerTag, final ShutdownSignalException arg1) {
+  public void run() {
+    try {
+      getLogger().info("Listing to RabbitMQ on channel {} (consumers: {}, prefetch: {}) ...",
+          inputQueueName, consumers.size(), prefetch);
+      for (final DeliveryConsumer consumer : consumers) {
+        consumer.getChannel().basicConsume(inputQueueName, false, consumer);
+      }
+    } catch (final IOException ex) {
+      throw new RuntimeException(ex);
+    }
   }
 
-  @Override
-  public void handleDelivery(final String consumerTag, final Envelope envelope,
-                             final AMQP.BasicProperties properties, final byte[] body)
+  /**
+   * Processes a single message and acknowledges it. If the message could not be processed
+   * it is moved to the dead-letter queue. If that fails too, the message is returned to the input queue
+   * once; a message which is already redelivered is rejected instead, so it is not redelivered forever.
+   */
+  void handleDelivery(final DeliveryConsumer consumer, final Envelope envelope, final byte[] body)
       throws IOException {
+    final Channel channel = consumer.getChannel();
+    final long deliveryTag = envelope.getDeliveryTag();
     try {
-      final String message = new String(body, "UTF-8");
+      final String message = new String(body, StandardCharsets.UTF_8);
       final String[] parts = message.split(" ");
       if (parts.length == 2) {
         final String route = parts[0];
         final String path = parts[1];
+        String outputPath;
+        Exception error = null;
         try {
-          final String outputPath = doWork(path);
-          submitWork(route, outputPath);
+          outputPath = doWork(path);
         } catch (final Exception ex) {
           getLogger().error("An exception occured", ex);
-          submitWork(route, "ERROR");
+          outputPath = "ERROR";
+          error = ex;
+        }
+        submitWork(consumer, route, outputPath);
+        if (error != null) {
+          deadLetter(consumer, body, error.toString());
         }
       } else {
         getLogger().error("Invalid format of the message: '{}'. Expecting: 'route path'", message);
+        deadLetter(consumer, body, "Invalid format of the message");
       }
+      channel.basicAck(deliveryTag, false);
     } catch (final Exception ex) {
       getLogger().error("Exception", ex);
+      try {
+        deadLetter(consumer, body, ex.toString());
+        channel.basicAck(deliveryTag, false);
+      } catch (final Exception deadLetterEx) {
+        if (envelope.isRedeliver()) {
+          getLogger().error("Failed to move the redelivered message to {}, rejecting it", deadLetterQueueName,
+              deadLetterEx);
+          channel.basicReject(deliveryTag, false);
+        } else {
+          getLogger().error("Failed to move the message to {}, returning it to the queue", deadLetterQueueName,
+              deadLetterEx);
+          channel.basicNack(deliveryTag, false, true);
+        }
+      }
     } finally {
       getLogger().info("Request processing done");
     }
   }
 
-  @Override
-  public void run() {
-    try {
-      getLogger().info("Listing to RabbitMQ on channel {} ...", inputQueueName);
-      channel.basicConsume(inputQueueName, true, this);
-    } catch (final IOException ex) {
-      throw new RuntimeException(ex);
-    }
-  }
-
   private String doWork(final String path) throws Exception {
     getLogger().info("Received path: '{}'", path);
+    if (cache != null) {
+      return doWorkCached(path);
+    }
 
     final Document document = ReaderFactory.get().getStreamReader(path, inputFormat).next();
     liner2.chunkInPlace(document);
@@ -116,24 +193,140 @@ public class RabbitMqWorker implements Runnable, Consumer, HasLogger {
     return outputPath;
   }
 
-  private void submitWork(final String route, final String message) throws IOException, TimeoutException {
-    final ConnectionFactory factory = new ConnectionFactory();
-    factory.setHost(hostname);
-    try (final Connection connection = factory.newConnection();
-         final Channel channel = connection.createChannel()) {
-      channel.exchangeDeclare(outputQueueName, "direct");
-      channel.basicPublish(outputQueueName, route, null, message.getBytes());
+  /**
+   * Writes the output of the document taken from the cache or, if it is not there, processes the document
+   * and stores the output in the cache. Plain texts are compared after normalization.
+   */
+  private String doWorkCached(final String path) throws Exception {
+    final byte[] input = Files.readAllBytes(Paths.get(path));
+    final String kind = String.valueOf(inputFormat);
+    final String key = kind.startsWith("plain")
+        ? cache.key(kind, new String(input, StandardCharsets.UTF_8))
+        : cache.key(kind, input);
+    final String outputPath = path + "-ner.xml";
+    byte[] output = cache.get(key);
+    if (output == null) {
+      final Document document = ReaderFactory.get().getStreamReader(path, inputFormat).next();
+      liner2.chunkInPlace(document);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final AbstractDocumentWriter writer = WriterFactory.get().getStreamWriter(out, "ccl");
+      writer.writeDocument(document);
+      writer.close();
+      output = out.toByteArray();
+      cache.put(key, output);
+    } else {
+      getLogger().info("Output of {} taken from the cache", path);
     }
+    Files.write(Paths.get(outputPath), output);
+    getLogger().info("Output saved to {}", path);
+
+    return outputPath;
+  }
+
+  private void submitWork(final DeliveryConsumer consumer, final String route, final String message)
+      throws IOException, InterruptedException, TimeoutException {
+    consumer.publish(outputQueueName, route, MessageProperties.PERSISTENT_TEXT_PLAIN,
+        message.getBytes(StandardCharsets.UTF_8));
     getLogger().info("Sent {} to {}:{}'", message, outputQueueName, route);
   }
 
+  private void deadLetter(final DeliveryConsumer consumer, final byte[] body, final String reason)
+      throws IOException, InterruptedException, TimeoutException {
+    final Map<String, Object> headers = new HashMap<>();
+    headers.put("x-liner2-error", reason);
+    final AMQP.BasicProperties properties = MessageProperties.PERSISTENT_TEXT_PLAIN.builder()
+        .headers(headers).build();
+    consumer.publish("", deadLetterQueueName, properties, body);
+    getLogger().info("Message moved to {}", deadLetterQueueName);
+  }
+
   public void close() throws IOException {
     try {
-      channel.close();
+      for (final DeliveryConsumer consumer : consumers) {
+        consumer.close();
+      }
       connection.close();
     } catch (final TimeoutException ex) {
       throw new RuntimeException(ex);
+    } finally {
+      consumerPool.shutdown();
+    }
+  }
+
+  /**
+   * Consumer of the input queue with its own channel for publishing replies. The callbacks of a single
+   * channel are called sequentially, so the publisher channel is never used by two threads at once.
+   */
+  class DeliveryConsumer extends DefaultConsumer {
+
+    Channel publisher;
+
+    DeliveryConsumer(final Channel channel, final Channel publisher) {
+      super(channel);
+      this.publisher = publisher;
+    }
+
+    /**
+     * Publishes a message and waits until the broker confirms it. A channel which failed to publish
+     * or confirm a message is unusable, so it is abandoned and a new one is created for the next message.
+     */
+    void publish(final String exchange, final String routingKey, final AMQP.BasicProperties properties,
+                 final byte[] body) throws IOException, InterruptedException, TimeoutException {
+      if (!publisher.isOpen()) {
+        publisher = createPublisher();
+      }
+      try {
+        publisher.basicPublish(exchange, routingKey, properties, body);
+        publisher.waitForConfirmsOrDie(CONFIRM_TIMEOUT_MS);
+      } catch (final IOException | TimeoutException | ShutdownSignalException ex) {
+        getLogger().warn("Publishing to {}:{} failed, the channel will be recreated", exchange, routingKey);
+        closeQuietly(publisher);
+        throw ex;
+      }
+    }
+
+    void close() throws IOException, TimeoutException {
+      if (getChannel().isOpen()) {
+        getChannel().close();
+      }
+      if (publisher.isOpen()) {
+        publisher.close();
+      }
+    }
+
+    /**
+     * Called when consumer is registered.
+     */
+    @Override
+    public void handleConsumeOk(final String consumerTag) {
+      super.handleConsumeOk(consumerTag);
+      System.out.println("Consumer " + consumerTag + " registered");
+    }
+
+    @Override
+    public void handleDelivery(final String consumerTag, final Envelope envelope,
+                               final AMQP.BasicProperties properties, final byte[] body)
+        throws IOException {
+      RabbitMqWorker.this.handleDelivery(this, envelope, body);
     }
   }
-}
 
+  static void closeQuietly(final Channel channel) {
+    try {
+      if (channel.isOpen()) {
+        channel.abort();
+      }
+    } catch (final IOException ex) {
+      // the channel is abandoned anyway
+    }
+  }
+
+  static class ConsumerThreadFactory implements ThreadFactory {
+    final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      return new Thread(runnable, "liner2-rabbitmq-consumer-" + counter.incrementAndGet());
+    }
+  }
+}
@@ -0,0 +1,384 @@
+package g419.liner2.daemon.utils;
+
+import g419.corpus.HasLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Cache of processing results keyed by a hash of the input and of the model. The input text is
+ * normalized the same way as by the plain text reader (line endings and surrounding white spaces),
+ * so texts which differ only in that respect share a result. Results are kept in memory up to
+ * a given total size (the least recently used are evicted first) and for a given time. Optionally
+ * the results are also stored in a directory, which is shared by daemon restarts and instances
+ * using the same model.
+ */
+public class ResultCache implements HasLogger {
+
+  /* Statistics are logged every LOG_INTERVAL lookups */
+  static final long LOG_INTERVAL = 1000;
+
+  /* Referenced text files up to this size are searched for further references (e.g. feature lists) */
+  static final long MAX_SCANNED_FILE_SIZE = 1024 * 1024;
+
+  private static final Pattern PATH_SEPARATOR = Pattern.compile("[\\s=,;]+");
+
+  private final String modelId;
+  private final long maxBytes;
+  private final long ttlMs;
+  private final File directory;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes = 0;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder diskHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param modelPath path to the model ini, the results of different models (or of the same
+   *                  model after the ini or any file it refers to was modified) are kept apart
+   * @param maxBytes  maximum total size of results kept in memory, 0 -- results are not kept in memory
+   * @param ttlMs     time after which a result expires in milliseconds, 0 -- results do not expire
+   * @param directory directory for results stored on disk or null
+   * @throws IOException
+   */
+  public ResultCache(final String modelPath, final long maxBytes, final long ttlMs, final File directory)
+      throws IOException {
+    final File model = new File(modelPath);
+    final MessageDigest digest = newDigest();
+    digest.update(model.getCanonicalPath().getBytes(StandardCharsets.UTF_8));
+    if (model.isFile()) {
+      digest.update(Files.readAllBytes(model.toPath()));
+    }
+    for (final Map.Entry<String, String> file : getModelFiles(model).entrySet()) {
+      digest.update((file.getKey() + "\t" + file.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    modelId = toHex(digest.digest());
+    this.maxBytes = Math.max(0, maxBytes);
+    this.ttlMs = Math.max(0, ttlMs);
+    this.directory = directory;
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Can not create cache directory " + directory);
+    }
+  }
+
+  /**
+   * Finds the files the model ini refers to (model binaries, templates, feature lists, dictionaries,
+   * WordNet directories, ...) and returns their sizes and modification times. A word of the ini is
+   * treated as a reference if it names an existing file or directory, either directly or relative
+   * to the directory of the ini ({INI_PATH}). Referenced text files are searched for references too,
+   * and every file of a referenced directory is included.
+   *
+   * @param model
+   * @return map from canonical path to "size mtime" in the order of paths
+   * @throws IOException
+   */
+  static SortedMap<String, String> getModelFiles(final File model) throws IOException {
+    final SortedMap<String, String> files = new TreeMap<>();
+    final Deque<File> scan = new ArrayDeque<>();
+    final Set<String> scanned = new HashSet<>();
+    scan.add(model);
+    while (!scan.isEmpty()) {
+      final File file = scan.poll();
+      if (!file.isFile() || file.length() > MAX_SCANNED_FILE_SIZE || !scanned.add(file.getCanonicalPath())) {
+        continue;
+      }
+      final String iniPath = file.getAbsoluteFile().getParent();
+      final String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+      for (final String word : PATH_SEPARATOR.split(text.replace("{INI_PATH}", iniPath))) {
+        final File reference = resolve(word, iniPath);
+        if (reference == null || files.containsKey(reference.getCanonicalPath())) {
+          continue;
+        }
+        if (reference.isDirectory()) {
+          try (Stream<Path> paths = Files.walk(reference.toPath())) {
+            paths.filter(Files::isRegularFile).forEach(path -> addFile(files, path.toFile()));
+          }
+        } else {
+          addFile(files, reference);
+          scan.add(reference);
+        }
+      }
+    }
+    return files;
+  }
+
+  private static File resolve(final String word, final String iniPath) throws IOException {
+    if (word.isEmpty() || word.startsWith("[")) {
+      return null;
+    }
+    final List<String> paths = new ArrayList<>();
+    paths.add(word);
+    if (word.lastIndexOf(':') > 1) {
+      // values like "name:path" (e.g. dictionary features)
+      paths.add(word.substring(word.lastIndexOf(':') + 1));
+    }
+    for (final String path : paths) {
+      for (final File candidate : new File[]{new File(path), new File(iniPath, path)}) {
+        // the directories of the ini and of the process and their ancestors are not references
+        if (candidate.exists() && !isAncestor(candidate, new File(iniPath)) && !isAncestor(candidate, new File("."))) {
+          return candidate;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean isAncestor(final File ancestor, final File file) throws IOException {
+    final Path path = file.getCanonicalFile().toPath();
+    return path.startsWith(ancestor.getCanonicalFile().toPath());
+  }
+
+  private static void addFile(final Map<String, String> files, final File file) {
+    try {
+      files.put(file.getCanonicalPath(), file.length() + " " + file.lastModified());
+    } catch (final IOException ex) {
+      files.put(file.getAbsolutePath(), file.length() + " " + file.lastModified());
+    }
+  }
+
+  public boolean isEnabled() {
+    return maxBytes > 0 || directory != null;
+  }
+
+  /**
+   * Returns the key of an input text.
+   *
+   * @param kind kind of the input (e.g. its format), inputs of different kinds have different keys
+   * @param text
+   * @return
+   */
+  public String key(final String kind, final String text) {
+    return key(kind, normalize(text).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns the key of input data, which is not normalized.
+   *
+   * @param kind
+   * @param data
+   * @return
+   */
+  public String key(final String kind, final byte[] data) {
+    final MessageDigest digest = newDigest();
+    digest.update(modelId.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(kind.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(data);
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Returns the cached result or null.
+   *
+   * @param key
+   * @return
+   */
+  public byte[] get(final String key) {
+    final long now = System.currentTimeMillis();
+    byte[] value = null;
+    synchronized (this) {
+      final Entry entry = entries.get(key);
+      if (entry != null) {
+        if (isExpired(entry.created, now)) {
+          remove(key);
+        } else {
+          value = entry.value;
+        }
+      }
+    }
+    if (value != null) {
+      hits.increment();
+    } else {
+      final Entry stored = readFile(key, now);
+      if (stored != null) {
+        value = stored.value;
+        diskHits.increment();
+        putInMemory(key, value, stored.created);
+      }
+    }
+    if (value == null) {
+      misses.increment();
+    }
+    logStatistics();
+    return value;
+  }
+
+  /**
+   * Stores the result.
+   *
+   * @param key
+   * @param value
+   */
+  public void put(final String key, final byte[] value) {
+    final long now = System.currentTimeMillis();
+    putInMemory(key, value, now);
+    writeFile(key, value);
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getDiskHits() {
+    return diskHits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns the fraction of lookups which found a result (in memory or on disk).
+   *
+   * @return
+   */
+  public double getHitRate() {
+    final long found = getHits() + getDiskHits();
+    final long total = found + getMisses();
+    return total == 0 ? 0 : (double) found / total;
+  }
+
+  @Override
+  public String toString() {
+    synchronized (this) {
+      return String.format("result cache: %d entries, %d bytes, hits %d (disk %d), misses %d, "
+              + "evictions %d, hit rate %.3f",
+          entries.size(), bytes, getHits(), getDiskHits(), getMisses(), getEvictions(), getHitRate());
+    }
+  }
+
+  private void logStatistics() {
+    if ((getHits() + getDiskHits() + getMisses()) % LOG_INTERVAL == 0) {
+      getLogger().info("{}", this);
+    }
+  }
+
+  private boolean isExpired(final long created, final long now) {
+    return ttlMs > 0 && now - created > ttlMs;
+  }
+
+  private synchronized void putInMemory(final String key, final byte[] value, final long created) {
+    if (value.length > maxBytes) {
+      return;
+    }
+    remove(key);
+    entries.put(key, new Entry(value, created));
+    bytes += value.length;
+    final Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while (bytes > maxBytes && it.hasNext()) {
+      bytes -= it.next().getValue().value.length;
+      it.remove();
+      evictions.increment();
+    }
+  }
+
+  private void remove(final String key) {
+    final Entry entry = entries.remove(key);
+    if (entry != null) {
+      bytes -= entry.value.length;
+    }
+  }
+
+  private Path getFile(final String key) {
+    return new File(new File(directory, key.substring(0, 2)), key).toPath();
+  }
+
+  private Entry readFile(final String key, final long now) {
+    if (directory == null) {
+      return null;
+    }
+    final Path file = getFile(key);
+    try {
+      if (!Files.isRegularFile(file)) {
+        return null;
+      }
+      final long created = Files.getLastModifiedTime(file).toMillis();
+      if (isExpired(created, now)) {
+        Files.deleteIfExists(file);
+        return null;
+      }
+      return new Entry(Files.readAllBytes(file), created);
+    } catch (final IOException ex) {
+      getLogger().warn("Failed to read cached result {}", file, ex);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the result to a temporary file and moves it to the target name, so other processes
+   * never read an incomplete file.
+   */
+  private void writeFile(final String key, final byte[] value) {
+    if (directory == null) {
+      return;
+    }
+    final Path file = getFile(key);
+    try {
+      Files.createDirectories(file.getParent());
+      final Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+      try {
+        Files.write(tmp, value);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    } catch (final IOException ex) {
+      getLogger().warn("Failed to store cached result {}", file, ex);
+    }
+  }
+
+  /**
+   * Normalizes the text the same way as the plain text reader does: unifies line endings and removes
+   * leading and trailing white spaces.
+   *
+   * @param text
+   * @return
+   */
+  static String normalize(final String text) {
+    return text.replace("\r\n", "\n").replace('\r', '\n').trim();
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static String toHex(final byte[] bytes) {
+    final StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (final byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  private static class Entry {
+    final byte[] value;
+    final long created;
+
+    Entry(final byte[] value, final long created) {
+      this.value = value;
+      this.created = created;
+    }
+  }
+}
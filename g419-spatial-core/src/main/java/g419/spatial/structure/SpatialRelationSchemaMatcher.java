@@ -5,8 +5,14 @@ import g419.corpus.structure.Token;
 import g419.toolbox.sumo.Sumo;
 import io.vavr.control.Option;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -15,20 +21,48 @@ public class SpatialRelationSchemaMatcher {
   private final List<SpatialRelationSchema> patterns;
   private final Sumo sumo;
 
+  /* Wzorce w kolejności z listy patterns pogrupowane według przyimka oraz według przyimka i przypadku */
+  private final Map<String, List<CompiledSchema>> byIndicator = new HashMap<>();
+  private final Map<String, Map<String, List<CompiledSchema>>> byIndicatorAndCase = new HashMap<>();
+
   public SpatialRelationSchemaMatcher(final List<SpatialRelationSchema> patterns, final Sumo sumo) {
     this.patterns = patterns;
     this.sumo = sumo;
+    for (final SpatialRelationSchema pattern : patterns) {
+      final CompiledSchema compiled = new CompiledSchema(pattern, sumo);
+      for (final String indicator : pattern.getIndicators()) {
+        byIndicator.computeIfAbsent(indicator, k -> new ArrayList<>()).add(compiled);
+        byIndicatorAndCase.computeIfAbsent(indicator, k -> new HashMap<>())
+            .computeIfAbsent(pattern.getCase(), k -> new ArrayList<>()).add(compiled);
+      }
+    }
   }
 
   /**
    * Dopasowuje wszystkie wzorce, do których pasuje wyrażenie przestrzenne.
+   * Sprawdzane są tylko wzorce dla przyimka i przypadku wyrażenia.
    *
    * @param relation
    * @return
    */
   public List<SpatialRelationSchema> matchAll(final SpatialExpression relation) {
-    return patterns.stream()
-        .filter(pattern -> SpatialRelationSchemaMatcher.matches(relation, pattern, sumo))
+    final String preposition = getPreposition(relation);
+    final String cas = getCase(relation);
+    final List<CompiledSchema> candidates;
+    if (cas == null) {
+      candidates = byIndicator.getOrDefault(preposition, Collections.emptyList());
+    } else {
+      candidates = byIndicatorAndCase.getOrDefault(preposition, Collections.emptyMap())
+          .getOrDefault(cas, Collections.emptyList());
+    }
+    if (candidates.isEmpty()) {
+      return new ArrayList<>();
+    }
+    final ElementConcepts trajector = new ElementConcepts(relation.getTrajectorConcepts(), sumo);
+    final ElementConcepts landmark = new ElementConcepts(relation.getLandmarkConcepts(), sumo);
+    return candidates.stream()
+        .filter(schema -> schema.trajector.matches(trajector) && schema.landmark.matches(landmark))
+        .map(schema -> schema.schema)
         .collect(Collectors.toList());
   }
 
@@ -41,48 +75,104 @@ public class SpatialRelationSchemaMatcher {
    * @return
    */
   public static boolean matches(final SpatialExpression relation, final SpatialRelationSchema pattern, final Sumo sumo) {
-
-    String preposition = relation.getSpatialIndicator().getText().toLowerCase();
-    if (relation.getLandmark().getRegion() != null && relation.getLandmark().getRegion().getHeadToken().getDisambTag().getBase().equals("teren")) {
-      // Zamiana przyimka z "na" na "w" dla region=teren
-      preposition = "w";
+    if (!pattern.getIndicators().contains(getPreposition(relation))) {
+      return false;
     }
 
-    if (!pattern.getIndicators().contains(preposition)) {
+    //LoggerFactory.getLogger(SpatialRelationSchemaMatcher.class).debug(pattern.toString());
+
+    final String cas = getCase(relation);
+    if (cas != null && !cas.equals(pattern.getCase())) {
       return false;
     }
 
-    //LoggerFactory.getLogger(SpatialRelationSchemaMatcher.class).debug(pattern.toString());
+    return new PatternConcepts(pattern.getTrajectorConcepts(), sumo).matches(new ElementConcepts(relation.getTrajectorConcepts(), sumo))
+        && new PatternConcepts(pattern.getLandmarkConcepts(), sumo).matches(new ElementConcepts(relation.getLandmarkConcepts(), sumo));
+  }
 
+  private static String getPreposition(final SpatialExpression relation) {
+    if (relation.getLandmark().getRegion() != null && relation.getLandmark().getRegion().getHeadToken().getDisambTag().getBase().equals("teren")) {
+      // Zamiana przyimka z "na" na "w" dla region=teren
+      return "w";
+    }
+    return relation.getSpatialIndicator().getText().toLowerCase();
+  }
+
+  /**
+   * Zwraca przypadek tokenu, według którego sprawdzany jest wzorzec, lub null, jeżeli ctag go nie określa.
+   */
+  private static String getCase(final SpatialExpression relation) {
     final Token checkTokenPos = Option.of(relation.getLandmark().getRegion())
         .map(Annotation::getHeadToken)
         .getOrElse(relation.getLandmark().getSpatialObject().getHeadToken());
 
     final String[] parts = checkTokenPos.getDisambTag().getCtag().split(":");
-    if (parts.length > 2 && !parts[2].equals(pattern.getCase())) {
-      return false;
-    }
+    return parts.length > 2 ? parts[2] : null;
+  }
 
-    return isSubconceptOf(pattern.getTrajectorConcepts(), relation.getTrajectorConcepts(), sumo)
-        && isSubconceptOf(pattern.getLandmarkConcepts(), relation.getLandmarkConcepts(), sumo);
+  /**
+   * Wzorzec z pojęciami trajektora i landmarka zamienionymi na zbiory identyfikatorów SUMO.
+   */
+  private static class CompiledSchema {
+    final SpatialRelationSchema schema;
+    final PatternConcepts trajector;
+    final PatternConcepts landmark;
+
+    CompiledSchema(final SpatialRelationSchema schema, final Sumo sumo) {
+      this.schema = schema;
+      trajector = new PatternConcepts(schema.getTrajectorConcepts(), sumo);
+      landmark = new PatternConcepts(schema.getLandmarkConcepts(), sumo);
+    }
   }
 
-  private static boolean isSubconceptOf(final Collection<String> patternConcepts, final Collection<String> elementConcepts, final Sumo sumo) {
-    final Set<String> conceptsWithChildren = collectConceptswithSubclasses(patternConcepts, sumo);
-    return elementConcepts.stream()
-        .map(String::toLowerCase)
-        .filter(conceptsWithChildren::contains)
-        .count() > 0;
+  /**
+   * Pojęcia wzorca razem z ich podklasami: pojęcia występujące w ontologii jako zbiór identyfikatorów,
+   * pozostałe jako napisy.
+   */
+  private static class PatternConcepts {
+    final BitSet ids = new BitSet();
+    final Set<String> labels = new HashSet<>();
+
+    PatternConcepts(final Collection<String> concepts, final Sumo sumo) {
+      for (final String concept : concepts) {
+        final String label = concept.toLowerCase();
+        final int id = sumo.getClassId(label);
+        if (id == -1) {
+          labels.add(label);
+        } else {
+          ids.set(id);
+        }
+        ids.or(sumo.getSubclassIds(label));
+      }
+    }
+
+    boolean matches(final ElementConcepts element) {
+      for (int i = 0; i < element.ids.length; i++) {
+        final int id = element.ids[i];
+        if (id == -1 ? labels.contains(element.labels[i]) : ids.get(id)) {
+          return true;
+        }
+      }
+      return false;
+    }
   }
 
-  private static Set<String> collectConceptswithSubclasses(final Collection<String> concepts, final Sumo sumo) {
-    final Set<String> set = concepts.stream()
-        .map(String::toLowerCase)
-        .collect(Collectors.toSet());
-    concepts.stream()
-        .map(String::toLowerCase)
-        .map(sumo::getSubclasses)
-        .forEach(set::addAll);
-    return set;
+  /**
+   * Pojęcia trajektora lub landmarka wyrażenia zamienione na identyfikatory SUMO raz dla wszystkich wzorców.
+   */
+  private static class ElementConcepts {
+    final String[] labels;
+    final int[] ids;
+
+    ElementConcepts(final Collection<String> concepts, final Sumo sumo) {
+      labels = new String[concepts.size()];
+      ids = new int[concepts.size()];
+      int i = 0;
+      for (final String concept : concepts) {
+        labels[i] = concept.toLowerCase();
+        ids[i] = sumo.getClassId(labels[i]);
+        i++;
+      }
+    }
   }
 }
@@ -1,9 +1,15 @@
 package g419.toolbox.sumo;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Klasa reprezentuje graph. Elementami grafu są napisy.
@@ -13,11 +19,63 @@ public class Graph {
   private Set<String> nodes = null;
   private Map<String, Set<String>> childrens = null;
 
+  /* Kolejne identyfikatory węzłów w kolejności dodania */
+  private Map<String, Integer> ids = new HashMap<String, Integer>();
+  private List<String> labels = new ArrayList<String>();
+
+  /* Domknięcia relacji podklasy wyznaczone dla węzłów, o które pytano */
+  private Map<String, BitSet> subclassClosures = new ConcurrentHashMap<String, BitSet>();
+
   public Graph() {
     this.childrens = new HashMap<String, Set<String>>();
     this.nodes = new HashSet<String>();
   }
 
+  /**
+   * Zwraca identyfikator węzła lub -1, jeżeli węzła nie ma w grafie.
+   *
+   * @param label
+   * @return
+   */
+  public int getId(String label) {
+    Integer id = this.ids.get(label);
+    return id == null ? -1 : id;
+  }
+
+  public String getLabel(int id) {
+    return this.labels.get(id);
+  }
+
+  /**
+   * Zwraca identyfikatory wszystkich (bezpośrednich i pośrednich) podklas wskazanej klasy.
+   * Wynik jest wyznaczany raz dla każdej klasy i nie powinien być modyfikowany.
+   *
+   * @param parent
+   * @return
+   */
+  public BitSet getSubclassIds(String parent) {
+    BitSet closure = this.subclassClosures.get(parent);
+    if (closure == null) {
+      closure = new BitSet(this.labels.size());
+      Deque<String> stack = new ArrayDeque<String>();
+      stack.push(parent);
+      while (!stack.isEmpty()) {
+        Set<String> directSubclasses = this.childrens.get(stack.pop());
+        if (directSubclasses != null) {
+          for (String child : directSubclasses) {
+            int id = this.ids.get(child);
+            if (!closure.get(id)) {
+              closure.set(id);
+              stack.push(child);
+            }
+          }
+        }
+      }
+      this.subclassClosures.put(parent, closure);
+    }
+    return closure;
+  }
+
   public boolean containsClass(String label) {
     return this.nodes.contains(label);
   }
@@ -47,8 +105,9 @@ public class Graph {
   }
 
   public void addConnection(String child, String parent) {
-    this.nodes.add(child);
-    this.nodes.add(parent);
+    this.addNode(child);
+    this.addNode(parent);
+    this.subclassClosures.clear();
     Set<String> directSubclasses = this.childrens.get(parent);
     if (directSubclasses == null) {
       directSubclasses = new HashSet<String>();
@@ -57,6 +116,13 @@ public class Graph {
     directSubclasses.add(child);
   }
 
+  private void addNode(String label) {
+    if (this.nodes.add(label)) {
+      this.ids.put(label, this.labels.size());
+      this.labels.add(label);
+    }
+  }
+
   public Set<String> getSuperclasses(String currentClass) {
     Set<String> classes = new HashSet<String>();
     for (String superclass : this.childrens.keySet()) {
@@ -1,6 +1,7 @@
 package g419.toolbox.sumo;
 
 import java.io.*;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -92,6 +93,29 @@ public class Sumo {
     return subclasses;
   }
 
+  /**
+   * Zwraca identyfikator klasy w ontologii lub -1, jeżeli klasa nie występuje.
+   * Etykieta nie jest normalizowana (tak jak w getSubclasses).
+   *
+   * @param label
+   * @return
+   */
+  public int getClassId(String label) {
+    return this.graph.getId(label);
+  }
+
+  /**
+   * Zwraca identyfikatory (zob. getClassId) wszystkich podklas wskazanej klasy. Domknięcie jest
+   * wyznaczane raz dla każdej klasy, a sprawdzenie przynależności to odczyt jednego bitu.
+   * Zwrócony zbiór nie powinien być modyfikowany.
+   *
+   * @param upperClass
+   * @return
+   */
+  public BitSet getSubclassIds(String upperClass) {
+    return this.graph.getSubclassIds(upperClass);
+  }
+
   public Set<String> getSubclasses(Set<String> classes) {
     Set<String> subclasses = new HashSet<String>();
     for (String cl : classes) {
@@ -0,0 +1,909 @@
+package g419.toolbox.wordnet;
+
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataLemmaRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRelationRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonIndexRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonParser;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Wordnet w formacie Princeton skompilowany do zwartego obrazu binarnego mapowanego do pamięci
+ * tylko do odczytu. Synsety mają identyfikatory całkowite, a jednostki leksykalne i relacje synsetu
+ * są zapisane w płaskich tablicach (CSR), więc domknięcia relacji są liczone przejściem po tablicach
+ * bez tworzenia obiektów. Obiekt PrincetonDataRaw jest tworzony dopiero przy pierwszym odwołaniu
+ * do synsetu i jest jeden dla każdego synsetu, więc może być używany w zbiorach.
+ * <p>
+ * Obraz wczytany przez {@link #load(String)} jest współdzielony przez Wordnet3, WordnetLoader
+ * i Wordnet2 w obrębie procesu, a przez pamięć podręczną systemu plików także między procesami.
+ * <p>
+ * Układ pliku (liczby całkowite big-endian):
+ * <pre>
+ * int MAGIC, int stringCount, int stringBytes, int typeCount, int synsetCount, int lemmaCount,
+ * int relationCount, int entryCount, int entrySynsetCount
+ * int[stringCount + 1]  stringOffset     -- początki napisów w bloku strings (UTF-8, posortowane bajtowo)
+ * int[typeCount]        typeString       -- napisy typów relacji
+ * int[synsetCount]      synsetPos, synsetOffset, synsetDomain, synsetDefinition -- napisy lub -1
+ * int[synsetCount + 1]  firstLemma       -- jednostki synsetu s to przedział [firstLemma[s], firstLemma[s + 1])
+ * int[lemmaCount]       lemmaText, lemmaVariant
+ * int[synsetCount + 1]  firstRelation    -- relacje synsetu s to przedział [firstRelation[s], firstRelation[s + 1])
+ * int[relationCount]    relationType     -- numer typu relacji
+ * int[relationCount]    relationTarget   -- synset docelowy lub -1, jeżeli nie ma go w danych
+ * int[relationCount]    relationPos, relationOffset, relationIndex -- napisy
+ * int[entryCount]       entryLemma, entryPos -- hasła indeksu posortowane według lematu i części mowy
+ * int[entryCount + 1]   firstEntrySynset
+ * int[entrySynsetCount] entrySynset      -- synsety hasła w kolejności znaczeń lub -1
+ * byte[stringBytes]     strings
+ * </pre>
+ * Synsety są posortowane według części mowy i offsetu.
+ *
+ * @author Michał Marcińczuk
+ */
+public class MappedWordnet {
+
+  public static final int MAGIC = 0x4C574E31; // "LWN1"
+
+  /**
+   * Nazwa obrazu tworzonego w katalogu z plikami w formacie Princeton.
+   */
+  public static final String IMAGE_FILE_NAME = "wordnet.lwn";
+
+  private static final int HEADER_SIZE = 9 * 4;
+
+  private static final String[][] POSES = new String[][] {{"adj", "a"}, {"adv", "r"}, {"noun", "n"}, {"verb", "v"}};
+
+  /* Kolejność części mowy w wynikach wyszukiwania po lemacie, zgodna z dotychczasową kolejnością
+   * iteracji po HashMap z kluczami a, r, n, v */
+  private static final List<String> LOOKUP_ORDER = Arrays.asList("a", "r", "v", "n");
+
+  private static final Map<String, MappedWordnet> shared = new HashMap<String, MappedWordnet>();
+
+  private final ByteBuffer buffer;
+  private final int stringCount;
+  private final int synsetCount;
+  private final int entryCount;
+  private final String[] types;
+  private final int stringOffsetPos;
+  private final int synsetPosPos;
+  private final int synsetOffsetPos;
+  private final int synsetDomainPos;
+  private final int synsetDefinitionPos;
+  private final int firstLemmaPos;
+  private final int lemmaTextPos;
+  private final int lemmaVariantPos;
+  private final int firstRelationPos;
+  private final int relationTypePos;
+  private final int relationTargetPos;
+  private final int relationPosPos;
+  private final int relationOffsetPos;
+  private final int relationIndexPos;
+  private final int entryLemmaPos;
+  private final int entryPosPos;
+  private final int firstEntrySynsetPos;
+  private final int entrySynsetPos;
+  private final int stringsPos;
+
+  private final AtomicReferenceArray<PrincetonDataRaw> synsets;
+  private volatile String fingerprint = null;
+
+  private MappedWordnet(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a compiled wordnet image");
+    }
+    stringCount = buffer.getInt(4);
+    int typeCount = buffer.getInt(12);
+    synsetCount = buffer.getInt(16);
+    int lemmaCount = buffer.getInt(20);
+    int relationCount = buffer.getInt(24);
+    entryCount = buffer.getInt(28);
+    int entrySynsetCount = buffer.getInt(32);
+
+    stringOffsetPos = HEADER_SIZE;
+    int typeStringPos = stringOffsetPos + 4 * (stringCount + 1);
+    synsetPosPos = typeStringPos + 4 * typeCount;
+    synsetOffsetPos = synsetPosPos + 4 * synsetCount;
+    synsetDomainPos = synsetOffsetPos + 4 * synsetCount;
+    synsetDefinitionPos = synsetDomainPos + 4 * synsetCount;
+    firstLemmaPos = synsetDefinitionPos + 4 * synsetCount;
+    lemmaTextPos = firstLemmaPos + 4 * (synsetCount + 1);
+    lemmaVariantPos = lemmaTextPos + 4 * lemmaCount;
+    firstRelationPos = lemmaVariantPos + 4 * lemmaCount;
+    relationTypePos = firstRelationPos + 4 * (synsetCount + 1);
+    relationTargetPos = relationTypePos + 4 * relationCount;
+    relationPosPos = relationTargetPos + 4 * relationCount;
+    relationOffsetPos = relationPosPos + 4 * relationCount;
+    relationIndexPos = relationOffsetPos + 4 * relationCount;
+    entryLemmaPos = relationIndexPos + 4 * relationCount;
+    entryPosPos = entryLemmaPos + 4 * entryCount;
+    firstEntrySynsetPos = entryPosPos + 4 * entryCount;
+    entrySynsetPos = firstEntrySynsetPos + 4 * (entryCount + 1);
+    stringsPos = entrySynsetPos + 4 * entrySynsetCount;
+
+    types = new String[typeCount];
+    for (int i = 0; i < typeCount; i++) {
+      types[i] = getString(buffer.getInt(typeStringPos + 4 * i));
+    }
+    synsets = new AtomicReferenceArray<PrincetonDataRaw>(synsetCount);
+  }
+
+  /**
+   * Zwraca wordnet współdzielony w obrębie procesu. Ścieżka może wskazywać skompilowany obraz albo
+   * katalog z plikami w formacie Princeton. W drugim przypadku obraz jest tworzony raz w tym katalogu
+   * (plik {@link #IMAGE_FILE_NAME}) i odtwarzany tylko po zmianie plików źródłowych. Jeżeli katalog
+   * nie jest zapisywalny, obraz jest tworzony w pliku tymczasowym.
+   *
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  public static synchronized MappedWordnet load(String path) throws IOException {
+    File file = new File(path);
+    if (!file.exists()) {
+      throw new FileNotFoundException("Invalid database directory: " + path);
+    }
+    String key = file.getCanonicalPath();
+    MappedWordnet wordnet = shared.get(key);
+    if (wordnet == null) {
+      if (file.isDirectory()) {
+        wordnet = open(getImage(file).getPath());
+      } else {
+        wordnet = open(path);
+      }
+      shared.put(key, wordnet);
+    }
+    return wordnet;
+  }
+
+  /**
+   * Mapuje skompilowany obraz do pamięci.
+   *
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  public static MappedWordnet open(String path) throws IOException {
+    File file = new File(path);
+    if (!file.exists()) {
+      throw new FileNotFoundException("File " + path + " does not exist");
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Compiled wordnet image " + path + " exceeds 2GB");
+      }
+      return new MappedWordnet(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Zwraca pusty wordnet.
+   *
+   * @return
+   */
+  public static MappedWordnet empty() {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      write(new LinkedHashMap<String, Map<String, PrincetonDataRaw>>(),
+          new LinkedHashMap<String, Map<String, PrincetonIndexRaw>>(), bytes);
+      return new MappedWordnet(ByteBuffer.wrap(bytes.toByteArray()));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Sprawdza, czy plik jest skompilowanym obrazem wordnetu.
+   *
+   * @param file
+   * @return
+   * @throws IOException
+   */
+  public static boolean isCompiled(File file) throws IOException {
+    if (!file.isFile() || file.length() < HEADER_SIZE) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      return in.readInt() == MAGIC;
+    }
+  }
+
+  /**
+   * Kompiluje pliki index.* i data.* z katalogu wordnetPath do obrazu zapisywanego w pliku path.
+   *
+   * @param wordnetPath
+   * @param path
+   * @throws IOException
+   */
+  public static void compile(String wordnetPath, String path) throws IOException {
+    if (!new File(wordnetPath).isDirectory()) {
+      throw new FileNotFoundException("Invalid database directory: " + wordnetPath);
+    }
+    Map<String, Map<String, PrincetonIndexRaw>> index = new LinkedHashMap<String, Map<String, PrincetonIndexRaw>>();
+    Map<String, Map<String, PrincetonDataRaw>> data = new LinkedHashMap<String, Map<String, PrincetonDataRaw>>();
+    for (String[] pos : POSES) {
+      File file = new File(wordnetPath, "index." + pos[0]);
+      if (file.exists()) {
+        index.put(pos[1], readIndexFile(file));
+      }
+    }
+    for (String[] pos : POSES) {
+      File file = new File(wordnetPath, "data." + pos[0]);
+      if (file.exists()) {
+        data.put(pos[1], readDataFile(file, pos[1]));
+      }
+    }
+
+    File target = new File(path).getAbsoluteFile();
+    File tmp = File.createTempFile("wordnet", ".tmp", target.getParentFile());
+    try {
+      try (OutputStream out = new FileOutputStream(tmp)) {
+        write(data, index, out);
+      }
+      Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      tmp.delete();
+    }
+  }
+
+  /**
+   * Zwraca aktualny obraz dla katalogu z plikami w formacie Princeton, w razie potrzeby tworząc go.
+   */
+  private static File getImage(File directory) throws IOException {
+    File image = new File(directory, IMAGE_FILE_NAME);
+    if (isCompiled(image) && image.lastModified() >= getSourcesLastModified(directory)) {
+      return image;
+    }
+    try {
+      compile(directory.getPath(), image.getPath());
+    } catch (IOException e) {
+      image = File.createTempFile("wordnet", ".lwn");
+      image.deleteOnExit();
+      compile(directory.getPath(), image.getPath());
+    }
+    return image;
+  }
+
+  private static long getSourcesLastModified(File directory) {
+    long lastModified = 0;
+    for (String[] pos : POSES) {
+      lastModified = Math.max(lastModified, new File(directory, "index." + pos[0]).lastModified());
+      lastModified = Math.max(lastModified, new File(directory, "data." + pos[0]).lastModified());
+    }
+    return lastModified;
+  }
+
+  private static Map<String, PrincetonIndexRaw> readIndexFile(File file) throws IOException {
+    Map<String, PrincetonIndexRaw> units = new HashMap<String, PrincetonIndexRaw>();
+    try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line = null;
+      while ((line = r.readLine()) != null) {
+        // Skip lines with comments. Lines with comments starts with two spaces.
+        if (line.startsWith("  ")) {
+          continue;
+        }
+        PrincetonIndexRaw raw = PrincetonParser.parseIndexLine(line);
+        units.put(raw.lemma, raw);
+      }
+    }
+    return units;
+  }
+
+  private static Map<String, PrincetonDataRaw> readDataFile(File file, String pos) throws IOException {
+    Map<String, PrincetonDataRaw> data = new HashMap<String, PrincetonDataRaw>();
+    try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line = null;
+      while ((line = r.readLine()) != null) {
+        // Skip lines with comments. Lines with comments starts with two spaces.
+        if (line.startsWith("  ")) {
+          continue;
+        }
+        PrincetonDataRaw d = PrincetonParser.parseDataLine(line);
+        d.pos = pos;
+        data.put(d.offset, d);
+      }
+    }
+    return data;
+  }
+
+  private static void write(Map<String, Map<String, PrincetonDataRaw>> data,
+                            Map<String, Map<String, PrincetonIndexRaw>> index,
+                            OutputStream stream) throws IOException {
+    /* Słownik napisów posortowanych bajtowo, dzięki czemu porównanie identyfikatorów odpowiada porównaniu napisów */
+    TreeSet<byte[]> strings = new TreeSet<byte[]>(MappedWordnet::compare);
+    TreeSet<String> typeSet = new TreeSet<String>();
+    List<PrincetonDataRaw> synsetList = new ArrayList<PrincetonDataRaw>();
+    for (Map<String, PrincetonDataRaw> synsets : data.values()) {
+      for (PrincetonDataRaw synset : synsets.values()) {
+        synsetList.add(synset);
+        addString(strings, synset.pos);
+        addString(strings, synset.offset);
+        addString(strings, synset.domain);
+        addString(strings, synset.definition);
+        for (PrincetonDataLemmaRaw lemma : synset.lemmas) {
+          addString(strings, lemma.lemma);
+          addString(strings, lemma.variant);
+        }
+        for (PrincetonDataRelationRaw relation : synset.relations) {
+          addString(strings, relation.type);
+          addString(strings, relation.pos);
+          addString(strings, relation.offset);
+          addString(strings, relation.index);
+          typeSet.add(relation.type);
+        }
+      }
+    }
+    for (Map.Entry<String, Map<String, PrincetonIndexRaw>> units : index.entrySet()) {
+      addString(strings, units.getKey());
+      for (String lemma : units.getValue().keySet()) {
+        addString(strings, lemma);
+      }
+    }
+
+    Map<String, Integer> stringIds = new HashMap<String, Integer>();
+    int[] stringOffset = new int[strings.size() + 1];
+    int id = 0;
+    for (byte[] string : strings) {
+      stringIds.put(new String(string, StandardCharsets.UTF_8), id);
+      stringOffset[id + 1] = stringOffset[id] + string.length;
+      id++;
+    }
+    List<String> typeList = new ArrayList<String>(typeSet);
+    Map<String, Integer> typeIds = new HashMap<String, Integer>();
+    for (int i = 0; i < typeList.size(); i++) {
+      typeIds.put(typeList.get(i), i);
+    }
+
+    Comparator<PrincetonDataRaw> synsetOrder = Comparator
+        .comparing((PrincetonDataRaw s) -> stringIds.get(s.pos))
+        .thenComparing(s -> stringIds.get(s.offset));
+    synsetList.sort(synsetOrder);
+    Map<String, Map<String, Integer>> synsetIds = new HashMap<String, Map<String, Integer>>();
+    int lemmaCount = 0;
+    int relationCount = 0;
+    for (int i = 0; i < synsetList.size(); i++) {
+      PrincetonDataRaw synset = synsetList.get(i);
+      synsetIds.computeIfAbsent(synset.pos, k -> new HashMap<String, Integer>()).put(synset.offset, i);
+      lemmaCount += synset.lemmas.size();
+      relationCount += synset.relations.size();
+    }
+
+    List<Entry> entries = new ArrayList<Entry>();
+    int entrySynsetCount = 0;
+    for (Map.Entry<String, Map<String, PrincetonIndexRaw>> units : index.entrySet()) {
+      Map<String, Integer> posSynsets = synsetIds.getOrDefault(units.getKey(), Collections.emptyMap());
+      for (Map.Entry<String, PrincetonIndexRaw> unit : units.getValue().entrySet()) {
+        int[] senses = new int[unit.getValue().synset_offsets.size()];
+        for (int i = 0; i < senses.length; i++) {
+          senses[i] = posSynsets.getOrDefault(unit.getValue().synset_offsets.get(i), -1);
+        }
+        entries.add(new Entry(stringIds.get(unit.getKey()), units.getKey(), stringIds.get(units.getKey()), senses));
+        entrySynsetCount += senses.length;
+      }
+    }
+    entries.sort(Comparator.comparingInt((Entry e) -> e.lemma).thenComparingInt(e -> lookupRank(e.posName)));
+
+    long size = HEADER_SIZE + 4L * (stringOffset.length + typeList.size() + 4L * synsetList.size()
+        + 2L * (synsetList.size() + 1) + 2L * lemmaCount + 5L * relationCount
+        + 2L * entries.size() + entries.size() + 1 + entrySynsetCount) + stringOffset[stringOffset.length - 1];
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Wordnet too large for the compiled image format (" + size + " bytes)");
+    }
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+    out.writeInt(MAGIC);
+    out.writeInt(strings.size());
+    out.writeInt(stringOffset[stringOffset.length - 1]);
+    out.writeInt(typeList.size());
+    out.writeInt(synsetList.size());
+    out.writeInt(lemmaCount);
+    out.writeInt(relationCount);
+    out.writeInt(entries.size());
+    out.writeInt(entrySynsetCount);
+    for (int offset : stringOffset) {
+      out.writeInt(offset);
+    }
+    for (String type : typeList) {
+      out.writeInt(stringIds.get(type));
+    }
+
+    for (PrincetonDataRaw synset : synsetList) {
+      out.writeInt(getStringId(stringIds, synset.pos));
+    }
+    for (PrincetonDataRaw synset : synsetList) {
+      out.writeInt(getStringId(stringIds, synset.offset));
+    }
+    for (PrincetonDataRaw synset : synsetList) {
+      out.writeInt(getStringId(stringIds, synset.domain));
+    }
+    for (PrincetonDataRaw synset : synsetList) {
+      out.writeInt(getStringId(stringIds, synset.definition));
+    }
+
+    int first = 0;
+    for (PrincetonDataRaw synset : synsetList) {
+      out.writeInt(first);
+      first += synset.lemmas.size();
+    }
+    out.writeInt(first);
+    for (PrincetonDataRaw synset : synsetList) {
+      for (PrincetonDataLemmaRaw lemma : synset.lemmas) {
+        out.writeInt(getStringId(stringIds, lemma.lemma));
+      }
+    }
+    for (PrincetonDataRaw synset : synsetList) {
+      for (PrincetonDataLemmaRaw lemma : synset.lemmas) {
+        out.writeInt(getStringId(stringIds, lemma.variant));
+      }
+    }
+
+    first = 0;
+    for (PrincetonDataRaw synset : synsetList) {
+      out.writeInt(first);
+      first += synset.relations.size();
+    }
+    out.writeInt(first);
+    for (PrincetonDataRaw synset : synsetList) {
+      for (PrincetonDataRelationRaw relation : synset.relations) {
+        out.writeInt(typeIds.get(relation.type));
+      }
+    }
+    for (PrincetonDataRaw synset : synsetList) {
+      for (PrincetonDataRelationRaw relation : synset.relations) {
+        out.writeInt(synsetIds.getOrDefault(relation.pos, Collections.emptyMap()).getOrDefault(relation.offset, -1));
+      }
+    }
+    for (PrincetonDataRaw synset : synsetList) {
+      for (PrincetonDataRelationRaw relation : synset.relations) {
+        out.writeInt(getStringId(stringIds, relation.pos));
+      }
+    }
+    for (PrincetonDataRaw synset : synsetList) {
+      for (PrincetonDataRelationRaw relation : synset.relations) {
+        out.writeInt(getStringId(stringIds, relation.offset));
+      }
+    }
+    for (PrincetonDataRaw synset : synsetList) {
+      for (PrincetonDataRelationRaw relation : synset.relations) {
+        out.writeInt(getStringId(stringIds, relation.index));
+      }
+    }
+
+    for (Entry entry : entries) {
+      out.writeInt(entry.lemma);
+    }
+    for (Entry entry : entries) {
+      out.writeInt(entry.pos);
+    }
+    first = 0;
+    for (Entry entry : entries) {
+      out.writeInt(first);
+      first += entry.synsets.length;
+    }
+    out.writeInt(first);
+    for (Entry entry : entries) {
+      for (int synset : entry.synsets) {
+        out.writeInt(synset);
+      }
+    }
+
+    for (byte[] string : strings) {
+      out.write(string);
+    }
+    out.flush();
+  }
+
+  private static void addString(TreeSet<byte[]> strings, String value) {
+    if (value != null) {
+      strings.add(encode(value));
+    }
+  }
+
+  private static int getStringId(Map<String, Integer> stringIds, String value) {
+    return value == null ? -1 : stringIds.get(value);
+  }
+
+  private static int lookupRank(String pos) {
+    int rank = LOOKUP_ORDER.indexOf(pos);
+    return rank == -1 ? LOOKUP_ORDER.size() : rank;
+  }
+
+  /**
+   * @return liczba synsetów
+   */
+  public int getSynsetCount() {
+    return synsetCount;
+  }
+
+  /**
+   * Zwraca odcisk zawartości obrazu: liczbę synsetów, liczbę haseł i sumę kontrolną CRC32 całego
+   * obrazu. Obraz jest wyznaczany jednoznacznie przez pliki źródłowe, więc odcisk zmienia się razem
+   * z danymi wordnetu. Suma jest liczona przy pierwszym wywołaniu.
+   *
+   * @return
+   */
+  public String getFingerprint() {
+    String fingerprint = this.fingerprint;
+    if (fingerprint == null) {
+      CRC32 crc = new CRC32();
+      ByteBuffer all = buffer.duplicate();
+      all.rewind();
+      crc.update(all);
+      fingerprint = String.format("%d/%d/%08x", synsetCount, entryCount, crc.getValue());
+      this.fingerprint = fingerprint;
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Zwraca obiekt synsetu o podanym identyfikatorze. Dla danego identyfikatora zwracany jest zawsze
+   * ten sam obiekt.
+   *
+   * @param synset
+   * @return
+   */
+  public PrincetonDataRaw getSynset(int synset) {
+    PrincetonDataRaw raw = synsets.get(synset);
+    if (raw == null) {
+      synsets.compareAndSet(synset, null, createSynset(synset));
+      raw = synsets.get(synset);
+    }
+    return raw;
+  }
+
+  /**
+   * Zwraca listę obiektów synsetów o podanych identyfikatorach.
+   *
+   * @param ids
+   * @return
+   */
+  public List<PrincetonDataRaw> getSynsets(int[] ids) {
+    List<PrincetonDataRaw> list = new ArrayList<PrincetonDataRaw>(ids.length);
+    for (int id : ids) {
+      list.add(getSynset(id));
+    }
+    return list;
+  }
+
+  /**
+   * Zwraca listę obiektów synsetów ze zbioru identyfikatorów.
+   *
+   * @param ids
+   * @return
+   */
+  public List<PrincetonDataRaw> getSynsets(BitSet ids) {
+    List<PrincetonDataRaw> list = new ArrayList<PrincetonDataRaw>(ids.cardinality());
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      list.add(getSynset(id));
+    }
+    return list;
+  }
+
+  /**
+   * Zwraca identyfikator synsetu na podstawie części mowy i offsetu.
+   *
+   * @param synset
+   * @return identyfikator synsetu lub -1
+   */
+  public int getSynsetId(PrincetonDataRaw synset) {
+    int pos = getStringId(synset.pos);
+    int offset = getStringId(synset.offset);
+    if (pos < 0 || offset < 0) {
+      return -1;
+    }
+    int low = 0;
+    int high = synsetCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Integer.compare(buffer.getInt(synsetPosPos + 4 * mid), pos);
+      if (cmp == 0) {
+        cmp = Integer.compare(buffer.getInt(synsetOffsetPos + 4 * mid), offset);
+      }
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Zwraca identyfikatory synsetów wszystkich znaczeń lematu.
+   *
+   * @param lemma
+   * @return
+   */
+  public int[] getSynsetIds(String lemma) {
+    return getSynsetIds(lemma, 0);
+  }
+
+  /**
+   * Zwraca identyfikatory synsetów zawierających lemat w znaczeniu sense (numerowanym od 1)
+   * dla każdej części mowy. Dla sense równego 0 zwracane są wszystkie znaczenia.
+   *
+   * @param lemma
+   * @param sense
+   * @return
+   */
+  public int[] getSynsetIds(String lemma, int sense) {
+    int id = getStringId(lemma);
+    if (id < 0) {
+      return new int[0];
+    }
+    int entry = findFirstEntry(id);
+    int[] ids = new int[0];
+    int size = 0;
+    for (; entry < entryCount && buffer.getInt(entryLemmaPos + 4 * entry) == id; entry++) {
+      int start = buffer.getInt(firstEntrySynsetPos + 4 * entry);
+      int end = buffer.getInt(firstEntrySynsetPos + 4 * (entry + 1));
+      if (sense > 0) {
+        start = start + sense - 1;
+        end = start < end ? start + 1 : start;
+      }
+      for (int i = start; i < end; i++) {
+        int synset = buffer.getInt(entrySynsetPos + 4 * i);
+        if (synset >= 0) {
+          if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+          }
+          ids[size++] = synset;
+        }
+      }
+    }
+    return size == ids.length ? ids : Arrays.copyOf(ids, size);
+  }
+
+  /**
+   * Zwraca lematy wszystkich haseł indeksu, osobno dla każdej części mowy.
+   *
+   * @return
+   */
+  public List<String> getIndexLemmas() {
+    List<String> lemmas = new ArrayList<String>(entryCount);
+    for (int i = 0; i < entryCount; i++) {
+      lemmas.add(getString(buffer.getInt(entryLemmaPos + 4 * i)));
+    }
+    return lemmas;
+  }
+
+  /**
+   * Zwraca tablicę typów relacji spełniających warunek, indeksowaną numerem typu.
+   *
+   * @param type
+   * @return
+   */
+  public boolean[] getRelationTypes(Predicate<String> type) {
+    boolean[] mask = new boolean[types.length];
+    for (int i = 0; i < types.length; i++) {
+      mask[i] = type.test(types[i]);
+    }
+    return mask;
+  }
+
+  /**
+   * Zwraca identyfikatory synsetów bezpośrednio połączonych z synsetem relacją jednego z typów,
+   * w kolejności relacji w danych.
+   *
+   * @param synset
+   * @param types  typy relacji z {@link #getRelationTypes(Predicate)}
+   * @return
+   */
+  public int[] getDirectSynsetIds(int synset, boolean[] types) {
+    int start = buffer.getInt(firstRelationPos + 4 * synset);
+    int end = buffer.getInt(firstRelationPos + 4 * (synset + 1));
+    int[] ids = new int[end - start];
+    int size = 0;
+    for (int r = start; r < end; r++) {
+      int target = buffer.getInt(relationTargetPos + 4 * r);
+      if (target >= 0 && types[buffer.getInt(relationTypePos + 4 * r)]) {
+        ids[size++] = target;
+      }
+    }
+    return size == ids.length ? ids : Arrays.copyOf(ids, size);
+  }
+
+  /**
+   * Zwraca zbiór synsetów połączonych z synsetem (bezpośrednio lub pośrednio) relacjami jednego z typów.
+   * Synset początkowy należy do zbioru tylko wtedy, gdy leży na cyklu.
+   *
+   * @param synset
+   * @param types  typy relacji z {@link #getRelationTypes(Predicate)}
+   * @return
+   */
+  public BitSet getAllSynsetIds(int synset, boolean[] types) {
+    BitSet visited = new BitSet(synsetCount);
+    int[] stack = new int[16];
+    int size = 0;
+    stack[size++] = synset;
+    while (size > 0) {
+      int current = stack[--size];
+      int end = buffer.getInt(firstRelationPos + 4 * (current + 1));
+      for (int r = buffer.getInt(firstRelationPos + 4 * current); r < end; r++) {
+        int target = buffer.getInt(relationTargetPos + 4 * r);
+        if (target >= 0 && !visited.get(target) && types[buffer.getInt(relationTypePos + 4 * r)]) {
+          visited.set(target);
+          if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size * 2);
+          }
+          stack[size++] = target;
+        }
+      }
+    }
+    return visited;
+  }
+
+  /**
+   * Zwraca identyfikator napisu z domeną synsetu. Równe identyfikatory oznaczają tę samą domenę.
+   *
+   * @param synset
+   * @return
+   */
+  public int getDomainId(int synset) {
+    return buffer.getInt(synsetDomainPos + 4 * synset);
+  }
+
+  private PrincetonDataRaw createSynset(int synset) {
+    PrincetonDataRaw raw = new PrincetonDataRaw();
+    raw.pos = getString(buffer.getInt(synsetPosPos + 4 * synset));
+    raw.offset = getString(buffer.getInt(synsetOffsetPos + 4 * synset));
+    raw.domain = getString(buffer.getInt(synsetDomainPos + 4 * synset));
+    raw.definition = getString(buffer.getInt(synsetDefinitionPos + 4 * synset));
+
+    int start = buffer.getInt(firstLemmaPos + 4 * synset);
+    int end = buffer.getInt(firstLemmaPos + 4 * (synset + 1));
+    raw.lemmas = new ArrayList<PrincetonDataLemmaRaw>(end - start);
+    for (int i = start; i < end; i++) {
+      raw.lemmas.add(new PrincetonDataLemmaRaw(
+          getString(buffer.getInt(lemmaTextPos + 4 * i)), getString(buffer.getInt(lemmaVariantPos + 4 * i))));
+    }
+
+    start = buffer.getInt(firstRelationPos + 4 * synset);
+    end = buffer.getInt(firstRelationPos + 4 * (synset + 1));
+    raw.relations = new ArrayList<PrincetonDataRelationRaw>(end - start);
+    for (int r = start; r < end; r++) {
+      raw.relations.add(new PrincetonDataRelationRaw(
+          types[buffer.getInt(relationTypePos + 4 * r)],
+          getString(buffer.getInt(relationOffsetPos + 4 * r)),
+          getString(buffer.getInt(relationPosPos + 4 * r)),
+          getString(buffer.getInt(relationIndexPos + 4 * r))));
+    }
+    return raw;
+  }
+
+  /**
+   * Wyszukuje binarnie pierwsze hasło indeksu o podanym identyfikatorze lematu.
+   */
+  private int findFirstEntry(int lemma) {
+    int low = 0;
+    int high = entryCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (buffer.getInt(entryLemmaPos + 4 * mid) < lemma) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Wyszukuje binarnie identyfikator napisu w posortowanej tablicy napisów.
+   *
+   * @param value
+   * @return identyfikator napisu lub -1
+   */
+  private int getStringId(String value) {
+    if (value == null) {
+      return -1;
+    }
+    byte[] bytes = encode(value);
+    int low = 0;
+    int high = stringCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compareString(mid, bytes);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private int compareString(int id, byte[] value) {
+    int start = stringsPos + buffer.getInt(stringOffsetPos + 4 * id);
+    int length = stringsPos + buffer.getInt(stringOffsetPos + 4 * (id + 1)) - start;
+    int n = Math.min(length, value.length);
+    for (int i = 0; i < n; i++) {
+      int cmp = (buffer.get(start + i) & 0xff) - (value[i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return length - value.length;
+  }
+
+  private String getString(int id) {
+    if (id < 0) {
+      return null;
+    }
+    int start = stringsPos + buffer.getInt(stringOffsetPos + 4 * id);
+    int length = stringsPos + buffer.getInt(stringOffsetPos + 4 * (id + 1)) - start;
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] encode(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int compare(byte[] a, byte[] b) {
+    int n = Math.min(a.length, b.length);
+    for (int i = 0; i < n; i++) {
+      int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return a.length - b.length;
+  }
+
+  /**
+   * Hasło indeksu: lemat w jednej części mowy i jego synsety w kolejności znaczeń.
+   */
+  private static class Entry {
+    final int lemma;
+    final String posName;
+    final int pos;
+    final int[] synsets;
+
+    Entry(int lemma, String posName, int pos, int[] synsets) {
+      this.lemma = lemma;
+      this.posName = posName;
+      this.pos = pos;
+      this.synsets = synsets;
+    }
+  }
+
+}
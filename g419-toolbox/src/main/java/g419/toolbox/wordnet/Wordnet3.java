@@ -1,56 +1,45 @@
 package g419.toolbox.wordnet;
 
-import com.google.common.collect.Maps;
-import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.*;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataLemmaRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRaw;
 
-import java.io.*;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Następca Wordnet i Wordnet2.
  * TODO wymagana integracja Wordnet, Wordnet2 i Wordnet3
+ * <p>
+ * Dane są pobierane ze współdzielonego obrazu {@link MappedWordnet}.
  *
  * @author czuk
  */
 public class Wordnet3 {
-  HashMap<String, HashMap<String, PrincetonDataRaw>> data = Maps.newHashMap();
-  HashMap<String, HashMap<String, PrincetonIndexRaw>> index = Maps.newHashMap();
 
   public final static String REL_HYPERNYM = "@";
   public final static String REL_HYPONYM = "~";
   public final static String REL_MERONYM = "%";
   public final static String REL_HOLONYM = "#";
 
-  String[][] poses = new String[][] {{"adj", "a"}, {"adv", "r"}, {"noun", "n"}, {"verb", "v"}};
-
   String wordnet_path;
 
+  MappedWordnet wordnet;
+
+  /* Typy relacji, których nazwa zaczyna się od danego prefiksu */
+  private final Map<String, boolean[]> relationTypes = new ConcurrentHashMap<String, boolean[]>();
+
   /**
-   * Tworzy obiekt na podstawie plików w formacie Princeton.
+   * Tworzy obiekt na podstawie plików w formacie Princeton lub skompilowanego obrazu MappedWordnet.
    *
-   * @param path Ścieżka do katalogu z plikami w formacie Princeton.
+   * @param path Ścieżka do katalogu z plikami w formacie Princeton lub do obrazu.
    */
   public Wordnet3(String path) {
     wordnet_path = path;
     try {
-      if (!new File(path).exists()) {
-        throw new FileNotFoundException("Invalid database directory: " + path);
-      }
-      for (String pos[] : poses) {
-        String filename = path + File.separator + "index." + pos[0];
-        if ((new File(filename)).exists()) {
-          index.put(pos[1], readIndexFile(filename));
-        }
-      }
-      for (String pos[] : poses) {
-        String filename = path + File.separator + "data." + pos[0];
-        if ((new File(filename)).exists()) {
-          data.put(pos[1], readDataFile(filename, pos[1]));
-        }
-      }
+      wordnet = MappedWordnet.load(path);
     } catch (Exception e) {
       e.printStackTrace();
+      wordnet = MappedWordnet.empty();
     }
   }
 
@@ -58,64 +47,13 @@ public class Wordnet3 {
    * @return
    */
   public List<PrincetonDataRaw> getSynsets() {
-    List<PrincetonDataRaw> synsets = new ArrayList<PrincetonDataRaw>();
-    for (Map<String, PrincetonDataRaw> map : this.data.values()) {
-      synsets.addAll(map.values());
+    List<PrincetonDataRaw> synsets = new ArrayList<PrincetonDataRaw>(wordnet.getSynsetCount());
+    for (int i = 0; i < wordnet.getSynsetCount(); i++) {
+      synsets.add(wordnet.getSynset(i));
     }
     return synsets;
   }
 
-  /**
-   * @param filename
-   * @return
-   * @throws IOException
-   */
-  public HashMap<String, PrincetonIndexRaw> readIndexFile(String filename) throws IOException {
-    HashMap<String, PrincetonIndexRaw> units = new HashMap<String, PrincetonIndexRaw>();
-
-    BufferedReader r = new BufferedReader(new FileReader(filename));
-
-    String line = null;
-    while ((line = r.readLine()) != null) {
-      // Skip lines with comments. Lines with comments starts with two spaces.
-      if (line.startsWith("  ")) {
-        continue;
-      }
-      // Parse line
-      PrincetonIndexRaw raw = PrincetonParser.parseIndexLine(line);
-      units.put(raw.lemma, raw);
-    }
-    r.close();
-    return units;
-  }
-
-  /**
-   * @param filename
-   * @param pos
-   * @return
-   * @throws IOException
-   */
-  public HashMap<String, PrincetonDataRaw> readDataFile(String filename, String pos) throws IOException {
-    BufferedReader r = new BufferedReader(new FileReader(filename));
-    HashMap<String, PrincetonDataRaw> data = new HashMap<String, PrincetonDataRaw>();
-
-    String line = null;
-    while ((line = r.readLine()) != null) {
-      // Skip lines with comments. Lines with comments starts with two spaces.
-      if (line.startsWith("  ")) {
-        continue;
-      }
-      // Parse line
-      PrincetonDataRaw d = PrincetonParser.parseDataLine(line);
-      d.pos = pos;
-      data.put(d.offset, d);
-    }
-    r.close();
-
-
-    return data;
-  }
-
   /**
    * Zwraca listę jednostek leksykalnych przypisanych do danego synsetu.
    *
@@ -139,13 +77,9 @@ public class Wordnet3 {
    */
   public Set<PrincetonDataRaw> getDirectSynsets(PrincetonDataRaw synset, String relation) {
     Set<PrincetonDataRaw> synstens = new HashSet<PrincetonDataRaw>();
-    for (PrincetonDataRelationRaw rel : synset.relations) {
-      if (rel.type.startsWith(relation)) {
-        PrincetonDataRaw direct = data.get(rel.pos).get(rel.offset);
-        if (direct != null) {
-          synstens.add(direct);
-        }
-      }
+    int id = wordnet.getSynsetId(synset);
+    if (id >= 0) {
+      synstens.addAll(wordnet.getSynsets(wordnet.getDirectSynsetIds(id, getRelationTypes(relation))));
     }
     return synstens;
 
@@ -174,11 +108,9 @@ public class Wordnet3 {
    * @param relation Typ relacji
    */
   public void getAllSynsets(PrincetonDataRaw synset, String relation, Set<PrincetonDataRaw> synsets) {
-    for (PrincetonDataRaw synsetByRel : this.getDirectSynsets(synset, relation)) {
-      if (!synsets.contains(synsetByRel)) {
-        synsets.add(synsetByRel);
-        this.getAllSynsets(synsetByRel, relation, synsets);
-      }
+    int id = wordnet.getSynsetId(synset);
+    if (id >= 0) {
+      synsets.addAll(wordnet.getSynsets(wordnet.getAllSynsetIds(id, getRelationTypes(relation))));
     }
   }
 
@@ -187,15 +119,7 @@ public class Wordnet3 {
    * @return
    */
   public List<PrincetonDataRaw> getSynsets(String word) {
-    ArrayList<PrincetonDataRaw> synsets = new ArrayList<PrincetonDataRaw>();
-    for (Entry<String, HashMap<String, PrincetonIndexRaw>> units : index.entrySet()) {
-      if (units.getValue().containsKey(word)) {
-        for (String offset : units.getValue().get(word).synset_offsets) {
-          synsets.add(data.get(units.getKey()).get(offset));
-        }
-      }
-    }
-    return synsets;
+    return wordnet.getSynsets(wordnet.getSynsetIds(word));
   }
 
   /**
@@ -206,16 +130,7 @@ public class Wordnet3 {
    * @return
    */
   public List<PrincetonDataRaw> getSynsets(String word, int sense) {
-    ArrayList<PrincetonDataRaw> synsets = new ArrayList<PrincetonDataRaw>();
-    for (Entry<String, HashMap<String, PrincetonIndexRaw>> units : index.entrySet()) {
-      if (units.getValue().containsKey(word)) {
-        if (units.getValue().get(word).synset_offsets.size() >= sense) {
-          String offset = units.getValue().get(word).synset_offsets.get(sense - 1);
-          synsets.add(data.get(units.getKey()).get(offset));
-        }
-      }
-    }
-    return synsets;
+    return wordnet.getSynsets(wordnet.getSynsetIds(word, sense));
   }
 
   /**
@@ -265,38 +180,74 @@ public class Wordnet3 {
    * a) holonim holonimu danego synsetu i kolejne poziomy,
    * b) holonim każdego hiperonimu synsetu,
    * c)
+   * Uwzględniane są tylko synsety z tej samej domeny co dany synset.
    *
    * @param synset
    */
   public void getHolonyms(PrincetonDataRaw synset, Set<PrincetonDataRaw> holonyms, boolean takeHypernyms, boolean takeHyponyms) {
-    Set<PrincetonDataRaw> directHypernyms = this.getDirectHypernyms(synset);
-    Set<PrincetonDataRaw> directHolonyms = this.getDirectHolonyms(synset);
-
-    for (PrincetonDataRaw synsetLinked : directHolonyms) {
-      if (!holonyms.contains(synsetLinked) && synsetLinked.domain.equals(synset.domain)) {
-        holonyms.add(synsetLinked);
-        //for ( PrincetonDataRaw)
-        this.getHolonyms(synsetLinked, holonyms, true, true);
-        if (takeHyponyms) {
-          for (PrincetonDataRaw hyponym : this.getDirectHyponyms(synsetLinked)) {
-            if (!(holonyms.contains(hyponym)) && hyponym.domain.equals(synset.domain)) {
-              holonyms.add(hyponym);
-              this.getHolonyms(hyponym, holonyms, false, true);
-            }
-          }
-        }
+    int id = wordnet.getSynsetId(synset);
+    if (id < 0) {
+      return;
+    }
+    boolean[] holonymTypes = getRelationTypes(REL_HOLONYM);
+    boolean[] hypernymTypes = getRelationTypes(REL_HYPERNYM);
+    boolean[] hyponymTypes = getRelationTypes(REL_HYPONYM);
+    int domain = wordnet.getDomainId(id);
+
+    BitSet visited = new BitSet(wordnet.getSynsetCount());
+    for (PrincetonDataRaw holonym : holonyms) {
+      int holonymId = wordnet.getSynsetId(holonym);
+      if (holonymId >= 0) {
+        visited.set(holonymId);
       }
     }
-
-    if (takeHypernyms) {
-      for (PrincetonDataRaw synsetLinked : directHypernyms) {
-        if (!holonyms.contains(synsetLinked) && synsetLinked.domain.equals(synset.domain)) {
-          holonyms.add(synsetLinked);
-          //for ( PrincetonDataRaw)
-          this.getHolonyms(synsetLinked, holonyms, true, false);
+    BitSet found = new BitSet(wordnet.getSynsetCount());
+
+    /* Jawny stos odtwarzający kolejność dawnego przejścia rekurencyjnego: holonimy synsetu (każdy
+     * przetwarzany w całości przed następnym, a po nim -- jego hiponimy), a następnie hiperonimy */
+    Deque<HolonymFrame> stack = new ArrayDeque<HolonymFrame>();
+    stack.push(new HolonymFrame(id, takeHypernyms, takeHyponyms, wordnet.getDirectSynsetIds(id, holonymTypes)));
+    while (!stack.isEmpty()) {
+      HolonymFrame frame = stack.peek();
+      int next;
+      if (frame.hyponyms != null && frame.nextHyponym < frame.hyponyms.length) {
+        next = frame.hyponyms[frame.nextHyponym++];
+        if (!visited.get(next) && wordnet.getDomainId(next) == domain) {
+          visited.set(next);
+          found.set(next);
+          stack.push(new HolonymFrame(next, false, true, wordnet.getDirectSynsetIds(next, holonymTypes)));
+        }
+      } else if (frame.nextHolonym < frame.holonyms.length) {
+        next = frame.holonyms[frame.nextHolonym++];
+        frame.hyponyms = null;
+        if (!visited.get(next) && wordnet.getDomainId(next) == domain) {
+          visited.set(next);
+          found.set(next);
+          if (frame.takeHyponyms) {
+            frame.hyponyms = wordnet.getDirectSynsetIds(next, hyponymTypes);
+            frame.nextHyponym = 0;
+          }
+          stack.push(new HolonymFrame(next, true, true, wordnet.getDirectSynsetIds(next, holonymTypes)));
+        }
+      } else if (frame.takeHypernyms) {
+        if (frame.hypernyms == null) {
+          frame.hypernyms = wordnet.getDirectSynsetIds(frame.synset, hypernymTypes);
+        }
+        if (frame.nextHypernym < frame.hypernyms.length) {
+          next = frame.hypernyms[frame.nextHypernym++];
+          if (!visited.get(next) && wordnet.getDomainId(next) == domain) {
+            visited.set(next);
+            found.set(next);
+            stack.push(new HolonymFrame(next, true, false, wordnet.getDirectSynsetIds(next, holonymTypes)));
+          }
+        } else {
+          stack.pop();
         }
+      } else {
+        stack.pop();
       }
     }
+    holonyms.addAll(wordnet.getSynsets(found));
   }
 
 
@@ -306,5 +257,30 @@ public class Wordnet3 {
     return holonyms;
   }
 
+  /**
+   * Stan przejścia dla jednego synsetu w {@link #getHolonyms(PrincetonDataRaw, Set, boolean, boolean)}.
+   */
+  private static class HolonymFrame {
+    final int synset;
+    final boolean takeHypernyms;
+    final boolean takeHyponyms;
+    final int[] holonyms;
+    int nextHolonym = 0;
+    int[] hyponyms = null;
+    int nextHyponym = 0;
+    int[] hypernyms = null;
+    int nextHypernym = 0;
+
+    HolonymFrame(int synset, boolean takeHypernyms, boolean takeHyponyms, int[] holonyms) {
+      this.synset = synset;
+      this.takeHypernyms = takeHypernyms;
+      this.takeHyponyms = takeHyponyms;
+      this.holonyms = holonyms;
+    }
+  }
+
+  private boolean[] getRelationTypes(String relation) {
+    return relationTypes.computeIfAbsent(relation, r -> wordnet.getRelationTypes(type -> type.startsWith(r)));
+  }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,294 @@
+package g419.toolbox.wordnet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataLemmaRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonDataRelationRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonIndexRaw;
+import pl.wroc.pwr.ci.plwordnet.plugins.princetonadapter.da.PrincetonParser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Porównuje Wordnet3 działający na skompilowanym obrazie MappedWordnet z wczytaniem plików w formacie
+ * Princeton i przejściami rekurencyjnymi, tak jak robił to Wordnet3 przed wprowadzeniem obrazu.
+ */
+public class MappedWordnetTest {
+
+  private static final String WORDNET = "/wordnet";
+
+  private static final String[][] POSES = new String[][] {{"adj", "a"}, {"adv", "r"}, {"noun", "n"}, {"verb", "v"}};
+
+  private static final String[] RELATIONS = new String[] {
+      Wordnet3.REL_HYPERNYM, Wordnet3.REL_HYPONYM, Wordnet3.REL_HOLONYM, Wordnet3.REL_MERONYM};
+
+  private File getDirectory() throws Exception {
+    return new File(getClass().getResource(WORDNET).toURI());
+  }
+
+  private Wordnet3 compile() throws Exception {
+    final File image = File.createTempFile("wordnet", ".lwn");
+    image.deleteOnExit();
+    MappedWordnet.compile(getDirectory().getPath(), image.getPath());
+    Assert.assertTrue(MappedWordnet.isCompiled(image));
+    return new Wordnet3(image.getPath());
+  }
+
+  private static String key(final PrincetonDataRaw synset) {
+    return synset.pos + ":" + synset.offset;
+  }
+
+  private static List<String> keys(final Collection<PrincetonDataRaw> synsets) {
+    final List<String> keys = new ArrayList<>();
+    for (final PrincetonDataRaw synset : synsets) {
+      keys.add(key(synset));
+    }
+    return keys;
+  }
+
+  private static Set<String> keySet(final Collection<PrincetonDataRaw> synsets) {
+    return new TreeSet<>(keys(synsets));
+  }
+
+  private static String describe(final PrincetonDataRaw synset) {
+    final StringBuilder sb = new StringBuilder(key(synset));
+    sb.append("|").append(synset.domain).append("|").append(synset.definition);
+    for (final PrincetonDataLemmaRaw lemma : synset.lemmas) {
+      sb.append("|").append(lemma.lemma).append(" ").append(lemma.variant);
+    }
+    for (final PrincetonDataRelationRaw relation : synset.relations) {
+      sb.append("|").append(relation.type).append(" ").append(relation.offset)
+          .append(" ").append(relation.pos).append(" ").append(relation.index);
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testSynsets() throws Exception {
+    final Reference reference = new Reference(getDirectory());
+    final Wordnet3 wordnet = compile();
+    final Map<String, String> expected = new TreeMap<>();
+    for (final PrincetonDataRaw synset : reference.getSynsets()) {
+      expected.put(key(synset), describe(synset));
+    }
+    final Map<String, String> actual = new TreeMap<>();
+    for (final PrincetonDataRaw synset : wordnet.getSynsets()) {
+      actual.put(key(synset), describe(synset));
+    }
+    Assert.assertEquals(18, expected.size());
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testLookup() throws Exception {
+    final Reference reference = new Reference(getDirectory());
+    final Wordnet3 wordnet = compile();
+    for (final String lemma : reference.getLemmas()) {
+      Assert.assertEquals(lemma, keys(reference.getSynsets(lemma)), keys(wordnet.getSynsets(lemma)));
+      for (int sense = 1; sense <= 3; sense++) {
+        Assert.assertEquals(lemma + " " + sense,
+            keys(reference.getSynsets(lemma, sense)), keys(wordnet.getSynsets(lemma, sense)));
+      }
+    }
+    Assert.assertEquals(Arrays.asList("r:00000100", "n:00000100"), keys(wordnet.getSynsets("koło")));
+    Assert.assertTrue(wordnet.getSynsets("brak").isEmpty());
+  }
+
+  @Test
+  public void testRelations() throws Exception {
+    final Reference reference = new Reference(getDirectory());
+    final Wordnet3 wordnet = compile();
+    for (final PrincetonDataRaw synset : reference.getSynsets()) {
+      final PrincetonDataRaw mapped = wordnet.getSynsets(synset.lemmas.get(0).lemma).stream()
+          .filter(s -> key(s).equals(key(synset))).findFirst().orElse(null);
+      Assert.assertNotNull(key(synset), mapped);
+      for (final String relation : RELATIONS) {
+        Assert.assertEquals(key(synset) + " " + relation,
+            keySet(reference.getDirectSynsets(synset, relation)), keySet(wordnet.getDirectSynsets(mapped, relation)));
+        Assert.assertEquals(key(synset) + " " + relation,
+            keySet(reference.getAllSynsets(synset, relation)), keySet(wordnet.getAllSynsets(mapped, relation)));
+      }
+    }
+  }
+
+  @Test
+  public void testHolonyms() throws Exception {
+    final Reference reference = new Reference(getDirectory());
+    final Wordnet3 wordnet = compile();
+    final Map<String, PrincetonDataRaw> mapped = new HashMap<>();
+    for (final PrincetonDataRaw synset : wordnet.getSynsets()) {
+      mapped.put(key(synset), synset);
+    }
+    for (final PrincetonDataRaw synset : reference.getSynsets()) {
+      Assert.assertEquals(key(synset),
+          keySet(reference.getHolonyms(synset)), keySet(wordnet.getHolonyms(mapped.get(key(synset)))));
+      for (final boolean takeHypernyms : new boolean[] {true, false}) {
+        for (final boolean takeHyponyms : new boolean[] {true, false}) {
+          final Set<PrincetonDataRaw> expected = new HashSet<>();
+          reference.getHolonyms(synset, expected, takeHypernyms, takeHyponyms);
+          final Set<PrincetonDataRaw> actual = new HashSet<>();
+          wordnet.getHolonyms(mapped.get(key(synset)), actual, takeHypernyms, takeHyponyms);
+          Assert.assertEquals(key(synset) + " " + takeHypernyms + " " + takeHyponyms,
+              keySet(expected), keySet(actual));
+        }
+      }
+    }
+    /* Taksówka (hiponim samochodu) nie należy do wyniku, ponieważ samochód jest najpierw osiągany jako
+     * holonim rzeczy (przez hiperonimy roweru), bez dołączania hiponimów -- wynik zależy od kolejności przejścia */
+    Assert.assertEquals(new TreeSet<>(Arrays.asList("n:00000200", "n:00000300", "n:00000400",
+        "n:00000600", "n:00000700", "n:00000900", "n:00001400", "n:00001500")),
+        keySet(wordnet.getHolonyms(mapped.get("n:00000500"))));
+  }
+
+  /**
+   * Wordnet wczytany z plików w formacie Princeton z przejściami rekurencyjnymi jak w dawnym Wordnet3.
+   * Relacje są przeglądane w kolejności z pliku (dawniej w kolejności HashSet).
+   */
+  private static class Reference {
+    final Map<String, Map<String, PrincetonDataRaw>> data = new HashMap<>();
+    final Map<String, Map<String, PrincetonIndexRaw>> index = new HashMap<>();
+
+    Reference(final File directory) throws Exception {
+      for (final String[] pos : POSES) {
+        final File file = new File(directory, "index." + pos[0]);
+        if (file.exists()) {
+          final Map<String, PrincetonIndexRaw> units = new HashMap<>();
+          for (final String line : readLines(file)) {
+            final PrincetonIndexRaw raw = PrincetonParser.parseIndexLine(line);
+            units.put(raw.lemma, raw);
+          }
+          index.put(pos[1], units);
+        }
+      }
+      for (final String[] pos : POSES) {
+        final File file = new File(directory, "data." + pos[0]);
+        if (file.exists()) {
+          final Map<String, PrincetonDataRaw> synsets = new HashMap<>();
+          for (final String line : readLines(file)) {
+            final PrincetonDataRaw raw = PrincetonParser.parseDataLine(line);
+            raw.pos = pos[1];
+            synsets.put(raw.offset, raw);
+          }
+          data.put(pos[1], synsets);
+        }
+      }
+    }
+
+    private static List<String> readLines(final File file) throws Exception {
+      final List<String> lines = new ArrayList<>();
+      try (BufferedReader r = new BufferedReader(
+          new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = r.readLine()) != null) {
+          if (!line.startsWith("  ")) {
+            lines.add(line);
+          }
+        }
+      }
+      return lines;
+    }
+
+    List<PrincetonDataRaw> getSynsets() {
+      final List<PrincetonDataRaw> synsets = new ArrayList<>();
+      for (final Map<String, PrincetonDataRaw> map : data.values()) {
+        synsets.addAll(map.values());
+      }
+      return synsets;
+    }
+
+    Set<String> getLemmas() {
+      final Set<String> lemmas = new TreeSet<>();
+      for (final Map<String, PrincetonIndexRaw> units : index.values()) {
+        lemmas.addAll(units.keySet());
+      }
+      return lemmas;
+    }
+
+    List<PrincetonDataRaw> getSynsets(final String word) {
+      final List<PrincetonDataRaw> synsets = new ArrayList<>();
+      for (final Map.Entry<String, Map<String, PrincetonIndexRaw>> units : index.entrySet()) {
+        if (units.getValue().containsKey(word)) {
+          for (final String offset : units.getValue().get(word).synset_offsets) {
+            synsets.add(data.get(units.getKey()).get(offset));
+          }
+        }
+      }
+      return synsets;
+    }
+
+    List<PrincetonDataRaw> getSynsets(final String word, final int sense) {
+      final List<PrincetonDataRaw> synsets = new ArrayList<>();
+      for (final Map.Entry<String, Map<String, PrincetonIndexRaw>> units : index.entrySet()) {
+        if (units.getValue().containsKey(word) && units.getValue().get(word).synset_offsets.size() >= sense) {
+          synsets.add(data.get(units.getKey()).get(units.getValue().get(word).synset_offsets.get(sense - 1)));
+        }
+      }
+      return synsets;
+    }
+
+    Set<PrincetonDataRaw> getDirectSynsets(final PrincetonDataRaw synset, final String relation) {
+      final Set<PrincetonDataRaw> synsets = new LinkedHashSet<>();
+      for (final PrincetonDataRelationRaw rel : synset.relations) {
+        if (rel.type.startsWith(relation) && data.containsKey(rel.pos)) {
+          final PrincetonDataRaw direct = data.get(rel.pos).get(rel.offset);
+          if (direct != null) {
+            synsets.add(direct);
+          }
+        }
+      }
+      return synsets;
+    }
+
+    Set<PrincetonDataRaw> getAllSynsets(final PrincetonDataRaw synset, final String relation) {
+      final Set<PrincetonDataRaw> synsets = new HashSet<>();
+      getAllSynsets(synset, relation, synsets);
+      return synsets;
+    }
+
+    void getAllSynsets(final PrincetonDataRaw synset, final String relation, final Set<PrincetonDataRaw> synsets) {
+      for (final PrincetonDataRaw synsetByRel : getDirectSynsets(synset, relation)) {
+        if (synsets.add(synsetByRel)) {
+          getAllSynsets(synsetByRel, relation, synsets);
+        }
+      }
+    }
+
+    Set<PrincetonDataRaw> getHolonyms(final PrincetonDataRaw synset) {
+      final Set<PrincetonDataRaw> holonyms = new HashSet<>();
+      getHolonyms(synset, holonyms, true, true);
+      return holonyms;
+    }
+
+    void getHolonyms(final PrincetonDataRaw synset, final Set<PrincetonDataRaw> holonyms,
+                     final boolean takeHypernyms, final boolean takeHyponyms) {
+      for (final PrincetonDataRaw synsetLinked : getDirectSynsets(synset, Wordnet3.REL_HOLONYM)) {
+        if (!holonyms.contains(synsetLinked) && synsetLinked.domain.equals(synset.domain)) {
+          holonyms.add(synsetLinked);
+          getHolonyms(synsetLinked, holonyms, true, true);
+          if (takeHyponyms) {
+            for (final PrincetonDataRaw hyponym : getDirectSynsets(synsetLinked, Wordnet3.REL_HYPONYM)) {
+              if (!holonyms.contains(hyponym) && hyponym.domain.equals(synset.domain)) {
+                holonyms.add(hyponym);
+                getHolonyms(hyponym, holonyms, false, true);
+              }
+            }
+          }
+        }
+      }
+      if (takeHypernyms) {
+        for (final PrincetonDataRaw synsetLinked : getDirectSynsets(synset, Wordnet3.REL_HYPERNYM)) {
+          if (!holonyms.contains(synsetLinked) && synsetLinked.domain.equals(synset.domain)) {
+            holonyms.add(synsetLinked);
+            getHolonyms(synsetLinked, holonyms, true, false);
+          }
+        }
+      }
+    }
+  }
+}
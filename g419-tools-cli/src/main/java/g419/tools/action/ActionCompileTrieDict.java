@@ -0,0 +1,37 @@
+package g419.tools.action;
+
+import g419.lib.cli.Action;
+import g419.lib.cli.CommonOptions;
+import g419.liner2.core.tools.MappedTrieDict;
+import g419.liner2.core.tools.TrieDictNode;
+import org.apache.commons.cli.CommandLine;
+
+/**
+ * Kompiluje słownik fraz (jedna fraza w linii, słowa oddzielone spacjami) do binarnego formatu
+ * MappedTrieDict, który jest mapowany do pamięci zamiast wczytywania pliku tekstowego.
+ */
+public class ActionCompileTrieDict extends Action {
+
+  private String inputFilename = null;
+  private String outputFilename = null;
+
+  public ActionCompileTrieDict() {
+    super("compile-trie-dict");
+    this.setDescription("kompiluje słownik fraz do binarnego formatu mapowanego do pamięci");
+    this.options.addOption(CommonOptions.getInputFileNameOption());
+    this.options.addOption(CommonOptions.getOutputFileNameOption());
+  }
+
+  @Override
+  public void parseOptions(final CommandLine line) throws Exception {
+    this.inputFilename = line.getOptionValue(CommonOptions.OPTION_INPUT_FILE_LONG);
+    this.outputFilename = line.getOptionValue(CommonOptions.OPTION_OUTPUT_FILE_LONG);
+  }
+
+  @Override
+  public void run() throws Exception {
+    TrieDictNode dict = TrieDictNode.loadPlain(this.inputFilename);
+    MappedTrieDict.compile(dict, this.outputFilename);
+  }
+
+}
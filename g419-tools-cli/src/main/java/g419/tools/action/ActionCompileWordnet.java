@@ -0,0 +1,41 @@
+package g419.tools.action;
+
+import g419.lib.cli.Action;
+import g419.lib.cli.CommonOptions;
+import g419.toolbox.wordnet.MappedWordnet;
+import org.apache.commons.cli.CommandLine;
+
+import java.io.File;
+
+/**
+ * Kompiluje wordnet w formacie Princeton do binarnego obrazu MappedWordnet, który może być
+ * podany zamiast katalogu wszędzie tam, gdzie wczytywany jest wordnet. Domyślnie obraz jest
+ * zapisywany w katalogu wordnetu, skąd jest wczytywany automatycznie.
+ */
+public class ActionCompileWordnet extends Action {
+
+  private String wordnetPath = null;
+  private String outputFilename = null;
+
+  public ActionCompileWordnet() {
+    super("compile-wordnet");
+    this.setDescription("kompiluje wordnet w formacie Princeton do binarnego obrazu mapowanego do pamięci; "
+        + "bez -o obraz jest zapisywany w katalogu wordnetu jako " + MappedWordnet.IMAGE_FILE_NAME);
+    this.options.addOption(CommonOptions.getWordnetOption(true));
+    this.options.addOption(CommonOptions.getOutputFileNameOption());
+  }
+
+  @Override
+  public void parseOptions(final CommandLine line) throws Exception {
+    this.wordnetPath = line.getOptionValue(CommonOptions.OPTION_WORDNET_LONG);
+    this.outputFilename = line.getOptionValue(CommonOptions.OPTION_OUTPUT_FILE_LONG,
+        new File(this.wordnetPath, MappedWordnet.IMAGE_FILE_NAME).getPath());
+  }
+
+  @Override
+  public void run() throws Exception {
+    MappedWordnet.compile(this.wordnetPath, this.outputFilename);
+    getLogger().info("Wordnet {} compiled to {}", this.wordnetPath, this.outputFilename);
+  }
+
+}
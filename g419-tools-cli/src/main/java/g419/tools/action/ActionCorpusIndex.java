@@ -0,0 +1,74 @@
+package g419.tools.action;
+
+import g419.corpus.io.reader.AbstractDocumentReader;
+import g419.corpus.io.reader.ReaderFactory;
+import g419.corpus.search.CorpusIndexBuilder;
+import g419.corpus.structure.Document;
+import g419.lib.cli.Action;
+import g419.lib.cli.CommonOptions;
+import g419.lib.cli.ParameterException;
+import g419.liner2.core.LinerOptions;
+import g419.liner2.core.features.TokenFeatureGenerator;
+import org.apache.commons.cli.CommandLine;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+
+/**
+ * Tworzy indeks korpusu dla akcji corpus-search i search.
+ */
+public class ActionCorpusIndex extends Action {
+
+  private String inputFilename = null;
+  private String inputFormat = null;
+  private String featuresFile = null;
+  private String outputFilename = null;
+
+  public ActionCorpusIndex() {
+    super("corpus-index");
+    this.setDescription("tworzy indeks form, form podstawowych, tagów, cech i anotacji korpusu dla akcji corpus-search i search");
+    this.options.addOption(CommonOptions.getInputFileFormatOption());
+    this.options.addOption(CommonOptions.getInputFileNameOption());
+    this.options.addOption(CommonOptions.getFeaturesOption(false));
+    this.options.addOption(CommonOptions.getOutputFileNameOption());
+  }
+
+  @Override
+  public void parseOptions(final CommandLine line) throws Exception {
+    this.inputFilename = line.getOptionValue(CommonOptions.OPTION_INPUT_FILE_LONG);
+    this.inputFormat = line.getOptionValue(CommonOptions.OPTION_INPUT_FORMAT_LONG, "ccl");
+    this.featuresFile = line.getOptionValue(CommonOptions.OPTION_FEATURES_LONG);
+    this.outputFilename = line.getOptionValue(CommonOptions.OPTION_OUTPUT_FILE_LONG);
+    if (this.outputFilename == null) {
+      throw new ParameterException("Missing output file of the index (-" + CommonOptions.OPTION_OUTPUT_FILE + ")");
+    }
+  }
+
+  @Override
+  public void run() throws Exception {
+    TokenFeatureGenerator gen = null;
+    if (this.featuresFile != null) {
+      LinkedHashMap<String, String> features = LinerOptions.getGlobal().parseFeatures(this.featuresFile);
+      gen = new TokenFeatureGenerator(features);
+    }
+
+    CorpusIndexBuilder builder = new CorpusIndexBuilder();
+    int documents = 0;
+    try (AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(this.inputFilename, this.inputFormat)) {
+      Document document;
+      while ((document = reader.nextDocument()) != null) {
+        if (gen != null) {
+          gen.generateFeatures(document);
+        }
+        builder.add(document);
+        documents++;
+      }
+    }
+
+    try (OutputStream os = new FileOutputStream(this.outputFilename)) {
+      builder.write(os);
+    }
+    getLogger().info("Indexed {} documents in {}", documents, this.outputFilename);
+  }
+}
@@ -2,31 +2,64 @@ package g419.tools.action;
 
 import g419.corpus.io.reader.AbstractDocumentReader;
 import g419.corpus.io.reader.ReaderFactory;
+import g419.corpus.search.CorpusIndex;
+import g419.corpus.search.CorpusIndexBuilder;
+import g419.corpus.search.CorpusMatch;
+import g419.corpus.search.CorpusQuery;
 import g419.corpus.structure.Document;
-import g419.corpus.structure.Sentence;
-import g419.corpus.structure.Token;
 import g419.lib.cli.Action;
 import g419.lib.cli.CommonOptions;
+import g419.lib.cli.ParameterException;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
-import org.apache.log4j.Logger;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wyszukuje zdania zawierające frazy pasujące do zapytania ({@link CorpusQuery}). Zapytanie jest
+ * wykonywane na indeksie utworzonym akcją corpus-index, a gdy indeks nie został podany --
+ * na indeksie korpusu budowanym w pamięci.
+ */
 public class ActionCorpusSearch extends Action {
 
   private final String OPTION_QUERY_LONG = "query";
   private final String OPTION_QUERY = "q";
 
+  public static final String OPTION_INDEX_LONG = "index";
+  public static final String OPTION_INDEX = "x";
+
+  public static final String OPTION_CONTEXT_LONG = "context";
+  public static final String OPTION_CONTEXT = "c";
+
   private String inputFilename = null;
   private String inputFormat = null;
+  private String indexFilename = null;
   private String query = null;
+  private Integer context = null;
 
   public ActionCorpusSearch() {
     super("corpus-search");
     this.setDescription("wyszukuje zdania zawierające określone frazy");
+    this.setExample("corpus-search -x corpus.idx -q \"base=pan&ctag=subst* ann=nam_liv*\" -c 5");
     this.options.addOption(CommonOptions.getInputFileFormatOption());
     this.options.addOption(CommonOptions.getInputFileNameOption());
+    this.options.addOption(getIndexOption());
     this.options.addOption(Option.builder(OPTION_QUERY).longOpt(OPTION_QUERY_LONG).hasArg().argName("phrase")
-        .desc("fraza do znalezienia").required().required().build());
+        .desc("fraza do znalezienia: sekwencja warunków pole=wartość, pole=prefiks*, pole~wyrażenie, "
+            + "prefiks formy lub * dla kolejnych tokenów; warunki jednego tokenu łączy się znakiem &").required().build());
+    this.options.addOption(getContextOption());
+  }
+
+  public static Option getIndexOption() {
+    return Option.builder(OPTION_INDEX).longOpt(OPTION_INDEX_LONG).hasArg().argName("filename")
+        .desc("indeks korpusu utworzony akcją corpus-index").build();
+  }
+
+  public static Option getContextOption() {
+    return Option.builder(OPTION_CONTEXT).longOpt(OPTION_CONTEXT_LONG).hasArg().argName("tokens")
+        .desc("wypisz konkordancję z podaną liczbą tokenów kontekstu").build();
   }
 
   /**
@@ -38,76 +71,67 @@ public class ActionCorpusSearch extends Action {
   public void parseOptions(final CommandLine line) throws Exception {
     this.inputFilename = line.getOptionValue(CommonOptions.OPTION_INPUT_FILE_LONG);
     this.inputFormat = line.getOptionValue(CommonOptions.OPTION_INPUT_FORMAT_LONG);
+    this.indexFilename = line.getOptionValue(OPTION_INDEX_LONG);
     this.query = line.getOptionValue(OPTION_QUERY_LONG);
+    if (line.hasOption(OPTION_CONTEXT_LONG)) {
+      this.context = Integer.parseInt(line.getOptionValue(OPTION_CONTEXT_LONG));
+    }
+    if (this.indexFilename == null && this.inputFilename == null) {
+      throw new ParameterException("Either an index (-" + OPTION_INDEX + ") or an input file (-"
+          + CommonOptions.OPTION_INPUT_FILE + ") must be given");
+    }
   }
 
   @Override
   public void run() throws Exception {
-
-    Document document = null;
-    AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(this.inputFilename, this.inputFormat);
-
-    String query = this.query.toLowerCase();
-
+    CorpusQuery query = CorpusQuery.parse(this.query);
     System.out.println("Search query: " + query);
 
-    while ((document = reader.nextDocument()) != null) {
-      Logger.getLogger(this.getClass()).info("Document: " + document.getName());
-      for (Sentence sentence : document.getSentences()) {
-        for (int i = 0; i < sentence.getTokens().size(); i++) {
-          if (this.matches(sentence, i, query) > 0) {
-            System.out.println(this.sentenceWithHighlightToString(sentence, query));
-            break;
-          }
+    CorpusIndex index;
+    if (this.indexFilename != null) {
+      index = CorpusIndex.open(new File(this.indexFilename));
+    } else {
+      CorpusIndexBuilder builder = new CorpusIndexBuilder();
+      try (AbstractDocumentReader reader = ReaderFactory.get().getStreamReader(this.inputFilename, this.inputFormat)) {
+        Document document;
+        while ((document = reader.nextDocument()) != null) {
+          getLogger().info("Document: " + document.getName());
+          builder.add(document);
         }
       }
+      index = builder.build();
     }
 
-  }
+    long time = System.currentTimeMillis();
+    List<CorpusMatch> matches = index.search(query);
+    getLogger().info("Found {} matches in {} ms", matches.size(), System.currentTimeMillis() - time);
 
-  /**
-   * @param sentence
-   * @param query
-   * @return
-   */
-  private String sentenceWithHighlightToString(Sentence sentence, String query) {
-    StringBuilder sb = new StringBuilder();
-    int matched = 0;
-    boolean bracketOpen = false;
-    for (int i = 0; i < sentence.getTokenNumber(); i++) {
-      Token token = sentence.getTokens().get(i);
-      if (matched == 0) {
-        matched = this.matches(sentence, i, query);
-        if (matched > 0) {
-          sb.append("[");
-          bracketOpen = true;
-          matched--;
-        }
-      }
-      sb.append(token.getOrth());
-      if (matched == 0 && bracketOpen) {
-        sb.append("]");
-        bracketOpen = false;
-      }
-      if (token.getNoSpaceAfter() == false) {
-        sb.append(" ");
+    if (this.context != null) {
+      for (CorpusMatch match : matches) {
+        System.out.println(index.getConcordance(match, this.context));
       }
+    } else {
+      printSentences(index, matches);
     }
-    return sb.toString();
   }
 
   /**
-   * @param sentence
-   * @param position
-   * @param query
-   * @return
+   * Wypisuje zdania z wystąpieniami, każde zdanie jeden raz.
+   *
+   * @param index
+   * @param matches
    */
-  private int matches(Sentence sentence, int position, String query) {
-    Token token = sentence.getTokens().get(position);
-    if (token.getOrth().toLowerCase().startsWith(query)) {
-      return 1;
-    } else {
-      return 0;
+  private void printSentences(CorpusIndex index, List<CorpusMatch> matches) {
+    List<CorpusMatch> sentenceMatches = new ArrayList<>();
+    for (CorpusMatch match : matches) {
+      if (!sentenceMatches.isEmpty() && sentenceMatches.get(0).getSentence() != match.getSentence()) {
+        System.out.println(index.getSentenceWithHighlight(sentenceMatches.get(0).getSentence(), sentenceMatches));
+        sentenceMatches.clear();
+      }
+      sentenceMatches.add(match);
+    }
+    if (!sentenceMatches.isEmpty()) {
+      System.out.println(index.getSentenceWithHighlight(sentenceMatches.get(0).getSentence(), sentenceMatches));
     }
   }
 }
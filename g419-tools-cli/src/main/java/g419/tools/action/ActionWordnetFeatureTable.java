@@ -0,0 +1,57 @@
+package g419.tools.action;
+
+import g419.lib.cli.Action;
+import g419.lib.cli.CommonOptions;
+import g419.lib.cli.ParameterException;
+import g419.liner2.core.features.tokens.Feature;
+import g419.liner2.core.features.tokens.TokenFeatureFactory;
+import g419.liner2.core.features.tokens.WordnetFeatureCache;
+import g419.liner2.core.features.tokens.WordnetTokenFeature;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+
+/**
+ * Wyznacza wartości cechy wordnetowej (synonym, hypernym-n, top4hyper-n) dla wszystkich lematów
+ * wordnetu i zapisuje je w tabeli, którą można dołączyć do modelu jako trzeci element opisu cechy
+ * (nazwa:wordnet:tabela). Nagłówek tabeli zawiera rodzaj cechy z parametrami i odcisk wordnetu,
+ * więc tabela nie zostanie użyta z inną cechą ani z inną wersją wordnetu.
+ */
+public class ActionWordnetFeatureTable extends Action {
+
+  public static final String OPTION_FEATURE = "e";
+  public static final String OPTION_FEATURE_LONG = "feature";
+
+  private String feature = null;
+  private String outputFilename = null;
+
+  public ActionWordnetFeatureTable() {
+    super("wordnet-feature-table");
+    this.setDescription("zapisuje tabelę wartości cechy wordnetowej dla wszystkich lematów wordnetu");
+    this.options.addOption(Option.builder(OPTION_FEATURE).longOpt(OPTION_FEATURE_LONG).hasArg().argName("description")
+        .required().desc("feature description, e.g. hypernym-1:path_to_wordnet").build());
+    this.options.addOption(CommonOptions.getOutputFileNameOption());
+  }
+
+  @Override
+  public void parseOptions(final CommandLine line) throws Exception {
+    this.feature = line.getOptionValue(OPTION_FEATURE_LONG);
+    this.outputFilename = line.getOptionValue(CommonOptions.OPTION_OUTPUT_FILE_LONG);
+    if (this.outputFilename == null) {
+      throw new ParameterException("Missing output file of the table (-" + CommonOptions.OPTION_OUTPUT_FILE + ")");
+    }
+  }
+
+  @Override
+  public void run() throws Exception {
+    Feature f = TokenFeatureFactory.create(this.feature);
+    if (!(f instanceof WordnetTokenFeature)) {
+      throw new IllegalArgumentException("Not a wordnet feature: " + this.feature);
+    }
+    WordnetTokenFeature wordnetFeature = (WordnetTokenFeature) f;
+    WordnetFeatureCache.writeTable(wordnetFeature.getTableHeader(), wordnetFeature.getDatabase().getLemmas(),
+        wordnetFeature::generate, this.outputFilename);
+    getLogger().info("Saved table of {} (wordnet {}) in {}", wordnetFeature.getKind(),
+        wordnetFeature.getDatabase().getFingerprint(), this.outputFilename);
+  }
+
+}
@@ -0,0 +1,54 @@
+package g419.tools.action;
+
+import g419.liner2.core.tools.MappedTrieDict;
+import g419.liner2.core.tools.TrieDict;
+import g419.liner2.core.tools.TrieDictNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+/**
+ * Kompiluje słownik tekstowy akcją compile-trie-dict i porównuje słownik mapowany do pamięci
+ * ze słownikiem wczytanym z pliku tekstowego.
+ */
+public class ActionCompileTrieDictTest {
+
+  private static final String[] PHRASES = {"Jan", "Jan Kowalski", "Nowy Jork", "Nowy Jork City", "Bank Polski SA"};
+
+  @Test
+  public void testCompile() throws Exception {
+    final File input = File.createTempFile("trie", ".txt");
+    input.deleteOnExit();
+    try (PrintWriter writer = new PrintWriter(input)) {
+      for (final String phrase : PHRASES) {
+        writer.println(phrase);
+      }
+    }
+    final File output = File.createTempFile("trie", ".bin");
+    output.deleteOnExit();
+
+    final ActionCompileTrieDict action = new ActionCompileTrieDict();
+    action.parseOptions(new String[]{"-f", input.getPath(), "-t", output.getPath()});
+    action.run();
+
+    Assert.assertTrue(MappedTrieDict.isCompiled(output));
+    final TrieDict plain = TrieDictNode.loadPlain(input.getPath());
+    final TrieDict mapped = TrieDict.load(output.getPath());
+    for (final String phrase : PHRASES) {
+      TrieDict plainNode = plain;
+      TrieDict mappedNode = mapped;
+      for (final String word : phrase.split(" ")) {
+        plainNode = plainNode.getChild(word);
+        mappedNode = mappedNode.getChild(word);
+        Assert.assertNotNull(phrase, mappedNode);
+        Assert.assertEquals(phrase, plainNode.isTerminal(), mappedNode.isTerminal());
+        Assert.assertEquals(phrase, plainNode.getValue(), mappedNode.getValue());
+      }
+      Assert.assertTrue(phrase, mappedNode.isTerminal());
+    }
+    Assert.assertFalse(mapped.getChild("Bank").getChild("Polski").isTerminal());
+    Assert.assertNull(mapped.getChild("Kowalski"));
+  }
+}